@@ -406,7 +406,9 @@ public class EurostagImpactAnalysis implements ImpactAnalysis, EurostagConstants
                 }
             }
             // also scan errors in output
-            EurostagUtil.searchErrorMessage(workingDir.resolve(FAULT_OUT_GZ_FILE_NAME.replace(CommandConstants.EXECUTION_NUMBER_PATTERN, Integer.toString(i))), result.getMetrics(), i);
+            EurostagOutputScanner.scan(workingDir.resolve(FAULT_OUT_GZ_FILE_NAME.replace(CommandConstants.EXECUTION_NUMBER_PATTERN, Integer.toString(i))),
+                                       EnumSet.of(EurostagOutputScanner.Diagnostic.ERROR_MESSAGE))
+                    .putErrorMessage(result.getMetrics(), i);
         }
 
         LOGGER.trace("{} security indexes files read in {} ms", files, System.currentTimeMillis() - start);
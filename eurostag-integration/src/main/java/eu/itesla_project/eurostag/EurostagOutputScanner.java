@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.eurostag;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Scan a Eurostag simulation output in a single pass, extracting all the requested diagnostics at once.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+final class EurostagOutputScanner {
+
+    enum Diagnostic {
+        /**
+         * First error message
+         */
+        ERROR_MESSAGE,
+
+        /**
+         * Variables out of their limits at initialization
+         */
+        INITIAL_VALUE_ERRORS,
+
+        /**
+         * Variables far from the steady state
+         */
+        STEADY_STATE_ERRORS
+    }
+
+    static final class Result {
+
+        private String errorMessage;
+
+        private String initialValueErrors;
+
+        private String steadyStateErrors;
+
+        /**
+         * @return first error message as a json object, or null if there is no error
+         */
+        String getErrorMessage() {
+            return errorMessage;
+        }
+
+        /**
+         * @return initial value errors as a json array, or null if there is no error
+         */
+        String getInitialValueErrors() {
+            return initialValueErrors;
+        }
+
+        /**
+         * @return steady state errors as a json array, or null if there is no error
+         */
+        String getSteadyStateErrors() {
+            return steadyStateErrors;
+        }
+
+        void putErrorMessage(Map<String, String> metrics, Integer contingencyNum) {
+            if (errorMessage != null) {
+                metrics.put("error" + (contingencyNum != null ? "_" + contingencyNum : ""), errorMessage);
+            }
+        }
+    }
+
+    private static final Pattern ERROR_PATTERN = Pattern.compile("  ERR-(\\d*).(\\d*):(.*)");
+
+    private static final String HEADER_STEADY_STATE
+            = "     MACHINE  MACROBLOC         NOM VAR.        SORT. BLOC    VALEUR EQU.      (P.U.)";
+
+    private static final String HEADER_INITIAL_VALUE
+            = "    MACHINE            MACROBLOC   VARIABLE    BLOC DE SOR.  INITIA      LIMITE INF.       VALEUR      LIMITE SUP.";
+
+    private static final Supplier<JsonFactory> JSON_FACTORY_SUPPLIER = Suppliers.memoize(() -> new JsonFactory());
+
+    private static class InitialValueError {
+        String machine;
+        String macrobloc;
+        String variable;
+        String blocdesort;
+        String limiteinf;
+        String valeur;
+        String limitesup;
+    }
+
+    private static class SteadyStateError {
+        String machine;
+        String macrobloc;
+        String variable;
+        String blocdesort;
+        float valeurPu;
+    }
+
+    private final Set<Diagnostic> diagnostics;
+
+    private final Result result = new Result();
+
+    private final List<InitialValueError> initialValueErrors = new ArrayList<>();
+
+    private final List<SteadyStateError> steadyStateErrors = new ArrayList<>();
+
+    private boolean inInitialValues = false;
+
+    private boolean inSteadyState = false;
+
+    private EurostagOutputScanner(Set<Diagnostic> diagnostics) {
+        this.diagnostics = Objects.requireNonNull(diagnostics);
+    }
+
+    /**
+     * @return an empty result if the output does not exist
+     */
+    static Result scan(Path fileGz, Set<Diagnostic> diagnostics) throws IOException {
+        if (Files.exists(fileGz)) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(fileGz)), StandardCharsets.UTF_8))) {
+                return scan(reader, diagnostics);
+            }
+        }
+        return new Result();
+    }
+
+    static Result scan(BufferedReader reader, Set<Diagnostic> diagnostics) throws IOException {
+        return new EurostagOutputScanner(diagnostics).scan(reader);
+    }
+
+    private Result scan(BufferedReader reader) throws IOException {
+        String previousLine = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (diagnostics.contains(Diagnostic.ERROR_MESSAGE) && result.errorMessage == null) {
+                searchErrorMessage(line);
+                // the error message is the only diagnostic which does not need to read the whole output
+                if (result.errorMessage != null && diagnostics.equals(EnumSet.of(Diagnostic.ERROR_MESSAGE))) {
+                    break;
+                }
+            }
+            if (diagnostics.contains(Diagnostic.INITIAL_VALUE_ERRORS)) {
+                searchInitialValueErrors(line, previousLine);
+            }
+            if (diagnostics.contains(Diagnostic.STEADY_STATE_ERRORS)) {
+                searchSteadyStateErrors(line, previousLine);
+            }
+            previousLine = line;
+        }
+        if (!initialValueErrors.isEmpty()) {
+            result.initialValueErrors = toJson(initialValueErrors, EurostagOutputScanner::writeInitialValueError);
+        }
+        if (!steadyStateErrors.isEmpty()) {
+            steadyStateErrors.sort((o1, o2) -> Float.compare(o1.valeurPu, o2.valeurPu));
+            result.steadyStateErrors = toJson(steadyStateErrors, EurostagOutputScanner::writeSteadyStateError);
+        }
+        return result;
+    }
+
+    private void searchErrorMessage(String line) throws IOException {
+        Matcher matcher = ERROR_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            StringWriter writer = new StringWriter();
+            try (JsonGenerator generator = JSON_FACTORY_SUPPLIER.get().createGenerator(writer)) {
+                generator.writeStartObject();
+                generator.writeStringField("mod", matcher.group(1));
+                generator.writeStringField("num", matcher.group(2));
+                generator.writeStringField("msg", matcher.group(3));
+                generator.writeEndObject();
+            }
+            result.errorMessage = writer.toString();
+        }
+    }
+
+    /**
+     * The table starts with the line following the header and a blank line, and ends with a blank line.
+     */
+    private void searchInitialValueErrors(String line, String previousLine) {
+        if (line.isEmpty() && HEADER_INITIAL_VALUE.equals(previousLine)) {
+            inInitialValues = true;
+        } else if (inInitialValues && line.trim().isEmpty()) {
+            inInitialValues = false;
+        }
+        if (inInitialValues && line.length() > 0 && line.charAt(line.length() - 1) == '*') {
+            InitialValueError error = new InitialValueError();
+            error.machine = line.substring(8, 16).trim();
+            error.macrobloc = line.substring(24, 32).trim();
+            error.variable = line.substring(36, 44).trim();
+            error.blocdesort = line.substring(46, 54).trim();
+            error.limiteinf = line.substring(68, 80).trim();
+            error.valeur = line.substring(83, 95).trim();
+            error.limitesup = line.substring(98, 110).trim();
+            initialValueErrors.add(error);
+        }
+    }
+
+    /**
+     * The table starts with the line following the header and a blank line, and ends with a blank line or a page
+     * break.
+     */
+    private void searchSteadyStateErrors(String line, String previousLine) {
+        if (line.isEmpty() && HEADER_STEADY_STATE.equals(previousLine)) {
+            inSteadyState = true;
+        } else if (inSteadyState && (line.trim().isEmpty() || "1".equals(line))) {
+            inSteadyState = false;
+        }
+        if (inSteadyState && line.length() > 0) {
+            SteadyStateError error = new SteadyStateError();
+            error.machine = line.substring(5, 13).trim();
+            error.macrobloc = line.substring(16, 24).trim();
+            error.variable = line.substring(29, 43).trim();
+            error.blocdesort = line.substring(44, 56).trim();
+            String token = line.substring(73, 84).trim();
+            error.valeurPu = token.contains("*") ? Float.NaN : Float.parseFloat(token);
+            if (Float.isNaN(error.valeurPu) || error.valeurPu > 10) {
+                steadyStateErrors.add(error);
+            }
+        }
+    }
+
+    private interface JsonWriter<T> {
+
+        void write(T value, JsonGenerator generator) throws IOException;
+    }
+
+    private static <T> String toJson(List<T> values, JsonWriter<T> valueWriter) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY_SUPPLIER.get().createGenerator(writer)) {
+            generator.writeStartArray();
+            for (T value : values) {
+                valueWriter.write(value, generator);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+    private static void writeInitialValueError(InitialValueError error, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("machine", error.machine);
+        generator.writeStringField("macrobloc", error.macrobloc);
+        generator.writeStringField("variable", error.variable);
+        generator.writeStringField("blocdesort", error.blocdesort);
+        generator.writeStringField("macrobloc", error.macrobloc);
+        generator.writeStringField("limiteinf", error.limiteinf);
+        generator.writeStringField("valeur", error.valeur);
+        generator.writeStringField("limitesup", error.limitesup);
+        generator.writeEndObject();
+    }
+
+    private static void writeSteadyStateError(SteadyStateError error, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("machine", error.machine);
+        generator.writeStringField("macrobloc", error.macrobloc);
+        generator.writeStringField("variable", error.variable);
+        generator.writeStringField("blocdesort", error.blocdesort);
+        generator.writeNumberField("valeurPu", error.valeurPu);
+        generator.writeEndObject();
+    }
+}
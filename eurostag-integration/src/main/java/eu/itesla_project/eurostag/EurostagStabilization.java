@@ -290,13 +290,14 @@ public class EurostagStabilization implements Stabilization, EurostagConstants {
         EurostagUtil.putBadExitCode(report, metrics);
         Path preFaultOutGzFile = workingDir.resolve(PRE_FAULT_OUT_GZ_FILE_NAME);
         try {
-            EurostagUtil.searchErrorMessage(preFaultOutGzFile, metrics, null);
-            String initialValueErrors = EurostagUtil.searchInitialValueErrors(preFaultOutGzFile);
+            EurostagOutputScanner.Result preFaultOut = EurostagOutputScanner.scan(preFaultOutGzFile, EnumSet.allOf(EurostagOutputScanner.Diagnostic.class));
+            preFaultOut.putErrorMessage(metrics, null);
+            String initialValueErrors = preFaultOut.getInitialValueErrors();
             if (initialValueErrors != null) {
                 LOGGER.error("Simulation intialization errors: {}", initialValueErrors);
                 metrics.put("initialValueErrors", initialValueErrors);
             }
-            String steadyStateErrors = EurostagUtil.searchSteadyStateErrors(preFaultOutGzFile);
+            String steadyStateErrors = preFaultOut.getSteadyStateErrors();
             if (steadyStateErrors != null) {
                 LOGGER.error("Simulation steady state errors: {}", steadyStateErrors);
                 metrics.put("steadyStateErrors", steadyStateErrors);
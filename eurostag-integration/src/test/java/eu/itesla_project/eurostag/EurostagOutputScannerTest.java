@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.eurostag;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class EurostagOutputScannerTest {
+
+    private static String steadyStateRow(String machine, String macrobloc, String variable, String blocdesort, String valeurPu) {
+        StringBuilder line = new StringBuilder();
+        put(line, 5, machine);
+        put(line, 16, macrobloc);
+        put(line, 29, variable);
+        put(line, 44, blocdesort);
+        put(line, 73, valeurPu);
+        put(line, 84, "");
+        return line.toString();
+    }
+
+    private static void put(StringBuilder line, int column, String value) {
+        line.append(Strings.repeat(" ", column - line.length())).append(value);
+    }
+
+    private static final String OUTPUT = String.join(System.lineSeparator(),
+            "  SIMULATION",
+            "  ERR-12.34:FIRST ERROR",
+            "  ERR-56.78:SECOND ERROR",
+            "",
+            "     MACHINE  MACROBLOC         NOM VAR.        SORT. BLOC    VALEUR EQU.      (P.U.)",
+            "",
+            steadyStateRow("GEN2", "MB2", "VAR2", "B2", "***********"),
+            steadyStateRow("GEN1", "MB1", "VAR1", "B1", "25.0"),
+            steadyStateRow("GEN3", "MB3", "VAR3", "B3", "1.0"),
+            "",
+            steadyStateRow("GEN4", "MB4", "VAR4", "B4", "50.0"));
+
+    private static EurostagOutputScanner.Result scan(EnumSet<EurostagOutputScanner.Diagnostic> diagnostics) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new StringReader(OUTPUT))) {
+            return EurostagOutputScanner.scan(reader, diagnostics);
+        }
+    }
+
+    @Test
+    public void testAllDiagnostics() throws IOException {
+        EurostagOutputScanner.Result result = scan(EnumSet.allOf(EurostagOutputScanner.Diagnostic.class));
+        assertEquals("{\"mod\":\"12\",\"num\":\"34\",\"msg\":\"FIRST ERROR\"}", result.getErrorMessage());
+        assertNull(result.getInitialValueErrors());
+        assertEquals("[{\"machine\":\"GEN1\",\"macrobloc\":\"MB1\",\"variable\":\"VAR1\",\"blocdesort\":\"B1\",\"valeurPu\":25.0},"
+                        + "{\"machine\":\"GEN2\",\"macrobloc\":\"MB2\",\"variable\":\"VAR2\",\"blocdesort\":\"B2\",\"valeurPu\":\"NaN\"}]",
+                     result.getSteadyStateErrors());
+
+        Map<String, String> metrics = new HashMap<>();
+        result.putErrorMessage(metrics, 3);
+        assertEquals(result.getErrorMessage(), metrics.get("error_3"));
+    }
+
+    @Test
+    public void testErrorMessageOnly() throws IOException {
+        EurostagOutputScanner.Result result = scan(EnumSet.of(EurostagOutputScanner.Diagnostic.ERROR_MESSAGE));
+        assertEquals("{\"mod\":\"12\",\"num\":\"34\",\"msg\":\"FIRST ERROR\"}", result.getErrorMessage());
+        assertNull(result.getSteadyStateErrors());
+    }
+}
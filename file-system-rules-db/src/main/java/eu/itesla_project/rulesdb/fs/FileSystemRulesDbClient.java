@@ -12,10 +12,14 @@ import com.powsybl.simulation.securityindexes.SecurityIndexType;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -23,8 +27,33 @@ import java.util.stream.Stream;
  */
 public abstract class FileSystemRulesDbClient implements RulesDbClient {
 
+    /**
+     * Minimal delay between 2 checks of the rule files of a workflow for changes made outside of this client.
+     */
+    private static final long REFRESH_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Rules of a workflow, loaded in memory to be looked up concurrently without any I/O.
+     */
+    private static final class WorkflowRules {
+
+        private final Map<RuleId, SecurityRule> rules;
+
+        private final long stamp;
+
+        private volatile long lastCheckTime;
+
+        private WorkflowRules(Map<RuleId, SecurityRule> rules, long stamp) {
+            this.rules = rules;
+            this.stamp = stamp;
+            lastCheckTime = System.currentTimeMillis();
+        }
+    }
+
     private final SecurityRuleSerializerLoader loader;
 
+    private final Map<String, WorkflowRules> workflowsRules = new ConcurrentHashMap<>();
+
     protected FileSystemRulesDbClient(SecurityRuleSerializerLoader loader) {
         this.loader = Objects.requireNonNull(loader);
     }
@@ -73,32 +102,107 @@ public abstract class FileSystemRulesDbClient implements RulesDbClient {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        // rules of the workflow will be reloaded on next lookup
+        workflowsRules.remove(rule.getWorkflowId());
+    }
+
+    private static long getLastModifiedTime(Path file) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (UnsupportedOperationException e) {
+            // not supported by all the file systems, only added or removed rule files are detected
+            return 0;
+        }
+    }
+
+    /**
+     * Summary of the rule files of a workflow, which changes when a rule file is added, removed or modified.
+     */
+    private static long getStamp(Path workflowDir) throws IOException {
+        long stamp = 1;
+        for (RuleAttributeSet attributeSet : RuleAttributeSet.values()) {
+            Path attributeSetDir = workflowDir.resolve(attributeSet.name());
+            if (Files.exists(attributeSetDir)) {
+                List<Path> ruleFiles;
+                try (Stream<Path> stream = Files.list(attributeSetDir)) {
+                    ruleFiles = stream.sorted().collect(Collectors.toList());
+                }
+                for (Path ruleFile : ruleFiles) {
+                    stamp = 31 * stamp + ruleFile.getFileName().toString().hashCode();
+                    stamp = 31 * stamp + getLastModifiedTime(ruleFile);
+                }
+            }
+        }
+        return stamp;
+    }
+
+    private WorkflowRules loadRules(String workflowId, Path workflowDir) throws IOException {
+        long stamp = getStamp(workflowDir);
+        Map<RuleId, SecurityRule> rules = new HashMap<>();
+        for (RuleAttributeSet attributeSet : RuleAttributeSet.values()) {
+            Path attributeSetDir = workflowDir.resolve(attributeSet.name());
+            if (Files.exists(attributeSetDir)) {
+                List<Path> ruleFiles;
+                try (Stream<Path> stream = Files.list(attributeSetDir)) {
+                    ruleFiles = stream.collect(Collectors.toList());
+                }
+                // when a rule is available in several formats, the first serializer wins
+                for (SecurityRuleSerializer serializer : loader.loadAll()) {
+                    String extension = "." + serializer.getFormat();
+                    for (Path ruleFile : ruleFiles) {
+                        String fileName = ruleFile.getFileName().toString();
+                        if (fileName.endsWith(extension)) {
+                            SecurityIndexId securityIndexId = SecurityIndexId.fromString(fileName.substring(0, fileName.length() - extension.length()));
+                            RuleId ruleId = new RuleId(attributeSet, securityIndexId);
+                            if (!rules.containsKey(ruleId)) {
+                                try (InputStream is = Files.newInputStream(ruleFile)) {
+                                    rules.put(ruleId, serializer.parse(ruleId, workflowId, is));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new WorkflowRules(rules, stamp);
+    }
+
+    private WorkflowRules getWorkflowRules(String workflowId) {
+        WorkflowRules workflowRules = workflowsRules.get(workflowId);
+        if (workflowRules != null && System.currentTimeMillis() - workflowRules.lastCheckTime < REFRESH_CHECK_INTERVAL) {
+            return workflowRules;
+        }
+        return workflowsRules.compute(workflowId, (id, oldWorkflowRules) -> {
+            // another thread may have already reloaded or checked the rules
+            if (oldWorkflowRules != null && System.currentTimeMillis() - oldWorkflowRules.lastCheckTime < REFRESH_CHECK_INTERVAL) {
+                return oldWorkflowRules;
+            }
+            try (RulesFS fs = createRulesFS()) {
+                Path workflowDir = fs.getRoot().resolve(workflowId);
+                if (oldWorkflowRules != null && oldWorkflowRules.stamp == getStamp(workflowDir)) {
+                    oldWorkflowRules.lastCheckTime = System.currentTimeMillis();
+                    return oldWorkflowRules;
+                }
+                return loadRules(workflowId, workflowDir);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
     }
 
     @Override
-    public synchronized List<SecurityRule> getRules(String workflowId, RuleAttributeSet attributeSet, String contingencyId, SecurityIndexType securityIndexType) {
+    public List<SecurityRule> getRules(String workflowId, RuleAttributeSet attributeSet, String contingencyId, SecurityIndexType securityIndexType) {
         Objects.requireNonNull(workflowId);
         Objects.requireNonNull(contingencyId);
+        Map<RuleId, SecurityRule> workflowRules = getWorkflowRules(workflowId).rules;
         List<SecurityRule> rules = new ArrayList<>(1);
-        try (RulesFS fs = createRulesFS()) {
-            Path rootDir = fs.getRoot();
-            Path workflowDir = rootDir.resolve(workflowId);
-            for (RuleAttributeSet attributeSet2 : attributeSet != null ? new RuleAttributeSet[] {attributeSet} : RuleAttributeSet.values()) {
-                Path attributeSetDir = workflowDir.resolve(attributeSet2.name());
-                for (SecurityIndexType securityIndexType2 : securityIndexType != null ? new SecurityIndexType[] {securityIndexType} : SecurityIndexType.values()) {
-                    SecurityIndexId securityIndexId = new SecurityIndexId(contingencyId, securityIndexType2);
-                    for (SecurityRuleSerializer serializer : loader.loadAll()) {
-                        Path ruleFile = attributeSetDir.resolve(securityIndexId.toString() + "." + serializer.getFormat());
-                        if (Files.exists(ruleFile)) {
-                            RuleId ruleId = new RuleId(attributeSet2, securityIndexId);
-                            rules.add(serializer.parse(ruleId, workflowId, Files.newInputStream(ruleFile)));
-                            break;
-                        }
-                    }
+        for (RuleAttributeSet attributeSet2 : attributeSet != null ? new RuleAttributeSet[] {attributeSet} : RuleAttributeSet.values()) {
+            for (SecurityIndexType securityIndexType2 : securityIndexType != null ? new SecurityIndexType[] {securityIndexType} : SecurityIndexType.values()) {
+                SecurityRule rule = workflowRules.get(new RuleId(attributeSet2, new SecurityIndexId(contingencyId, securityIndexType2)));
+                if (rule != null) {
+                    rules.add(rule);
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
         return rules;
     }
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -87,6 +88,20 @@ public class LocalFileSystemRulesDbClientTest {
         assertTrue(rules2Back.isEmpty());
     }
 
+    @Test
+    public void getRulesCacheTest() {
+        RuleId ruleId1 = new RuleId(RuleAttributeSet.MONTE_CARLO, new SecurityIndexId("fault1", SecurityIndexType.TSO_OVERLOAD));
+        rulesDbClient.updateRule(new SecurityRuleMock(ruleId1, "workflow-0"));
+        List<SecurityRule> rules1Back = rulesDbClient.getRules("workflow-0", RuleAttributeSet.MONTE_CARLO, "fault1", null);
+        assertEquals(1, rules1Back.size());
+        // rules are loaded once
+        assertSame(rules1Back.get(0), rulesDbClient.getRules("workflow-0", RuleAttributeSet.MONTE_CARLO, "fault1", null).get(0));
+        // and reloaded when updated
+        RuleId ruleId2 = new RuleId(RuleAttributeSet.MONTE_CARLO, new SecurityIndexId("fault1", SecurityIndexType.SMALLSIGNAL));
+        rulesDbClient.updateRule(new SecurityRuleMock(ruleId2, "workflow-0"));
+        assertEquals(2, rulesDbClient.getRules("workflow-0", RuleAttributeSet.MONTE_CARLO, "fault1", null).size());
+    }
+
     @Test
     public void getRulesWithWildCardTest() {
         SecurityRuleMock rule1 = new SecurityRuleMock(new RuleId(RuleAttributeSet.MONTE_CARLO, new SecurityIndexId("fault1", SecurityIndexType.TSO_OVERLOAD)), "workflow-0");
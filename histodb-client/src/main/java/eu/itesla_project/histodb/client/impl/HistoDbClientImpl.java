@@ -385,19 +385,64 @@ public class HistoDbClientImpl implements HistoDbClient {
         }
     }
 
-    public void storeStartState(String simulationId, Network network, Set<Country> countryFilter) {
+    /**
+     * Update several records with a single request, the id of each record being given by the _id column
+     */
+    public void updateRecords(String[] headers, List<String> ids, List<Object[]> values) {
+        Objects.requireNonNull(headers);
+        Objects.requireNonNull(ids);
+        Objects.requireNonNull(values);
+        if (ids.size() != values.size()) {
+            throw new IllegalArgumentException("Inconsistent record ids and values");
+        }
+        StringWriter sw = new StringWriter();
+        try {
+            try (CsvListWriter writer = new CsvListWriter(sw, new CsvPreference.Builder('"', ',', "\r\n").build())) {
+                String[] headersWithId = new String[headers.length + 1];
+                headersWithId[0] = "_id";
+                System.arraycopy(headers, 0, headersWithId, 1, headers.length);
+                writer.writeHeader(headersWithId);
+                for (int i = 0; i < ids.size(); i++) {
+                    Object[] row = values.get(i);
+                    Object[] rowWithId = new Object[row.length + 1];
+                    rowWithId[0] = ids.get(i);
+                    System.arraycopy(row, 0, rowWithId, 1, row.length);
+                    writer.write(rowWithId);
+                }
+            }
 
+            try (InputStream is = httpClient.postHttpRequest(new HistoDbUrl(config,
+                                                                            "data.csv", // WARN here one must NOT use the itesla suffix (not supporting POST of new data)
+                                                                            Collections.emptyMap()),
+                                                             sw.toString().getBytes(StandardCharsets.UTF_8))) {
+                ByteStreams.toByteArray(is);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store values of " + ids.size() + " records", e);
+        }
+    }
+
+    /**
+     * Values of a network state, as stored in a simulation record
+     */
+    public static Map<String, Object> getStartStateValues(Network network, Set<Country> countryFilter) {
         Map<HistoDbAttributeId, Object> networkValues = IIDM2DB.extractCimValues(network, new IIDM2DB.Config(null, false, true, countryFilter)).getSingleValueMap();
 
-        List<String> headers = new ArrayList<>(networkValues.size());
-        for (HistoDbAttributeId attrId : networkValues.keySet()) {
-            headers.add(attrId.toString());
+        Map<String, Object> values = new LinkedHashMap<>(networkValues.size());
+        for (Map.Entry<HistoDbAttributeId, Object> e : networkValues.entrySet()) {
+            values.put(e.getKey().toString(), e.getValue());
         }
+        return values;
+    }
+
+    public void storeStartState(String simulationId, Network network, Set<Country> countryFilter) {
+
+        Map<String, Object> values = getStartStateValues(network, countryFilter);
 
         updateRecord(
                 simulationId,
-                headers.toArray(new String[] {}),
-                networkValues.values().toArray());
+                values.keySet().toArray(new String[] {}),
+                values.values().toArray());
 
     }
 
@@ -182,8 +182,7 @@ public class HistoDbHttpClientImpl implements HistoDbHttpClient {
         return is;
     }
 
-    @Override
-    public InputStream getHttpRequest(HistoDbUrl url) throws IOException {
+    private HttpRequestBase createGetRequest(HistoDbUrl url) {
         HttpRequestBase httpReq;
         String urlStr = url.format();
         if (urlStr.length() > 255) { // arbitrary very low value
@@ -195,7 +194,23 @@ public class HistoDbHttpClientImpl implements HistoDbHttpClient {
         } else {
             httpReq = new HttpGet(urlStr);
         }
-        return cachedHttpRequest(httpReq, url);
+        return httpReq;
+    }
+
+    @Override
+    public InputStream getHttpRequest(HistoDbUrl url) throws IOException {
+        if (cache != null) {
+            // the cache may rebuild the result from parts of previous results, only the missing ones being queried
+            String resourceUrl = new HistoDbUrl(url.getConfig(), url.getPath(), Collections.emptyMap()).format();
+            InputStream is = cache.getData(resourceUrl, url.getQuery(), query -> {
+                HistoDbUrl partUrl = new HistoDbUrl(url.getConfig(), url.getPath(), query);
+                return httpRequest(createGetRequest(partUrl), partUrl);
+            });
+            if (is != null) {
+                return is;
+            }
+        }
+        return cachedHttpRequest(createGetRequest(url), url);
     }
 
     @Override
@@ -18,7 +18,7 @@ public class OfflineDbFactoryImpl implements OfflineDbFactory {
     @Override
     public OfflineDb create(String dbName) {
         HistoDbConfig config = HistoDbConfig.load("offlinedb");
-        return new OfflineDbImpl(config.getConnectionParameters(), config.getStoreName());
+        return new OfflineDbImpl(config.getConnectionParameters(), config.getStoreName(), OfflineDbWriteConfig.load("offlinedb"));
     }
 
 }
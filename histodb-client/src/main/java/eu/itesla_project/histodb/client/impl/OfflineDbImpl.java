@@ -51,13 +51,25 @@ public class OfflineDbImpl implements OfflineDb {
     private final ConnectionParameters connectParams;
     private final String storeName;
 
+    // null if the sample updates are sent synchronously
+    private final OfflineDbWriteBuffer writeBuffer;
+
     public OfflineDbImpl(ConnectionParameters connectParams) {
         this(connectParams, "iteslasim");
     }
 
     public OfflineDbImpl(ConnectionParameters connectParams, String storeName) {
+        this(connectParams, storeName, OfflineDbWriteConfig.synchronous());
+    }
+
+    public OfflineDbImpl(ConnectionParameters connectParams, String storeName, OfflineDbWriteConfig writeConfig) {
         this.connectParams = connectParams;
         this.storeName = storeName;
+        Objects.requireNonNull(writeConfig);
+        writeBuffer = writeConfig.isSynchronous()
+                ? null
+                : new OfflineDbWriteBuffer(this::updateRecords, writeConfig.getBatchSize(), writeConfig.getMaxDelay(),
+                                           writeConfig.getMaxPendingUpdates(), writeConfig.getMaxRetries(), writeConfig.getRetryDelay());
     }
 
     private HistoDbClientImpl getHistoClient(String workflowId) {
@@ -68,6 +80,26 @@ public class OfflineDbImpl implements OfflineDb {
         );
     }
 
+    private void updateRecords(String workflowId, String[] headers, List<Integer> sampleIds, List<Object[]> values) throws Exception {
+        List<String> ids = new ArrayList<>(sampleIds.size());
+        for (int sampleId : sampleIds) {
+            ids.add(STATE_ID_PREFIX + sampleId);
+        }
+        try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
+            histoClient.updateRecords(headers, ids, values);
+        }
+    }
+
+    private void updateRecord(String workflowId, int sampleId, Map<String, Object> values) throws Exception {
+        if (writeBuffer != null) {
+            writeBuffer.update(workflowId, sampleId, values);
+        } else {
+            try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
+                histoClient.updateRecord(STATE_ID_PREFIX + sampleId, values.keySet().toArray(new String[] {}), values.values().toArray());
+            }
+        }
+    }
+
     //TODO parametrize histoDB storeId and datasourceId
 
     @Override
@@ -116,6 +148,9 @@ public class OfflineDbImpl implements OfflineDb {
 
     @Override
     public void deleteWorkflow(String workflowId) {
+        if (writeBuffer != null) {
+            writeBuffer.discard(workflowId);
+        }
         try {
             try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
                 histoClient.deleteTable();
@@ -140,9 +175,8 @@ public class OfflineDbImpl implements OfflineDb {
     @Override
     public void storeState(String workflowId, int sampleId, Network network, Set<Country> countryFilter) {
         try {
-            try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
-                histoClient.storeStartState(STATE_ID_PREFIX + sampleId, network, countryFilter);
-            }
+            // values are extracted right away, the network state may change once this method has returned
+            updateRecord(workflowId, sampleId, HistoDbClientImpl.getStartStateValues(network, countryFilter));
         } catch (Exception e) {
             throw new RuntimeException("Failed to store state", e);
         }
@@ -152,9 +186,7 @@ public class OfflineDbImpl implements OfflineDb {
     public void storeTaskStatus(String workflowId, int sampleId, OfflineTaskType taskType, OfflineTaskStatus taskStatus, String taskFailureReason) {
         String status = OfflineTaskStatus.SUCCEED == taskStatus ? "OK" : "NOK";
         try {
-            try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
-                histoClient.updateRecord(STATE_ID_PREFIX + sampleId, new String[] {"TASK_" + taskType.name()}, new String[] {status});
-            }
+            updateRecord(workflowId, sampleId, Collections.singletonMap("TASK_" + taskType.name(), status));
         } catch (Exception e) {
             throw new RuntimeException("Failed to store status", e);
         }
@@ -162,24 +194,20 @@ public class OfflineDbImpl implements OfflineDb {
 
     @Override
     public void storeSecurityIndexes(String workflowId, int sampleId, Collection<SecurityIndex> securityIndexes) {
-        List<String> indexKeys = new ArrayList<>();
-        List<Object> indexValues = new ArrayList<>();
+        Map<String, Object> indexValues = new LinkedHashMap<>();
 
         //TODO first attempt at filling
         for (SecurityIndex idx : securityIndexes) {
-            indexKeys.add(idx.toString());
-            indexValues.add(idx.isOk());
+            indexValues.put(idx.toString(), idx.isOk());
         }
 
-        if (indexKeys.isEmpty()) {
+        if (indexValues.isEmpty()) {
             LOGGER.warn("No index values for the given workflow/sample : " + workflowId + "/" + sampleId);
             return;
         }
 
         try {
-            try (HistoDbClientImpl histoClient = getHistoClient(workflowId)) {
-                histoClient.updateRecord(STATE_ID_PREFIX + sampleId, indexKeys.toArray(new String[]{}), indexValues.toArray());
-            }
+            updateRecord(workflowId, sampleId, indexValues);
         } catch (Exception e) {
             throw new RuntimeException("Failed to store indexes", e);
         }
@@ -187,6 +215,7 @@ public class OfflineDbImpl implements OfflineDb {
 
     @Override
     public int getSampleCount(String workflowId) {
+        flush(workflowId);
         try {
             return getHistoClient(workflowId).totalCount(SAMPLE_FILTER);
         } catch (IOException e) {
@@ -197,6 +226,7 @@ public class OfflineDbImpl implements OfflineDb {
 
     @Override
     public Collection<SecurityIndexId> getSecurityIndexIds(String workflowId) {
+        flush(workflowId);
         try {
             List<SecurityIndexId> securityIndexes = new ArrayList<>();
 
@@ -232,6 +262,7 @@ public class OfflineDbImpl implements OfflineDb {
         if (config.isKeepAllSamples()) {
             throw new UnsupportedOperationException("keepAllSamples is not yet implemented");
         }
+        flush(workflowId);
         try {
             // just filter sample that have been until impact analysis and
             // branches variables and security indexes
@@ -253,8 +284,18 @@ public class OfflineDbImpl implements OfflineDb {
         }
     }
 
+    @Override
+    public void flush(String workflowId) {
+        if (writeBuffer != null) {
+            writeBuffer.flush(workflowId);
+        }
+    }
+
     @Override
     public void close() throws Exception {
+        if (writeBuffer != null) {
+            writeBuffer.close();
+        }
     }
 
 }
@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous buffer of the sample record updates of the offline workflows.
+ * <p>
+ * Updates are queued per workflow and sent by a single background thread, when a batch is full or when the
+ * oldest queued update of the workflow has waited more than the maximum delay. The updates of a batch are
+ * merged per sample (a later value of a column replacing an earlier one) and the samples having the same
+ * columns are sent with a single request. Batches of a workflow are sent in order, and a failed batch is
+ * retried before the next one, so that the updates of a sample are always applied in the order they have
+ * been queued. The number of queued updates is bounded: producers wait for some room when the buffer is full.
+ * If the background thread stops unexpectedly (interrupted), the pending updates are dropped and the pending
+ * and following calls fail.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class OfflineDbWriteBuffer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineDbWriteBuffer.class);
+
+    private static final long MAX_RETRY_DELAY = 10000; // ms
+
+    @FunctionalInterface
+    interface Sender {
+
+        /**
+         * Update several sample records having the same columns
+         */
+        void send(String workflowId, String[] headers, List<Integer> sampleIds, List<Object[]> values) throws Exception;
+    }
+
+    private static final class Update {
+
+        private final int sampleId;
+
+        private final Map<String, Object> values;
+
+        private Update(int sampleId, Map<String, Object> values) {
+            this.sampleId = sampleId;
+            this.values = values;
+        }
+    }
+
+    private static final class WorkflowQueue {
+
+        private final ArrayDeque<Update> updates = new ArrayDeque<>();
+
+        private long oldestUpdateTime;
+
+        // sequence numbers of the last queued and of the last processed update, used by the flush barrier
+        private long queued = 0;
+
+        private long processed = 0;
+
+        private long flushRequested = 0;
+
+        private RuntimeException failure;
+    }
+
+    private final Sender sender;
+
+    private final int batchSize;
+
+    private final long maxDelay;
+
+    private final int maxPendingUpdates;
+
+    private final int maxRetries;
+
+    private final long retryDelay;
+
+    private final Map<String, WorkflowQueue> queues = new HashMap<>();
+
+    private int pendingUpdates = 0;
+
+    private boolean closed = false;
+
+    // set when the background thread has stopped before the buffer is closed
+    private RuntimeException writerFailure;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition updatesAvailable = lock.newCondition();
+
+    private final Condition updatesProcessed = lock.newCondition();
+
+    private final Thread thread;
+
+    /**
+     * @param batchSize maximum number of updates sent in a batch
+     * @param maxDelay maximum time an update is buffered before being sent, in ms
+     * @param maxPendingUpdates maximum number of buffered updates, all workflows included
+     * @param maxRetries number of retries of a failed batch before its updates are dropped
+     * @param retryDelay delay before the first retry of a failed batch, doubled at each retry, in ms
+     */
+    OfflineDbWriteBuffer(Sender sender, int batchSize, long maxDelay, int maxPendingUpdates, int maxRetries, long retryDelay) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        if (maxPendingUpdates < batchSize) {
+            throw new IllegalArgumentException("Max number of pending updates has to be greater than the batch size");
+        }
+        if (maxDelay < 0 || maxRetries < 0 || retryDelay < 0) {
+            throw new IllegalArgumentException("Invalid delay or retry count");
+        }
+        this.sender = Objects.requireNonNull(sender);
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.maxPendingUpdates = maxPendingUpdates;
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+        thread = new Thread(this::run, "offline-db-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue an update of a sample record, waiting for some room if the buffer is full
+     */
+    void update(String workflowId, int sampleId, Map<String, Object> values) {
+        Objects.requireNonNull(workflowId);
+        Objects.requireNonNull(values);
+        if (values.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (pendingUpdates >= maxPendingUpdates && !closed && writerFailure == null) {
+                updatesProcessed.awaitUninterruptibly();
+            }
+            if (writerFailure != null) {
+                throw new IllegalStateException("Offline db writer is stopped", writerFailure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Offline db write buffer is closed");
+            }
+            WorkflowQueue queue = queues.computeIfAbsent(workflowId, id -> new WorkflowQueue());
+            if (queue.updates.isEmpty()) {
+                queue.oldestUpdateTime = System.currentTimeMillis();
+            }
+            queue.updates.add(new Update(sampleId, new LinkedHashMap<>(values)));
+            queue.queued++;
+            pendingUpdates++;
+            if (queue.updates.size() >= batchSize) {
+                updatesAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for all the updates of a workflow queued so far to be sent
+     *
+     * @throws RuntimeException if some updates of the workflow could not be sent since the previous flush
+     */
+    void flush(String workflowId) {
+        Objects.requireNonNull(workflowId);
+        lock.lock();
+        try {
+            WorkflowQueue queue = queues.get(workflowId);
+            if (queue == null) {
+                if (writerFailure != null) {
+                    throw new IllegalStateException("Offline db writer is stopped", writerFailure);
+                }
+                return;
+            }
+            long target = queue.queued;
+            queue.flushRequested = Math.max(queue.flushRequested, target);
+            updatesAvailable.signal();
+            while (queue.processed < target && writerFailure == null) {
+                updatesProcessed.awaitUninterruptibly();
+            }
+            if (writerFailure != null) {
+                if (queue.failure == null) {
+                    queue.failure = new IllegalStateException("Offline db writer is stopped", writerFailure);
+                }
+                queue.updates.clear();
+            }
+            RuntimeException failure = queue.failure;
+            queue.failure = null;
+            if (queue.updates.isEmpty() && queues.get(workflowId) == queue) {
+                queues.remove(workflowId);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the updates of a workflow not yet sent, and wait for the batch being sent if any
+     */
+    void discard(String workflowId) {
+        Objects.requireNonNull(workflowId);
+        lock.lock();
+        try {
+            WorkflowQueue queue = queues.remove(workflowId);
+            if (queue != null) {
+                pendingUpdates -= queue.updates.size();
+                queue.processed += queue.updates.size();
+                queue.updates.clear();
+                updatesProcessed.signalAll();
+                while (queue.processed < queue.queued && writerFailure == null) {
+                    updatesProcessed.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getPendingUpdates() {
+        lock.lock();
+        try {
+            return pendingUpdates;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isReady(WorkflowQueue queue, long now) {
+        return !queue.updates.isEmpty()
+                && (closed
+                    || queue.updates.size() >= batchSize
+                    || queue.flushRequested > queue.processed
+                    || now - queue.oldestUpdateTime >= maxDelay);
+    }
+
+    private void run() {
+        try {
+            process();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop(new RuntimeException("Offline db writer interrupted", e));
+        } catch (RuntimeException | Error e) {
+            stop(new RuntimeException("Offline db writer failed", e));
+            throw e;
+        }
+    }
+
+    /**
+     * Drop all the pending updates and wake up the waiting callers, which then fail with the given cause
+     */
+    private void stop(RuntimeException failure) {
+        lock.lock();
+        try {
+            writerFailure = failure;
+            int dropped = 0;
+            for (WorkflowQueue queue : queues.values()) {
+                dropped += queue.updates.size();
+                queue.updates.clear();
+            }
+            pendingUpdates = 0;
+            LOGGER.error("Offline db writer stopped, {} sample updates dropped", dropped, failure);
+            updatesProcessed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void process() throws InterruptedException {
+        while (true) {
+            String workflowId = null;
+            WorkflowQueue queue = null;
+            List<Update> batch;
+            lock.lock();
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    long wait = maxDelay;
+                    for (Map.Entry<String, WorkflowQueue> e : queues.entrySet()) {
+                        if (isReady(e.getValue(), now)) {
+                            workflowId = e.getKey();
+                            queue = e.getValue();
+                            break;
+                        }
+                        if (!e.getValue().updates.isEmpty()) {
+                            wait = Math.min(wait, e.getValue().oldestUpdateTime + maxDelay - now);
+                        }
+                    }
+                    if (queue != null) {
+                        break;
+                    }
+                    if (closed && pendingUpdates == 0) {
+                        return;
+                    }
+                    updatesAvailable.await(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+                }
+                batch = new ArrayList<>(Math.min(batchSize, queue.updates.size()));
+                while (batch.size() < batchSize && !queue.updates.isEmpty()) {
+                    batch.add(queue.updates.poll());
+                }
+                queue.oldestUpdateTime = System.currentTimeMillis();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException failure = send(workflowId, batch);
+
+            lock.lock();
+            try {
+                pendingUpdates -= batch.size();
+                queue.processed += batch.size();
+                if (failure != null && queue.failure == null) {
+                    queue.failure = failure;
+                }
+                updatesProcessed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Merge the updates of a batch per sample and send them, grouped by columns
+     *
+     * @return the failure if the batch could not be sent after all the retries, null otherwise
+     */
+    private RuntimeException send(String workflowId, List<Update> batch) {
+        Map<Integer, Map<String, Object>> samples = new LinkedHashMap<>();
+        for (Update update : batch) {
+            samples.computeIfAbsent(update.sampleId, id -> new LinkedHashMap<>()).putAll(update.values);
+        }
+        Map<List<String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, Object>> e : samples.entrySet()) {
+            groups.computeIfAbsent(new ArrayList<>(e.getValue().keySet()), headers -> new ArrayList<>()).add(e.getKey());
+        }
+        int sent = 0;
+        for (Map.Entry<List<String>, List<Integer>> group : groups.entrySet()) {
+            String[] headers = group.getKey().toArray(new String[group.getKey().size()]);
+            List<Integer> sampleIds = group.getValue();
+            List<Object[]> values = new ArrayList<>(sampleIds.size());
+            for (int sampleId : sampleIds) {
+                values.add(samples.get(sampleId).values().toArray());
+            }
+            long delay = retryDelay;
+            for (int attempt = 0;; attempt++) {
+                try {
+                    sender.send(workflowId, headers, sampleIds, values);
+                    sent += sampleIds.size();
+                    break;
+                } catch (Exception e) {
+                    if (attempt >= maxRetries) {
+                        // the groups already sent are stored, only this one and the following ones are lost
+                        LOGGER.error("Workflow {}: failed to store samples, {} of {} samples dropped",
+                                     workflowId, samples.size() - sent, samples.size(), e);
+                        return new RuntimeException("Failed to store samples of workflow " + workflowId, e);
+                    }
+                    LOGGER.warn("Workflow {}: failed to store {} samples ({}), retrying in {} ms",
+                                workflowId, sampleIds.size(), e.toString(), delay);
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        LOGGER.error("Workflow {}: interrupted while storing samples, {} of {} samples dropped",
+                                     workflowId, samples.size() - sent, samples.size());
+                        return new RuntimeException("Interrupted while storing samples of workflow " + workflowId, ie);
+                    }
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Send all the queued updates and stop the background thread
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            updatesAvailable.signal();
+            updatesProcessed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        thread.join();
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import com.powsybl.commons.config.ModuleConfig;
+import com.powsybl.commons.config.PlatformConfig;
+
+/**
+ * Configuration of the buffering of the sample updates of the Histo DB offline db.
+ * <p>
+ * A batch size of 1 (the default) means that each update is sent synchronously with its own request.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineDbWriteConfig {
+
+    private static final int DEFAULT_BATCH_SIZE = 1;
+    private static final int DEFAULT_MAX_DELAY = 5000; // ms
+    private static final int DEFAULT_MAX_PENDING_UPDATES = 10000;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int DEFAULT_RETRY_DELAY = 1000; // ms
+
+    private final int batchSize;
+
+    private final long maxDelay;
+
+    private final int maxPendingUpdates;
+
+    private final int maxRetries;
+
+    private final long retryDelay;
+
+    public static OfflineDbWriteConfig synchronous() {
+        return new OfflineDbWriteConfig(1, 0, 1, 0, 0);
+    }
+
+    public static OfflineDbWriteConfig load(String moduleName) {
+        ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig(moduleName);
+        int batchSize = config.getIntProperty("writeBatchSize", DEFAULT_BATCH_SIZE);
+        int maxDelay = config.getIntProperty("writeMaxDelayMs", DEFAULT_MAX_DELAY);
+        int maxPendingUpdates = config.getIntProperty("writeMaxPendingUpdates", Math.max(DEFAULT_MAX_PENDING_UPDATES, batchSize));
+        int maxRetries = config.getIntProperty("writeMaxRetries", DEFAULT_MAX_RETRIES);
+        int retryDelay = config.getIntProperty("writeRetryDelayMs", DEFAULT_RETRY_DELAY);
+        return new OfflineDbWriteConfig(batchSize, maxDelay, maxPendingUpdates, maxRetries, retryDelay);
+    }
+
+    public OfflineDbWriteConfig(int batchSize, long maxDelay, int maxPendingUpdates, int maxRetries, long retryDelay) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.maxPendingUpdates = maxPendingUpdates;
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+    }
+
+    public boolean isSynchronous() {
+        return batchSize == 1;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public int getMaxPendingUpdates() {
+        return maxPendingUpdates;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "OfflineDbWriteConfig(batchSize=" + batchSize + ", maxDelay=" + maxDelay + ", maxPendingUpdates=" + maxPendingUpdates
+                + ", maxRetries=" + maxRetries + ", retryDelay=" + retryDelay + ")";
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import eu.itesla_project.modules.histo.HistoDbClient;
+import eu.itesla_project.modules.histo.HistoDbClientFactory;
+
+/**
+ * Histo DB client factory using a {@link SegmentedHistoDbCache}.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class SegmentedCacheHistoDbClientFactory implements HistoDbClientFactory {
+
+    @Override
+    public HistoDbClient create(boolean cache) {
+        return new HistoDbClientImpl(HistoDbConfig.load(), cache ? SegmentedHistoDbCache.load() : null);
+    }
+
+}
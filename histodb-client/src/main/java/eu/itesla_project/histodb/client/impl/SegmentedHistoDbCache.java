@@ -0,0 +1,836 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.powsybl.commons.config.ModuleConfig;
+import com.powsybl.commons.config.PlatformConfig;
+import eu.itesla_project.modules.histo.HistoDbMetaAttributeType;
+import eu.itesla_project.modules.histo.HistoQueryType;
+import eu.itesla_project.modules.histo.cache.HistoDbCache;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Histo DB cache storing data queries by time bucket and attribute.
+ * <p>
+ * The interval of a data query on a set of attributes is split into aligned time buckets. For each bucket, the row keys
+ * (datetime, horizon and forecast time) and the column of each attribute are stored as separate entries, so that a query
+ * on an overlapping interval or an overlapping set of attributes only fetches the missing segments from the Histo DB,
+ * with a single query for a run of consecutive uncached buckets. The response is then rebuilt by merging the segments.
+ * Buckets which are not over yet are never stored. Other queries are cached as a whole, keyed by their url.
+ * <p>
+ * Entries are stored compressed in a directory, named by the digest of their key, and the least recently used ones are
+ * evicted when the size of the directory exceeds a limit. Reads do not take any lock: entries are written to temporary
+ * files which are then atomically moved.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class SegmentedHistoDbCache implements HistoDbCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedHistoDbCache.class);
+
+    private static final String DEFAULT_CACHE_NAME = "histodb-segments";
+
+    private static final int DEFAULT_MAX_SIZE_MB = 10 * 1024;
+
+    private static final int DEFAULT_BUCKET_HOURS = 24;
+
+    private static final String DATA_PATH = "itesla/" + HistoQueryType.data + ".csv";
+
+    private static final List<String> KEY_COLUMNS = ImmutableList.of(HistoDbMetaAttributeType.datetime.toString(),
+                                                                     HistoDbMetaAttributeType.horizon.toString(),
+                                                                     HistoDbMetaAttributeType.forecastTime.toString());
+
+    private static final Set<String> SEGMENTABLE_PARAMETERS = ImmutableSet.of("headers", "count", "colRange", "cols", "time", "horizon");
+
+    private static final int MAX_BUCKETS_PER_QUERY = 31;
+
+    // evict down to this ratio of the max size, so that evictions are done by batch
+    private static final double EVICTION_RATIO = 0.9;
+
+    private static final String ENTRY_EXTENSION = ".gz";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    private static final String URL_KEY_PREFIX = "url:";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm'Z'").withZoneUTC();
+
+    private static final class Entry {
+
+        private final long size;
+
+        private volatile long lastAccess;
+
+        private Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Rows of a time bucket, cells are kept as formatted by the Histo DB
+     */
+    private static final class Bucket {
+
+        private final char separator;
+
+        private final String lineSeparator;
+
+        private final List<String[]> keys;
+
+        private final Map<String, List<String>> columns;
+
+        private Bucket(char separator, String lineSeparator, List<String[]> keys, Map<String, List<String>> columns) {
+            this.separator = separator;
+            this.lineSeparator = lineSeparator;
+            this.keys = keys;
+            this.columns = columns;
+        }
+    }
+
+    private static final class DataQuery {
+
+        private final String resourceUrl;
+
+        private final String prefix;
+
+        private final List<String> cols;
+
+        private final String horizon;
+
+        private final long start;
+
+        private final long end;
+
+        private DataQuery(String resourceUrl, List<String> cols, String horizon, long start, long end) {
+            this.resourceUrl = resourceUrl;
+            this.cols = cols;
+            this.horizon = horizon;
+            this.start = start;
+            this.end = end;
+            prefix = resourceUrl + "|" + horizon + "|";
+        }
+    }
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private final long bucketDuration;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong segmentHits = new AtomicLong();
+
+    private final AtomicLong segmentMisses = new AtomicLong();
+
+    private final AtomicLong serverQueries = new AtomicLong();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public static SegmentedHistoDbCache load() {
+        String cacheName = DEFAULT_CACHE_NAME;
+        long maxSize = DEFAULT_MAX_SIZE_MB * 1024L * 1024L;
+        long bucketDuration = DEFAULT_BUCKET_HOURS * 3600 * 1000L;
+        PlatformConfig platformConfig = PlatformConfig.defaultConfig();
+        if (platformConfig.moduleExists("histodb-segmented-cache")) {
+            ModuleConfig config = platformConfig.getModuleConfig("histodb-segmented-cache");
+            cacheName = config.getStringProperty("cacheName", DEFAULT_CACHE_NAME);
+            maxSize = config.getIntProperty("maxSizeMb", DEFAULT_MAX_SIZE_MB) * 1024L * 1024L;
+            bucketDuration = config.getIntProperty("bucketHours", DEFAULT_BUCKET_HOURS) * 3600 * 1000L;
+        }
+        return new SegmentedHistoDbCache(platformConfig.getCacheDir().resolve(cacheName), maxSize, bucketDuration);
+    }
+
+    public SegmentedHistoDbCache(Path directory, long maxSize, long bucketDuration) {
+        this.directory = Objects.requireNonNull(directory);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid max size " + maxSize);
+        }
+        if (bucketDuration <= 0 || bucketDuration % 60000 != 0) {
+            throw new IllegalArgumentException("Invalid bucket duration " + bucketDuration + ", it must be a number of minutes");
+        }
+        this.maxSize = maxSize;
+        this.bucketDuration = bucketDuration;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> stream = Files.list(directory)) {
+                for (Path file : stream.collect(Collectors.toList())) {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(TMP_EXTENSION)) {
+                        // interrupted write
+                        Files.deleteIfExists(file);
+                    } else if (fileName.endsWith(ENTRY_EXTENSION)) {
+                        long fileSize = Files.size(file);
+                        entries.put(fileName, new Entry(fileSize, Files.getLastModifiedTime(file).toMillis()));
+                        size.addAndGet(fileSize);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        evictIfNeeded();
+    }
+
+    private static String getFileName(String key) {
+        return Hashing.sha1().hashString(key, StandardCharsets.UTF_8).toString() + ENTRY_EXTENSION;
+    }
+
+    private static void writeString(DataOutputStream dos, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a stream on the data of an entry, or null if the entry does not exist
+     */
+    private InputStream openEntry(String key) throws IOException {
+        String fileName = getFileName(key);
+        Entry entry = entries.get(fileName);
+        if (entry == null) {
+            return null;
+        }
+        Path file = directory.resolve(fileName);
+        InputStream is;
+        try {
+            is = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        } catch (NoSuchFileException e) {
+            // evicted in the meantime
+            entries.remove(fileName, entry);
+            return null;
+        }
+        try {
+            String storedKey = readString(new DataInputStream(is));
+            if (!storedKey.equals(key)) {
+                throw new IOException("Digest collision between keys " + key + " and " + storedKey);
+            }
+        } catch (IOException e) {
+            is.close();
+            throw e;
+        }
+        long now = System.currentTimeMillis();
+        entry.lastAccess = now;
+        try {
+            // so that the least recently used entries are still known after a restart
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            LOGGER.trace(e.toString(), e);
+        }
+        return is;
+    }
+
+    /**
+     * @return a stream to write the data of an entry, which is visible once the stream is closed
+     */
+    private OutputStream createEntry(String key) throws IOException {
+        String fileName = getFileName(key);
+        Path tmpFile = Files.createTempFile(directory, fileName, TMP_EXTENSION);
+        DataOutputStream dos = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile))));
+        writeString(dos, key);
+        int headerSize = dos.size();
+        return new FilterOutputStream(dos) {
+
+            private boolean closed = false;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                    Path file = directory.resolve(fileName);
+                    Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    long fileSize = Files.size(file);
+                    Entry old = entries.put(fileName, new Entry(fileSize, System.currentTimeMillis()));
+                    size.addAndGet(fileSize - (old != null ? old.size : 0));
+                    bytesWritten.addAndGet(dos.size() - headerSize);
+                } finally {
+                    Files.deleteIfExists(tmpFile);
+                }
+                evictIfNeeded();
+            }
+        };
+    }
+
+    private void evictIfNeeded() {
+        if (size.get() <= maxSize || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, Entry>> lru = new ArrayList<>(entries.entrySet());
+            lru.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            long target = (long) (maxSize * EVICTION_RATIO);
+            for (Iterator<Map.Entry<String, Entry>> it = lru.iterator(); it.hasNext() && size.get() > target;) {
+                Map.Entry<String, Entry> e = it.next();
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    size.addAndGet(-e.getValue().size);
+                    evictions.incrementAndGet();
+                    try {
+                        Files.deleteIfExists(directory.resolve(e.getKey()));
+                    } catch (IOException ex) {
+                        LOGGER.warn(ex.toString(), ex);
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private InputStream countBytesRead(InputStream is) {
+        return new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    bytesRead.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesRead.addAndGet(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public InputStream getData(String url) throws IOException {
+        InputStream is = openEntry(URL_KEY_PREFIX + url);
+        if (is != null) {
+            hits.incrementAndGet();
+            return countBytesRead(is);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public OutputStream putData(String url) throws IOException {
+        return createEntry(URL_KEY_PREFIX + url);
+    }
+
+    private static DataQuery parseDataQuery(String resourceUrl, Map<String, String> query) {
+        if (!resourceUrl.endsWith("/" + DATA_PATH)
+                || !SEGMENTABLE_PARAMETERS.containsAll(query.keySet())
+                || !"true".equals(query.get("headers"))
+                || !"-1".equals(query.get("count"))
+                || (query.containsKey("colRange") && !"*".equals(query.get("colRange")))
+                || query.get("cols") == null
+                || query.get("horizon") == null) {
+            return null;
+        }
+        String time = query.get("time");
+        if (time == null || !time.startsWith("[") || !time.endsWith("]")) {
+            return null;
+        }
+        String[] bounds = time.substring(1, time.length() - 1).split(",");
+        if (bounds.length != 2) {
+            return null;
+        }
+        long start = TIME_FORMAT.parseMillis(bounds[0]);
+        long end = TIME_FORMAT.parseMillis(bounds[1]);
+        List<String> cols = Arrays.asList(query.get("cols").split(","));
+        return new DataQuery(resourceUrl, cols, query.get("horizon"), start, end);
+    }
+
+    private String getKeysKey(DataQuery query, long bucketStart) {
+        return query.prefix + bucketStart + "|keys";
+    }
+
+    private String getColumnKey(DataQuery query, long bucketStart, String keysDigest, String col) {
+        return query.prefix + bucketStart + "|" + keysDigest + "|" + col;
+    }
+
+    private static byte[] serializeKeys(char separator, String lineSeparator, List<String[]> keys) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeChar(separator);
+            writeString(dos, lineSeparator);
+            dos.writeInt(keys.size());
+            for (String[] key : keys) {
+                for (String cell : key) {
+                    writeString(dos, cell);
+                }
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static String digest(byte[] bytes) {
+        return Hashing.sha1().hashBytes(bytes).toString();
+    }
+
+    /**
+     * @return the bucket read from the cache, null if some segments are missing
+     */
+    private Bucket readBucket(DataQuery query, long bucketStart) throws IOException {
+        byte[] keysBytes;
+        try (InputStream is = openEntry(getKeysKey(query, bucketStart))) {
+            if (is == null) {
+                return null;
+            }
+            keysBytes = readAll(is);
+        }
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(keysBytes));
+        char separator = dis.readChar();
+        String lineSeparator = readString(dis);
+        int rowCount = dis.readInt();
+        List<String[]> keys = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            String[] key = new String[KEY_COLUMNS.size()];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = readString(dis);
+            }
+            keys.add(key);
+        }
+        String keysDigest = digest(keysBytes);
+        Map<String, List<String>> columns = new HashMap<>();
+        for (String col : query.cols) {
+            if (KEY_COLUMNS.contains(col) || columns.containsKey(col)) {
+                continue;
+            }
+            try (InputStream is = openEntry(getColumnKey(query, bucketStart, keysDigest, col))) {
+                if (is == null) {
+                    return null;
+                }
+                DataInputStream cdis = new DataInputStream(is);
+                int count = cdis.readInt();
+                List<String> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readString(cdis));
+                }
+                columns.put(col, values);
+            }
+        }
+        return new Bucket(separator, lineSeparator, keys, columns);
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Split a line of the Histo DB csv output, cells being kept as is (quotes included)
+     */
+    private static List<String> splitLine(String line, char separator) {
+        List<String> cells = new ArrayList<>();
+        boolean quoted = false;
+        int cellStart = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == separator && !quoted) {
+                cells.add(line.substring(cellStart, i));
+                cellStart = i + 1;
+            }
+        }
+        cells.add(line.substring(cellStart));
+        return cells;
+    }
+
+    /**
+     * Read a line of the Histo DB csv output, a line break inside quotes being part of the line
+     *
+     * @return the line, without its line separator, null at the end of the stream
+     */
+    private static String readLine(BufferedReader reader, StringBuilder lineSeparator) throws IOException {
+        StringBuilder line = new StringBuilder();
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                    lineSeparator.setLength(0);
+                    lineSeparator.append("\r\n");
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    /**
+     * Query the Histo DB for a run of buckets and some attributes, and store the segments of the buckets which are over
+     */
+    private Map<Long, Bucket> fetch(DataQuery query, QueryLoader loader, long runStart, long runEnd, Collection<String> cols) throws IOException {
+        List<String> fetchedCols = new ArrayList<>(KEY_COLUMNS);
+        cols.stream().filter(col -> !fetchedCols.contains(col)).forEach(fetchedCols::add);
+        Map<String, String> fetchQuery = new LinkedHashMap<>();
+        fetchQuery.put("headers", "true");
+        fetchQuery.put("count", "-1");
+        fetchQuery.put("colRange", "*");
+        fetchQuery.put("cols", String.join(",", fetchedCols));
+        // buckets overlap on their bounds, rows at the end of a bucket are dropped below
+        fetchQuery.put("time", "[" + TIME_FORMAT.print(runStart) + "," + TIME_FORMAT.print(runEnd) + "]");
+        fetchQuery.put("horizon", query.horizon);
+        String fetchUrl = query.resourceUrl + "?" + fetchQuery.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining("&"));
+
+        serverQueries.incrementAndGet();
+        InputStream is = loader.load(fetchQuery);
+        if (is == null) {
+            throw new IOException("No data for " + fetchUrl);
+        }
+
+        char separator;
+        StringBuilder lineSeparator = new StringBuilder("\n");
+        Map<Long, List<String[]>> keysByBucket = new TreeMap<>();
+        Map<Long, Map<String, List<String>>> columnsByBucket = new HashMap<>();
+        for (long bucketStart = runStart; bucketStart < runEnd; bucketStart += bucketDuration) {
+            keysByBucket.put(bucketStart, new ArrayList<>());
+            Map<String, List<String>> columns = new HashMap<>();
+            for (String col : fetchedCols.subList(KEY_COLUMNS.size(), fetchedCols.size())) {
+                columns.put(col, new ArrayList<>());
+            }
+            columnsByBucket.put(bucketStart, columns);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String header = readLine(reader, lineSeparator);
+            String firstCol = KEY_COLUMNS.get(0);
+            if (header == null || header.length() <= firstCol.length() || !header.startsWith(firstCol)) {
+                throw new IOException("Unexpected header for " + fetchUrl + ": " + header);
+            }
+            separator = header.charAt(firstCol.length());
+            List<String> headerCols = splitLine(header, separator);
+            int[] indexes = new int[fetchedCols.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = headerCols.indexOf(fetchedCols.get(i));
+                if (indexes[i] == -1) {
+                    throw new IOException("Column " + fetchedCols.get(i) + " not found in " + fetchUrl);
+                }
+            }
+            String line;
+            while ((line = readLine(reader, lineSeparator)) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> cells = splitLine(line, separator);
+                long datetime = Long.parseLong(cells.get(indexes[0]).trim()) * 1000;
+                if (datetime < runStart || datetime >= runEnd) {
+                    continue;
+                }
+                long bucketStart = runStart + (datetime - runStart) / bucketDuration * bucketDuration;
+                String[] key = new String[KEY_COLUMNS.size()];
+                for (int j = 0; j < key.length; j++) {
+                    key[j] = cells.get(indexes[j]);
+                }
+                keysByBucket.get(bucketStart).add(key);
+                Map<String, List<String>> columns = columnsByBucket.get(bucketStart);
+                for (int i = KEY_COLUMNS.size(); i < indexes.length; i++) {
+                    columns.get(fetchedCols.get(i)).add(indexes[i] < cells.size() ? cells.get(indexes[i]) : "");
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Long, Bucket> buckets = new HashMap<>();
+        for (Map.Entry<Long, List<String[]>> e : keysByBucket.entrySet()) {
+            long bucketStart = e.getKey();
+            List<String[]> keys = e.getValue();
+            Map<String, List<String>> columns = columnsByBucket.get(bucketStart);
+            buckets.put(bucketStart, new Bucket(separator, lineSeparator.toString(), keys, columns));
+            if (bucketStart + bucketDuration > now) {
+                // data of this bucket may still be imported
+                continue;
+            }
+            byte[] keysBytes = serializeKeys(separator, lineSeparator.toString(), keys);
+            String keysDigest = digest(keysBytes);
+            String keysKey = getKeysKey(query, bucketStart);
+            byte[] storedKeysBytes = null;
+            try (InputStream kis = openEntry(keysKey)) {
+                if (kis != null) {
+                    storedKeysBytes = readAll(kis);
+                }
+            }
+            if (!Arrays.equals(keysBytes, storedKeysBytes)) {
+                // new rows, columns previously stored for this bucket are not reachable anymore and will be evicted
+                try (OutputStream os = createEntry(keysKey)) {
+                    os.write(keysBytes);
+                }
+            }
+            for (Map.Entry<String, List<String>> c : columns.entrySet()) {
+                try (DataOutputStream dos = new DataOutputStream(createEntry(getColumnKey(query, bucketStart, keysDigest, c.getKey())))) {
+                    dos.writeInt(c.getValue().size());
+                    for (String value : c.getValue()) {
+                        writeString(dos, value);
+                    }
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private List<String> getMissingCols(DataQuery query, long bucketStart) throws IOException {
+        byte[] keysBytes;
+        try (InputStream is = openEntry(getKeysKey(query, bucketStart))) {
+            if (is == null) {
+                return null;
+            }
+            keysBytes = readAll(is);
+        }
+        String keysDigest = digest(keysBytes);
+        return query.cols.stream()
+                .filter(col -> !KEY_COLUMNS.contains(col))
+                .distinct()
+                .filter(col -> !entries.containsKey(getFileName(getColumnKey(query, bucketStart, keysDigest, col))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the rows of a bucket, from the cache or the Histo DB. Consecutive buckets with nothing cached are fetched
+     * with a single query.
+     */
+    private Bucket getBucket(DataQuery query, QueryLoader loader, long bucketStart, long lastBucketStart, Map<Long, Bucket> fetched) throws IOException {
+        Bucket bucket = fetched.remove(bucketStart);
+        if (bucket != null) {
+            // fetched along with a previous bucket
+            segmentMisses.incrementAndGet();
+            return bucket;
+        }
+        bucket = readBucket(query, bucketStart);
+        if (bucket != null) {
+            segmentHits.incrementAndGet();
+            return bucket;
+        }
+        segmentMisses.incrementAndGet();
+        List<String> missingCols = getMissingCols(query, bucketStart);
+        long runEnd = bucketStart + bucketDuration;
+        boolean nothingCached = missingCols == null;
+        if (nothingCached) {
+            // nothing cached for this bucket, extend the query to the next buckets in the same case
+            missingCols = query.cols;
+            while (runEnd <= lastBucketStart
+                    && (runEnd - bucketStart) / bucketDuration < MAX_BUCKETS_PER_QUERY
+                    && !entries.containsKey(getFileName(getKeysKey(query, runEnd)))) {
+                runEnd += bucketDuration;
+            }
+        }
+        fetched.putAll(fetch(query, loader, bucketStart, runEnd, missingCols));
+        bucket = fetched.remove(bucketStart);
+        if (nothingCached) {
+            return bucket;
+        }
+        // only the missing columns have been fetched, merge them with the cached ones
+        Bucket cached = readBucket(query, bucketStart);
+        if (cached != null) {
+            return cached;
+        }
+        // rows have changed since the other columns were cached
+        return fetch(query, loader, bucketStart, bucketStart + bucketDuration, query.cols).get(bucketStart);
+    }
+
+    private byte[] format(DataQuery query, Bucket bucket, boolean header) {
+        StringBuilder builder = new StringBuilder();
+        if (header) {
+            builder.append(String.join(Character.toString(bucket.separator), query.cols)).append(bucket.lineSeparator);
+        }
+        for (int i = 0; i < bucket.keys.size(); i++) {
+            String[] key = bucket.keys.get(i);
+            long datetime = Long.parseLong(key[0].trim()) * 1000;
+            if (datetime < query.start || datetime > query.end) {
+                continue;
+            }
+            for (int j = 0; j < query.cols.size(); j++) {
+                if (j > 0) {
+                    builder.append(bucket.separator);
+                }
+                String col = query.cols.get(j);
+                int keyIndex = KEY_COLUMNS.indexOf(col);
+                builder.append(keyIndex != -1 ? key[keyIndex] : bucket.columns.get(col).get(i));
+            }
+            builder.append(bucket.lineSeparator);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Response of a data query, the segments of a bucket are only read when the previous buckets have been consumed
+     */
+    private final class BucketsInputStream extends InputStream {
+
+        private final DataQuery query;
+
+        private final QueryLoader loader;
+
+        private final long firstBucketStart;
+
+        private final long lastBucketStart;
+
+        private final Map<Long, Bucket> fetched = new HashMap<>();
+
+        private long bucketStart;
+
+        private InputStream current = new ByteArrayInputStream(new byte[0]);
+
+        private BucketsInputStream(DataQuery query, QueryLoader loader) {
+            this.query = query;
+            this.loader = loader;
+            firstBucketStart = Math.floorDiv(query.start, bucketDuration) * bucketDuration;
+            lastBucketStart = Math.floorDiv(query.end, bucketDuration) * bucketDuration;
+            bucketStart = firstBucketStart;
+        }
+
+        private boolean nextBucket() throws IOException {
+            if (bucketStart > lastBucketStart) {
+                return false;
+            }
+            Bucket bucket = getBucket(query, loader, bucketStart, lastBucketStart, fetched);
+            current = new ByteArrayInputStream(format(query, bucket, bucketStart == firstBucketStart));
+            bucketStart += bucketDuration;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            while ((b = current.read()) == -1) {
+                if (!nextBucket()) {
+                    return -1;
+                }
+            }
+            bytesRead.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n;
+            while ((n = current.read(b, off, len)) == -1) {
+                if (!nextBucket()) {
+                    return -1;
+                }
+            }
+            bytesRead.addAndGet(n);
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current.available();
+        }
+    }
+
+    /**
+     * Get the result of a data query on a set of attributes, the response being rebuilt from the cached segments and
+     * the missing ones being queried with the loader.
+     *
+     * @return the response, or null if the query cannot be split into segments
+     */
+    @Override
+    public InputStream getData(String resourceUrl, Map<String, String> query, QueryLoader loader) throws IOException {
+        Objects.requireNonNull(resourceUrl);
+        Objects.requireNonNull(query);
+        Objects.requireNonNull(loader);
+        DataQuery dataQuery = parseDataQuery(resourceUrl, query);
+        return dataQuery != null ? new BucketsInputStream(dataQuery, loader) : null;
+    }
+
+    @Override
+    public List<String> listUrls() throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (String fileName : entries.keySet()) {
+            try (InputStream is = new GZIPInputStream(Files.newInputStream(directory.resolve(fileName)))) {
+                String key = readString(new DataInputStream(is));
+                if (key.startsWith(URL_KEY_PREFIX)) {
+                    urls.add(key.substring(URL_KEY_PREFIX.length()));
+                }
+            } catch (NoSuchFileException e) {
+                // evicted in the meantime
+            }
+        }
+        return urls;
+    }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("segmentHits", segmentHits.get());
+        metrics.put("segmentMisses", segmentMisses.get());
+        metrics.put("serverQueries", serverQueries.get());
+        metrics.put("bytesRead", bytesRead.get());
+        metrics.put("bytesWritten", bytesWritten.get());
+        metrics.put("entries", (long) entries.size());
+        metrics.put("storedBytes", size.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    @Override
+    public void close() throws Exception {
+        LOGGER.info("Histo DB cache {}: {}", directory, getMetrics());
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineDbWriteBufferTest {
+
+    /**
+     * Records the requests and applies them to an in-memory table
+     */
+    private static class RecordingSender implements OfflineDbWriteBuffer.Sender {
+
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+        private final Map<Integer, Map<String, Object>> records = Collections.synchronizedMap(new HashMap<>());
+
+        @Override
+        public void send(String workflowId, String[] headers, List<Integer> sampleIds, List<Object[]> values) throws Exception {
+            requests.add(workflowId + " " + Arrays.toString(headers) + " " + sampleIds);
+            for (int i = 0; i < sampleIds.size(); i++) {
+                Map<String, Object> record = records.computeIfAbsent(sampleIds.get(i), id -> new HashMap<>());
+                for (int j = 0; j < headers.length; j++) {
+                    record.put(headers[j], values.get(i)[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatching() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        try (OfflineDbWriteBuffer buffer = new OfflineDbWriteBuffer(sender, 100, 60000, 1000, 0, 0)) {
+            buffer.update("w1", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            buffer.update("w1", 1, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            buffer.update("w1", 0, ImmutableMap.of("TASK_LOAD_FLOW", "NOK"));
+            buffer.update("w1", 1, ImmutableMap.of("TASK_SAMPLING", "NOK"));
+            buffer.update("w2", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            assertEquals(5, buffer.getPendingUpdates());
+            assertTrue(sender.requests.isEmpty());
+
+            buffer.flush("w1");
+            assertEquals(1, buffer.getPendingUpdates());
+            // updates are merged per sample, samples with the same columns share a request
+            assertEquals(Arrays.asList("w1 [TASK_SAMPLING, TASK_LOAD_FLOW] [0]", "w1 [TASK_SAMPLING] [1]"), sender.requests);
+            assertEquals(ImmutableMap.of("TASK_SAMPLING", "OK", "TASK_LOAD_FLOW", "NOK"), sender.records.get(0));
+            // the last update of a sample wins
+            assertEquals(ImmutableMap.of("TASK_SAMPLING", "NOK"), sender.records.get(1));
+
+            // nothing left to send
+            buffer.flush("w1");
+            assertEquals(2, sender.requests.size());
+        }
+        // closing sends the updates of all the workflows
+        assertEquals("w2 [TASK_SAMPLING] [0]", sender.requests.get(2));
+    }
+
+    @Test
+    public void testSizeAndTimeTriggers() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        try (OfflineDbWriteBuffer buffer = new OfflineDbWriteBuffer(sender, 2, 500, 2, 0, 0)) {
+            // the buffer is bounded to 2 updates, the third one waits for the first batch to be sent
+            for (int sampleId = 0; sampleId < 3; sampleId++) {
+                buffer.update("w1", sampleId, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            }
+            assertEquals("w1 [TASK_SAMPLING] [0, 1]", sender.requests.get(0));
+            long start = System.currentTimeMillis();
+            while (sender.requests.size() < 2 && System.currentTimeMillis() - start < 10000) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("w1 [TASK_SAMPLING] [0, 1]", "w1 [TASK_SAMPLING] [2]"), sender.requests);
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingSender sender = new RecordingSender() {
+            @Override
+            public void send(String workflowId, String[] headers, List<Integer> sampleIds, List<Object[]> values) throws Exception {
+                if (attempts.incrementAndGet() < 3) {
+                    throw new Exception("unavailable");
+                }
+                super.send(workflowId, headers, sampleIds, values);
+            }
+        };
+        try (OfflineDbWriteBuffer buffer = new OfflineDbWriteBuffer(sender, 10, 60000, 100, 2, 1)) {
+            buffer.update("w1", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            buffer.flush("w1");
+            assertEquals(3, attempts.get());
+            assertEquals(ImmutableMap.of("TASK_SAMPLING", "OK"), sender.records.get(0));
+
+            // retries exhausted, the failure is reported by the next flush only
+            attempts.set(-10);
+            buffer.update("w1", 1, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            try {
+                buffer.flush("w1");
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals("unavailable", e.getCause().getMessage());
+            }
+            assertEquals(0, buffer.getPendingUpdates());
+            buffer.flush("w1");
+        }
+    }
+
+    @Test
+    public void testWriterInterrupted() throws Exception {
+        RecordingSender sender = new RecordingSender() {
+            @Override
+            public void send(String workflowId, String[] headers, List<Integer> sampleIds, List<Object[]> values) throws Exception {
+                Thread.currentThread().interrupt();
+                throw new Exception("unavailable");
+            }
+        };
+        try (OfflineDbWriteBuffer buffer = new OfflineDbWriteBuffer(sender, 10, 60000, 100, 1, 1)) {
+            buffer.update("w1", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            buffer.update("w2", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            // the writer stops while retrying, the pending flush does not wait forever
+            try {
+                buffer.flush("w1");
+                fail();
+            } catch (RuntimeException ignored) {
+            }
+            try {
+                buffer.flush("w2");
+                fail();
+            } catch (IllegalStateException ignored) {
+            }
+            try {
+                buffer.update("w1", 1, ImmutableMap.of("TASK_SAMPLING", "OK"));
+                fail();
+            } catch (IllegalStateException ignored) {
+            }
+            assertEquals(0, buffer.getPendingUpdates());
+        }
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        try (OfflineDbWriteBuffer buffer = new OfflineDbWriteBuffer(sender, 10, 60000, 100, 0, 0)) {
+            buffer.update("w1", 0, ImmutableMap.of("TASK_SAMPLING", "OK"));
+            buffer.discard("w1");
+            assertEquals(0, buffer.getPendingUpdates());
+            buffer.flush("w1");
+        }
+        assertTrue(sender.requests.isEmpty());
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.client.impl;
+
+import com.google.common.io.ByteStreams;
+import com.powsybl.commons.net.ConnectionParameters;
+import eu.itesla_project.modules.histo.cache.HistoDbCache;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class SegmentedHistoDbCacheTest {
+
+    private static final long HOUR = 3600 * 1000L;
+
+    private static final long DAY = 24 * HOUR;
+
+    private static final long DAY1 = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private HistoDbConfig config;
+
+    private SegmentedHistoDbCache cache;
+
+    private List<HistoDbUrl> serverQueries;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new HistoDbConfig(new ConnectionParameters("localhost", 8080, "user", "password"), null, "store", null);
+        cache = new SegmentedHistoDbCache(tmpDir.getRoot().toPath(), 100 * 1024 * 1024, DAY);
+        serverQueries = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+    }
+
+    private static String value(String col, long datetime) {
+        return col + (datetime / HOUR % 1000);
+    }
+
+    private static long parseTime(String time) {
+        return new DateTime(time.replace("Z", ":00Z"), DateTimeZone.UTC).getMillis();
+    }
+
+    private InputStream server(HistoDbUrl url) {
+        serverQueries.add(url);
+        return generate(url);
+    }
+
+    /**
+     * Histo DB with one snapshot per hour and a ';' separator
+     */
+    private static InputStream generate(HistoDbUrl url) {
+        List<String> cols = Arrays.asList(url.getQuery().get("cols").split(","));
+        String time = url.getQuery().get("time");
+        String[] bounds = time.substring(1, time.length() - 1).split(",");
+        long start = parseTime(bounds[0]);
+        long end = parseTime(bounds[1]);
+        StringBuilder csv = new StringBuilder(String.join(";", cols)).append("\n");
+        for (long t = (start + HOUR - 1) / HOUR * HOUR; t <= end; t += HOUR) {
+            List<String> cells = new ArrayList<>();
+            for (String col : cols) {
+                switch (col) {
+                    case "datetime":
+                        cells.add(Long.toString(t / 1000));
+                        break;
+                    case "horizon":
+                        cells.add("SN");
+                        break;
+                    case "forecastTime":
+                        cells.add("0");
+                        break;
+                    default:
+                        cells.add(value(col, t));
+                        break;
+                }
+            }
+            csv.append(String.join(";", cells)).append("\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HistoDbUrl dataUrl(String cols, long start, long end) {
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("headers", "true");
+        query.put("count", "-1");
+        query.put("colRange", "*");
+        query.put("cols", cols);
+        query.put("time", "[" + new DateTime(start, DateTimeZone.UTC).toString("yyyy-MM-dd'T'HH:mm'Z'") + ","
+                + new DateTime(end, DateTimeZone.UTC).toString("yyyy-MM-dd'T'HH:mm'Z'") + "]");
+        query.put("horizon", "SN");
+        return new HistoDbUrl(config, "itesla/data.csv", query);
+    }
+
+    private InputStream getData(HistoDbUrl url, HistoDbCache.QueryLoader loader) throws IOException {
+        String resourceUrl = new HistoDbUrl(config, url.getPath(), Collections.emptyMap()).format();
+        return cache.getData(resourceUrl, url.getQuery(), loader);
+    }
+
+    private InputStream getData(HistoDbUrl url) throws IOException {
+        return getData(url, query -> server(new HistoDbUrl(config, url.getPath(), query)));
+    }
+
+    private String query(String cols, long start, long end) throws IOException {
+        try (InputStream is = getData(dataUrl(cols, start, end))) {
+            assertNotNull(is);
+            return new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String expected(String cols, long start, long end) throws IOException {
+        try (InputStream is = generate(dataUrl(cols, start, end))) {
+            return new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        // 3 buckets queried at once
+        long start = DAY1 + 2 * HOUR;
+        long end = DAY1 + 2 * DAY + 12 * HOUR;
+        assertEquals(expected("datetime,A,B", start, end), query("datetime,A,B", start, end));
+        assertEquals(1, serverQueries.size());
+        assertEquals("[2017-01-01T00:00Z,2017-01-04T00:00Z]", serverQueries.get(0).getQuery().get("time"));
+        assertEquals("datetime,horizon,forecastTime,A,B", serverQueries.get(0).getQuery().get("cols"));
+        serverQueries.clear();
+
+        // same attributes on a shifted interval, only the last bucket is missing
+        start = DAY1 + DAY;
+        end = DAY1 + 3 * DAY + 5 * HOUR;
+        assertEquals(expected("B,datetime", start, end), query("B,datetime", start, end));
+        assertEquals(1, serverQueries.size());
+        assertEquals("[2017-01-04T00:00Z,2017-01-05T00:00Z]", serverQueries.get(0).getQuery().get("time"));
+        serverQueries.clear();
+
+        // a new attribute, only its column is queried
+        start = DAY1;
+        end = DAY1 + 20 * HOUR;
+        assertEquals(expected("A,C", start, end), query("A,C", start, end));
+        assertEquals(1, serverQueries.size());
+        assertEquals("datetime,horizon,forecastTime,C", serverQueries.get(0).getQuery().get("cols"));
+        serverQueries.clear();
+
+        // everything is cached
+        assertEquals(expected("C,B,A,horizon", start, end), query("C,B,A,horizon", start, end));
+        assertTrue(serverQueries.isEmpty());
+
+        Map<String, Long> metrics = cache.getMetrics();
+        assertEquals(3, (long) metrics.get("serverQueries"));
+        assertEquals(3, (long) metrics.get("segmentHits"));
+        assertTrue(metrics.get("bytesRead") > 0);
+        assertTrue(metrics.get("storedBytes") > 0);
+    }
+
+    @Test
+    public void testLoaderError() throws IOException {
+        try (InputStream is = getData(dataUrl("A", DAY1, DAY1 + DAY), query -> {
+            throw new IOException("Histo DB unavailable");
+        })) {
+            is.read();
+            fail();
+        } catch (IOException e) {
+            assertEquals("Histo DB unavailable", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotSegmentable() throws IOException {
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("headers", "true");
+        query.put("async", "true");
+        assertNull(getData(new HistoDbUrl(config, "itesla/data.csv", query)));
+        assertNull(getData(new HistoDbUrl(config, "itesla/stats.csv", Collections.emptyMap())));
+    }
+
+    @Test
+    public void testUrls() throws IOException {
+        String url = "https://localhost:8080/histodb/rest/store/itesla/stats.csv";
+        assertNull(cache.getData(url));
+        try (OutputStream os = cache.putData(url)) {
+            os.write("a,b".getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream is = cache.getData(url)) {
+            assertEquals("a,b", new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8));
+        }
+        assertEquals(Collections.singletonList(url), cache.listUrls());
+        assertEquals(1, (long) cache.getMetrics().get("hits"));
+        assertEquals(1, (long) cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        cache.close();
+        cache = new SegmentedHistoDbCache(tmpDir.getRoot().toPath(), 1000, DAY);
+        for (int i = 0; i < 10; i++) {
+            try (OutputStream os = cache.putData("url" + i)) {
+                byte[] bytes = new byte[200];
+                new Random(i).nextBytes(bytes);
+                os.write(bytes);
+            }
+        }
+        assertTrue(cache.getMetrics().get("storedBytes") <= 1000);
+        assertTrue(cache.getMetrics().get("evictions") > 0);
+        assertNotNull(cache.getData("url9"));
+        assertNull(cache.getData("url0"));
+    }
+}
@@ -6,9 +6,13 @@
  */
 package eu.itesla_project.histodb;
 
+import javax.annotation.PreDestroy;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import eu.itesla_project.histodb.repository.mapdb.HistoDataSourceFactory;
+
 /**
 *
 * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
@@ -22,4 +26,9 @@ public class HistodbServerApplication {
     public static void main(String[] args) {
         SpringApplication.run(HistodbServerApplication.class, args);
     }
+
+    @PreDestroy
+    public void shutdown() {
+        HistoDataSourceFactory.closeAll();
+    }
 }
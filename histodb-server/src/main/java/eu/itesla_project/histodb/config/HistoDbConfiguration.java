@@ -35,6 +35,8 @@ public class HistoDbConfiguration {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("histodb-server");
         mapDb.setPersistent(config.getBooleanProperty("persistent"));
         mapDb.setBasedir(config.getStringProperty("basedir"));
+        mapDb.setIdleTimeout(config.getIntProperty("idleTimeout", MapDb.DEFAULT_IDLE_TIMEOUT));
+        mapDb.setImportBatchSize(config.getIntProperty("importBatchSize", MapDb.DEFAULT_IMPORT_BATCH_SIZE));
 
         formatter.setSeparator(config.getStringProperty("separator", ";").charAt(0));
         formatter.setLocale(config.getStringProperty("locale"));
@@ -54,6 +56,8 @@ public class HistoDbConfiguration {
         Objects.requireNonNull(props);
         mapDb.setPersistent(Boolean.valueOf(props.getProperty("persistent")));
         mapDb.setBasedir(props.getProperty("basedir"));
+        mapDb.setIdleTimeout(Integer.parseInt(props.getProperty("idleTimeout", Integer.toString(MapDb.DEFAULT_IDLE_TIMEOUT))));
+        mapDb.setImportBatchSize(Integer.parseInt(props.getProperty("importBatchSize", Integer.toString(MapDb.DEFAULT_IMPORT_BATCH_SIZE))));
         formatter.setSeparator(props.getProperty("separator", ";").charAt(0));
         formatter.setLocale(props.getProperty("locale"));
         server.setHost(props.getProperty("host"));
@@ -104,10 +108,18 @@ public class HistoDbConfiguration {
 
     public static class MapDb {
 
+        public static final int DEFAULT_IDLE_TIMEOUT = 600;
+
+        public static final int DEFAULT_IMPORT_BATCH_SIZE = 100;
+
         public String basedir;
 
         public boolean persistent;
 
+        public int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+        public int importBatchSize = DEFAULT_IMPORT_BATCH_SIZE;
+
         public String getBasedir() {
             return basedir;
         }
@@ -123,6 +135,28 @@ public class HistoDbConfiguration {
         public void setPersistent(boolean persistent) {
             this.persistent = persistent;
         }
+
+        /**
+         * Time in seconds after which an unused persistent store is closed
+         */
+        public int getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        /**
+         * Number of imported networks between two commits of the store
+         */
+        public int getImportBatchSize() {
+            return importBatchSize;
+        }
+
+        public void setImportBatchSize(int importBatchSize) {
+            this.importBatchSize = importBatchSize;
+        }
     }
 
     public static class Server {
@@ -6,6 +6,7 @@
  */
 package eu.itesla_project.histodb.domain;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +19,11 @@ public abstract class ComputedAttribute extends Attribute {
         super(name);
     }
 
+    /**
+     * Names of the stored attributes the value is computed from
+     */
+    public abstract List<String> getDependencies();
+
     public abstract Object getValue(Map<String, Object> map);
 
     protected Double toDouble(Object o) {
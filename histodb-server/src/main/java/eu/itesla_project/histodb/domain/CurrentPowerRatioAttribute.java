@@ -6,6 +6,8 @@
  */
 package eu.itesla_project.histodb.domain;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +20,12 @@ public class CurrentPowerRatioAttribute extends ComputedAttribute {
         super(name);
     }
 
+    @Override
+    public List<String> getDependencies() {
+        String prefix = getName().substring(0, getName().indexOf("_IP"));
+        return Arrays.asList(prefix + "_I", prefix + "_P");
+    }
+
     @Override
     public Object getValue(Map<String, Object> map) {
         String prefix = getName().substring(0, getName().indexOf("_IP"));
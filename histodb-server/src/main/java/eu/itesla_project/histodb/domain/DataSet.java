@@ -7,18 +7,12 @@
 package eu.itesla_project.histodb.domain;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
-import com.powsybl.commons.io.table.Column;
-import com.powsybl.commons.io.table.CsvTableFormatterFactory;
-import com.powsybl.commons.io.table.TableFormatter;
-import com.powsybl.commons.io.table.TableFormatterConfig;
-
 /**
 *
 * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
@@ -54,27 +48,13 @@ public class DataSet {
         writeCsv(writer, Locale.getDefault(), ';', true);
     }
 
+    public DataStream stream() {
+        return new DataStream(headers, records.iterator());
+    }
+
     public void writeCsv(Writer writer, Locale locale, char separator, boolean writeHeaders) throws IOException {
         Objects.requireNonNull(writer);
-        TableFormatterConfig formatterConfig = new TableFormatterConfig(locale, separator, "", writeHeaders, false);
-        CsvTableFormatterFactory csvTableFormatterFactory = new CsvTableFormatterFactory();
-        Column[] cols = headers.stream().map(h -> new Column(h.getName())).toArray(sz -> new Column[sz]);
-        try (TableFormatter formatter = csvTableFormatterFactory.create(writer, "", formatterConfig, cols)) {
-            records.forEach(r -> {
-                r.getValues().forEach(a -> {
-                    try {
-                        if ("".equals(a.toString())) {
-                            formatter.writeEmptyCell();
-                        } else {
-                            formatter.writeCell(a.toString());
-                        }
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                });
-            });
-            writer.flush();
-        }
+        stream().writeCsv(writer, locale, separator, writeHeaders);
     }
 
     public List<Attribute> getHeaders() {
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.domain;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import com.powsybl.commons.io.table.Column;
+import com.powsybl.commons.io.table.CsvTableFormatterFactory;
+import com.powsybl.commons.io.table.TableFormatter;
+import com.powsybl.commons.io.table.TableFormatterConfig;
+
+/**
+* Records of a query, produced lazily while they are consumed.
+* Unlike a {@link DataSet}, the records can only be iterated once.
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class DataStream {
+
+    private final List<Attribute> headers;
+    private final Iterator<Record> records;
+
+    public DataStream(List<Attribute> headers, Iterator<Record> records) {
+        this.headers = Objects.requireNonNull(headers);
+        this.records = Objects.requireNonNull(records);
+    }
+
+    public List<Attribute> getHeaders() {
+        return headers;
+    }
+
+    public Iterator<Record> getRecords() {
+        return records;
+    }
+
+    public DataSet toDataSet() {
+        DataSet dataSet = new DataSet();
+        dataSet.addHeaders(headers);
+        records.forEachRemaining(dataSet::add);
+        return dataSet;
+    }
+
+    public void writeCsv(Writer writer, Locale locale, char separator, boolean writeHeaders) throws IOException {
+        Objects.requireNonNull(writer);
+        TableFormatterConfig formatterConfig = new TableFormatterConfig(locale, separator, "", writeHeaders, false);
+        CsvTableFormatterFactory csvTableFormatterFactory = new CsvTableFormatterFactory();
+        Column[] cols = headers.stream().map(h -> new Column(h.getName())).toArray(sz -> new Column[sz]);
+        try (TableFormatter formatter = csvTableFormatterFactory.create(writer, "", formatterConfig, cols)) {
+            while (records.hasNext()) {
+                for (Value a : records.next().getValues()) {
+                    if ("".equals(a.toString())) {
+                        formatter.writeEmptyCell();
+                    } else {
+                        formatter.writeCell(a.toString());
+                    }
+                }
+            }
+            writer.flush();
+        }
+    }
+}
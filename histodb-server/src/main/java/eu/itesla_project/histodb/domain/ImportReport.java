@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.domain;
+
+import java.util.Locale;
+
+/**
+* Outcome of a bulk import of networks
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class ImportReport {
+
+    private final int imported;
+
+    private final int skipped;
+
+    private final int failed;
+
+    private final long duration;
+
+    /**
+     * @param imported number of snapshots stored
+     * @param skipped number of snapshots already stored by a previous import
+     * @param failed number of networks which could not be imported
+     * @param duration import duration in ms
+     */
+    public ImportReport(int imported, int skipped, int failed, long duration) {
+        this.imported = imported;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.duration = duration;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Number of snapshots stored per second
+     */
+    public double getThroughput() {
+        return duration > 0 ? imported * 1000.0 / duration : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "imported=%d;skipped=%d;failed=%d;duration=%dms;throughput=%.1f snapshots/s",
+                imported, skipped, failed, duration, getThroughput());
+    }
+}
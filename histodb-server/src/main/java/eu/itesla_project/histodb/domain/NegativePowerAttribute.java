@@ -6,6 +6,8 @@
  */
 package eu.itesla_project.histodb.domain;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +20,11 @@ public class NegativePowerAttribute extends ComputedAttribute {
         super(name);
     }
 
+    @Override
+    public List<String> getDependencies() {
+        return Collections.singletonList(getName().substring(0, getName().indexOf("_PN")) + "_P");
+    }
+
     @Override
     public Object getValue(Map<String, Object> map) {
         String prefix = getName().substring(0, getName().indexOf("_PN"));
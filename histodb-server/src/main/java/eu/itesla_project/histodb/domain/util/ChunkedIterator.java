@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.domain.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+* Iterator reading the elements of a source iterator by chunks: a chunk is only loaded
+* when the elements of the previous one have all been consumed.
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class ChunkedIterator<T, R> implements Iterator<R> {
+
+    private final Iterator<T> source;
+
+    private final int chunkSize;
+
+    private final Function<List<T>, List<R>> loader;
+
+    private Iterator<R> chunk = Collections.emptyIterator();
+
+    public ChunkedIterator(Iterator<T> source, int chunkSize, Function<List<T>, List<R>> loader) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        this.source = Objects.requireNonNull(source);
+        this.chunkSize = chunkSize;
+        this.loader = Objects.requireNonNull(loader);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!chunk.hasNext() && source.hasNext()) {
+            List<T> elements = new ArrayList<>(chunkSize);
+            while (elements.size() < chunkSize && source.hasNext()) {
+                elements.add(source.next());
+            }
+            chunk = loader.apply(elements).iterator();
+        }
+        return chunk.hasNext();
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.next();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.domain.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable quantile sketch with a memory footprint growing with the logarithm of the number of values.
+ * <p>
+ * Values are buffered in levels of at most {@code k} values, a value of level h standing for 2^h input values.
+ * When a level is full, it is sorted and one value out of two is promoted to the next level.
+ * The rank error of a quantile is in the order of log2(n / k) / k.
+ *
+ * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 256;
+
+    private static final class Level {
+
+        private double[] values;
+
+        private int size;
+
+        private Level(int capacity) {
+            values = new double[capacity];
+        }
+
+        private void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private final int k;
+
+    private final List<Level> levels = new ArrayList<>();
+
+    private long count;
+
+    // alternate the promoted half of a compacted level, to avoid a systematic bias
+    private boolean oddOffset;
+
+    // sorted values and cumulated weights, computed on the first quantile query after an update
+    private double[] sortedValues;
+
+    private long[] cumulatedWeights;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < 2) {
+            throw new IllegalArgumentException("Invalid sketch size " + k);
+        }
+        this.k = k;
+    }
+
+    private Level getLevel(int h) {
+        while (levels.size() <= h) {
+            levels.add(new Level(k));
+        }
+        return levels.get(h);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        getLevel(0).add(value);
+        count++;
+        sortedValues = null;
+        compact(0);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+        for (int h = 0; h < other.levels.size(); h++) {
+            Level from = other.levels.get(h);
+            Level to = getLevel(h);
+            for (int i = 0; i < from.size; i++) {
+                to.add(from.values[i]);
+            }
+        }
+        count += other.count;
+        sortedValues = null;
+        compact(0);
+    }
+
+    private void compact(int first) {
+        for (int h = first; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            if (level.size < k) {
+                continue;
+            }
+            Arrays.sort(level.values, 0, level.size);
+            int offset = oddOffset ? 1 : 0;
+            oddOffset = !oddOffset;
+            Level next = getLevel(h + 1);
+            int pairs = level.size / 2;
+            for (int i = 0; i < pairs; i++) {
+                next.add(level.values[2 * i + offset]);
+            }
+            if (level.size % 2 == 1) {
+                // the value left out of the pairs keeps its weight
+                level.values[0] = level.values[level.size - 1];
+                level.size = 1;
+            } else {
+                level.size = 0;
+            }
+        }
+    }
+
+    private void sort() {
+        int size = 0;
+        for (Level level : levels) {
+            size += level.size;
+        }
+        double[] values = new double[size];
+        long[] weights = new long[size];
+        Integer[] order = new Integer[size];
+        int i = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            for (int j = 0; j < level.size; j++) {
+                values[i] = level.values[j];
+                weights[i] = 1L << h;
+                order[i] = i;
+                i++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        sortedValues = new double[size];
+        cumulatedWeights = new long[size];
+        long cumulated = 0;
+        for (i = 0; i < size; i++) {
+            sortedValues[i] = values[order[i]];
+            cumulated += weights[order[i]];
+            cumulatedWeights[i] = cumulated;
+        }
+    }
+
+    /**
+     * Estimated value of a percentile
+     *
+     * @param p percentile, between 0 and 100
+     * @return the estimated percentile, NaN if the sketch is empty
+     */
+    public double percentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + p);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (sortedValues == null) {
+            sort();
+        }
+        long total = cumulatedWeights[cumulatedWeights.length - 1];
+        double rank = p / 100 * total;
+        int i = Arrays.binarySearch(cumulatedWeights, (long) Math.ceil(rank));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return sortedValues[Math.min(i, sortedValues.length - 1)];
+    }
+}
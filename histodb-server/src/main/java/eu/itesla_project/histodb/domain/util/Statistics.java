@@ -8,15 +8,26 @@ package eu.itesla_project.histodb.domain.util;
 
 import java.util.function.Consumer;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-
 /**
+* Single pass statistics of a column: count, mean, variance, min and max are exact,
+* percentiles are estimated with a {@link QuantileSketch}, so that values are not kept in memory.
 *
 * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
 */
 public class Statistics implements Consumer<Object> {
 
-    DescriptiveStatistics stats = new DescriptiveStatistics();
+    private long n;
+
+    private double mean;
+
+    // sum of squared differences from the mean
+    private double m2;
+
+    private double min = Double.NaN;
+
+    private double max = Double.NaN;
+
+    private final QuantileSketch sketch = new QuantileSketch();
 
     @Override
     public void accept(Object obj) {
@@ -24,49 +35,73 @@ public class Statistics implements Consumer<Object> {
             if (obj instanceof String) {
                 return;
             } else if (obj instanceof Double) {
-                stats.addValue((Double) obj);
+                addValue((Double) obj);
             } else if (obj instanceof Integer) {
-                stats.addValue(((Integer) obj).doubleValue());
+                addValue(((Integer) obj).doubleValue());
             } else if (obj instanceof Long) {
-                stats.addValue(((Long) obj).doubleValue());
+                addValue(((Long) obj).doubleValue());
             }
         }
     }
 
-    public void combine(Statistics other) {
-        if (other != null) {
-            double[] vals = other.getValues();
-            for (int i = 0; i < vals.length; i++) {
-                stats.addValue(vals[i]);
-            }
-        }
+    public void addValue(double value) {
+        n++;
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+        min = n == 1 ? value : Math.min(min, value);
+        max = n == 1 ? value : Math.max(max, value);
+        sketch.add(value);
     }
 
-    public double[] getValues() {
-        return stats.getValues();
+    public void combine(Statistics other) {
+        if (other == null || other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+        } else {
+            long total = n + other.n;
+            double delta = other.mean - mean;
+            mean += delta * other.n / total;
+            m2 += other.m2 + delta * delta * n * other.n / total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        n += other.n;
+        sketch.merge(other.sketch);
     }
 
     public double avg() {
-        return stats.getMean();
+        return n > 0 ? mean : Double.NaN;
     }
 
+    /**
+     * Bias corrected variance
+     */
     public double var() {
-        return stats.getVariance();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        return n > 1 ? m2 / (n - 1) : 0;
     }
 
     public double percentile(double lim) {
-        return stats.getPercentile(lim);
+        return sketch.percentile(lim);
     }
 
     public long count() {
-        return stats.getN();
+        return n;
     }
 
     public double min() {
-        return stats.getMin();
+        return min;
     }
 
     public double max() {
-        return stats.getMax();
+        return max;
     }
 }
@@ -0,0 +1,495 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.repository.mapdb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.mapdb.Atomic;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Column oriented storage of the snapshots.
+ * <p>
+ * Snapshots are grouped by time blocks of {@link #BLOCK_DURATION}. A block index keeps the keys of the snapshots
+ * of a block, each one with the position of its values in the block. The values of a column for a block are
+ * stored together as a primitive array (doubles, longs for integer columns, or strings), so that a query only
+ * reads the requested columns over the blocks of the requested time range. A missing value is stored as NaN,
+ * {@link Long#MIN_VALUE} or null.
+ * <p>
+ * The column arrays written by {@link #put} are kept in memory until {@link #flush()}, so that consecutive
+ * snapshots of a block do not rewrite the column arrays each time. Reads see the values not flushed yet.
+ *
+ * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+ */
+public class HistoColumnStore {
+
+    static Logger log = LoggerFactory.getLogger(HistoColumnStore.class);
+
+    /**
+     * Time span of a block, in ms
+     */
+    static final long BLOCK_DURATION = 24L * 3600 * 1000;
+
+    /**
+     * Number of column arrays kept in memory before being written to the store
+     */
+    private static final int MAX_PENDING_COLUMN_BLOCKS = 100000;
+
+    /**
+     * Number of snapshots migrated between two commits
+     */
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
+    private static final long MISSING_LONG = Long.MIN_VALUE;
+
+    private static final String DOUBLE_TYPE = "D";
+    private static final String LONG_TYPE = "L";
+    private static final String INTEGER_TYPE = "I";
+    private static final String STRING_TYPE = "S";
+
+    private final DB db;
+
+    private final HTreeMap<String, Integer> columnIds;
+
+    private final HTreeMap<String, String> columnTypes;
+
+    private final Atomic.Integer columnCounter;
+
+    private final BTreeMap<Long, byte[]> blocks;
+
+    private final BTreeMap<Long, double[]> doubles;
+
+    private final BTreeMap<Long, long[]> longs;
+
+    private final BTreeMap<Long, byte[]> strings;
+
+    private final Atomic.Var<Object> migrationCursor;
+
+    private final Atomic.Boolean migrated;
+
+    // column arrays not written to the store yet, by column block key
+    private final Map<Long, Object> pendingColumnBlocks = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Keys of the snapshots of a block, sorted, with the position of their values in the column arrays
+     */
+    private static final class Block {
+
+        private static final Block EMPTY = new Block(new HistoKey[0], new int[0]);
+
+        private final HistoKey[] keys;
+
+        private final int[] positions;
+
+        private Block(HistoKey[] keys, int[] positions) {
+            this.keys = keys;
+            this.positions = positions;
+        }
+
+        int find(HistoKey key) {
+            int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? positions[i] : -1;
+        }
+
+        Block add(HistoKey key) {
+            int i = -Arrays.binarySearch(keys, key) - 1;
+            HistoKey[] newKeys = new HistoKey[keys.length + 1];
+            int[] newPositions = new int[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(positions, 0, newPositions, 0, i);
+            newKeys[i] = key;
+            newPositions[i] = keys.length;
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(positions, i, newPositions, i + 1, keys.length - i);
+            return new Block(newKeys, newPositions);
+        }
+
+        byte[] encode() {
+            DataOutput2 out = new DataOutput2();
+            try {
+                out.packInt(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    out.writeLong(keys[i].getDateTime());
+                    writeString(out, keys[i].getHorizon());
+                    out.writeInt(keys[i].getForecastDistance());
+                    out.packInt(positions[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.copyBytes();
+        }
+
+        static Block decode(byte[] bytes) {
+            DataInput2 in = new DataInput2.ByteArray(bytes);
+            try {
+                int size = in.unpackInt();
+                HistoKey[] keys = new HistoKey[size];
+                int[] positions = new int[size];
+                for (int i = 0; i < size; i++) {
+                    long dateTime = in.readLong();
+                    String horizon = readString(in);
+                    keys[i] = new HistoKey(horizon, dateTime, in.readInt());
+                    positions[i] = in.unpackInt();
+                }
+                return new Block(keys, positions);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public HistoColumnStore(DB db, String name) {
+        this.db = Objects.requireNonNull(db);
+        Objects.requireNonNull(name);
+        columnIds = db.hashMap(name + "_columnIds", Serializer.STRING, Serializer.INTEGER).createOrOpen();
+        columnTypes = db.hashMap(name + "_columnTypes", Serializer.STRING, Serializer.STRING).createOrOpen();
+        columnCounter = db.atomicInteger(name + "_columnCounter").createOrOpen();
+        blocks = db.treeMap(name + "_blocks", Serializer.LONG, Serializer.BYTE_ARRAY).valuesOutsideNodesEnable().createOrOpen();
+        doubles = db.treeMap(name + "_doubleBlocks", Serializer.LONG, Serializer.DOUBLE_ARRAY).valuesOutsideNodesEnable().createOrOpen();
+        longs = db.treeMap(name + "_longBlocks", Serializer.LONG, Serializer.LONG_ARRAY).valuesOutsideNodesEnable().createOrOpen();
+        strings = db.treeMap(name + "_stringBlocks", Serializer.LONG, Serializer.BYTE_ARRAY).valuesOutsideNodesEnable().createOrOpen();
+        migrationCursor = (Atomic.Var<Object>) db.atomicVar(name + "_migrationCursor", Serializer.JAVA).createOrOpen();
+        migrated = db.atomicBoolean(name + "_migrated").createOrOpen();
+    }
+
+    private static void writeString(DataOutput2 out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            Serializer.STRING.serialize(out, value);
+        }
+    }
+
+    private static String readString(DataInput2 in) throws IOException {
+        return in.readBoolean() ? Serializer.STRING.deserialize(in, -1) : null;
+    }
+
+    private static byte[] encodeStrings(String[] values) {
+        DataOutput2 out = new DataOutput2();
+        try {
+            out.packInt(values.length);
+            for (String value : values) {
+                writeString(out, value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.copyBytes();
+    }
+
+    private static String[] decodeStrings(byte[] bytes) {
+        DataInput2 in = new DataInput2.ByteArray(bytes);
+        try {
+            String[] values = new String[in.unpackInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString(in);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String getType(Object value) {
+        if (value instanceof Double) {
+            return DOUBLE_TYPE;
+        } else if (value instanceof Long) {
+            return LONG_TYPE;
+        } else if (value instanceof Integer) {
+            return INTEGER_TYPE;
+        } else if (value instanceof String) {
+            return STRING_TYPE;
+        } else {
+            throw new RuntimeException("Unexpected type " + value.getClass());
+        }
+    }
+
+    private static long getBlockNumber(long dateTime) {
+        return Math.floorDiv(dateTime, BLOCK_DURATION);
+    }
+
+    private static long getColumnBlockKey(int columnId, long blockNumber) {
+        return ((long) columnId << 32) | (blockNumber & 0xffffffffL);
+    }
+
+    private Block getBlock(long blockNumber) {
+        byte[] bytes = blocks.get(blockNumber);
+        return bytes != null ? Block.decode(bytes) : Block.EMPTY;
+    }
+
+    private synchronized int getOrCreateColumn(String column, String type) {
+        Integer id = columnIds.get(column);
+        if (id == null) {
+            id = columnCounter.getAndIncrement();
+            columnTypes.put(column, type);
+            columnIds.put(column, id);
+        } else if (STRING_TYPE.equals(type) != STRING_TYPE.equals(columnTypes.get(column))) {
+            throw new RuntimeException("Column " + column + " type " + columnTypes.get(column) + " incompatible with " + type);
+        }
+        return id;
+    }
+
+    /**
+     * Column array of a block, from the values not flushed yet or from the store, null if none
+     */
+    private Object getColumnBlock(String type, long columnBlockKey) {
+        Object values = pendingColumnBlocks.get(columnBlockKey);
+        if (values == null) {
+            switch (type) {
+                case STRING_TYPE:
+                    byte[] bytes = strings.get(columnBlockKey);
+                    values = bytes != null ? decodeStrings(bytes) : null;
+                    break;
+                case DOUBLE_TYPE:
+                    values = doubles.get(columnBlockKey);
+                    break;
+                default:
+                    values = longs.get(columnBlockKey);
+                    break;
+            }
+        }
+        return values;
+    }
+
+    private void setValue(String type, long columnBlockKey, int position, Object value) {
+        Object values = getColumnBlock(type, columnBlockKey);
+        switch (type) {
+            case STRING_TYPE:
+                String[] stringValues = values != null ? (String[]) values : new String[0];
+                if (position >= stringValues.length) {
+                    stringValues = Arrays.copyOf(stringValues, position + 1);
+                }
+                stringValues[position] = (String) value;
+                values = stringValues;
+                break;
+            case DOUBLE_TYPE:
+                double[] doubleValues = values != null ? (double[]) values : new double[0];
+                if (position >= doubleValues.length) {
+                    int length = doubleValues.length;
+                    doubleValues = Arrays.copyOf(doubleValues, position + 1);
+                    Arrays.fill(doubleValues, length, position, Double.NaN);
+                }
+                doubleValues[position] = ((Number) value).doubleValue();
+                values = doubleValues;
+                break;
+            default:
+                long[] longValues = values != null ? (long[]) values : new long[0];
+                if (position >= longValues.length) {
+                    int length = longValues.length;
+                    longValues = Arrays.copyOf(longValues, position + 1);
+                    Arrays.fill(longValues, length, position, MISSING_LONG);
+                }
+                longValues[position] = ((Number) value).longValue();
+                values = longValues;
+                break;
+        }
+        pendingColumnBlocks.put(columnBlockKey, values);
+    }
+
+    private static Object getValue(String type, Object values, int position) {
+        switch (type) {
+            case STRING_TYPE:
+                String[] stringValues = (String[]) values;
+                return position < stringValues.length ? stringValues[position] : null;
+            case DOUBLE_TYPE:
+                double[] doubleValues = (double[]) values;
+                return position < doubleValues.length && !Double.isNaN(doubleValues[position]) ? doubleValues[position] : null;
+            default:
+                long[] longValues = (long[]) values;
+                if (position >= longValues.length || longValues[position] == MISSING_LONG) {
+                    return null;
+                }
+                return INTEGER_TYPE.equals(type) ? (Object) (int) longValues[position] : (Object) longValues[position];
+        }
+    }
+
+    public void put(HistoKey key, Map<String, Object> values) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(values);
+        lock.writeLock().lock();
+        try {
+            long blockNumber = getBlockNumber(key.getDateTime());
+            Block block = getBlock(blockNumber);
+            int position = block.find(key);
+            if (position == -1) {
+                block = block.add(key);
+                position = block.find(key);
+                blocks.put(blockNumber, block.encode());
+            }
+            for (Map.Entry<String, Object> e : values.entrySet()) {
+                if (e.getValue() == null) {
+                    continue;
+                }
+                int columnId = getOrCreateColumn(e.getKey(), getType(e.getValue()));
+                // numbers are stored with the type of the column, doubles or longs
+                setValue(columnTypes.get(e.getKey()), getColumnBlockKey(columnId, blockNumber), position, e.getValue());
+            }
+            if (pendingColumnBlocks.size() > MAX_PENDING_COLUMN_BLOCKS) {
+                flushPending();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushPending() {
+        for (Map.Entry<Long, Object> e : pendingColumnBlocks.entrySet()) {
+            Object values = e.getValue();
+            if (values instanceof String[]) {
+                strings.put(e.getKey(), encodeStrings((String[]) values));
+            } else if (values instanceof double[]) {
+                doubles.put(e.getKey(), (double[]) values);
+            } else {
+                longs.put(e.getKey(), (long[]) values);
+            }
+        }
+        pendingColumnBlocks.clear();
+    }
+
+    /**
+     * Write the values kept in memory to the store, to be done before a commit
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            flushPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    public boolean contains(HistoKey key) {
+        byte[] bytes = blocks.get(getBlockNumber(key.getDateTime()));
+        return bytes != null && Block.decode(bytes).find(key) != -1;
+    }
+
+    /**
+     * Keys of the snapshots stored between {@code timeFrom} and {@code timeTo} (inclusive), in time order
+     */
+    public Stream<HistoKey> keys(long timeFrom, long timeTo) {
+        if (timeFrom > timeTo) {
+            return Stream.empty();
+        }
+        NavigableMap<Long, byte[]> range = blocks.subMap(getBlockNumber(timeFrom), true, getBlockNumber(timeTo), true);
+        return range.values().stream()
+                .flatMap(bytes -> Arrays.stream(Block.decode(bytes).keys))
+                .filter(key -> key.getDateTime() >= timeFrom && key.getDateTime() <= timeTo);
+    }
+
+    public Collection<String> getColumns() {
+        return columnIds.keySet();
+    }
+
+    /**
+     * Read the values of some columns of the snapshots
+     *
+     * @param keys keys of the snapshots, in time order
+     * @param columns names of the columns to read
+     * @return a map of column values per snapshot, in the same order as the keys
+     */
+    public List<Map<String, Object>> read(List<HistoKey> keys, Collection<String> columns) {
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(columns);
+        List<Map<String, Object>> result = new ArrayList<>(keys.size());
+        long[] blockNumbers = new long[keys.size()];
+        int[] positions = new int[keys.size()];
+        Map<Long, Block> blocksCache = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            blockNumbers[i] = getBlockNumber(keys.get(i).getDateTime());
+            positions[i] = blocksCache.computeIfAbsent(blockNumbers[i], this::getBlock).find(keys.get(i));
+            result.add(new HashMap<>(columns.size()));
+        }
+        lock.readLock().lock();
+        try {
+            for (String column : columns) {
+                Integer columnId = columnIds.get(column);
+                if (columnId == null) {
+                    continue;
+                }
+                String type = columnTypes.get(column);
+                Map<Long, Object> columnBlocks = new HashMap<>();
+                for (int i = 0; i < keys.size(); i++) {
+                    if (positions[i] == -1) {
+                        continue;
+                    }
+                    long columnBlockKey = getColumnBlockKey(columnId, blockNumbers[i]);
+                    Object values = columnBlocks.computeIfAbsent(columnBlockKey, k -> getColumnBlock(type, k));
+                    Object value = values != null ? getValue(type, values, positions[i]) : null;
+                    if (value != null) {
+                        result.get(i).put(column, value);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Copy the snapshots of a row oriented map, as stored by previous versions, then clear it.
+     * <p>
+     * The store is committed every {@link #MIGRATION_BATCH_SIZE} snapshots, together with the key of the last
+     * migrated snapshot, so that an interrupted migration resumes after the last committed batch. Once
+     * complete the migration is marked as done and is not run again.
+     */
+    public void migrate(BTreeMap<HistoKey, Map<String, Object>> rowMap) {
+        Objects.requireNonNull(rowMap);
+        if (migrated.get()) {
+            // the clearing of the row map may have been interrupted
+            if (!rowMap.isEmpty()) {
+                rowMap.clear();
+                db.commit();
+            }
+            return;
+        }
+        HistoKey cursor = (HistoKey) migrationCursor.get();
+        NavigableMap<HistoKey, Map<String, Object>> toMigrate = cursor != null ? rowMap.tailMap(cursor, false) : rowMap;
+        log.info("Migrating snapshots to column storage" + (cursor != null ? ", resuming after " + cursor : ""));
+        int count = 0;
+        for (Map.Entry<HistoKey, Map<String, Object>> e : toMigrate.entrySet()) {
+            put(e.getKey(), e.getValue());
+            if (++count % MIGRATION_BATCH_SIZE == 0) {
+                flush();
+                migrationCursor.set(e.getKey());
+                db.commit();
+            }
+        }
+        flush();
+        migrated.set(true);
+        migrationCursor.set(null);
+        db.commit();
+        rowMap.clear();
+        db.commit();
+        log.info(count + " snapshots migrated to column storage");
+    }
+}
@@ -18,9 +18,15 @@ public abstract class HistoDataSourceFactory {
 
     public static final HashMap<String, HistoDataSource> MEM_SOURCES = new HashMap();
 
+    private static final HistoDataSourceRegistry REGISTRY = new HistoDataSourceRegistry();
+
+    /**
+     * Get a data source, to be closed after use: persistent data sources are shared through
+     * the registry and closing them only releases the lease.
+     */
     public static HistoDataSource getInstance(HistoDbConfiguration config, String name, String prefix, String postfix) throws IOException {
         if (config.getMapDb().isPersistent()) {
-            return new HistoDataSource(config, name, prefix, postfix);
+            return REGISTRY.acquire(config, name, prefix, postfix);
         } else {
             String key = name + "_" + prefix + "_" + postfix;
             HistoDataSource ds = MEM_SOURCES.get(key);
@@ -31,4 +37,12 @@ public abstract class HistoDataSourceFactory {
             return ds;
         }
     }
+
+    public static HistoDataSourceRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    public static void closeAll() {
+        REGISTRY.close();
+    }
 }
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.repository.mapdb;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.itesla_project.histodb.config.HistoDbConfiguration;
+
+/**
+ * Registry of the persistent data sources: each db/prefix/postfix store is opened once and shared
+ * by the request threads. A data source is leased by {@link #acquire} and given back by
+ * {@link HistoDataSource#close()}, only the first close of a lease being counted; stores without
+ * lease and idle for longer than the configured timeout are evicted (closed) by a background task.
+ *
+ * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+ */
+public class HistoDataSourceRegistry implements AutoCloseable {
+
+    static Logger log = LoggerFactory.getLogger(HistoDataSourceRegistry.class);
+
+    private static final long EVICTION_PERIOD = 60; // seconds
+
+    private final Map<String, HistoDataStore> stores = new HashMap<>();
+
+    private final ScheduledExecutorService evictor;
+
+    private long openCount = 0;
+
+    private long evictCount = 0;
+
+    private boolean closed = false;
+
+    public HistoDataSourceRegistry() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "histodb-datasource-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.SECONDS);
+    }
+
+    private static String key(String name, String prefix, String postfix) {
+        return name + "_" + prefix + "_" + postfix;
+    }
+
+    public synchronized HistoDataSource acquire(HistoDbConfiguration config, String name, String prefix, String postfix) throws IOException {
+        Objects.requireNonNull(config);
+        if (closed) {
+            throw new IllegalStateException("Data source registry is closed");
+        }
+        String key = key(name, prefix, postfix);
+        HistoDataStore store = stores.get(key);
+        if (store == null) {
+            store = new HistoDataStore(config, name, prefix, postfix);
+            stores.put(key, store);
+            openCount++;
+            log.info("Opened data source " + key);
+        }
+        store.acquire();
+        return new HistoDataSource(store, this);
+    }
+
+    synchronized void release(HistoDataStore store) {
+        store.release();
+    }
+
+    /**
+     * Close the stores that are not leased and have been idle for longer than the configured timeout.
+     *
+     * @return the number of evicted stores
+     */
+    public synchronized int evictIdle() {
+        int evicted = 0;
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, HistoDataStore>> it = stores.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, HistoDataStore> e = it.next();
+            HistoDataStore store = e.getValue();
+            long idleTimeout = TimeUnit.SECONDS.toMillis(store.getConfig().getMapDb().getIdleTimeout());
+            if (store.getUsers() == 0 && now - store.getLastAccess() > idleTimeout) {
+                it.remove();
+                closeStore(e.getKey(), store);
+                evictCount++;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private static void closeStore(String key, HistoDataStore store) {
+        try {
+            store.closeStore();
+            log.info("Closed data source " + key);
+        } catch (Exception e) {
+            log.warn("Error closing data source " + key, e);
+        }
+    }
+
+    /**
+     * Number of stores opened since the registry creation
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Number of idle stores evicted since the registry creation
+     */
+    public synchronized long getEvictCount() {
+        return evictCount;
+    }
+
+    /**
+     * Number of stores currently opened
+     */
+    public synchronized int getActiveCount() {
+        return stores.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        evictor.shutdownNow();
+        for (Map.Entry<String, HistoDataStore> e : stores.entrySet()) {
+            if (e.getValue().getUsers() > 0) {
+                log.warn("Closing data source " + e.getKey() + " still in use");
+            }
+            closeStore(e.getKey(), e.getValue());
+        }
+        stores.clear();
+    }
+}
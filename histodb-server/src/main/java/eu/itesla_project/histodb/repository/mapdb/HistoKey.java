@@ -8,6 +8,7 @@ package eu.itesla_project.histodb.repository.mapdb;
 
 import java.io.Serializable;
 import java.util.Comparator;
+import java.util.Objects;
 
 /**
 *
@@ -16,8 +17,10 @@ import java.util.Comparator;
 public class HistoKey implements Comparable<HistoKey>, Serializable {
 
     private static final long serialVersionUID = 1L;
-    private static final Comparator<String> NULL_SAFE_COMPARATOR = Comparator.nullsLast(String::compareToIgnoreCase);
-
+    // consistent with equals, so that keys can be binary searched
+    private static final Comparator<HistoKey> COMPARATOR = Comparator.comparingLong(HistoKey::getDateTime)
+            .thenComparing(HistoKey::getHorizon, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(HistoKey::getForecastDistance);
 
     private final String horizon;
     private final Long dateTime;
@@ -43,8 +46,22 @@ public class HistoKey implements Comparable<HistoKey>, Serializable {
 
     @Override
     public int compareTo(HistoKey other) {
-        return Comparator.comparing(HistoKey::getDateTime).thenComparing(HistoKey::getHorizon, NULL_SAFE_COMPARATOR)
-                .thenComparingInt(HistoKey::getForecastDistance).compare(this, other);
+        return COMPARATOR.compare(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(horizon, dateTime, forecastDistance);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof HistoKey) {
+            HistoKey other = (HistoKey) obj;
+            return dateTime.equals(other.dateTime) && Objects.equals(horizon, other.horizon)
+                    && forecastDistance == other.forecastDistance;
+        }
+        return false;
     }
 
 }
@@ -11,6 +11,8 @@ import java.nio.file.Path;
 
 import eu.itesla_project.histodb.QueryParams;
 import eu.itesla_project.histodb.domain.DataSet;
+import eu.itesla_project.histodb.domain.DataStream;
+import eu.itesla_project.histodb.domain.ImportReport;
 import eu.itesla_project.histodb.repository.mapdb.HistoDataSource;
 
 /**
@@ -19,14 +21,22 @@ import eu.itesla_project.histodb.repository.mapdb.HistoDataSource;
 */
 public interface HistoDataService {
 
-    public void importData(HistoDataSource histoDataSource, Path dir, boolean parallel) throws Exception;
+    public ImportReport importData(HistoDataSource histoDataSource, Path dir, boolean parallel) throws Exception;
 
     public DataSet getData(HistoDataSource histoDataSource, QueryParams queryParams);
 
+    /**
+     * Same as {@link #getData(HistoDataSource, QueryParams)}, the records being read from the data source
+     * while they are iterated: the data source must stay open until then.
+     */
+    public DataStream streamData(HistoDataSource histoDataSource, QueryParams queryParams);
+
     void importReferenceNetwork(HistoDataSource datasource, Path file) throws IOException;
 
     public DataSet getForecastDiff(HistoDataSource hds, QueryParams queryParams);
 
+    public DataStream streamForecastDiff(HistoDataSource hds, QueryParams queryParams);
+
     public DataSet getStats(HistoDataSource hds, QueryParams queryParams);
 
 }
@@ -13,19 +13,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
-import org.mapdb.BTreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -49,14 +51,18 @@ import eu.itesla_project.histodb.domain.Attribute;
 import eu.itesla_project.histodb.domain.ComputedAttribute;
 import eu.itesla_project.histodb.domain.CurrentPowerRatioAttribute;
 import eu.itesla_project.histodb.domain.DataSet;
+import eu.itesla_project.histodb.domain.DataStream;
+import eu.itesla_project.histodb.domain.ImportReport;
 import eu.itesla_project.histodb.domain.NegativePowerAttribute;
 import eu.itesla_project.histodb.domain.NegativeReactivePowerAttribute;
 import eu.itesla_project.histodb.domain.PositivePowerAttribute;
 import eu.itesla_project.histodb.domain.PositiveReactivePowerAttribute;
 import eu.itesla_project.histodb.domain.Record;
 import eu.itesla_project.histodb.domain.Value;
+import eu.itesla_project.histodb.domain.util.ChunkedIterator;
 import eu.itesla_project.histodb.domain.util.Statistics;
 import eu.itesla_project.histodb.repository.mapdb.HistoDataSource;
+import eu.itesla_project.histodb.repository.mapdb.HistoColumnStore;
 import eu.itesla_project.histodb.repository.mapdb.HistoKey;
 import eu.itesla_project.histodb.service.HistoDataService;
 import eu.itesla_project.modules.histo.HistoDbAttributeId;
@@ -74,6 +80,28 @@ public class HistoDataServiceImpl implements HistoDataService {
     static Logger log = LoggerFactory.getLogger(HistoDataServiceImpl.class);
     private static final Collection<Importer> IMPORTERS = Importers.list();
 
+    /**
+     * Number of snapshots read at once from the column store when iterating over the results of a query
+     */
+    private static final int READ_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum number of extracted networks waiting to be written to the store during an import
+     */
+    private static final int IMPORT_QUEUE_CAPACITY = 16;
+
+    private static final class Snapshot {
+
+        private final HistoKey key;
+
+        private final Map<String, Object> values;
+
+        private Snapshot(HistoKey key, Map<String, Object> values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
     @Override
     public void importReferenceNetwork(HistoDataSource datasource, Path file) throws IOException {
         Objects.requireNonNull(datasource);
@@ -105,77 +133,132 @@ public class HistoDataServiceImpl implements HistoDataService {
     }
 
     @Override
-    public void importData(HistoDataSource datasource, Path dir, boolean parallel) throws Exception {
+    public ImportReport importData(HistoDataSource datasource, Path dir, boolean parallel) throws Exception {
         Objects.requireNonNull(datasource);
         Objects.requireNonNull(dir);
 
-        BTreeMap<HistoKey, Map<String, Object>> netMap = datasource.getMap();
+        HistoColumnStore columnStore = datasource.getColumnStore();
+        int batchSize = datasource.getConfig().getMapDb().getImportBatchSize();
 
         final AtomicReference<Network> lastSnapshot = new AtomicReference<>();
+        AtomicInteger imported = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+
+        // networks are parsed and their values extracted by the importer threads, a single thread writes them
+        // to the store; the importer threads are blocked when the writer lags behind
+        ImportWriter<List<Snapshot>> importWriter = new ImportWriter<>(IMPORT_QUEUE_CAPACITY, new Consumer<List<Snapshot>>() {
+
+            private int uncommitted = 0;
+
+            @Override
+            public void accept(List<Snapshot> snapshots) {
+                for (Snapshot snapshot : snapshots) {
+                    if (columnStore.contains(snapshot.key)) {
+                        skipped.incrementAndGet();
+                    } else {
+                        columnStore.put(snapshot.key, snapshot.values);
+                        imported.incrementAndGet();
+                    }
+                }
+                if (++uncommitted >= batchSize) {
+                    datasource.commit();
+                    uncommitted = 0;
+                    long elapsed = System.currentTimeMillis() - startTime;
+                    log.info("Imported " + imported.get() + " snapshots (" + imported.get() * 1000L / Math.max(elapsed, 1) + " snapshots/s)");
+                }
+            }
+        });
 
         try {
             for (Importer importer : IMPORTERS) {
                 Importers.importAll(dir, importer, parallel, n -> {
-
                     try {
-                        IIDM2DB.CimValuesMap valueMaps = IIDM2DB.extractCimValues(n,
-                                new IIDM2DB.Config(n.getId(), true));
-
-                        for (Map.Entry<IIDM2DB.HorizonKey, LinkedHashMap<HistoDbAttributeId, Object>> valueMapEntry : valueMaps
-                                .entrySet()) {
-                            LinkedHashMap<HistoDbAttributeId, Object> valueMap = valueMapEntry.getValue();
-                            TreeMap<String, Object> netAttributes = new TreeMap<String, Object>();
-                            List<String> colNames = new ArrayList<String>(valueMap.size());
-                            for (HistoDbAttributeId attrId : valueMap.keySet()) {
-                                colNames.add(attrId.toString());
-                                Object o = valueMap.get(attrId);
-                                if (attrId.toString().equals(HistoDbMetaAttributeType.datetime.toString())) {
-                                    netAttributes.put(attrId.toString(), ((Date) o).getTime() / 1000);
-                                } else if (o instanceof Float) {
-                                    netAttributes.put(attrId.toString(), new Double((Float) o));
-                                } else if (attrId.toString().endsWith("_TOPO")) {
-                                    netAttributes.put(attrId.toString(), escapeTopology((String) o));
-                                } else {
-                                    netAttributes.put(attrId.toString(), o);
-                                }
-                            }
-                            HistoKey key = new HistoKey(valueMapEntry.getKey().horizon,
-                                    n.getCaseDate().toDate().getTime(), valueMapEntry.getKey().forecastDistance);
-
-                            netMap.put(key, netAttributes);
-                            if (valueMapEntry.getKey().horizon.equals(HistoDbHorizon.SN.toString())) {
-                                lastSnapshot.set(n);
-                            }
+                        // snapshots already imported are skipped, so that an interrupted import can be resumed
+                        HistoKey key = new HistoKey(n.getForecastDistance() > 0 ? HistoDbHorizon.DACF.toString() : HistoDbHorizon.SN.toString(),
+                                n.getCaseDate().toDate().getTime(), n.getForecastDistance());
+                        if (columnStore.contains(key)) {
+                            log.debug("Network " + n.getId() + " already imported");
+                            skipped.incrementAndGet();
+                            return;
                         }
-
-                        log.info("Inserted network: " + n.getId() + ", format: " + importer.getFormat());
+                        List<Snapshot> snapshots = extractSnapshots(n);
+                        if (snapshots.stream().anyMatch(snapshot -> HistoDbHorizon.SN.toString().equals(snapshot.key.getHorizon()))) {
+                            lastSnapshot.accumulateAndGet(n, (n1, n2) -> n1 == null || n2.getCaseDate().isAfter(n1.getCaseDate()) ? n2 : n1);
+                        }
+                        importWriter.write(snapshots);
+                        log.info("Extracted network: " + n.getId() + ", format: " + importer.getFormat());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.incrementAndGet();
                     } catch (Exception e) {
-                        log.warn("Error reading network attributes", e);
+                        log.warn("Error reading network attributes of " + n.getId(), e);
+                        failed.incrementAndGet();
                     }
                 });
             }
-            if (lastSnapshot.get() != null) {
-                datasource.saveReferenceNetwork(lastSnapshot.get());
-            }
         } catch (Exception e) {
             log.warn("Failed to insert network from " + dir, e);
         } finally {
             try {
-                datasource.commit();
-            } catch (Throwable t) {
-                log.warn("Error during commit " + t.getMessage());
+                importWriter.close();
+                if (lastSnapshot.get() != null) {
+                    datasource.saveReferenceNetwork(lastSnapshot.get());
+                }
+            } finally {
+                try {
+                    datasource.commit();
+                } catch (Throwable t) {
+                    log.warn("Error during commit " + t.getMessage());
+                }
             }
         }
 
+        ImportReport report = new ImportReport(imported.get(), skipped.get(), failed.get(), System.currentTimeMillis() - startTime);
+        log.info("Import from " + dir + " done: " + report);
+        return report;
+    }
+
+    private List<Snapshot> extractSnapshots(Network n) {
+        IIDM2DB.CimValuesMap valueMaps = IIDM2DB.extractCimValues(n, new IIDM2DB.Config(n.getId(), true));
+
+        List<Snapshot> snapshots = new ArrayList<>(valueMaps.size());
+        for (Map.Entry<IIDM2DB.HorizonKey, LinkedHashMap<HistoDbAttributeId, Object>> valueMapEntry : valueMaps
+                .entrySet()) {
+            LinkedHashMap<HistoDbAttributeId, Object> valueMap = valueMapEntry.getValue();
+            TreeMap<String, Object> netAttributes = new TreeMap<String, Object>();
+            for (Map.Entry<HistoDbAttributeId, Object> e : valueMap.entrySet()) {
+                String attrId = e.getKey().toString();
+                Object o = e.getValue();
+                if (attrId.equals(HistoDbMetaAttributeType.datetime.toString())) {
+                    netAttributes.put(attrId, ((Date) o).getTime() / 1000);
+                } else if (o instanceof Float) {
+                    netAttributes.put(attrId, new Double((Float) o));
+                } else if (attrId.endsWith("_TOPO")) {
+                    netAttributes.put(attrId, escapeTopology((String) o));
+                } else {
+                    netAttributes.put(attrId, o);
+                }
+            }
+            HistoKey key = new HistoKey(valueMapEntry.getKey().horizon,
+                    n.getCaseDate().toDate().getTime(), valueMapEntry.getKey().forecastDistance);
+            snapshots.add(new Snapshot(key, netAttributes));
+        }
+        return snapshots;
     }
 
     @Override
     public DataSet getData(HistoDataSource datasource, QueryParams query) {
+        return streamData(datasource, query).toDataSet();
+    }
+
+    @Override
+    public DataStream streamData(HistoDataSource datasource, QueryParams query) {
         Objects.requireNonNull(datasource);
         Objects.requireNonNull(query);
         log.info("getData " + query);
-        DataSet result = new DataSet();
-        BTreeMap<HistoKey, Map<String, Object>> netMap = datasource.getMap();
+        HistoColumnStore columnStore = datasource.getColumnStore();
 
         List<Attribute> columns = query.getCols() != null ? query.getCols()
                 : findAttributes(datasource.getReferenceNetwork(), query, true);
@@ -183,34 +266,32 @@ public class HistoDataServiceImpl implements HistoDataService {
         long start = query.getStart() >= 0 ? query.getStart() : 0;
         long maxSize = query.getCount() >= 0 ? query.getCount() : Long.MAX_VALUE;
 
-        result.addHeaders(
-                query.getColumnStart() >= 0 && query.getColumnEnd() >= 0
-                        ? columns.subList(query.getColumnStart(),
-                                query.getColumnEnd() < columns.size() ? query.getColumnEnd() + 1 : columns.size())
-                        : columns);
-
-        ConcurrentNavigableMap<HistoKey, Map<String, Object>> filtered = netMap.subMap(
-                new HistoKey(query.getHorizon() != null ? query.getHorizon() : "", query.getTimeFrom(),
-                        query.getForecastTime() >= 0 ? query.getForecastTime() : Integer.MIN_VALUE),
-                new HistoKey(query.getHorizon(), query.getTimeTo(),
-                        query.getForecastTime() >= 0 ? query.getForecastTime() : Integer.MAX_VALUE));
-        result.addAll(filtered.keySet().stream().filter(k -> matches(k, filtered.get(k), query))
+        Iterator<HistoKey> keys = columnStore.keys(query.getTimeFrom(), query.getTimeTo())
+                .filter(k -> matches(k, query))
                 .skip(start)
-                .map(k -> filterColumns(filtered.get(k), query, columns))
                 .limit(maxSize)
+                .iterator();
+        // only the selected columns are read from the store, one chunk of snapshots at a time
+        Collection<String> storedColumns = getStoredColumns(query, columns);
+        Iterator<Record> records = new ChunkedIterator<>(keys, READ_CHUNK_SIZE, chunk -> columnStore.read(chunk, storedColumns)
+                .stream()
+                .map(m -> filterColumns(m, query, columns))
                 .collect(Collectors.toList()));
-
-        return result;
+        return new DataStream(getHeaders(query, columns), records);
     }
 
     @Override
     public DataSet getForecastDiff(HistoDataSource datasource, QueryParams query) {
+        return streamForecastDiff(datasource, query).toDataSet();
+    }
+
+    @Override
+    public DataStream streamForecastDiff(HistoDataSource datasource, QueryParams query) {
         Objects.requireNonNull(datasource);
         Objects.requireNonNull(query);
         log.info("getForecastDiff " + query);
-        DataSet result = new DataSet();
 
-        BTreeMap<HistoKey, Map<String, Object>> netMap = datasource.getMap();
+        HistoColumnStore columnStore = datasource.getColumnStore();
 
         List<Attribute> columns = query.getCols() != null ? query.getCols()
                 : findAttributes(datasource.getReferenceNetwork(), query, false);
@@ -218,36 +299,57 @@ public class HistoDataServiceImpl implements HistoDataService {
         long start = query.getStart() >= 0 ? query.getStart() : 0;
         long maxSize = query.getCount() >= 0 ? query.getCount() : Long.MAX_VALUE;
 
-        result.addHeaders(
-                query.getColumnStart() >= 0 && query.getColumnEnd() >= 0
-                        ? columns.subList(query.getColumnStart(),
-                                query.getColumnEnd() < columns.size() ? query.getColumnEnd() + 1 : columns.size())
-                        : columns);
-
-        ConcurrentNavigableMap<HistoKey, Map<String, Object>> filtered = netMap.subMap(
-                new HistoKey(HistoDbHorizon.DACF.toString(), query.getTimeFrom(),
-                        query.getForecastTime() >= 0 ? query.getForecastTime() : Integer.MIN_VALUE),
-                new HistoKey(HistoDbHorizon.DACF.toString(), query.getTimeTo(),
-                        query.getForecastTime() >= 0 ? query.getForecastTime() : Integer.MAX_VALUE));
-
-        filtered.keySet().stream().filter(k -> matches(k, filtered.get(k), query)).skip(start).limit(maxSize)
-                .forEach(fk -> {
-                    HistoKey sk = new HistoKey(HistoDbHorizon.SN.toString(), fk.getDateTime(), 0);
-                    Map sm = netMap.get(sk);
-                    if (sm != null) {
-                        result.add(filterColumns(filtered.get(fk), query, columns));
-                        result.add(filterColumns(sm, query, columns));
-                    }
-                });
-        return result;
+        Iterator<HistoKey> forecastKeys = columnStore.keys(query.getTimeFrom(), query.getTimeTo())
+                .filter(k -> !HistoDbHorizon.SN.toString().equals(k.getHorizon()) && matches(k, query))
+                .skip(start).limit(maxSize)
+                .filter(fk -> columnStore.contains(getSnapshotKey(fk)))
+                .iterator();
+        Collection<String> storedColumns = getStoredColumns(query, columns);
+        Iterator<Record> records = new ChunkedIterator<>(forecastKeys, READ_CHUNK_SIZE, chunk -> {
+            List<Map<String, Object>> forecasts = columnStore.read(chunk, storedColumns);
+            List<Map<String, Object>> snapshots = columnStore.read(chunk.stream().map(HistoDataServiceImpl::getSnapshotKey)
+                    .collect(Collectors.toList()), storedColumns);
+            List<Record> chunkRecords = new ArrayList<>(2 * chunk.size());
+            for (int i = 0; i < forecasts.size(); i++) {
+                chunkRecords.add(filterColumns(forecasts.get(i), query, columns));
+                chunkRecords.add(filterColumns(snapshots.get(i), query, columns));
+            }
+            return chunkRecords;
+        });
+        return new DataStream(getHeaders(query, columns), records);
+    }
+
+    private static HistoKey getSnapshotKey(HistoKey forecastKey) {
+        return new HistoKey(HistoDbHorizon.SN.toString(), forecastKey.getDateTime(), 0);
+    }
+
+    private List<Attribute> getHeaders(QueryParams query, List<Attribute> columns) {
+        return query.getColumnStart() >= 0 && query.getColumnEnd() >= 0
+                ? columns.subList(query.getColumnStart(),
+                        query.getColumnEnd() < columns.size() ? query.getColumnEnd() + 1 : columns.size())
+                : columns;
     }
 
     @Override
     public DataSet getStats(HistoDataSource datasource, QueryParams query) {
         log.info("getStats " + query);
-        DataSet ds = getData(datasource, query);
+        // statistics are computed in a single pass over the records, which are not kept in memory
+        DataStream ds = streamData(datasource, query);
+        List<Attribute> columns = ds.getHeaders();
+        Statistics[] stats = new Statistics[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            stats[i] = new Statistics();
+        }
+        ds.getRecords().forEachRemaining(r -> {
+            for (int i = 0; i < stats.length; i++) {
+                if (!columns.get(i).getName().equals("datetime")) {
+                    stats[i].accept(r.getValues().get(i).getObject());
+                }
+            }
+        });
+
         DataSet statset = new DataSet();
-        List<Attribute> headers = new ArrayList(ds.getHeaders());
+        List<Attribute> headers = new ArrayList(columns);
         headers.add(0, new Attribute("STATNAME"));
         statset.addHeaders(headers);
         List<Value> means = new ArrayList();
@@ -276,9 +378,7 @@ public class HistoDataServiceImpl implements HistoDataService {
         perc99.add(new Value("P99"));
         List<Value> perc999 = new ArrayList();
         perc999.add(new Value("P99.9"));
-        for (AtomicInteger i = new AtomicInteger(0); i.get() < ds.getHeaders().size(); i.incrementAndGet()) {
-            Statistics st = ds.getRecords().stream().map(l -> ds.getHeaders().get(i.get()).getName().equals("datetime") ? null :  l.getValues().get(i.get()).getObject()).collect(Statistics::new,
-                    Statistics::accept, Statistics::combine);
+        for (Statistics st : stats) {
             counters.add(new Value((double) st.count()));
             means.add(new Value(st.avg()));
             mins.add(new Value(st.min()));
@@ -309,7 +409,7 @@ public class HistoDataServiceImpl implements HistoDataService {
         return statset;
     }
 
-    private boolean matches(HistoKey k, Map<String, Object> map, QueryParams query) {
+    private boolean matches(HistoKey k, QueryParams query) {
         if (query.getHorizon() != null && !query.getHorizon().equals(k.getHorizon())) {
             return false;
         }
@@ -334,6 +434,23 @@ public class HistoDataServiceImpl implements HistoDataService {
         return true;
     }
 
+    /**
+     * Names of the stored columns needed to compute the selected attributes
+     */
+    private Collection<String> getStoredColumns(QueryParams query, List<Attribute> columns) {
+        long start = query.getColumnStart() >= 0 ? query.getColumnStart() : 0;
+        long limit = query.getColumnEnd() >= 0 ? query.getColumnEnd() - query.getColumnStart() + 1 : columns.size();
+        Set<String> names = new LinkedHashSet<>();
+        columns.stream().skip(start).limit(limit).forEach(a -> {
+            if (a instanceof ComputedAttribute) {
+                names.addAll(((ComputedAttribute) a).getDependencies());
+            } else {
+                names.add(a.getName());
+            }
+        });
+        return names;
+    }
+
     private Record filterColumns(Map<String, Object> in, QueryParams query, List<Attribute> columns) {
         long start = query.getColumnStart() >= 0 ? query.getColumnStart() : 0;
         long limit = query.getColumnEnd() >= 0 ? query.getColumnEnd() - query.getColumnStart() + 1 : columns.size();
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.service.mapdb;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Single writer thread of an import: the items produced by the importer threads are handed over through
+ * a bounded queue, which blocks the producers when the writer lags behind.
+ * A failure of the writer is rethrown to the producers and by {@link #close()}, so that they never
+ * wait for a writer which has stopped.
+ *
+ * @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+ */
+class ImportWriter<T> implements AutoCloseable {
+
+    private static final long POLL_TIMEOUT = 100;
+
+    private static final Object END_OF_IMPORT = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Future<?> writer;
+
+    @SuppressWarnings("unchecked")
+    ImportWriter(int capacity, Consumer<T> consumer) {
+        Objects.requireNonNull(consumer);
+        queue = new ArrayBlockingQueue<>(capacity);
+        writer = executor.submit(() -> {
+            for (Object item = queue.take(); item != END_OF_IMPORT; item = queue.take()) {
+                consumer.accept((T) item);
+            }
+            return null;
+        });
+    }
+
+    private void checkWriter() throws InterruptedException {
+        if (writer.isDone()) {
+            try {
+                writer.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Import writer failed", e.getCause());
+            }
+            throw new IllegalStateException("Import writer closed");
+        }
+    }
+
+    /**
+     * Hand an item over to the writer thread, waiting while the queue is full.
+     *
+     * @throws RuntimeException if the writer has failed
+     */
+    void write(T item) throws InterruptedException {
+        Objects.requireNonNull(item);
+        checkWriter();
+        while (!queue.offer(item, POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            checkWriter();
+        }
+    }
+
+    /**
+     * Wait for the writer thread to write the queued items.
+     *
+     * @throws RuntimeException if the writer has failed
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            boolean ended = false;
+            while (!ended && !writer.isDone()) {
+                ended = queue.offer(END_OF_IMPORT, POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+            writer.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Import writer failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
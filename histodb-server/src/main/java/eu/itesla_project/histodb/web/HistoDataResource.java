@@ -6,9 +6,11 @@
  */
 package eu.itesla_project.histodb.web;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Locale;
@@ -33,9 +35,11 @@ import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBo
 
 import eu.itesla_project.histodb.QueryParams;
 import eu.itesla_project.histodb.config.HistoDbConfiguration;
-import eu.itesla_project.histodb.domain.DataSet;
+import eu.itesla_project.histodb.domain.DataStream;
+import eu.itesla_project.histodb.domain.ImportReport;
 import eu.itesla_project.histodb.repository.mapdb.HistoDataSource;
 import eu.itesla_project.histodb.repository.mapdb.HistoDataSourceFactory;
+import eu.itesla_project.histodb.repository.mapdb.HistoDataSourceRegistry;
 import eu.itesla_project.histodb.service.HistoDataService;
 
 /**
@@ -48,12 +52,22 @@ public class HistoDataResource {
 
     static Logger log = LoggerFactory.getLogger(HistoDataResource.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     @Inject
     private HistoDbConfiguration config;
 
     @Inject
     private HistoDataService histoDataService;
 
+    @GetMapping(value = "/datasources/stats")
+    public ResponseEntity<String> getDataSourcesStats() {
+        HistoDataSourceRegistry registry = HistoDataSourceFactory.getRegistry();
+        String stats = "active=" + registry.getActiveCount() + ";opened=" + registry.getOpenCount()
+                + ";evicted=" + registry.getEvictCount();
+        return new ResponseEntity<String>(stats, null, HttpStatus.OK);
+    }
+
     @GetMapping(value = "/{db}/{prefix}/{postfix}/itesla/referenceCIM")
     public ResponseEntity<String> getReferenceCIM(@PathVariable String db, @PathVariable String prefix,
             @PathVariable String postfix) {
@@ -107,8 +121,9 @@ public class HistoDataResource {
         String parallelStr = request.getParameter("parallel");
         boolean parallel = parallelStr != null ? Boolean.parseBoolean(parallelStr) : true;
 
+        ImportReport report;
         try (HistoDataSource hds = HistoDataSourceFactory.getInstance(config, db, prefix, postfix)) {
-            histoDataService.importData(hds, importDir, parallel);
+            report = histoDataService.importData(hds, importDir, parallel);
         } catch (DBException.FileLocked e) {
             log.error("DBFile is locked ", e.getMessage());
             return new ResponseEntity<String>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
@@ -117,7 +132,7 @@ public class HistoDataResource {
             return new ResponseEntity<String>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
         return new ResponseEntity<String>(
-                "HistoDB Import from " + dir + " for data source " + prefix + "/" + postfix,
+                "HistoDB Import from " + dir + " for data source " + prefix + "/" + postfix + ": " + report,
                 null, HttpStatus.OK);
     }
 
@@ -127,22 +142,26 @@ public class HistoDataResource {
 
         String format = (String) request.getAttribute("format", 0);
         log.info("get " + service + " format " + format);
-        try (HistoDataSource hds = HistoDataSourceFactory.getInstance(config, db, prefix, postfix)) {
+        HistoDataSource hds = null;
+        try {
+            hds = HistoDataSourceFactory.getInstance(config, db, prefix, postfix);
 
             QueryParams queryParams = new QueryParams(request);
 
-            DataSet data = null;
+            DataStream data = null;
             if (service.equals("data")) {
-                data = histoDataService.getData(hds, queryParams);
+                data = histoDataService.streamData(hds, queryParams);
             } else if (service.equals("stats")) {
-                data = histoDataService.getStats(hds, queryParams);
+                data = histoDataService.getStats(hds, queryParams).stream();
             } else {
                 return new ResponseEntity<StreamingResponseBody>(getErrorStreamingResponse(service), HttpStatus.NOT_FOUND);
             }
 
             boolean zipped = format != null && format.equalsIgnoreCase("zip");
 
-            StreamingResponseBody responseBody = getStreamingResponse(data, queryParams.isHeaders(), zipped);
+            StreamingResponseBody responseBody = getStreamingResponse(hds, data, queryParams.isHeaders(), zipped);
+            // the data source is now closed by the response body, once the records have been written
+            hds = null;
 
             HttpHeaders header = new HttpHeaders();
             if (zipped) {
@@ -157,6 +176,8 @@ public class HistoDataResource {
         } catch (Exception e) {
             log.error("getData error ", e);
             return new ResponseEntity<StreamingResponseBody>(getErrorStreamingResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
+        } finally {
+            closeDataSource(hds);
         }
     }
 
@@ -169,7 +190,9 @@ public class HistoDataResource {
             return new ResponseEntity<StreamingResponseBody>(getErrorStreamingResponse(service), HttpStatus.NOT_FOUND);
         }
 
-        try (HistoDataSource hds = HistoDataSourceFactory.getInstance(config, db, prefix, postfix)) {
+        HistoDataSource hds = null;
+        try {
+            hds = HistoDataSourceFactory.getInstance(config, db, prefix, postfix);
 
             QueryParams queryParams = new QueryParams(request);
 
@@ -177,11 +200,12 @@ public class HistoDataResource {
                 return new ResponseEntity<StreamingResponseBody>(getErrorStreamingResponse("ForecastsDiff operation must be used with either a positive 'forecast' value or a non-snapshot 'horizon'"), HttpStatus.BAD_REQUEST);
             }
 
-            DataSet data = this.histoDataService.getForecastDiff(hds, queryParams);
+            DataStream data = this.histoDataService.streamForecastDiff(hds, queryParams);
 
             boolean zipped = format != null && format.equalsIgnoreCase("zip");
 
-            StreamingResponseBody responseBody = getStreamingResponse(data, queryParams.isHeaders(), zipped);
+            StreamingResponseBody responseBody = getStreamingResponse(hds, data, queryParams.isHeaders(), zipped);
+            hds = null;
 
             HttpHeaders header = new HttpHeaders();
 
@@ -197,17 +221,41 @@ public class HistoDataResource {
         } catch (Exception e) {
             log.error("Forecastdiff error ", e);
             return new ResponseEntity<StreamingResponseBody>(getErrorStreamingResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
+        } finally {
+            closeDataSource(hds);
+        }
+    }
+
+    private static void closeDataSource(HistoDataSource hds) {
+        if (hds != null) {
+            try {
+                hds.close();
+            } catch (Exception e) {
+                log.error("Error closing data source " + hds.getName(), e);
+            }
         }
     }
 
-    private StreamingResponseBody getStreamingResponse(DataSet data, boolean headers, boolean zipped) {
+    /**
+     * Records are written while they are read from the data source, which is closed at the end of the response
+     */
+    private StreamingResponseBody getStreamingResponse(HistoDataSource hds, DataStream data, boolean headers, boolean zipped) {
         return new StreamingResponseBody() {
 
             @Override
             public void writeTo(OutputStream out) throws IOException {
-                OutputStreamWriter ow = zipped ? new OutputStreamWriter(new GZIPOutputStream(out, true)) : new OutputStreamWriter(out);
-                data.writeCsv(ow, new Locale(config.getFormatter().getLocale()), config.getFormatter().getSeparator(),
-                        headers);
+                try {
+                    GZIPOutputStream gzos = zipped ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(zipped ? gzos : out), BUFFER_SIZE);
+                    data.writeCsv(writer, new Locale(config.getFormatter().getLocale()), config.getFormatter().getSeparator(),
+                            headers);
+                    writer.flush();
+                    if (gzos != null) {
+                        gzos.finish();
+                    }
+                } finally {
+                    closeDataSource(hds);
+                }
             }
         };
     }
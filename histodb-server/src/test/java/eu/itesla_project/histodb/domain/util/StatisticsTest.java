@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.domain.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Test;
+
+/**
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class StatisticsTest {
+
+    @Test
+    public void testEmpty() {
+        Statistics st = new Statistics();
+        assertEquals(0, st.count());
+        assertTrue(Double.isNaN(st.avg()));
+        assertTrue(Double.isNaN(st.min()));
+        assertTrue(Double.isNaN(st.percentile(50)));
+    }
+
+    @Test
+    public void testCombine() {
+        Random random = new Random(0);
+        DescriptiveStatistics expected = new DescriptiveStatistics();
+        Statistics st1 = new Statistics();
+        Statistics st2 = new Statistics();
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextGaussian() * 10 + 100;
+            expected.addValue(value);
+            (i % 3 == 0 ? st1 : st2).accept(value);
+        }
+        st1.accept("text");
+        st1.accept(null);
+        st1.combine(st2);
+
+        assertEquals(expected.getN(), st1.count());
+        assertEquals(expected.getMean(), st1.avg(), 1e-9);
+        assertEquals(expected.getVariance(), st1.var(), 1e-6);
+        assertEquals(expected.getMin(), st1.min(), 0);
+        assertEquals(expected.getMax(), st1.max(), 0);
+        for (double p : new double[] {0.1, 1, 5, 50, 90, 95, 99, 99.9}) {
+            // percentiles are estimated, check the rank error
+            double estimate = st1.percentile(p);
+            double rank = 100.0 * Arrays.stream(expected.getValues()).filter(v -> v <= estimate).count() / expected.getN();
+            assertEquals(p, rank, 1);
+        }
+    }
+}
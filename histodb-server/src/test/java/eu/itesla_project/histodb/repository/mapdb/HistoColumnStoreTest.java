@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2017, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.repository.mapdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.Atomic;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+
+/**
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class HistoColumnStoreTest {
+
+    private DB db;
+
+    @Before
+    public void setUp() {
+        db = DBMaker.memoryDB().make();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private static Map<String, Object> createRow(long datetime, String horizon, double p) {
+        Map<String, Object> row = new TreeMap<>();
+        row.put("datetime", datetime);
+        row.put("forecastTime", 0);
+        row.put("horizon", horizon);
+        row.put("gen1_P", p);
+        row.put("gen1_Q", -p);
+        return row;
+    }
+
+    @Test
+    public void testPutRead() {
+        HistoColumnStore store = new HistoColumnStore(db, "test");
+        assertTrue(store.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            store.put(new HistoKey("SN", 1000L * i, 0), createRow(i, "SN", i));
+        }
+        store.put(new HistoKey("DACF", 2000L, 540), createRow(2, "DACF", 20));
+        assertFalse(store.isEmpty());
+        assertTrue(store.contains(new HistoKey("DACF", 2000L, 540)));
+        assertFalse(store.contains(new HistoKey("DACF", 3000L, 540)));
+
+        List<HistoKey> keys = store.keys(2000L, 4000L).collect(Collectors.toList());
+        assertEquals(4, keys.size());
+        assertEquals(new HistoKey("DACF", 2000L, 540), keys.get(0));
+
+        List<Map<String, Object>> rows = store.read(keys, Arrays.asList("datetime", "horizon", "gen1_P", "unknown"));
+        assertEquals(4, rows.size());
+        assertEquals(2L, rows.get(0).get("datetime"));
+        assertEquals("DACF", rows.get(0).get("horizon"));
+        assertEquals(20.0, rows.get(0).get("gen1_P"));
+        assertEquals(2.0, rows.get(1).get("gen1_P"));
+        assertEquals(4.0, rows.get(3).get("gen1_P"));
+        // columns not requested are not read
+        assertNull(rows.get(0).get("gen1_Q"));
+
+        // sparse read
+        rows = store.read(Arrays.asList(new HistoKey("SN", 1000L, 0), new HistoKey("SN", 9000L, 0)), Arrays.asList("gen1_Q", "forecastTime"));
+        assertEquals(-1.0, rows.get(0).get("gen1_Q"));
+        assertEquals(-9.0, rows.get(1).get("gen1_Q"));
+        assertEquals(0, rows.get(1).get("forecastTime"));
+    }
+
+    @Test
+    public void testBlocks() {
+        HistoColumnStore store = new HistoColumnStore(db, "test");
+        long time = HistoColumnStore.BLOCK_DURATION - 1000L;
+        Map<String, Object> row1 = createRow(time, null, 1);
+        // longs are not converted to doubles
+        row1.put("id", 1234567890123456789L);
+        store.put(new HistoKey(null, time, 0), row1);
+        store.put(new HistoKey("SN", time + 2000L, 0), createRow(time + 2000L, "SN", 2));
+        store.put(new HistoKey("sn", time + 2000L, 0), createRow(time + 2000L, "sn", 3));
+        store.flush();
+        store.put(new HistoKey("SN", time + 4000L, 0), createRow(time + 4000L, "SN", 4));
+
+        assertTrue(store.contains(new HistoKey(null, time, 0)));
+        assertFalse(store.contains(new HistoKey(null, time + 2000L, 0)));
+        assertTrue(store.contains(new HistoKey("sn", time + 2000L, 0)));
+
+        // keys of both blocks, in time order
+        List<HistoKey> keys = store.keys(0, Long.MAX_VALUE).collect(Collectors.toList());
+        assertEquals(Arrays.asList(new HistoKey(null, time, 0), new HistoKey("SN", time + 2000L, 0),
+                new HistoKey("sn", time + 2000L, 0), new HistoKey("SN", time + 4000L, 0)), keys);
+        assertEquals(2, store.keys(time + 1000L, time + 3000L).count());
+
+        List<Map<String, Object>> rows = store.read(keys, Arrays.asList("id", "horizon", "gen1_P"));
+        assertEquals(1234567890123456789L, rows.get(0).get("id"));
+        assertNull(rows.get(0).get("horizon"));
+        assertEquals(1.0, rows.get(0).get("gen1_P"));
+        assertNull(rows.get(1).get("id"));
+        assertEquals("sn", rows.get(2).get("horizon"));
+        assertEquals(3.0, rows.get(2).get("gen1_P"));
+        // values not flushed yet are read too
+        assertEquals(4.0, rows.get(3).get("gen1_P"));
+
+        // and are in the store once flushed
+        store.flush();
+        HistoColumnStore reopened = new HistoColumnStore(db, "test");
+        assertEquals(4.0, reopened.read(keys, Arrays.asList("gen1_P")).get(3).get("gen1_P"));
+    }
+
+    @Test
+    public void testMigrate() {
+        BTreeMap<HistoKey, Map<String, Object>> rowMap = (BTreeMap<HistoKey, Map<String, Object>>) db.treeMap("legacy")
+                .valueSerializer(new MapSerializer()).valuesOutsideNodesEnable().createOrOpen();
+        rowMap.put(new HistoKey("SN", 1000L, 0), createRow(1, "SN", 1));
+        rowMap.put(new HistoKey("SN", 2000L, 0), createRow(2, "SN", 2));
+        HistoColumnStore store = new HistoColumnStore(db, "test");
+        store.migrate(rowMap);
+        List<HistoKey> keys = store.keys(0, Long.MAX_VALUE).collect(Collectors.toList());
+        assertEquals(2, keys.size());
+        assertEquals(2.0, store.read(keys, Arrays.asList("gen1_P")).get(1).get("gen1_P"));
+        assertTrue(rowMap.isEmpty());
+
+        // a completed migration is not run again
+        rowMap.put(new HistoKey("SN", 3000L, 0), createRow(3, "SN", 3));
+        store.migrate(rowMap);
+        assertEquals(2, store.keys(0, Long.MAX_VALUE).count());
+    }
+
+    @Test
+    public void testResumeMigration() {
+        BTreeMap<HistoKey, Map<String, Object>> rowMap = (BTreeMap<HistoKey, Map<String, Object>>) db.treeMap("legacy")
+                .valueSerializer(new MapSerializer()).valuesOutsideNodesEnable().createOrOpen();
+        rowMap.put(new HistoKey("SN", 1000L, 0), createRow(1, "SN", 1));
+        rowMap.put(new HistoKey("SN", 2000L, 0), createRow(2, "SN", 2));
+        // migration interrupted after the first snapshot
+        ((Atomic.Var<Object>) db.atomicVar("test_migrationCursor", Serializer.JAVA).createOrOpen()).set(new HistoKey("SN", 1000L, 0));
+        HistoColumnStore store = new HistoColumnStore(db, "test");
+        store.migrate(rowMap);
+        List<HistoKey> keys = store.keys(0, Long.MAX_VALUE).collect(Collectors.toList());
+        assertEquals(Arrays.asList(new HistoKey("SN", 2000L, 0)), keys);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.repository.mapdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mapdb.DB;
+
+import eu.itesla_project.histodb.config.HistoDbConfiguration;
+
+/**
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class HistoDataSourceRegistryTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private HistoDbConfiguration config;
+
+    private HistoDataSourceRegistry registry;
+
+    @Before
+    public void setUp() {
+        Properties props = new Properties();
+        props.setProperty("persistent", "true");
+        props.setProperty("basedir", tmpDir.getRoot().getAbsolutePath());
+        props.setProperty("idleTimeout", "0");
+        config = new HistoDbConfiguration(props);
+        registry = new HistoDataSourceRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    private int evictIdle() throws InterruptedException {
+        // idle for longer than the timeout
+        Thread.sleep(5);
+        return registry.evictIdle();
+    }
+
+    @Test
+    public void testAcquireRelease() throws Exception {
+        HistoDataSource ds1 = registry.acquire(config, "db", "prefix", "postfix");
+        HistoDataSource ds2 = registry.acquire(config, "db", "prefix", "postfix");
+        HistoDataSource ds3 = registry.acquire(config, "db", "prefix", "other");
+        assertNotSame(ds1, ds2);
+        assertSame(ds1.getDb(), ds2.getDb());
+        assertNotSame(ds1.getDb(), ds3.getDb());
+        assertEquals(2, registry.getOpenCount());
+        assertEquals(2, registry.getActiveCount());
+
+        // closing a lease several times only gives it back once
+        ds1.close();
+        ds1.close();
+        ds3.close();
+        assertEquals(1, evictIdle());
+        assertEquals(1, registry.getActiveCount());
+        assertFalse(ds2.getDb().isClosed());
+
+        ds2.close();
+        assertEquals(1, evictIdle());
+        assertEquals(0, registry.getActiveCount());
+        assertEquals(2, registry.getEvictCount());
+        assertTrue(ds2.getDb().isClosed());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        config.getMapDb().setIdleTimeout(HistoDbConfiguration.MapDb.DEFAULT_IDLE_TIMEOUT);
+        registry.acquire(config, "db", "prefix", "postfix").close();
+        assertEquals(0, evictIdle());
+        assertEquals(1, registry.getActiveCount());
+    }
+
+    @Test
+    public void testReopenAfterEviction() throws Exception {
+        try (HistoDataSource ds = registry.acquire(config, "db", "prefix", "postfix")) {
+            ds.getDb().atomicString("test").createOrOpen().set("value");
+            ds.commit();
+        }
+        assertEquals(1, evictIdle());
+
+        try (HistoDataSource ds = registry.acquire(config, "db", "prefix", "postfix")) {
+            assertEquals("value", ds.getDb().atomicString("test").createOrOpen().get());
+        }
+        assertEquals(2, registry.getOpenCount());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        HistoDataSource ds = registry.acquire(config, "db", "prefix", "postfix");
+        DB db = ds.getDb();
+        registry.close();
+        assertTrue(db.isClosed());
+        assertEquals(0, registry.getActiveCount());
+        // releasing a lease after the registry close has no effect
+        ds.close();
+        registry.close();
+        try {
+            registry.acquire(config, "db", "prefix", "postfix");
+            throw new AssertionError();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.histodb.service.mapdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+*
+* @author Giovanni Ferrari <giovanni.ferrari@techrain.it>
+*/
+public class ImportWriterTest {
+
+    private ExecutorService producers;
+
+    @Before
+    public void setUp() {
+        producers = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        producers.shutdownNow();
+    }
+
+    private static void checkWriterFailure(RuntimeException e) {
+        assertEquals("Import writer failed", e.getMessage());
+        assertEquals("write failure", e.getCause().getMessage());
+    }
+
+    @Test(timeout = 10000)
+    public void testCompletion() throws Exception {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        ImportWriter<Integer> writer = new ImportWriter<>(2, written::add);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int first = p * 100;
+            futures.add(producers.submit(() -> {
+                for (int i = first; i < first + 100; i++) {
+                    writer.write(i);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writer.close();
+        assertEquals(IntStream.range(0, 400).boxed().collect(Collectors.toList()), written.stream().sorted().collect(Collectors.toList()));
+
+        // nothing can be written once closed
+        writer.close();
+        try {
+            writer.write(400);
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBackPressure() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        ImportWriter<Integer> writer = new ImportWriter<>(2, i -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            written.add(i);
+        });
+
+        // the first item is being written, the next two fill the queue
+        writer.write(0);
+        writing.await();
+        writer.write(1);
+        writer.write(2);
+
+        // so the producer of the fourth item waits
+        Future<?> producer = producers.submit(() -> {
+            writer.write(3);
+            return null;
+        });
+        try {
+            producer.get(300, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException ignored) {
+        }
+        assertTrue(written.isEmpty());
+
+        release.countDown();
+        producer.get();
+        writer.close();
+        assertEquals(Arrays.asList(0, 1, 2, 3), written);
+    }
+
+    @Test(timeout = 10000)
+    public void testWriterFailure() throws Exception {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        ImportWriter<Integer> writer = new ImportWriter<>(2, i -> {
+            if (i == 5) {
+                throw new RuntimeException("write failure");
+            }
+            written.add(i);
+        });
+        try {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(i);
+            }
+            fail();
+        } catch (RuntimeException e) {
+            checkWriterFailure(e);
+        }
+        try {
+            writer.close();
+            fail();
+        } catch (RuntimeException e) {
+            checkWriterFailure(e);
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), written);
+    }
+
+    @Test(timeout = 10000)
+    public void testWriterFailureWithFullQueue() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ImportWriter<Integer> writer = new ImportWriter<>(1, i -> {
+            writing.countDown();
+            try {
+                fail.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("write failure");
+        });
+        writer.write(0);
+        writing.await();
+        writer.write(1);
+
+        // the producer waiting for the full queue is released by the failure of the writer
+        Future<?> producer = producers.submit(() -> {
+            writer.write(2);
+            return null;
+        });
+        fail.countDown();
+        try {
+            producer.get();
+            fail();
+        } catch (ExecutionException e) {
+            checkWriterFailure((RuntimeException) e.getCause());
+        }
+
+        // the queue is still full, closing does not wait for it to be emptied
+        try {
+            writer.close();
+            fail();
+        } catch (RuntimeException e) {
+            checkWriterFailure(e);
+        }
+    }
+}
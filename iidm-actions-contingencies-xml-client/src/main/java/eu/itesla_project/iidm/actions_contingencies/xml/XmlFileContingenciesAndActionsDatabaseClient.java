@@ -9,6 +9,7 @@ package eu.itesla_project.iidm.actions_contingencies.xml;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.net.URL;
 import java.nio.file.Files;
@@ -18,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -101,8 +103,31 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
 
     private static final Logger LOGGER = LoggerFactory.getLogger(XmlFileContingenciesAndActionsDatabaseClient.class);
 
+    /**
+     * Contingencies and actions of the database resolved on a network. It is built once and reused by all the
+     * lookups on the same network, and replaced when another network is given.
+     */
+    private static final class NetworkIndex {
+
+        private final WeakReference<Network> network;
+
+        private List<com.powsybl.contingency.Contingency> contingencies;
+
+        private Map<String, com.powsybl.contingency.Contingency> contingenciesById;
+
+        private List<eu.itesla_project.modules.contingencies.Action> actions;
+
+        private Map<String, eu.itesla_project.modules.contingencies.Action> actionsById;
+
+        private NetworkIndex(Network network) {
+            this.network = new WeakReference<>(network);
+        }
+    }
+
     private ActionsContingencies actionContingencies;
     private Map<Number, String> zonesMapping = new HashMap<Number, String>();
+    private NetworkIndex networkIndex;
+    private Map<String, List<ActionsContingenciesAssociation>> associationsByContingency;
 
     public XmlFileContingenciesAndActionsDatabaseClient(Path file) throws JAXBException, SAXException, IOException {
         try (InputStream stream = Files.newInputStream(file)) {
@@ -148,34 +173,13 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
         Objects.requireNonNull(id, "action id is null");
         Objects.requireNonNull(network, "netiwork id is null");
         LOGGER.info("Getting {} action for network {}", id, network.getId());
-        if (zonesMapping.isEmpty()) {
-            getZones();
-        }
-        if (id != null) {
-            List<ElementaryAction> elactions = actionContingencies.getElementaryActions().getElementaryAction();
-            for (ElementaryAction ele : elactions) {
-                if (ele.getName().equals(id)) {
-                    List<ActionElement> elements = getActionElements(ele, network);
-
-                    List<String> zones = new ArrayList<String>();
-                    Zones eleZones = ele.getZones();
-                    if (eleZones != null) {
-                        for (BigInteger z : eleZones.getNum()) {
-                            zones.add(zonesMapping.get(z));
-                        }
-                    }
-                    if (elements.size() > 0) {
-                        LOGGER.info("action {} for network {} found", id, network.getId());
-                        return new ActionImpl(id, ele.isPreventiveType(), ele.isCurativeType(), elements, zones, ele.getStartTime());
-                    } else {
-                        LOGGER.info("action {} for network {} not found", id, network.getId());
-                        return null;
-                    }
-                }
-
-            }
+        eu.itesla_project.modules.contingencies.Action action = getNetworkActions(network).actionsById.get(id);
+        if (action != null) {
+            LOGGER.info("action {} for network {} found", id, network.getId());
+        } else {
+            LOGGER.info("action {} for network {} not found", id, network.getId());
         }
-        return null;
+        return action;
     }
 
     /**
@@ -185,6 +189,45 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
     public List<eu.itesla_project.modules.contingencies.Action> getActions(Network network) {
         Objects.requireNonNull(network, "network is null");
         LOGGER.info("Getting actions for network {}", network.getId());
+        return new ArrayList<>(getNetworkActions(network).actions);
+    }
+
+    private synchronized NetworkIndex getNetworkIndex(Network network) {
+        if (networkIndex == null || networkIndex.network.get() != network) {
+            networkIndex = new NetworkIndex(network);
+        }
+        return networkIndex;
+    }
+
+    private NetworkIndex getNetworkActions(Network network) {
+        NetworkIndex index = getNetworkIndex(network);
+        synchronized (index) {
+            if (index.actions == null) {
+                index.actions = resolveActions(network);
+                index.actionsById = new HashMap<>();
+                for (eu.itesla_project.modules.contingencies.Action action : index.actions) {
+                    index.actionsById.putIfAbsent(action.getId(), action);
+                }
+            }
+        }
+        return index;
+    }
+
+    private NetworkIndex getNetworkContingencies(Network network) {
+        NetworkIndex index = getNetworkIndex(network);
+        synchronized (index) {
+            if (index.contingencies == null) {
+                index.contingencies = resolveContingencies(network);
+                index.contingenciesById = new HashMap<>();
+                for (com.powsybl.contingency.Contingency contingency : index.contingencies) {
+                    index.contingenciesById.putIfAbsent(contingency.getId(), contingency);
+                }
+            }
+        }
+        return index;
+    }
+
+    private List<eu.itesla_project.modules.contingencies.Action> resolveActions(Network network) {
         if (zonesMapping.isEmpty()) {
             getZones();
         }
@@ -228,6 +271,10 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
     public List<com.powsybl.contingency.Contingency> getContingencies(Network network) {
         Objects.requireNonNull(network, "network is null");
         LOGGER.info("Getting contingencies for network {}", network.getId());
+        return new ArrayList<>(getNetworkContingencies(network).contingencies);
+    }
+
+    private List<com.powsybl.contingency.Contingency> resolveContingencies(Network network) {
         if (zonesMapping.isEmpty()) {
             getZones();
         }
@@ -290,15 +337,7 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
         Objects.requireNonNull(name, "contingency id is null");
         Objects.requireNonNull(network, "network is null");
         LOGGER.info("Getting contingency {} for network {}", name, network);
-        if (name != null) {
-            for (com.powsybl.contingency.Contingency c : getContingencies(network)) {
-                if (c.getId().equals(name)) {
-                    return c;
-                }
-            }
-
-        }
-        return null;
+        return getNetworkContingencies(network).contingenciesById.get(name);
     }
 
     @Override
@@ -639,43 +678,22 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
     public Collection<eu.itesla_project.modules.contingencies.ActionsContingenciesAssociation> getActionsCtgAssociationsByContingency(String contingencyId) {
         Objects.requireNonNull(contingencyId, "contingency id is null");
         LOGGER.info("Getting actions/contingencies associations for contingency {}", contingencyId);
-        List<eu.itesla_project.modules.contingencies.ActionsContingenciesAssociation> associationList = new ArrayList<eu.itesla_project.modules.contingencies.ActionsContingenciesAssociation>();
-        ActionCtgAssociations xmlActionContAssociation = actionContingencies.getActionCtgAssociations();
-        List<Association> xmlAssociations = xmlActionContAssociation.getAssociation();
-        if (xmlAssociations == null) {
-            LOGGER.warn("Actions Contingencies associations not found");
-            return associationList;
-        } else {
-            for (Association association : xmlAssociations) {
-                List<Contingency>     xmlContingencies    = association.getContingency();
-                List<String> contingenciesIds = xmlContingencies.stream().map(Contingency::getId).collect(Collectors.toList());
-
-                if (contingenciesIds.contains(contingencyId)) {
-                    List<Constraint> xmlConstraints = association.getConstraint();
-                    List<Action> xmlActions = association.getAction();
-
-                    List<String> ctgIds = new ArrayList<String>();
-                    for (Contingency c : xmlContingencies) {
-                        ctgIds.add(c.getId());
-                    }
-
-                    List<eu.itesla_project.modules.contingencies.Constraint> constraints = new ArrayList<eu.itesla_project.modules.contingencies.Constraint>();
-                    for (Constraint c : xmlConstraints) {
-                        constraints.add(new ConstraintImpl(c.getEquipment(), c.getValue(), XmlActionsContingenciesUtils.getConstraintType(c.getType())));
-                    }
-
-                    List<String> actionIds = new ArrayList<String>();
-                    for (Action a : xmlActions) {
-                        actionIds.add(a.getId());
-
-                    }
+        List<eu.itesla_project.modules.contingencies.ActionsContingenciesAssociation> associationList
+                = new ArrayList<>(getAssociationsByContingency().getOrDefault(contingencyId, Collections.emptyList()));
+        LOGGER.info("Found {} actions/contingencies associations for contingency {}", associationList.size(), contingencyId);
+        return associationList;
+    }
 
-                    associationList.add(new ActionsContingenciesAssociationImpl(ctgIds, constraints, actionIds));
+    private synchronized Map<String, List<ActionsContingenciesAssociation>> getAssociationsByContingency() {
+        if (associationsByContingency == null) {
+            associationsByContingency = new HashMap<>();
+            for (ActionsContingenciesAssociation association : getActionsCtgAssociations()) {
+                for (String contingencyId : new LinkedHashSet<>(association.getContingenciesId())) {
+                    associationsByContingency.computeIfAbsent(contingencyId, k -> new ArrayList<>()).add(association);
                 }
             }
         }
-        LOGGER.info("Found {} actions/contingencies associations for contingency {}", associationList.size(), contingencyId);
-        return associationList;
+        return associationsByContingency;
     }
 
     /**
@@ -687,20 +705,8 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
         Objects.requireNonNull(contingencyId, "contingency id is null");
         LOGGER.info("Getting actions for contingency {}", contingencyId);
         List<String> actions = new ArrayList<String>();
-
-        ActionCtgAssociations actCont = actionContingencies.getActionCtgAssociations();
-
-        List<Association> associations = actCont.getAssociation();
-        for (Association association : associations) {
-            List<Contingency> contingencies = association.getContingency();
-            for (Contingency c : contingencies) {
-                if (c.getId().equals(contingencyId)) {
-                    List<Action> acs = association.getAction();
-                    for (Action a : acs) {
-                        actions.add(a.getId());
-                    }
-                }
-            }
+        for (ActionsContingenciesAssociation association : getAssociationsByContingency().getOrDefault(contingencyId, Collections.emptyList())) {
+            actions.addAll(association.getActionsId());
         }
         LOGGER.info("Found {} actions for contingency {}", actions.size(), contingencyId);
         return actions;
@@ -723,8 +729,14 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
             return null;
         } else {
 
-            List<eu.itesla_project.modules.contingencies.Action> networkActions = getActions(network);
-            List<eu.itesla_project.modules.contingencies.ActionPlan> networkActionPlans = new ArrayList<>(getActionPlans(network));
+            Set<String> networkActionIds = getNetworkActions(network).actionsById.keySet();
+            Set<String> networkActionPlanNames = getActionPlans(network).stream()
+                    .map(eu.itesla_project.modules.contingencies.ActionPlan::getName)
+                    .collect(Collectors.toSet());
+            Map<String, Contingency> xmlContingenciesByName = new HashMap<>();
+            for (Contingency ctg : actionContingencies.getContingencies().getContingency()) {
+                xmlContingenciesByName.putIfAbsent(ctg.getName(), ctg);
+            }
             // pre-index tie lines
             Map<String, String> tieLines = new HashMap<>();
             for (Line l : network.getLines()) {
@@ -741,27 +753,22 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
 
                 List<String> ctgIds = new ArrayList<String>();
                 for (Contingency c: xmlContingencies) {
-                    boolean found = false;
-                    for (Contingency ctg : actionContingencies.getContingencies().getContingency()) {
-                        if (ctg.getName().equals(c.getId())) {
-                            found = true;
-                            if (ctg.getEquipments() != null) {
-                                for (Equipment eq:ctg.getEquipments().getEquipment()) {
-                                    if (network.getIdentifiable(eq.getId()) != null) {
-                                        ctgIds.add(c.getId());
-                                        break;
-                                    } else if (tieLines.containsKey(eq.getId())) {
-                                        ctgIds.add(c.getId());
-                                        break;
-                                    } else {
-                                        LOGGER.warn("Equipment {} referred in contingency (in association) does not belong to network {}, skipping it", eq.getId(), network.getId());
-                                    }
+                    Contingency ctg = xmlContingenciesByName.get(c.getId());
+                    if (ctg != null) {
+                        if (ctg.getEquipments() != null) {
+                            for (Equipment eq:ctg.getEquipments().getEquipment()) {
+                                if (network.getIdentifiable(eq.getId()) != null) {
+                                    ctgIds.add(c.getId());
+                                    break;
+                                } else if (tieLines.containsKey(eq.getId())) {
+                                    ctgIds.add(c.getId());
+                                    break;
+                                } else {
+                                    LOGGER.warn("Equipment {} referred in contingency (in association) does not belong to network {}, skipping it", eq.getId(), network.getId());
                                 }
                             }
-                            break;
                         }
-                    }
-                    if (!found) {
+                    } else {
                         LOGGER.warn("Contingency {} referred in actions/contingencies associations not in the DB: skipping it", c.getId());
                     }
                 }
@@ -780,19 +787,13 @@ public class XmlFileContingenciesAndActionsDatabaseClient implements Contingenci
                 List<String> actionIds = new ArrayList<String>();
                 for (Action a: xmlActions) {
                     boolean found = false;
-                    for (eu.itesla_project.modules.contingencies.Action action : networkActions) {
-                        if (action.getId().equals(a.getId())) {
-                            found = true;
-                            actionIds.add(a.getId());
-                            break;
-                        }
+                    if (networkActionIds.contains(a.getId())) {
+                        found = true;
+                        actionIds.add(a.getId());
                     }
-                    for (eu.itesla_project.modules.contingencies.ActionPlan actionPlan : networkActionPlans) {
-                        if (actionPlan.getName().equals(a.getId())) {
-                            found = true;
-                            actionIds.add(a.getId());
-                            break;
-                        }
+                    if (networkActionPlanNames.contains(a.getId())) {
+                        found = true;
+                        actionIds.add(a.getId());
                     }
                     if (!found) {
                         LOGGER.warn("Action/Action Plan {} referred in actions/contingencies associations not in the DB: skipping it", a.getId());
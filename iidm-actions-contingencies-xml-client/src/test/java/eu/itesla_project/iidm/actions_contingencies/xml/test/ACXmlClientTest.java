@@ -8,6 +8,7 @@ package eu.itesla_project.iidm.actions_contingencies.xml.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -85,6 +86,8 @@ public class ACXmlClientTest {
         // Contingency getContingency(String id, Network network);
         Contingency contingency = cadbClient.getContingency("N-1_Contingency", network);
         checkContingency(contingency, "N-1_Contingency", 1, "LINE1_ACLS", ContingencyElementType.BRANCH);
+        // contingencies are resolved once per network
+        assertSame(contingencies.get(0), contingency);
 
         // Collection<Action> getActions(Network network);
         Collection<Action> actions = cadbClient.getActions(network);
@@ -93,6 +96,7 @@ public class ACXmlClientTest {
         // Action getAction(String id, Network network);
         Action action = cadbClient.getAction("Action1", network);
         checkAction(action, "Action1", 120, 1, "LINE1_ACLS", ActionElementType.LINE_TRIPPING);
+        assertSame(actions.iterator().next(), action);
 
         // Collection<ActionPlan> getActionPlans();
         Collection<ActionPlan> actionPlans = cadbClient.getActionPlans();
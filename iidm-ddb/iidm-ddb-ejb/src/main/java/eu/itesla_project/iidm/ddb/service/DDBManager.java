@@ -6,6 +6,7 @@
  */
 package eu.itesla_project.iidm.ddb.service;
 
+import java.util.Collection;
 import java.util.List;
 
 import eu.itesla_project.iidm.ddb.model.ConnectionSchema;
@@ -50,6 +51,8 @@ public interface DDBManager {
 
     public Equipment save(Equipment eqInstance);
     public Equipment findEquipment(String cimId);
+    // bulk lookup, model templates and parameters containers are fetched along with the equipments
+    public List<Equipment> findEquipments(Collection<String> cimIds);
     public List<Equipment> findEquipmentsAll();
     public int findEquipmentAllCount();
     public List<Equipment> findEquipmentsAllMaxResults(int firstResult, int maxResult);
@@ -57,6 +60,8 @@ public interface DDBManager {
 
     public Internal save(Internal internalInstance);
     public Internal findInternal(String nativeId);
+    // bulk lookup, model templates and parameters containers are fetched along with the internals
+    public List<Internal> findInternals(Collection<String> nativeIds);
     public List<Internal> findInternalsAll();
     public int findInternalsAllCount();
     public List<Internal> findInternalsAllMaxResults(int firstResult, int maxResult);
@@ -98,6 +103,7 @@ public interface DDBManager {
 
     public ConnectionSchema save(ConnectionSchema schema);
     public ConnectionSchema findConnectionSchema(String cimId, SimulatorInst simulator);
+    public List<ConnectionSchema> findConnectionSchemas(Collection<String> cimIds, SimulatorInst simulator);
     public List<ConnectionSchema> findConnectionSchemasAll();
     public int findConnectionSchemasAllCount();
     public List<ConnectionSchema> findConnectionSchemasAllMaxResults(int firstResult, int maxResult);
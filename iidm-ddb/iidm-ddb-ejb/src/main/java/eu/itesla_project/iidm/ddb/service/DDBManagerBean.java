@@ -8,7 +8,12 @@ package eu.itesla_project.iidm.ddb.service;
 
 
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,6 +81,10 @@ import javax.xml.bind.annotation.XmlSeeAlso;
 @RolesAllowed({"user"})
 @SuppressWarnings("checkstyle:indentation")
 public class DDBManagerBean implements DDBManager {
+
+    // some databases do not accept more values in an IN clause
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
     @Inject
     private Logger log;
 
@@ -237,15 +246,38 @@ public class DDBManagerBean implements DDBManager {
 
 
     public Equipment findEquipment(String cimId) {
-        Principal cPrincipal = getCallerPrincipal();
-        TypedQuery<Equipment> query = em.createQuery(
-                "SELECT m FROM Equipment m WHERE m.cimId = :arg1",
-                Equipment.class);
-        query.setParameter("arg1", cimId);
-        List<Equipment> res = query.getResultList();
+        List<Equipment> res = findEquipments(Collections.singletonList(cimId));
         return res.size() > 0 ? res.get(0) : null;
     }
 
+    /*
+     * query the values by chunks, duplicated values are queried only once
+     */
+    private <T> List<T> findByChunks(Collection<String> values, Function<List<String>, TypedQuery<T>> queryFactory) {
+        if (values == null) {
+            throw new RuntimeException("values must be not null");
+        }
+        List<String> valueList = new ArrayList<>(new LinkedHashSet<>(values));
+        List<T> res = new ArrayList<>(valueList.size());
+        for (int i = 0; i < valueList.size(); i += IN_CLAUSE_MAX_SIZE) {
+            List<String> chunk = valueList.subList(i, Math.min(i + IN_CLAUSE_MAX_SIZE, valueList.size()));
+            res.addAll(queryFactory.apply(chunk).getResultList());
+        }
+        return res;
+    }
+
+    @WebMethod(operationName = "findEquipments")
+    public List<Equipment> findEquipments(Collection<String> cimIds) {
+        Principal cPrincipal = getCallerPrincipal();
+        return findByChunks(cimIds, chunk -> {
+            TypedQuery<Equipment> query = em.createQuery(
+                    "SELECT DISTINCT m FROM Equipment m LEFT JOIN FETCH m.modelContainer LEFT JOIN FETCH m.parametersContainer WHERE m.cimId IN :arg1",
+                    Equipment.class);
+            query.setParameter("arg1", chunk);
+            return query;
+        });
+    }
+
     public List<Internal> findInternalsAll() {
         Principal cPrincipal = getCallerPrincipal();
         TypedQuery<Internal> query = em.createQuery("SELECT m FROM Internal m order by m.id",
@@ -274,14 +306,22 @@ public class DDBManagerBean implements DDBManager {
         if (nativeId == null) {
             throw new RuntimeException("nativeId must be not null");
         }
-        TypedQuery<Internal> query = em.createQuery(
-                "SELECT m FROM Internal m WHERE m.nativeId = :arg1",
-                Internal.class);
-        query.setParameter("arg1", nativeId);
-        List<Internal> res = query.getResultList();
+        List<Internal> res = findInternals(Collections.singletonList(nativeId));
         return res.size() > 0 ? res.get(0) : null;
     }
 
+    @WebMethod(operationName = "findInternals")
+    public List<Internal> findInternals(Collection<String> nativeIds) {
+        Principal cPrincipal = getCallerPrincipal();
+        return findByChunks(nativeIds, chunk -> {
+            TypedQuery<Internal> query = em.createQuery(
+                    "SELECT DISTINCT m FROM Internal m LEFT JOIN FETCH m.modelContainer LEFT JOIN FETCH m.parametersContainer WHERE m.nativeId IN :arg1",
+                    Internal.class);
+            query.setParameter("arg1", chunk);
+            return query;
+        });
+    }
+
     public List<ModelTemplateContainer> findModelTemplateContainerAll() {
         Principal cPrincipal = getCallerPrincipal();
         TypedQuery<ModelTemplateContainer> query = em.createQuery(
@@ -854,6 +894,24 @@ public class DDBManagerBean implements DDBManager {
         return res.size() > 0 ? res.get(0) : null;
     }
 
+    @Override
+    public List<ConnectionSchema> findConnectionSchemas(Collection<String> cimIds,
+            SimulatorInst simulator) {
+        Principal cPrincipal = getCallerPrincipal();
+        return findByChunks(cimIds, chunk -> {
+            TypedQuery<ConnectionSchema> query = null;
+            if (simulator == null) {
+                query = em.createQuery("SELECT c FROM ConnectionSchema c WHERE c.cimId IN :arg1 and c.simulator is null", ConnectionSchema.class);
+                query.setParameter("arg1", chunk);
+            } else {
+                query = em.createQuery("SELECT c FROM ConnectionSchema c WHERE c.cimId IN :arg1 and c.simulator= :arg2", ConnectionSchema.class);
+                query.setParameter("arg1", chunk);
+                query.setParameter("arg2", simulator);
+            }
+            return query;
+        });
+    }
+
     @Override
     public List<ConnectionSchema> findConnectionSchemasAll() {
         Principal cPrincipal = getCallerPrincipal();
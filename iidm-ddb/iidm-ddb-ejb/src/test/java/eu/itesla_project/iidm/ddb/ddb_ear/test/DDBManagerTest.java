@@ -36,6 +36,8 @@ import org.junit.runner.RunWith;
 
 import javax.ejb.EJB;
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -604,6 +606,29 @@ public class DDBManagerTest {
     }
 
 
+    // test bulk retrieving of equipments and internals
+    @Test
+    public void test_11() throws Exception {
+        log.info("TEST_11");
+        SimulatorInst eurostagSim = dbmanager.findSimulator(Simulator.EUROSTAG, "5.1.1");
+        assertNotNull(eurostagSim);
+
+        List<Equipment> eqList = dbmanager.findEquipments(Arrays.asList("_NGEN_TN", "_NGEN_TN", "UNKNOWN"));
+        assertEquals(1, eqList.size());
+        Equipment eq1 = eqList.get(0);
+        assertEquals("_NGEN_TN", eq1.getCimId());
+        // model templates and parameters come along with the equipment
+        assertFalse(eq1.getModelContainer().getModelTemplates().isEmpty());
+        assertNotNull(dbmanager.findParameters(eq1, eurostagSim));
+
+        List<Internal> itList = dbmanager.findInternals(Collections.singletonList("AVR_1"));
+        assertEquals(1, itList.size());
+        assertEquals("AVR_1", itList.get(0).getNativeId());
+
+        assertTrue(dbmanager.findEquipments(Collections.emptyList()).isEmpty());
+        assertTrue(dbmanager.findConnectionSchemas(Collections.singletonList("UNKNOWN"), null).isEmpty());
+    }
+
     /*
      * @Test public void test_ZZZ() throws Exception { Thread.sleep(1000*60*3);
      * }
@@ -97,6 +97,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
     private Network network;
     private Map<String, Character> parallelIndexes;
     private boolean updateFlag = false;
+    private DdbEquipmentDataCache equipmentDataCache;
 
     Hashtable<String, Set<String>> macroblocksPinNames = new Hashtable<>();
     Hashtable<String, List<String>> EquipmentsInternalsMap = new Hashtable<>();
@@ -126,6 +127,10 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         this.updateFlag = updateFlag;
     }
 
+    public void setEquipmentDataCache(DdbEquipmentDataCache equipmentDataCache) {
+        this.equipmentDataCache = equipmentDataCache;
+    }
+
     @Override
     public String getName() {
         return "DDB";
@@ -140,10 +145,14 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         return new  EjbClientCtx(config.getJbossHost(), Integer.parseInt(config.getJbossPort()), config.getJbossUser(), config.getJbossPassword());
     }
 
-    public DdbDtaImpExp(DdbConfig config, String jndiName) {
+    public DdbDtaImpExp(DdbConfig config, String jndiName, DdExportConfig configExport) {
         this.config = config;
         this.jndiName = jndiName;
-        this.configExport = DdExportConfig.load();
+        this.configExport = Objects.requireNonNull(configExport);
+    }
+
+    public DdbDtaImpExp(DdbConfig config, String jndiName) {
+        this(config, jndiName, DdExportConfig.load());
     }
 
     public DdbDtaImpExp(DdbConfig config) {
@@ -1086,18 +1095,21 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
             // writing a .dta
             DtaParser.dumpHeader(new Date(), eurostagVersion, dtaOutStream);
 
+            Map<String, DdbEquipmentData> equipmentsData = findEquipmentsData(cimIds, eurostagSim, ddbmanager);
+
             for (String cimId : cimIds) {
                 log.info("Processing equipment: " + cimId);
-                Equipment eq = ddbmanager.findEquipment(cimId);
-                if (eq == null) {
+                DdbEquipmentData equipmentData = equipmentsData.get(cimId);
+                if (equipmentData == null) {
                     log.warn("- equipment: " + cimId + " not found !");
                     continue;
                 }
+                Equipment eq = equipmentData.getEquipment();
                 dumpData(eq, eurostagSim,
                         ddbmanager, dtaOutStream, genListOutStream, iidm2eurostagId);
 
                 try {
-                    dumpDataInternals(workingDir, cimId, eq, eurostagSim, iidm2eurostagId, ddbmanager, dtaOutStream, network);
+                    dumpDataInternals(workingDir, cimId, eq, eurostagSim, iidm2eurostagId, ddbmanager, dtaOutStream, network, equipmentData);
                 } catch (Throwable t) {
                     log.error(t.getMessage(), t);
                 }
@@ -1157,6 +1169,144 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         }
 
     }
+
+    /**
+     * Version of the dynamic database content used to key the equipment data cache: it changes each time equipments,
+     * internals, connection schemas, model templates or parameters are added to or removed from the dynamic database.
+     * Parameters modified in place are not detected.
+     */
+    private static String getDdbContentVersion(DDBManager ddbmanager) {
+        return ddbmanager.findEquipmentAllCount()
+                + "-" + ddbmanager.findInternalsAllCount()
+                + "-" + ddbmanager.findConnectionSchemasAllCount()
+                + "-" + ddbmanager.findModelTemplateContainerAllCount()
+                + "-" + ddbmanager.findParametersContainerAllCount();
+    }
+
+    /**
+     * Get the equipments, their connected internals and the macroblock names of these internals, from the equipment data cache if
+     * any, the missing ones being queried in bulk instead of equipment by equipment.
+     */
+    private Map<String, DdbEquipmentData> findEquipmentsData(List<String> cimIds, SimulatorInst eurostagSim, DDBManager ddbmanager) {
+        String ddbContentVersion = equipmentDataCache != null ? getDdbContentVersion(ddbmanager) : null;
+        Map<String, DdbEquipmentData> equipmentsData = new HashMap<>();
+        List<String> missingCimIds = new ArrayList<>();
+        for (String cimId : cimIds) {
+            DdbEquipmentData equipmentData = equipmentDataCache != null ? equipmentDataCache.load(eurostagSim.getVersion(), ddbContentVersion, cimId) : null;
+            if (equipmentData != null) {
+                equipmentsData.put(cimId, equipmentData);
+            } else {
+                missingCimIds.add(cimId);
+            }
+        }
+        if (equipmentDataCache != null) {
+            log.info("{} equipments data found in cache, {} to query", equipmentsData.size(), missingCimIds.size());
+        }
+
+        if (!missingCimIds.isEmpty()) {
+            List<Equipment> equipments = ddbmanager.findEquipments(missingCimIds);
+            List<DdbEquipmentData> missingEquipmentsData = queryEquipmentsData(equipments,
+                    equipments.stream().map(Equipment::getCimId).collect(Collectors.toList()), eurostagSim, ddbmanager);
+            for (DdbEquipmentData equipmentData : missingEquipmentsData) {
+                String cimId = equipmentData.getEquipment().getCimId();
+                equipmentsData.put(cimId, equipmentData);
+                if (equipmentDataCache != null) {
+                    equipmentDataCache.save(eurostagSim.getVersion(), ddbContentVersion, cimId, equipmentData);
+                }
+            }
+        }
+
+        return equipmentsData;
+    }
+
+    /**
+     * Get all the equipments of a zone type (M21 for the RST zones, MA for the ACMC zones), from the equipment data
+     * cache if any. The internals of a zone are connected to the zone name, found in the given parameter of the
+     * equipment, instead of the equipment itself.
+     */
+    private List<DdbEquipmentData> findZoneEquipmentsData(String zoneTypeName, String zoneNameParameter, SimulatorInst eurostagSim, DDBManager ddbmanager) {
+        String ddbContentVersion = equipmentDataCache != null ? getDdbContentVersion(ddbmanager) : null;
+        if (equipmentDataCache != null) {
+            List<DdbEquipmentData> zoneEquipmentsData = equipmentDataCache.loadZone(eurostagSim.getVersion(), ddbContentVersion, zoneTypeName);
+            if (zoneEquipmentsData != null) {
+                log.info("{} {} equipments data found in cache", zoneEquipmentsData.size(), zoneTypeName);
+                return zoneEquipmentsData;
+            }
+        }
+
+        List<Equipment> zoneEquipments = new ArrayList<>();
+        List<String> zoneNames = new ArrayList<>();
+        for (Equipment eq : ddbmanager.findEquipmentsAll()) {
+            if (findModelTemplate(eq.getModelContainer(), eurostagSim) == null) {
+                throw new RuntimeException("Could not find any model templates for simulator: " + eurostagSim.toString());
+            }
+            if (eq.getModelContainer().getDdbId().equals(MTC_PREFIX_NAME + zoneTypeName)) {
+                zoneEquipments.add(eq);
+                Parameters pars = findParameters(eq.getParametersContainer(), eurostagSim);
+                zoneNames.add((String) Utils.getHashMapFromParameters(pars).get(zoneNameParameter));
+            }
+        }
+        List<DdbEquipmentData> zoneEquipmentsData = queryEquipmentsData(zoneEquipments, zoneNames, eurostagSim, ddbmanager);
+        if (equipmentDataCache != null) {
+            equipmentDataCache.saveZone(eurostagSim.getVersion(), ddbContentVersion, zoneTypeName, zoneEquipmentsData);
+        }
+        return zoneEquipmentsData;
+    }
+
+    /**
+     * Query in bulk the connected internals of some equipments and the macroblock name of these internals
+     *
+     * @param connectionIds id of the connection schema of each equipment
+     */
+    private List<DdbEquipmentData> queryEquipmentsData(List<Equipment> equipments, List<String> connectionIds, SimulatorInst eurostagSim,
+                                                       DDBManager ddbmanager) {
+        Map<String, Set<String>> connectedInternals = new HashMap<>();
+        List<String> nonNullConnectionIds = connectionIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (!nonNullConnectionIds.isEmpty()) {
+            for (ConnectionSchema cs : ddbmanager.findConnectionSchemas(nonNullConnectionIds, null)) {
+                connectedInternals.put(cs.getCimId(), getConnectedInternals(cs));
+            }
+        }
+        Map<String, Internal> internals = new HashMap<>();
+        Set<String> internalIds = connectedInternals.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+        if (!internalIds.isEmpty()) {
+            for (Internal internal : ddbmanager.findInternals(internalIds)) {
+                internals.putIfAbsent(internal.getNativeId(), internal);
+            }
+        }
+        Map<String, String> macroblockNames = new HashMap<>();
+        for (Internal internal : internals.values()) {
+            try {
+                String macroblockName = ddbmanager.getStringParameter(internal, eurostagSim, PAR_MACROBLOCK_NAME);
+                if (macroblockName != null) {
+                    macroblockNames.put(internal.getNativeId(), macroblockName);
+                }
+            } catch (RuntimeException e) {
+                log.warn("- internal with nativeId: " + internal.getNativeId() + " has no macroblock name: " + e.getMessage());
+            }
+        }
+
+        List<DdbEquipmentData> equipmentsData = new ArrayList<>(equipments.size());
+        for (int i = 0; i < equipments.size(); i++) {
+            Set<String> eqInternalIds = connectionIds.get(i) != null
+                    ? connectedInternals.getOrDefault(connectionIds.get(i), Collections.emptySet())
+                    : Collections.emptySet();
+            Map<String, Internal> eqInternals = new HashMap<>();
+            Map<String, String> eqMacroblockNames = new HashMap<>();
+            for (String nativeId : eqInternalIds) {
+                Internal internal = internals.get(nativeId);
+                if (internal != null) {
+                    eqInternals.put(nativeId, internal);
+                    if (macroblockNames.containsKey(nativeId)) {
+                        eqMacroblockNames.put(nativeId, macroblockNames.get(nativeId));
+                    }
+                }
+            }
+            equipmentsData.add(new DdbEquipmentData(equipments.get(i), eqInternalIds, eqInternals, eqMacroblockNames));
+        }
+        return equipmentsData;
+    }
+
     public void dumpDataLoadPatternAndBehaviour(List<String> cimIds, SimulatorInst simInst, DDBManager ddbmanager, PrintStream out) throws IOException {
         if (simInst == null) {
             throw new RuntimeException("SimulatorInst must be not null");
@@ -1208,11 +1358,16 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
             Map<String, String> iidm2eurostagId, DDBManager ddbmanager,
             PrintStream dtaOutStream, Network network) {
         //retrieve directly and not directly connected internals
-        Set<String> internalIds = getConnectedInternals(cimId, ddbmanager);
-        log.info("- connected internals: " + cimId + ": " + internalIds);
-        for (String nativeId : internalIds) {
-            Internal internal = ddbmanager
-                    .findInternal(nativeId);
+        DdbEquipmentData equipmentData = queryEquipmentsData(Collections.singletonList(eq), Collections.singletonList(cimId), eurostagSim, ddbmanager).get(0);
+        dumpDataInternals(workingDir, cimId, eq, eurostagSim, iidm2eurostagId, ddbmanager, dtaOutStream, network, equipmentData);
+    }
+
+    private void dumpDataInternals(Path workingDir, String cimId, Equipment eq, SimulatorInst eurostagSim,
+            Map<String, String> iidm2eurostagId, DDBManager ddbmanager,
+            PrintStream dtaOutStream, Network network, DdbEquipmentData equipmentData) {
+        log.info("- connected internals: " + cimId + ": " + equipmentData.getInternalIds());
+        for (String nativeId : equipmentData.getInternalIds()) {
+            Internal internal = equipmentData.getInternal(nativeId);
             if (internal == null) {
                 log.warn("- internal with nativeId: " + nativeId
                         + " not found !");
@@ -1227,9 +1382,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
                     log.error("could not write macro.lis file, due to " + e.getMessage());
                 }
                 // dump regulator files start
-                String macroblockName = ddbmanager.getStringParameter(
-                        internal, eurostagSim,
-                        PAR_MACROBLOCK_NAME);
+                String macroblockName = equipmentData.getMacroblockName(nativeId);
                 if (macroblockName == null) {
                     throw new RuntimeException("null macroblock.name for internal " + internal);
                 }
@@ -1304,7 +1457,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
                 }
                 //keeps track of generators in RST zones
                 if (configExport.getExportRST()) {
-                    Parameters params = ddbmanager.findParameters(internal, eurostagSim);
+                    Parameters params = findParameters(internal.getParametersContainer(), eurostagSim);
                     HashMap<String, Object> parsList = Utils.getHashMapFromParameters(params);
                     if (parsList.containsKey("macroblock.name")
                             && parsList.containsKey("machine.name")
@@ -1338,7 +1491,8 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         if (log.isDebugEnabled()) {
             log.trace("Dumping data for: " + inst.getCimId());
         }
-        ModelTemplate mtc = ddbmanager.findModelTemplate(inst, simInst);
+        // model templates and parameters are fetched along with the equipment, no need to query them
+        ModelTemplate mtc = findModelTemplate(inst.getModelContainer(), simInst);
         if (mtc == null) {
             throw new RuntimeException("Could not find any model templates for simulator: " + simInst.toString());
         }
@@ -1379,7 +1533,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         }
 
         log.trace(" model template typename: " + mtc.getTypeName());
-        Parameters pars = ddbmanager.findParameters(inst, simInst);
+        Parameters pars = findParameters(inst.getParametersContainer(), simInst);
         HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
 
         //change machine.name, according to the mapping  iidm2eurostagId<cimid, eurostagid>
@@ -1480,14 +1634,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
             log.trace("Dumping data for: " + inst.getNativeId());
         }
 
-        //ModelTemplate mtc=ddbmanager.findModelTemplate(inst, simInst);
-        ModelTemplate mtc = null;
-        for (ModelTemplate mt : inst.getModelContainer().getModelTemplates()) {
-            if (mt.getSimulator().equals(simInst)) {
-                mtc = mt;
-                break;
-            }
-        }
+        ModelTemplate mtc = findModelTemplate(inst.getModelContainer(), simInst);
         if (mtc == null) {
             throw new RuntimeException("Could not find any model templates for simulator: " + simInst.toString());
         }
@@ -1511,14 +1658,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         }
 
         log.trace(" model template typename: " + mtc.getTypeName());
-        //Parameters pars=ddbmanager.findParameters(inst, simInst);
-        Parameters pars = null;
-        for (Parameters ps : inst.getParametersContainer().getParameters()) {
-            if (ps.getSimulator().equals(simInst)) {
-                pars = ps;
-                break;
-            }
-        }
+        Parameters pars = findParameters(inst.getParametersContainer(), simInst);
         HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
 
         //change connection.node.name, according to the mapping  iidm2eurostagId<cimid, eurostagid>
@@ -1831,12 +1971,17 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
     public void dumpDataAutomatons(SimulatorInst eurostagSim, DDBManager ddbmanager,
             PrintStream dtaOutStream, Map<String, String> iidm2eurostagId, SimulationParameters simulationParameters) throws ParseException, IOException {
 
+        Set<String> generatorEquipmentIds = new HashSet<>();
+        if (configExport.getAutomatonA11() || configExport.getAutomatonA12()) {
+            List<String> generatorIds = network.getGeneratorStream().map(Generator::getId).collect(Collectors.toList());
+            generatorEquipmentIds.addAll(findEquipmentsData(generatorIds, eurostagSim, ddbmanager).keySet());
+        }
+
         if (configExport.getAutomatonA11()) {
             // A11
             DtaParser.dumpAutomatonHeader("A11", false, dtaOutStream);
             for (Generator g : network.getGenerators()) {
-                Equipment eq = ddbmanager.findEquipment(g.getId());
-                if (eq != null) {
+                if (generatorEquipmentIds.contains(g.getId())) {
                     if (!filteredGenerator(g)) {
                         dumpDataGeneratorAutomaton(g, eurostagSim, "A11", dtaOutStream, iidm2eurostagId);
                     } else {
@@ -1850,8 +1995,7 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         if (configExport.getAutomatonA12()) {
             DtaParser.dumpAutomatonHeader("A12", false, dtaOutStream);
             for (Generator g : network.getGenerators()) {
-                Equipment eq = ddbmanager.findEquipment(g.getId());
-                if (eq != null) {
+                if (generatorEquipmentIds.contains(g.getId())) {
                     if (!filteredGenerator(g)) {
                         dumpDataGeneratorAutomaton(g, eurostagSim, "A12", dtaOutStream, iidm2eurostagId);
                     } else {
@@ -2220,105 +2364,99 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
             }
 
             // M21
-            List<Equipment> equipsAll = ddbmanager.findEquipmentsAll();
-            for (Equipment eq : equipsAll) {
-                ModelTemplate mt = ddbmanager.findModelTemplate(eq, eurostagSim);
-                if (mt == null) {
-                    throw new RuntimeException("Could not find any model templates for simulator: " + eurostagSim.toString());
+            for (DdbEquipmentData equipmentData : findZoneEquipmentsData("M21", "machine.name", eurostagSim, ddbmanager)) {
+                Equipment eq = equipmentData.getEquipment();
+                ModelTemplate mt = findModelTemplate(eq.getModelContainer(), eurostagSim);
+                if (log.isDebugEnabled()) {
+                    log.trace("Dumping data for: " + eq.getCimId());
                 }
-
-                if (eq.getModelContainer().getDdbId().equals(MTC_PREFIX_NAME + "M21")) {
-                    if (log.isDebugEnabled()) {
-                        log.trace("Dumping data for: " + eq.getCimId());
-                    }
-                    String zoneTypeName = "M21";
-                    log.trace(" model template typename: " + mt.getTypeName());
-                    Parameters pars = ddbmanager.findParameters(eq, eurostagSim);
-                    HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
-
-                    String zoneRST = (String) zm.get("machine.name");
-                    // Modification pilot point
-                    String pilotPoint = (String) zm.get("connection.node.name");
-                    String substpilotPoint = null;
-                    for (VoltageLevel station : network.getVoltageLevels()) {
-                        if (station.getName().equals(pilotPoint)) {
-                            // Looking for a connected bus
-                            for (Bus bus : station.getBusBreakerView().getBuses()) {
-                                if (bus.getConnectedComponent().getNum() == ComponentConstants.MAIN_NUM || substpilotPoint == null) {
-                                    substpilotPoint = iidm2eurostagId.get(bus.getId());
-                                }
+                String zoneTypeName = "M21";
+                log.trace(" model template typename: " + mt.getTypeName());
+                Parameters pars = findParameters(eq.getParametersContainer(), eurostagSim);
+                HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
+
+                String zoneRST = (String) zm.get("machine.name");
+                // Modification pilot point
+                String pilotPoint = (String) zm.get("connection.node.name");
+                String substpilotPoint = null;
+                for (VoltageLevel station : network.getVoltageLevels()) {
+                    if (station.getName().equals(pilotPoint)) {
+                        // Looking for a connected bus
+                        for (Bus bus : station.getBusBreakerView().getBuses()) {
+                            if (bus.getConnectedComponent().getNum() == ComponentConstants.MAIN_NUM || substpilotPoint == null) {
+                                substpilotPoint = iidm2eurostagId.get(bus.getId());
                             }
-                            pilotPointRst.put(zoneRST, station.getId());
                         }
+                        pilotPointRst.put(zoneRST, station.getId());
                     }
-                    if (substpilotPoint == null) {
-                        log.warn("Pilot point " + pilotPoint + " isn't in the network - Broken RST zone: " + zoneRST);
-                    }
-                    zm.put("connection.node.name", substpilotPoint);
-
-                    EurostagRecord eRecord = new EurostagRecord(zoneTypeName, zm);
-                    try {
-                        DtaParser.dumpZone(eRecord, dtaOutStream);
+                }
+                if (substpilotPoint == null) {
+                    log.warn("Pilot point " + pilotPoint + " isn't in the network - Broken RST zone: " + zoneRST);
+                }
+                zm.put("connection.node.name", substpilotPoint);
 
-                    } catch (ParseException e) {
-                        log.error(e.getMessage(), e);
-                    }
-                    // Regulator
-                    dumpDataInternals(workingDir, zoneRST, eq, eurostagSim, iidm2eurostagId, ddbmanager, dtaOutStream, network);
-                    // Regulator files
-                    String intName = configExport.getRSTRegulInjector().toLowerCase();
-                    boolean foundFRI = false;
-                    boolean foundFRM = false;
-                    boolean foundPAR = false;
-                    boolean foundPCP = false;
-                    boolean foundRCP = false;
-                    boolean foundRegFile = false;
-                    if ((mt.getSimulator().getSimulator() == Simulator.EUROSTAG)
-                            && (mt.getSimulator().getVersion()
-                                    .equals(eurostagVersion))) {
+                EurostagRecord eRecord = new EurostagRecord(zoneTypeName, zm);
+                try {
+                    DtaParser.dumpZone(eRecord, dtaOutStream);
 
-                        for (String dataKey : mt.modelDataMap()
-                                .keySet()) {
-                            switch (dataKey) {
-                                case "pcp":
-                                    foundRegFile = true;
-                                    foundPCP = true;
-                                    break;
-                                case "rcp":
-                                    foundRegFile = true;
-                                    foundRCP = true;
-                                    break;
-                                case "fri":
-                                    foundRegFile = true;
-                                    foundFRI = true;
-                                    break;
-                                case "frm":
-                                    foundRegFile = true;
-                                    foundFRM = true;
-                                    break;
-                                case "par":
-                                    foundRegFile = true;
-                                    foundPAR = true;
-                                    break;
-                                default:
-                                    log.warn("- regfile extension not recognized: " + dataKey);
-                                    break;
-                            }
+                } catch (ParseException e) {
+                    log.error(e.getMessage(), e);
+                }
+                // Regulator
+                dumpDataInternals(workingDir, zoneRST, eq, eurostagSim, iidm2eurostagId, ddbmanager, dtaOutStream, network, equipmentData);
+                // Regulator files
+                String intName = configExport.getRSTRegulInjector().toLowerCase();
+                boolean foundFRI = false;
+                boolean foundFRM = false;
+                boolean foundPAR = false;
+                boolean foundPCP = false;
+                boolean foundRCP = false;
+                boolean foundRegFile = false;
+                if ((mt.getSimulator().getSimulator() == Simulator.EUROSTAG)
+                        && (mt.getSimulator().getVersion()
+                                .equals(eurostagVersion))) {
+
+                    for (String dataKey : mt.modelDataMap()
+                            .keySet()) {
+                        switch (dataKey) {
+                            case "pcp":
+                                foundRegFile = true;
+                                foundPCP = true;
+                                break;
+                            case "rcp":
+                                foundRegFile = true;
+                                foundRCP = true;
+                                break;
+                            case "fri":
+                                foundRegFile = true;
+                                foundFRI = true;
+                                break;
+                            case "frm":
+                                foundRegFile = true;
+                                foundFRM = true;
+                                break;
+                            case "par":
+                                foundRegFile = true;
+                                foundPAR = true;
+                                break;
+                            default:
+                                log.warn("- regfile extension not recognized: " + dataKey);
+                                break;
+                        }
 
-                            if (foundRegFile) {
-                                Path path = workingDir.resolve(intName + "." + dataKey);
-                                //avoiding dups
-                                if (!Files.exists(path)) {
-                                    Files.write(path, mt.getData(dataKey));
-                                }
-                            }
-                            //keeps track of reg name, pro .pcp, .rcp compiling
-                            //skipping those regs that do not have both .rcp and .pcp files
-                            if ((foundFRI && foundFRM && foundPAR)
-                                    && (!foundPCP || !foundRCP)) {
-                                uniqueRegNamesSet.add(intName);
+                        if (foundRegFile) {
+                            Path path = workingDir.resolve(intName + "." + dataKey);
+                            //avoiding dups
+                            if (!Files.exists(path)) {
+                                Files.write(path, mt.getData(dataKey));
                             }
                         }
+                        //keeps track of reg name, pro .pcp, .rcp compiling
+                        //skipping those regs that do not have both .rcp and .pcp files
+                        if ((foundFRI && foundFRM && foundPAR)
+                                && (!foundPCP || !foundRCP)) {
+                            uniqueRegNamesSet.add(intName);
+                        }
                     }
                 }
             }
@@ -2330,129 +2468,122 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         if (configExport.getExportACMC()) {
 
             // MA
-            List<Equipment> equipsAll = ddbmanager.findEquipmentsAll();
-            for (Equipment eq : equipsAll) {
-                ModelTemplate mt = ddbmanager.findModelTemplate(eq, eurostagSim);
-                if (mt == null) {
-                    throw new RuntimeException("Could not find any model templates for simulator: " + eurostagSim.toString());
+            for (DdbEquipmentData equipmentData : findZoneEquipmentsData("MA", "ma.name", eurostagSim, ddbmanager)) {
+                Equipment eq = equipmentData.getEquipment();
+                ModelTemplate mt = findModelTemplate(eq.getModelContainer(), eurostagSim);
+                if (log.isDebugEnabled()) {
+                    log.trace("Dumping data for: " + eq.getCimId());
                 }
-
-                if (eq.getModelContainer().getDdbId().equals(MTC_PREFIX_NAME + "MA")) {
-                    if (log.isDebugEnabled()) {
-                        log.trace("Dumping data for: " + eq.getCimId());
-                    }
-                    String zoneTypeName = "MA";
-                    log.trace(" model template typename: " + mt.getTypeName());
-                    Parameters pars = ddbmanager.findParameters(eq, eurostagSim);
-                    HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
-
-                    ArrayList<String> bankInAcmc = new ArrayList<String>();
-                    String acmcName = (String) zm.get("ma.name");
-                    // Modification shunt nameS
-                    String connectingStation = (String) zm.get("equipment.name");
-                    for (VoltageLevel station : network.getVoltageLevels()) {
-                        if (station.getName().equals(connectingStation)) {
-                            // Looking for shunts at the connecting station
-                            for (ShuntCompensator shunt : station.getShunts()) {
-                                bankInAcmc.add(iidm2eurostagId.get(shunt.getId()));
-                            }
+                String zoneTypeName = "MA";
+                log.trace(" model template typename: " + mt.getTypeName());
+                Parameters pars = findParameters(eq.getParametersContainer(), eurostagSim);
+                HashMap<String, Object> zm = Utils.getHashMapFromParameters(pars);
+
+                ArrayList<String> bankInAcmc = new ArrayList<String>();
+                String acmcName = (String) zm.get("ma.name");
+                // Modification shunt nameS
+                String connectingStation = (String) zm.get("equipment.name");
+                for (VoltageLevel station : network.getVoltageLevels()) {
+                    if (station.getName().equals(connectingStation)) {
+                        // Looking for shunts at the connecting station
+                        for (ShuntCompensator shunt : station.getShunts()) {
+                            bankInAcmc.add(iidm2eurostagId.get(shunt.getId()));
                         }
                     }
-                    if (bankInAcmc.isEmpty()) {
-                        log.warn("No shunt/station found for station name :" + connectingStation);
-                    } else {
-                        acmcs.put(acmcName, bankInAcmc);
-                        zm.put("equipment.name", bankInAcmc.get(0)); // Any of the banks = not used
+                }
+                if (bankInAcmc.isEmpty()) {
+                    log.warn("No shunt/station found for station name :" + connectingStation);
+                } else {
+                    acmcs.put(acmcName, bankInAcmc);
+                    zm.put("equipment.name", bankInAcmc.get(0)); // Any of the banks = not used
 
-                        EurostagRecord eRecord = new EurostagRecord(zoneTypeName, zm);
-                        try {
-                            DtaParser.dumpZone(eRecord, dtaOutStream);
-                        } catch (ParseException e) {
-                            log.error(e.getMessage(), e);
-                        }
+                    EurostagRecord eRecord = new EurostagRecord(zoneTypeName, zm);
+                    try {
+                        DtaParser.dumpZone(eRecord, dtaOutStream);
+                    } catch (ParseException e) {
+                        log.error(e.getMessage(), e);
+                    }
 
-                        // Regulator RMA
-                        Set<String> internalIds = getConnectedInternals(acmcName, ddbmanager);
-                        log.info("- connected internals: " + acmcName + ": " + internalIds);
-                        for (String nativeId : internalIds) {
-                            Internal internal = ddbmanager.findInternal(nativeId);
-                            if (internal == null) {
-                                log.warn("- internal with nativeId: " + nativeId + " not found !");
-                            } else {
-                                try {
-                                    dumpData(internal, eurostagSim, ddbmanager, dtaOutStream, acmcName, iidm2eurostagId, network, eq);
-                                } catch (Exception e) {
-                                    log.error("could not write macro.lis file, due to " + e.getMessage());
-                                }
-                                // dump regulator files start
-                                String macroblockName = ddbmanager.getStringParameter(internal, eurostagSim, PAR_MACROBLOCK_NAME);
-                                if (macroblockName == null) {
-                                    throw new RuntimeException("null macroblock.name for internal " + internal);
-                                }
-                                //since this will drive regs filenames, normalize to lower case (pro case sensitive filesystems)
-                                String intName = macroblockName.toLowerCase();
-                                ModelTemplateContainer mtc = internal.getModelContainer();
-
-                                boolean foundFRI = false;
-                                boolean foundFRM = false;
-                                boolean foundPAR = false;
-                                boolean foundPCP = false;
-                                boolean foundRCP = false;
-                                boolean foundRegFile = false;
-                                for (ModelTemplate mt2 : mtc.getModelTemplates()) {
-                                    if ((mt2.getSimulator().getSimulator() == Simulator.EUROSTAG)
-                                            && (mt2.getSimulator().getVersion().equals(eurostagVersion))) {
-
-                                        for (String dataKey : mt2.modelDataMap()
-                                                .keySet()) {
-                                            switch (dataKey) {
-                                                case "pcp":
-                                                    foundRegFile = true;
-                                                    foundPCP = true;
-                                                    break;
-                                                case "rcp":
-                                                    foundRegFile = true;
-                                                    foundRCP = true;
-                                                    break;
-                                                case "fri":
-                                                    foundRegFile = true;
-                                                    foundFRI = true;
-                                                    break;
-                                                case "frm":
-                                                    foundRegFile = true;
-                                                    foundFRM = true;
-                                                    break;
-                                                case "par":
-                                                    foundRegFile = true;
-                                                    foundPAR = true;
-                                                    break;
-                                                default:
-                                                    log.warn("- regfile extension not recognized: " + dataKey);
-                                                    break;
-                                            }
+                    // Regulator RMA
+                    log.info("- connected internals: " + acmcName + ": " + equipmentData.getInternalIds());
+                    for (String nativeId : equipmentData.getInternalIds()) {
+                        Internal internal = equipmentData.getInternal(nativeId);
+                        if (internal == null) {
+                            log.warn("- internal with nativeId: " + nativeId + " not found !");
+                        } else {
+                            try {
+                                dumpData(internal, eurostagSim, ddbmanager, dtaOutStream, acmcName, iidm2eurostagId, network, eq);
+                            } catch (Exception e) {
+                                log.error("could not write macro.lis file, due to " + e.getMessage());
+                            }
+                            // dump regulator files start
+                            String macroblockName = equipmentData.getMacroblockName(nativeId);
+                            if (macroblockName == null) {
+                                throw new RuntimeException("null macroblock.name for internal " + internal);
+                            }
+                            //since this will drive regs filenames, normalize to lower case (pro case sensitive filesystems)
+                            String intName = macroblockName.toLowerCase();
+                            ModelTemplateContainer mtc = internal.getModelContainer();
+
+                            boolean foundFRI = false;
+                            boolean foundFRM = false;
+                            boolean foundPAR = false;
+                            boolean foundPCP = false;
+                            boolean foundRCP = false;
+                            boolean foundRegFile = false;
+                            for (ModelTemplate mt2 : mtc.getModelTemplates()) {
+                                if ((mt2.getSimulator().getSimulator() == Simulator.EUROSTAG)
+                                        && (mt2.getSimulator().getVersion().equals(eurostagVersion))) {
+
+                                    for (String dataKey : mt2.modelDataMap()
+                                            .keySet()) {
+                                        switch (dataKey) {
+                                            case "pcp":
+                                                foundRegFile = true;
+                                                foundPCP = true;
+                                                break;
+                                            case "rcp":
+                                                foundRegFile = true;
+                                                foundRCP = true;
+                                                break;
+                                            case "fri":
+                                                foundRegFile = true;
+                                                foundFRI = true;
+                                                break;
+                                            case "frm":
+                                                foundRegFile = true;
+                                                foundFRM = true;
+                                                break;
+                                            case "par":
+                                                foundRegFile = true;
+                                                foundPAR = true;
+                                                break;
+                                            default:
+                                                log.warn("- regfile extension not recognized: " + dataKey);
+                                                break;
+                                        }
 
-                                            if (foundRegFile) {
-                                                Path path = workingDir.resolve(intName + "." + dataKey);
-                                                //avoiding dups
-                                                if (!Files.exists(path)) {
-                                                    try {
-                                                        Files.write(path, mt2.getData(dataKey));
-                                                    } catch (Throwable e) {
-                                                        log.error(e.getMessage(), e);
-                                                    }
+                                        if (foundRegFile) {
+                                            Path path = workingDir.resolve(intName + "." + dataKey);
+                                            //avoiding dups
+                                            if (!Files.exists(path)) {
+                                                try {
+                                                    Files.write(path, mt2.getData(dataKey));
+                                                } catch (Throwable e) {
+                                                    log.error(e.getMessage(), e);
                                                 }
                                             }
-
                                         }
 
                                     }
+
                                 }
-                                //keeps track of reg name, pro .pcp, .rcp compiling
-                                //skipping those regs that do not have both .rcp and .pcp files
-                                if ((foundFRI && foundFRM && foundPAR)
-                                        && ((!foundPCP) || (!foundRCP))) {
-                                    uniqueRegNamesSet.add(intName);
-                                }
+                            }
+                            //keeps track of reg name, pro .pcp, .rcp compiling
+                            //skipping those regs that do not have both .rcp and .pcp files
+                            if ((foundFRI && foundFRM && foundPAR)
+                                    && ((!foundPCP) || (!foundRCP))) {
+                                uniqueRegNamesSet.add(intName);
                             }
                         }
                     }
@@ -2528,8 +2659,10 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
     }
 
     private Set<String> getConnectedInternals(String cimId, DDBManager ddbmanager) {
-        ConnectionSchema cs = ddbmanager.findConnectionSchema(
-                cimId, null);
+        return getConnectedInternals(ddbmanager.findConnectionSchema(cimId, null));
+    }
+
+    private static Set<String> getConnectedInternals(ConnectionSchema cs) {
         Set<String> internalIds = new HashSet<String>();
         if (cs != null) {
             //retrieve internal ids from equipment connection schema
@@ -2546,6 +2679,24 @@ public class DdbDtaImpExp implements DynamicDatabaseClient {
         return internalIds;
     }
 
+    private static ModelTemplate findModelTemplate(ModelTemplateContainer mtc, SimulatorInst simInst) {
+        for (ModelTemplate mt : mtc.getModelTemplates()) {
+            if (mt.getSimulator().equals(simInst)) {
+                return mt;
+            }
+        }
+        return null;
+    }
+
+    private static Parameters findParameters(ParametersContainer pc, SimulatorInst simInst) {
+        for (Parameters ps : pc.getParameters()) {
+            if (ps.getSimulator().equals(simInst)) {
+                return ps;
+            }
+        }
+        return null;
+    }
+
     /* ********************************
      * Clean up Functions
      ********************************* */
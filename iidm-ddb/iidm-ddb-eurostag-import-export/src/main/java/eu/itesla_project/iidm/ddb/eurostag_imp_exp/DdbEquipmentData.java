@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.iidm.ddb.eurostag_imp_exp;
+
+import eu.itesla_project.iidm.ddb.model.Equipment;
+import eu.itesla_project.iidm.ddb.model.Internal;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Dynamic database data needed to dump the DTA fragment of an equipment: the equipment, with its model templates and
+ * parameters, and the internals connected to it with their macroblock name for a simulator.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class DdbEquipmentData implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final Equipment equipment;
+
+    private final LinkedHashSet<String> internalIds;
+
+    private final HashMap<String, Internal> internals;
+
+    private final HashMap<String, String> macroblockNames;
+
+    /**
+     * @param internalIds ids of the connected internals, including the ones not found in the dynamic database
+     * @param internals connected internals found in the dynamic database, by id
+     * @param macroblockNames macroblock name of the connected internals, by id
+     */
+    public DdbEquipmentData(Equipment equipment, Set<String> internalIds, Map<String, Internal> internals, Map<String, String> macroblockNames) {
+        this.equipment = Objects.requireNonNull(equipment);
+        this.internalIds = new LinkedHashSet<>(Objects.requireNonNull(internalIds));
+        this.internals = new HashMap<>(Objects.requireNonNull(internals));
+        this.macroblockNames = new HashMap<>(Objects.requireNonNull(macroblockNames));
+    }
+
+    public Equipment getEquipment() {
+        return equipment;
+    }
+
+    public Set<String> getInternalIds() {
+        return Collections.unmodifiableSet(internalIds);
+    }
+
+    /**
+     * @return the connected internal, or null if not found in the dynamic database
+     */
+    public Internal getInternal(String nativeId) {
+        return internals.get(nativeId);
+    }
+
+    /**
+     * @return the macroblock name of the connected internal, or null if not defined
+     */
+    public String getMacroblockName(String nativeId) {
+        return macroblockNames.get(nativeId);
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.iidm.ddb.eurostag_imp_exp;
+
+import java.util.List;
+
+/**
+ * Per equipment cache of the dynamic database data, so that only the equipments not already cached are queried
+ * when dumping a DTA file. The equipments of the zones not attached to a network equipment (RST, ACMC) are cached
+ * per zone type. Cached data is specific to a simulator version and to a version of the dynamic database content, so
+ * that equipments, internals or zones added to or removed from the dynamic database are not hidden by the cache.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public interface DdbEquipmentDataCache {
+
+    /**
+     * @return the cached data of the equipment, or null if not cached
+     */
+    DdbEquipmentData load(String simulatorVersion, String ddbContentVersion, String cimId);
+
+    void save(String simulatorVersion, String ddbContentVersion, String cimId, DdbEquipmentData data);
+
+    /**
+     * @return the cached data of all the equipments of a zone type, or null if not cached
+     */
+    List<DdbEquipmentData> loadZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName);
+
+    void saveZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName, List<DdbEquipmentData> data);
+}
@@ -16,7 +16,12 @@ import com.powsybl.simulation.SimulationParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -34,10 +39,88 @@ public class DynamicDatabaseCacheClient implements DynamicDatabaseClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamicDatabaseCacheClient.class);
 
+    private static final String EQUIPMENT_DATA_FILE_NAME = "data.ser";
+
     private final DynamicDatabaseClient delegate;
 
+    /**
+     * Second level cache of the dynamic database data, equipment by equipment, used to dump the DTA file when it is
+     * not found in the whole file cache. Contrary to the whole DTA file, it is still valid when some generators are
+     * connected or disconnected between two snapshots.
+     */
+    private class EquipmentDataCache implements DdbEquipmentDataCache {
+
+        private CacheManager.CacheEntry newCacheEntry(String type, String simulatorVersion, String ddbContentVersion, String id) {
+            return PlatformConfig.defaultCacheManager().newCacheEntry(type)
+                    .withKey(delegate.getName())
+                    .withKey(delegate.getVersion())
+                    .withKey(simulatorVersion)
+                    .withKey(ddbContentVersion)
+                    .withKey(id)
+                    .build();
+        }
+
+        private Object load(CacheManager.CacheEntry cacheEntry) {
+            cacheEntry.lock();
+            try {
+                Path file = cacheEntry.toPath().resolve(EQUIPMENT_DATA_FILE_NAME);
+                if (cacheEntry.exists() && Files.exists(file)) {
+                    try (ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        return is.readObject();
+                    } catch (IOException | ClassNotFoundException e) {
+                        // will be queried and cached again
+                        LOGGER.warn("Cannot read ddb cache {}: {}", cacheEntry, e.toString());
+                    }
+                }
+                return null;
+            } finally {
+                cacheEntry.unlock();
+            }
+        }
+
+        private void save(CacheManager.CacheEntry cacheEntry, Object data) {
+            cacheEntry.lock();
+            try {
+                if (!cacheEntry.exists()) {
+                    cacheEntry.create();
+                }
+                try (ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheEntry.toPath().resolve(EQUIPMENT_DATA_FILE_NAME))))) {
+                    os.writeObject(data);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                cacheEntry.unlock();
+            }
+        }
+
+        @Override
+        public DdbEquipmentData load(String simulatorVersion, String ddbContentVersion, String cimId) {
+            return (DdbEquipmentData) load(newCacheEntry("ddb-equipment", simulatorVersion, ddbContentVersion, cimId));
+        }
+
+        @Override
+        public void save(String simulatorVersion, String ddbContentVersion, String cimId, DdbEquipmentData data) {
+            save(newCacheEntry("ddb-equipment", simulatorVersion, ddbContentVersion, cimId), data);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<DdbEquipmentData> loadZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName) {
+            return (List<DdbEquipmentData>) load(newCacheEntry("ddb-zone", simulatorVersion, ddbContentVersion, zoneTypeName));
+        }
+
+        @Override
+        public void saveZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName, List<DdbEquipmentData> data) {
+            save(newCacheEntry("ddb-zone", simulatorVersion, ddbContentVersion, zoneTypeName), new ArrayList<>(data));
+        }
+    }
+
     public DynamicDatabaseCacheClient(DynamicDatabaseClient delegate) {
         this.delegate = Objects.requireNonNull(delegate);
+        if (delegate instanceof DdbDtaImpExp) {
+            ((DdbDtaImpExp) delegate).setEquipmentDataCache(new EquipmentDataCache());
+        }
     }
 
     @Override
@@ -92,7 +175,7 @@ public class DynamicDatabaseCacheClient implements DynamicDatabaseClient {
                     // create the directory
                     cacheEntry.create();
 
-                    // generate data in the cache
+                    // generate data in the cache, the DDB client only querying the equipments data not in its own cache
                     delegate.dumpDtaFile(cacheEntry.toPath(), fileName, network, parallelIndexes, eurostagVersion, iidm2eurostagId, simulationParameters);
                 }
             } finally {
@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import com.powsybl.commons.config.InMemoryPlatformConfig;
+import com.powsybl.commons.config.MapModuleConfig;
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.NetworkFactory;
+import com.powsybl.iidm.network.Substation;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+import eu.itesla_project.iidm.ddb.eurostag_imp_exp.DdExportConfig;
+import eu.itesla_project.iidm.ddb.eurostag_imp_exp.DdbConfig;
+import eu.itesla_project.iidm.ddb.eurostag_imp_exp.DdbDtaImpExp;
+import eu.itesla_project.iidm.ddb.eurostag_imp_exp.DdbEquipmentData;
+import eu.itesla_project.iidm.ddb.eurostag_imp_exp.DdbEquipmentDataCache;
+import eu.itesla_project.iidm.ddb.model.Equipment;
+import eu.itesla_project.iidm.ddb.model.ModelTemplate;
+import eu.itesla_project.iidm.ddb.model.ModelTemplateContainer;
+import eu.itesla_project.iidm.ddb.model.ParameterFloat;
+import eu.itesla_project.iidm.ddb.model.ParameterString;
+import eu.itesla_project.iidm.ddb.model.Parameters;
+import eu.itesla_project.iidm.ddb.model.ParametersContainer;
+import eu.itesla_project.iidm.ddb.model.Simulator;
+import eu.itesla_project.iidm.ddb.model.SimulatorInst;
+import eu.itesla_project.iidm.ddb.service.DDBManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class TestDdbEquipmentDataCache {
+
+    private static final String EUROSTAG_VERSION = "5.1.1";
+
+    private static final SimulatorInst EUROSTAG = new SimulatorInst(Simulator.EUROSTAG, EUROSTAG_VERSION);
+
+    private static final String DTA_FILENAME = "sim.dta";
+
+    private static class InMemoryEquipmentDataCache implements DdbEquipmentDataCache {
+
+        private final Map<List<String>, DdbEquipmentData> equipmentsData = new HashMap<>();
+
+        private final Map<List<String>, List<DdbEquipmentData>> zonesEquipmentsData = new HashMap<>();
+
+        @Override
+        public DdbEquipmentData load(String simulatorVersion, String ddbContentVersion, String cimId) {
+            return equipmentsData.get(Arrays.asList(simulatorVersion, ddbContentVersion, cimId));
+        }
+
+        @Override
+        public void save(String simulatorVersion, String ddbContentVersion, String cimId, DdbEquipmentData data) {
+            equipmentsData.put(Arrays.asList(simulatorVersion, ddbContentVersion, cimId), data);
+        }
+
+        @Override
+        public List<DdbEquipmentData> loadZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName) {
+            return zonesEquipmentsData.get(Arrays.asList(simulatorVersion, ddbContentVersion, zoneTypeName));
+        }
+
+        @Override
+        public void saveZone(String simulatorVersion, String ddbContentVersion, String zoneTypeName, List<DdbEquipmentData> data) {
+            zonesEquipmentsData.put(Arrays.asList(simulatorVersion, ddbContentVersion, zoneTypeName), new ArrayList<>(data));
+        }
+    }
+
+    private FileSystem fileSystem;
+
+    private DdExportConfig configExport;
+
+    private final List<Equipment> equipments = new ArrayList<>();
+
+    private final List<List<String>> queriedCimIds = new ArrayList<>();
+
+    private int allEquipmentsQueryCount;
+
+    private DDBManager ddbManager;
+
+    private final Map<String, String> iidm2eurostagId = new HashMap<>();
+
+    private int dumpCount;
+
+    private static Equipment createEquipment(String cimId, String typeName, Map<String, Object> parameters) {
+        ModelTemplateContainer mtc = new ModelTemplateContainer("MTC_" + typeName);
+        mtc.getModelTemplates().add(new ModelTemplate(EUROSTAG, typeName, ""));
+        Parameters pars = new Parameters(EUROSTAG);
+        parameters.forEach((name, value) -> pars.addParameter(value instanceof Float ? new ParameterFloat(name, (Float) value)
+                                                                                  : new ParameterString(name, (String) value)));
+        ParametersContainer pc = new ParametersContainer("PC_" + cimId);
+        pc.getParameters().add(pars);
+        Equipment eq = new Equipment(cimId);
+        eq.setModelContainer(mtc);
+        eq.setParametersContainer(pc);
+        return eq;
+    }
+
+    private static Equipment createConverter(String cimId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("machine.name", cimId);
+        parameters.put("SN", 100f);
+        return createEquipment(cimId, "M50", parameters);
+    }
+
+    private static Equipment createRstZone(String zoneName, String pilotPoint) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("machine.name", zoneName);
+        parameters.put("connection.node.name", pilotPoint);
+        parameters.put("PN", 50f);
+        return createEquipment("RST_" + zoneName, "M21", parameters);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DDBManager createDdbManager() {
+        return (DDBManager) Proxy.newProxyInstance(DDBManager.class.getClassLoader(), new Class[] {DDBManager.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "findSimulator":
+                    return EUROSTAG;
+                case "findEquipments":
+                    List<String> cimIds = new ArrayList<>((Collection<String>) args[0]);
+                    queriedCimIds.add(cimIds);
+                    return equipments.stream().filter(eq -> cimIds.contains(eq.getCimId())).collect(Collectors.toList());
+                case "findEquipmentsAll":
+                    allEquipmentsQueryCount++;
+                    return new ArrayList<>(equipments);
+                case "findEquipmentAllCount":
+                case "findModelTemplateContainerAllCount":
+                case "findParametersContainerAllCount":
+                    return equipments.size();
+                case "findInternalsAllCount":
+                case "findConnectionSchemasAllCount":
+                    return 0;
+                case "findConnectionSchemas":
+                case "findInternals":
+                    return Collections.emptyList();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static Network createNetwork(String... generatorIds) {
+        Network network = NetworkFactory.create("test", "test");
+        Substation s = network.newSubstation()
+                .setId("S")
+                .setCountry(Country.FR)
+                .add();
+        VoltageLevel vl1 = s.newVoltageLevel()
+                .setId("VL1")
+                .setNominalV(24f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl1.getBusBreakerView().newBus()
+                .setId("B1")
+                .add();
+        VoltageLevel vl2 = s.newVoltageLevel()
+                .setId("VL2")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl2.getBusBreakerView().newBus()
+                .setId("B2")
+                .add();
+        vl2.newLoad()
+                .setId("L")
+                .setBus("B2")
+                .setConnectableBus("B2")
+                .setP0(50f)
+                .setQ0(10f)
+                .add();
+        s.newTwoWindingsTransformer()
+                .setId("T")
+                .setVoltageLevel1("VL1")
+                .setBus1("B1")
+                .setConnectableBus1("B1")
+                .setRatedU1(24f)
+                .setVoltageLevel2("VL2")
+                .setBus2("B2")
+                .setConnectableBus2("B2")
+                .setRatedU2(400f)
+                .setR(0.2f)
+                .setX(10f)
+                .setG(0f)
+                .setB(0f)
+                .add();
+        for (String generatorId : generatorIds) {
+            vl1.newGenerator()
+                    .setId(generatorId)
+                    .setBus("B1")
+                    .setConnectableBus("B1")
+                    .setMinP(0f)
+                    .setMaxP(100f)
+                    .setTargetP(50f)
+                    .setTargetV(24f)
+                    .setVoltageRegulatorOn(true)
+                    .add();
+        }
+        return network;
+    }
+
+    private String dumpDta(DdbEquipmentDataCache cache, String... generatorIds) throws IOException {
+        DdbDtaImpExp ddbDtaImpExp = new DdbDtaImpExp(new DdbConfig(), null, configExport);
+        ddbDtaImpExp.setEquipmentDataCache(cache);
+        Path workingDir = Files.createDirectory(fileSystem.getPath("/workingdir" + dumpCount++));
+        ddbDtaImpExp.dumpDtaFile(workingDir, DTA_FILENAME, createNetwork(generatorIds), new HashMap<>(), EUROSTAG_VERSION,
+                                 iidm2eurostagId, null, ddbManager);
+        List<String> lines = Files.readAllLines(workingDir.resolve(DTA_FILENAME), StandardCharsets.UTF_8);
+        // skip the header, dated
+        return lines.stream().skip(1).collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fileSystem = Jimfs.newFileSystem(Configuration.unix());
+        InMemoryPlatformConfig platformConfig = new InMemoryPlatformConfig(fileSystem);
+        MapModuleConfig moduleConfig = platformConfig.createModuleConfig(DdExportConfig.MODULE_NAME);
+        moduleConfig.setStringProperty("importExportRST", "true");
+        moduleConfig.setStringProperty("RSTPilotGenerators", "Z1:G1");
+        configExport = DdExportConfig.load(platformConfig);
+
+        equipments.add(createConverter("G1"));
+        equipments.add(createConverter("G2"));
+        equipments.add(createRstZone("Z1", "VL2"));
+        ddbManager = createDdbManager();
+
+        iidm2eurostagId.put("G1", "G1");
+        iidm2eurostagId.put("G2", "G2");
+        iidm2eurostagId.put("B1", "B1");
+        iidm2eurostagId.put("B2", "B2");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fileSystem.close();
+    }
+
+    @Test
+    public void testOnlyMissingEquipmentsQueried() throws IOException {
+        InMemoryEquipmentDataCache cache = new InMemoryEquipmentDataCache();
+
+        dumpDta(cache, "G1");
+        assertEquals(Collections.singletonList(Collections.singletonList("G1")), queriedCimIds);
+        assertEquals(1, allEquipmentsQueryCount);
+
+        // G1 and the RST zones are found in the cache
+        queriedCimIds.clear();
+        dumpDta(cache, "G1", "G2");
+        assertEquals(Collections.singletonList(Collections.singletonList("G2")), queriedCimIds);
+        assertEquals(1, allEquipmentsQueryCount);
+
+        // everything is found in the cache
+        queriedCimIds.clear();
+        dumpDta(cache, "G2", "G1");
+        assertTrue(queriedCimIds.isEmpty());
+        assertEquals(1, allEquipmentsQueryCount);
+    }
+
+    @Test
+    public void testCachedDumpSameAsUncachedDump() throws IOException {
+        InMemoryEquipmentDataCache cache = new InMemoryEquipmentDataCache();
+        dumpDta(cache, "G1");
+        String cachedDta = dumpDta(cache, "G1", "G2");
+        String dta = dumpDta(null, "G1", "G2");
+        assertTrue(dta.contains("G1"));
+        assertTrue(dta.contains("G2"));
+        assertTrue(dta.contains("Z1"));
+        assertEquals(dta, cachedDta);
+    }
+
+    @Test
+    public void testCacheInvalidatedByDdbContentChange() throws IOException {
+        InMemoryEquipmentDataCache cache = new InMemoryEquipmentDataCache();
+        assertFalse(dumpDta(cache, "G1").contains("Z2"));
+
+        // a new RST zone in the dynamic database must not be hidden by the zone cache
+        equipments.add(createRstZone("Z2", "VL2"));
+        queriedCimIds.clear();
+        String cachedDta = dumpDta(cache, "G1");
+        assertTrue(cachedDta.contains("Z2"));
+        assertEquals(Collections.singletonList(Collections.singletonList("G1")), queriedCimIds);
+        assertEquals(2, allEquipmentsQueryCount);
+        assertEquals(dumpDta(null, "G1"), cachedDta);
+    }
+}
@@ -24,7 +24,6 @@ import eu.itesla_project.modules.offline.*;
 import com.powsybl.simulation.securityindexes.SecurityIndex;
 import com.powsybl.simulation.securityindexes.SecurityIndexId;
 import com.powsybl.simulation.securityindexes.SecurityIndexParser;
-import eu.itesla_project.offline.db.util.CsvWriter;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
@@ -37,6 +36,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
@@ -53,13 +54,9 @@ public class MMapOfflineDb implements OfflineDb {
 
     static final Supplier<JsonFactory> JSON_FACTORY = Suppliers.memoize(JsonFactory::new);
 
-    private static final char CSV_SEPARATOR = ';';
-    private static final String SECURITY_INDEXES_XML_FILE_NAME = "security-indexes-xml.csv";
     private static final String PARAMETERS_FILE_NAME = "parameters.json";
     private static final String DEFAULT_WORKFLOW_ID_PREFIX = "workflow-";
 
-    private static final boolean CHECK_MISSING_VALUES = false;
-
     public static final class PersistenceContext implements AutoCloseable {
 
         private final Path workflowDir;
@@ -68,7 +65,7 @@ public class MMapOfflineDb implements OfflineDb {
 
         private final OfflineDbTable table;
 
-        private final CsvWriter securityIndexesXmlWriter;
+        private final SecurityIndexesXmlStore securityIndexesXmlStore;
 
         static OfflineWorkflowCreationParameters readParameters(Path workflowDir) throws IOException {
             Set<Country> countries = null;
@@ -231,7 +228,7 @@ public class MMapOfflineDb implements OfflineDb {
         private PersistenceContext(Path workflowDir, OfflineWorkflowCreationParameters parameters, MemoryMappedFileFactory memoryMappedFileFactory, MMapOfflineDbConfig config) throws IOException {
             this.workflowDir = workflowDir;
             this.parameters = parameters;
-            securityIndexesXmlWriter = new CsvWriter(workflowDir.resolve(SECURITY_INDEXES_XML_FILE_NAME), true, CSV_SEPARATOR);
+            securityIndexesXmlStore = new SecurityIndexesXmlStore(workflowDir);
             table = new OfflineDbTable(workflowDir, OfflineDbTableDescription.load(workflowDir, config), memoryMappedFileFactory);
         }
 
@@ -267,7 +264,7 @@ public class MMapOfflineDb implements OfflineDb {
                 LOGGER.error(e.toString(), e);
             }
             try {
-                securityIndexesXmlWriter.close();
+                securityIndexesXmlStore.close();
             } catch (IOException e) {
                 LOGGER.error(e.toString(), e);
             }
@@ -441,12 +438,11 @@ public class MMapOfflineDb implements OfflineDb {
             PersistenceContext context = getContext(workflowId);
             context.getTable().writeSecurityIndexes(sampleId, securityIndexes);
             context.getTable().getDescription().saveIfChanged(context.getWorkflowDir());
+            SortedMap<Integer, String> xmlByColumn = new TreeMap<>();
             for (SecurityIndex index : securityIndexes) {
-                context.securityIndexesXmlWriter.writeLine(Integer.toString(sampleId),
-                                                           Integer.toString(context.getTable().getDescription().getColumnIndex(index.getId())),
-                                                           index.toXml().replace("[\n\r]", "")); // to remove carriage return from the xml
+                xmlByColumn.put(context.getTable().getDescription().getColumnIndex(index.getId()), index.toXml());
             }
-            context.securityIndexesXmlWriter.flush();
+            context.securityIndexesXmlStore.write(sampleId, xmlByColumn);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -468,20 +464,8 @@ public class MMapOfflineDb implements OfflineDb {
         int securityIndexNum = context.getTable().getDescription().getColumnIndex(securityIndexId);
         Map<Integer, SecurityIndex> securityIndexes = new TreeMap<>();
         try {
-            try (BufferedReader securityIndexesXmlReader = Files.newBufferedReader(context.getWorkflowDir().resolve(SECURITY_INDEXES_XML_FILE_NAME), StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = securityIndexesXmlReader.readLine()) != null) {
-                    String[] tokens = line.split(Character.toString(CSV_SEPARATOR));
-                    int sampleId = Integer.parseInt(tokens[0]);
-                    int securityIndexNum2 = Integer.parseInt(tokens[1]);
-                    if (securityIndexNum2 == securityIndexNum) {
-                        String xml = tokens[2];
-                        try (StringReader reader = new StringReader(xml)) {
-                            SecurityIndex securityIndex = SecurityIndexParser.fromXml(securityIndexId.getContingencyId(), reader).get(0);
-                            securityIndexes.put(sampleId, securityIndex);
-                        }
-                    }
-                }
+            for (Map.Entry<Integer, String> e : context.securityIndexesXmlStore.readColumn(securityIndexNum).entrySet()) {
+                securityIndexes.put(e.getKey(), parseSecurityIndex(securityIndexId, e.getValue()));
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -489,29 +473,32 @@ public class MMapOfflineDb implements OfflineDb {
         return securityIndexes;
     }
 
-    @Override
-    public SecurityIndexSynthesis getSecurityIndexesSynthesis(String workflowId) {
+    /**
+     * Security indexes of a sample, read from the XML stored with the indexes
+     */
+    public Map<SecurityIndexId, SecurityIndex> getSecurityIndexes(String workflowId, int sampleId) {
         PersistenceContext context = getContext(workflowId);
-        SecurityIndexSynthesis synthesis = new SecurityIndexSynthesis();
+        Map<SecurityIndexId, SecurityIndex> securityIndexes = new LinkedHashMap<>();
         try {
-            Map<SecurityIndexId, Boolean> securityIndexIds = new LinkedHashMap<>(); // to keep right order !!!
-            for (SecurityIndexId securityIndexId : context.getTable().getDescription().getSecurityIndexIds()) {
-                securityIndexIds.put(securityIndexId, null);
-            }
-            for (int sampleId = 0; sampleId < context.getTable().getSampleCount().getValue(); sampleId++) {
-                context.getTable().getSecurityIndexesOk(sampleId, securityIndexIds);
-                for (Map.Entry<SecurityIndexId, Boolean> e : securityIndexIds.entrySet()) {
-                    SecurityIndexId securityIndexId = e.getKey();
-                    Boolean ok = e.getValue();
-                    if (ok != null) {
-                        synthesis.addSecurityIndex(securityIndexId, ok);
-                    }
-                }
+            for (Map.Entry<Integer, String> e : context.securityIndexesXmlStore.readSample(sampleId).entrySet()) {
+                SecurityIndexId securityIndexId = context.getTable().getDescription().getSecurityIndexId(e.getKey());
+                securityIndexes.put(securityIndexId, parseSecurityIndex(securityIndexId, e.getValue()));
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return synthesis;
+        return securityIndexes;
+    }
+
+    private static SecurityIndex parseSecurityIndex(SecurityIndexId securityIndexId, String xml) {
+        try (StringReader reader = new StringReader(xml)) {
+            return SecurityIndexParser.fromXml(securityIndexId.getContingencyId(), reader).get(0);
+        }
+    }
+
+    @Override
+    public SecurityIndexSynthesis getSecurityIndexesSynthesis(String workflowId) {
+        return getContext(workflowId).getTable().getSecurityIndexesSynthesis();
     }
 
     interface SampleHandler {
@@ -567,98 +554,70 @@ public class MMapOfflineDb implements OfflineDb {
         }
     }
 
-    public void exportCsv(String workflowId, Writer writer, char delimiter, Predicate<HistoDbNetworkAttributeId> filter,
-                          boolean addSampleColumn, boolean keepAllSamples, boolean addHeader, int startSample, int maxSample) {
-        final boolean[] headerDone = new boolean[1];
-        headerDone[0] = false;
-        read(workflowId, filter, keepAllSamples, startSample, maxSample, (sampleId, tasksStatus, securityIndexesOk, networkAttributesValue) -> {
-            try {
-                if (addHeader && !headerDone[0]) {
-                    headerDone[0] = true;
-
-                    // write csv header
-                    if (addSampleColumn) {
-                        writer.append("sample").append(delimiter);
-                    }
-
-                    for (OfflineTaskType taskType : tasksStatus.keySet()) {
-                        writer.append(taskType.getHistoDbName());
-                        writer.append(delimiter);
-                    }
-
-                    for (SecurityIndexId securityIndexId : securityIndexesOk.keySet()) {
-                        writer.append(securityIndexId.toString());
-                        writer.append(delimiter);
-                    }
-
-                    for (HistoDbNetworkAttributeId networkAttributeId : networkAttributesValue.keySet()) {
-                        writer.append(networkAttributeId.toString());
-                        writer.append(delimiter);
-                    }
-
-                    writer.append("\n");
-                }
-
-                if (addSampleColumn) {
-                    writer.append(Integer.toString(sampleId))
-                            .append(delimiter);
-                }
-
-                for (OfflineTaskStatus taskStatus : tasksStatus.values()) {
-                    if (taskStatus != null) {
-                        writer.append(taskStatus == OfflineTaskStatus.SUCCEED ? "OK" : "NOK");
-                    }
-                    writer.append(delimiter);
-                }
+    private <T> T export(String workflowId, Predicate<HistoDbNetworkAttributeId> filter, boolean keepAllSamples, int startSample,
+                         int maxSamples, ExportTask<T> task) {
+        PersistenceContext context = getContext(workflowId);
+        ExecutorService executorService = Executors.newFixedThreadPool(config.getExportThreads());
+        try {
+            return task.run(new OfflineDbTableExporter(context.getTable(), filter, keepAllSamples, startSample, maxSamples,
+                                                       executorService, config.getExportThreads()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 
-                for (Boolean ok : securityIndexesOk.values()) {
-                    if (ok != null) {
-                        writer.append(ok.toString());
-                    }
-                    writer.append(delimiter);
-                }
+    private interface ExportTask<T> {
+        T run(OfflineDbTableExporter exporter) throws IOException;
+    }
 
-                for (Map.Entry<HistoDbNetworkAttributeId, Float> e : networkAttributesValue.entrySet()) {
-                    HistoDbNetworkAttributeId attributeId = e.getKey();
-                    float value = e.getValue();
-                    if (!Float.isNaN(value)) {
-                        writer.append(Float.toString(value));
-                    } else {
-                        if (CHECK_MISSING_VALUES) {
-                            throw new RuntimeException("Missing value for attribute "
-                                    + attributeId + " and sample " + sampleId);
-                        }
-                    }
-                    writer.append(delimiter);
-                }
+    public void exportCsv(String workflowId, Writer writer, char delimiter, Predicate<HistoDbNetworkAttributeId> filter,
+                          boolean addSampleColumn, boolean keepAllSamples, boolean addHeader, int startSample, int maxSample) {
+        export(workflowId, filter, keepAllSamples, startSample, maxSample, exporter -> {
+            exporter.exportCsv(writer, delimiter, addSampleColumn, addHeader);
+            return null;
+        });
+    }
 
-                writer.append("\n");
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Export the samples to a columnar binary file, readable with {@link OfflineDbColumnarFile}.
+     */
+    public void exportColumnar(String workflowId, Path file, Predicate<HistoDbNetworkAttributeId> filter, boolean keepAllSamples,
+                               int startSample, int maxSamples) {
+        Objects.requireNonNull(file);
+        export(workflowId, filter, keepAllSamples, startSample, maxSamples, exporter -> {
+            exporter.exportColumnar(file);
+            return null;
         });
     }
 
-    @Override
-    public void exportCsv(String workflowId, Writer writer, OfflineDbCsvExportConfig config) {
+    private static Predicate<HistoDbNetworkAttributeId> getAttributeFilter(OfflineDbCsvExportConfig config) {
         Objects.requireNonNull(config);
-        Predicate<HistoDbNetworkAttributeId> pred = null;
         switch (config.getFilter()) {
             case ALL:
-                break;
+                return null;
             case BRANCHES:
-                pred = BRANCH_ATTRIBUTE_FILTER;
-                break;
+                return BRANCH_ATTRIBUTE_FILTER;
             case ACTIVE_POWER:
-                pred = ACTIVE_POWER_ATTRIBUTE_FILTER;
-                break;
+                return ACTIVE_POWER_ATTRIBUTE_FILTER;
             default:
                 throw new AssertionError();
         }
-        exportCsv(workflowId, writer, config.getDelimiter(), pred, config.isAddSampleColumn(), config.isKeepAllSamples(),
+    }
+
+    @Override
+    public void exportCsv(String workflowId, Writer writer, OfflineDbCsvExportConfig config) {
+        exportCsv(workflowId, writer, config.getDelimiter(), getAttributeFilter(config), config.isAddSampleColumn(), config.isKeepAllSamples(),
                 config.isAddHeader(), config.getStartSample(), config.getMaxSamples());
     }
 
+    @Override
+    public void exportColumnar(String workflowId, Path file, OfflineDbCsvExportConfig config) {
+        exportColumnar(workflowId, file, getAttributeFilter(config), config.isKeepAllSamples(), config.getStartSample(),
+                config.getMaxSamples());
+    }
+
     public void exportCsv(String workflowId, Writer writer, char delimiter, String regexFilter, boolean addSampleColumn,
                           boolean keepAllSamples, boolean addHeader, int startSample, int maxSamples) {
         Predicate<HistoDbNetworkAttributeId> filter = null;
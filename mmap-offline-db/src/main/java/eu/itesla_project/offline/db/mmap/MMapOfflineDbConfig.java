@@ -20,11 +20,13 @@ public class MMapOfflineDbConfig {
     private static final int DEFAULT_SAMPLE_CHUNK_SIZE = 1000;
     private static final int DEFAULT_MAX_SECURITY_INDEXES_COUNT = 1000;
     private static final int DEFAULT_MAX_NETWORK_ATTRIBUTES_COUNT = 40000;
+    private static final int DEFAULT_EXPORT_THREADS = Runtime.getRuntime().availableProcessors();
 
     private Path directory;
     private int sampleChunkSize;
     private int maxSecurityIndexesCount;
     private int maxNetworkAttributesCount;
+    private int exportThreads = DEFAULT_EXPORT_THREADS;
 
     public static MMapOfflineDbConfig load() {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("mmap-offlinedb");
@@ -32,7 +34,10 @@ public class MMapOfflineDbConfig {
         int sampleChunkSize = config.getIntProperty("sampleChunkSize", DEFAULT_SAMPLE_CHUNK_SIZE);
         int maxSecurityIndexesCount = config.getIntProperty("maxSecurityIndexesCount", DEFAULT_MAX_SECURITY_INDEXES_COUNT);
         int maxNetworkAttributesCount = config.getIntProperty("maxNetworkAttributesCount", DEFAULT_MAX_NETWORK_ATTRIBUTES_COUNT);
-        return new MMapOfflineDbConfig(directory, sampleChunkSize, maxSecurityIndexesCount, maxNetworkAttributesCount);
+        int exportThreads = config.getIntProperty("exportThreads", DEFAULT_EXPORT_THREADS);
+        MMapOfflineDbConfig dbConfig = new MMapOfflineDbConfig(directory, sampleChunkSize, maxSecurityIndexesCount, maxNetworkAttributesCount);
+        dbConfig.setExportThreads(exportThreads);
+        return dbConfig;
     }
 
     public MMapOfflineDbConfig(Path directory, int sampleChunkSize, int maxSecurityIndexesCount, int maxNetworkAttributesCount) {
@@ -78,4 +83,15 @@ public class MMapOfflineDbConfig {
         this.maxNetworkAttributesCount = maxNetworkAttributesCount;
     }
 
+    public int getExportThreads() {
+        return exportThreads;
+    }
+
+    public void setExportThreads(int exportThreads) {
+        if (exportThreads < 1) {
+            throw new IllegalArgumentException("Invalid export thread count " + exportThreads);
+        }
+        this.exportThreads = exportThreads;
+    }
+
 }
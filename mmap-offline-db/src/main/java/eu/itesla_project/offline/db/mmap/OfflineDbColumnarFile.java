@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.powsybl.simulation.securityindexes.SecurityIndexId;
+import eu.itesla_project.modules.histo.HistoDbAttributeIdParser;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.offline.OfflineTaskStatus;
+import eu.itesla_project.modules.offline.OfflineTaskType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Columnar binary export of the samples of an offline workflow, which can be memory mapped column by column.
+ * <p>
+ * Layout, all values being big endian:
+ * <pre>
+ *     header: magic, version, row count, task column count, security index column count and network attribute
+ *             column count (int), then the name of each column (int byte length and UTF-8 bytes), padded to 8 bytes
+ *     sample ids: int[row count]
+ *     task status columns: byte[row count] each, status ordinal or -1 if not set
+ *     security index columns: byte[row count] each, 1 if ok, 0 if not ok, -1 if not set
+ *     padding to 4 bytes
+ *     network attribute columns: float[row count] each, NaN if not set
+ * </pre>
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineDbColumnarFile implements AutoCloseable {
+
+    static final int MAGIC = 0x4F444243; // "ODBC"
+
+    static final int VERSION = 1;
+
+    static final byte NOT_SET = -1;
+
+    /**
+     * Positions of the columns in the file
+     */
+    static final class Layout {
+
+        private final int rowCount;
+
+        private final int byteColumnCount;
+
+        private final long samplesPosition;
+
+        private final long bytesPosition;
+
+        private final long floatsPosition;
+
+        private final long size;
+
+        Layout(int headerSize, int rowCount, int byteColumnCount, int floatColumnCount) {
+            this.rowCount = rowCount;
+            this.byteColumnCount = byteColumnCount;
+            samplesPosition = align(headerSize, Long.BYTES);
+            bytesPosition = samplesPosition + (long) Integer.BYTES * rowCount;
+            floatsPosition = align(bytesPosition + (long) byteColumnCount * rowCount, Float.BYTES);
+            size = floatsPosition + (long) Float.BYTES * rowCount * floatColumnCount;
+        }
+
+        private static long align(long position, int alignment) {
+            return (position + alignment - 1) / alignment * alignment;
+        }
+
+        long getSamplesPosition(int row) {
+            return samplesPosition + (long) Integer.BYTES * row;
+        }
+
+        long getBytePosition(int column, int row) {
+            return bytesPosition + (long) column * rowCount + row;
+        }
+
+        long getFloatPosition(int column, int row) {
+            return floatsPosition + ((long) column * rowCount + row) * Float.BYTES;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
+    static ByteBuffer createHeader(int rowCount, List<String> taskColumns, List<String> securityIndexColumns, List<String> networkAttributeColumns) {
+        List<byte[]> names = new ArrayList<>();
+        int size = 6 * Integer.BYTES;
+        for (List<String> columns : Arrays.asList(taskColumns, securityIndexColumns, networkAttributeColumns)) {
+            for (String column : columns) {
+                byte[] name = column.getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                size += Integer.BYTES + name.length;
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(size);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(rowCount)
+                .putInt(taskColumns.size())
+                .putInt(securityIndexColumns.size())
+                .putInt(networkAttributeColumns.size());
+        for (byte[] name : names) {
+            header.putInt(name.length).put(name);
+        }
+        header.flip();
+        return header;
+    }
+
+    private final FileChannel channel;
+
+    private final int rowCount;
+
+    private final List<OfflineTaskType> taskTypes = new ArrayList<>();
+
+    private final List<SecurityIndexId> securityIndexIds = new ArrayList<>();
+
+    private final List<HistoDbNetworkAttributeId> networkAttributeIds = new ArrayList<>();
+
+    private final Layout layout;
+
+    public OfflineDbColumnarFile(Path file) throws IOException {
+        Objects.requireNonNull(file);
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not an offline db columnar file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported offline db columnar file version " + version);
+            }
+            rowCount = header.getInt();
+            int taskCount = header.getInt();
+            int securityIndexCount = header.getInt();
+            int networkAttributeCount = header.getInt();
+            for (int i = 0; i < taskCount; i++) {
+                String name = readName(header);
+                taskTypes.add(OfflineTaskType.valueOf(name.substring("TASK_".length())));
+            }
+            for (int i = 0; i < securityIndexCount; i++) {
+                securityIndexIds.add(SecurityIndexId.fromString(readName(header)));
+            }
+            for (int i = 0; i < networkAttributeCount; i++) {
+                networkAttributeIds.add((HistoDbNetworkAttributeId) HistoDbAttributeIdParser.parse(readName(header)));
+            }
+            layout = new Layout(header.position(), rowCount, taskCount + securityIndexCount, networkAttributeCount);
+            if (channel.size() < layout.getSize()) {
+                throw new IOException(file + " is truncated");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static String readName(ByteBuffer header) {
+        byte[] name = new byte[header.getInt()];
+        header.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<OfflineTaskType> getTaskTypes() {
+        return Collections.unmodifiableList(taskTypes);
+    }
+
+    public List<SecurityIndexId> getSecurityIndexIds() {
+        return Collections.unmodifiableList(securityIndexIds);
+    }
+
+    public List<HistoDbNetworkAttributeId> getNetworkAttributeIds() {
+        return Collections.unmodifiableList(networkAttributeIds);
+    }
+
+    private ByteBuffer map(long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    public IntBuffer getSampleIds() throws IOException {
+        return map(layout.getSamplesPosition(0), (long) Integer.BYTES * rowCount).asIntBuffer();
+    }
+
+    /**
+     * @return the status ordinal of each row, -1 if not set
+     */
+    public ByteBuffer getTaskStatusColumn(OfflineTaskType taskType) throws IOException {
+        int column = taskTypes.indexOf(taskType);
+        if (column == -1) {
+            throw new IllegalArgumentException("Task " + taskType + " not exported");
+        }
+        return map(layout.getBytePosition(column, 0), rowCount);
+    }
+
+    public static OfflineTaskStatus toTaskStatus(byte value) {
+        return value == NOT_SET ? null : OfflineTaskStatus.values()[value];
+    }
+
+    /**
+     * @return 1 if the security index is ok, 0 if not ok, -1 if not set, for each row
+     */
+    public ByteBuffer getSecurityIndexColumn(int securityIndexNum) throws IOException {
+        if (securityIndexNum < 0 || securityIndexNum >= securityIndexIds.size()) {
+            throw new IllegalArgumentException("Invalid security index column " + securityIndexNum);
+        }
+        return map(layout.getBytePosition(taskTypes.size() + securityIndexNum, 0), rowCount);
+    }
+
+    /**
+     * @return the value of each row, NaN if not set
+     */
+    public FloatBuffer getNetworkAttributeColumn(int networkAttributeNum) throws IOException {
+        if (networkAttributeNum < 0 || networkAttributeNum >= networkAttributeIds.size()) {
+            throw new IllegalArgumentException("Invalid network attribute column " + networkAttributeNum);
+        }
+        return map(layout.getFloatPosition(networkAttributeNum, 0), (long) Float.BYTES * rowCount).asFloatBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
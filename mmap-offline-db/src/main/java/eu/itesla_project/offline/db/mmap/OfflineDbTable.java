@@ -10,15 +10,15 @@ import com.powsybl.commons.io.mmap.MemoryMappedFileFactory;
 import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
 import eu.itesla_project.modules.offline.OfflineTaskStatus;
 import eu.itesla_project.modules.offline.OfflineTaskType;
+import eu.itesla_project.modules.offline.SecurityIndexSynthesis;
 import com.powsybl.simulation.securityindexes.SecurityIndex;
 import com.powsybl.simulation.securityindexes.SecurityIndexId;
 import eu.itesla_project.offline.db.util.PersistentCounter;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -38,7 +38,10 @@ public class OfflineDbTable implements AutoCloseable {
 
     private final PersistentCounter sampleCount;
 
-    private final List<OfflineDbTableChunk> openedTableChunks = new ArrayList<>();
+    private final SecurityIndexesCounters securityIndexesCounters;
+
+    // copy on write array of the opened chunks, so that a chunk lookup does not need to lock
+    private volatile OfflineDbTableChunk[] openedTableChunks = new OfflineDbTableChunk[0];
 
     private final Lock tableChunkLock = new ReentrantLock();
 
@@ -47,6 +50,32 @@ public class OfflineDbTable implements AutoCloseable {
         this.description = description;
         this.memoryMappedFileFactory = memoryMappedFileFactory;
         sampleCount = new PersistentCounter(memoryMappedFileFactory.create(workflowDir.resolve(SAMPLE_COUNT_FILE_NAME)), 0);
+        securityIndexesCounters = new SecurityIndexesCounters(memoryMappedFileFactory.create(workflowDir.resolve(SecurityIndexesCounters.FILE_NAME)),
+                                                              description.getMaxSecurityIndexesCount());
+        if (!securityIndexesCounters.isValid()) {
+            countSecurityIndexes();
+        }
+    }
+
+    /**
+     * Compute the security indexes counters of a table created before they existed, or not closed cleanly
+     */
+    private void countSecurityIndexes() throws IOException {
+        int securityIndexesCount = description.getSecurityIndexesCount();
+        if (securityIndexesCount == 0) {
+            return;
+        }
+        int[] cells = new int[securityIndexesCount];
+        for (int i = 0; i < securityIndexesCount; i++) {
+            cells[i] = description.getSecurityIndexBufferPosition(0, description.getSecurityIndexId(i));
+        }
+        byte[] values = new byte[securityIndexesCount];
+        for (int sample = 0; sample < sampleCount.getValue(); sample++) {
+            readRow(sample, cells, values, 0, new int[0], null, 0);
+            for (int i = 0; i < securityIndexesCount; i++) {
+                securityIndexesCounters.update(i, (byte) -1, values[i]);
+            }
+        }
     }
 
     private int getChunk(int sample) {
@@ -59,14 +88,22 @@ public class OfflineDbTable implements AutoCloseable {
 
     private OfflineDbTableChunk getTableChunk(int sample) throws IOException {
         int chunk = getChunk(sample);
+        OfflineDbTableChunk[] chunks = openedTableChunks;
+        if (chunk < chunks.length) {
+            return chunks[chunk];
+        }
         tableChunkLock.lock();
         try {
-            if (chunk >= openedTableChunks.size()) {
-                for (int i = openedTableChunks.size(); i <= chunk; i++) {
-                    openedTableChunks.add(new OfflineDbTableChunk(workflowDir, description, memoryMappedFileFactory, chunk));
+            chunks = openedTableChunks;
+            if (chunk >= chunks.length) {
+                OfflineDbTableChunk[] newChunks = Arrays.copyOf(chunks, chunk + 1);
+                for (int i = chunks.length; i <= chunk; i++) {
+                    newChunks[i] = new OfflineDbTableChunk(workflowDir, description, memoryMappedFileFactory, securityIndexesCounters, i);
                 }
+                openedTableChunks = newChunks;
+                chunks = newChunks;
             }
-            return openedTableChunks.get(chunk);
+            return chunks[chunk];
         } finally {
             tableChunkLock.unlock();
         }
@@ -128,6 +165,22 @@ public class OfflineDbTable implements AutoCloseable {
         getTableChunk(sample).getNetworkAttributesValue(getSampleInChunk(sample), networkAttributesValue);
     }
 
+    SecurityIndexSynthesis getSecurityIndexesSynthesis() {
+        SecurityIndexSynthesis synthesis = new SecurityIndexSynthesis();
+        for (int i = 0; i < description.getSecurityIndexesCount(); i++) {
+            int okCount = securityIndexesCounters.getOkCount(i);
+            int nokCount = securityIndexesCounters.getNokCount(i);
+            if (okCount + nokCount > 0) {
+                synthesis.addSecurityIndexes(description.getSecurityIndexId(i), okCount, nokCount);
+            }
+        }
+        return synthesis;
+    }
+
+    void readRow(int sample, int[] byteCells, byte[] bytes, int bytesOffset, int[] floatCells, float[] floats, int floatsOffset) throws IOException {
+        getTableChunk(sample).readRow(getSampleInChunk(sample), byteCells, bytes, bytesOffset, floatCells, floats, floatsOffset);
+    }
+
     @Override
     public void close() throws IOException {
         tableChunkLock.lock();
@@ -135,7 +188,8 @@ public class OfflineDbTable implements AutoCloseable {
             for (OfflineDbTableChunk chunk : openedTableChunks) {
                 chunk.close();
             }
-            openedTableChunks.clear();
+            openedTableChunks = new OfflineDbTableChunk[0];
+            securityIndexesCounters.close();
         } finally {
             tableChunkLock.unlock();
         }
@@ -19,10 +19,17 @@ import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
+ * A chunk of the offline db table, i.e. the rows of {@link OfflineDbTableDescription#getSampleChunkSize()}
+ * consecutive samples, stored in a memory mapped file.
+ * <p>
+ * The chunk is not locked: each sample owns a disjoint row of the buffer and only absolute get and put
+ * operations, which do not change the state of the buffer, are used, so that writers of different samples
+ * run in parallel. Writes to a row are published by a release store to a per row stamp, which is read
+ * back before reading the row, so that a reader sees all the writes of a sample completed before its read.
+ *
  * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
  */
 class OfflineDbTableChunk implements AutoCloseable {
@@ -33,55 +40,70 @@ class OfflineDbTableChunk implements AutoCloseable {
 
     private final ByteBuffer buffer;
 
-    private final Lock bufferLock = new ReentrantLock();
+    private final AtomicIntegerArray rowStamps;
 
-    OfflineDbTableChunk(Path workflowDir, OfflineDbTableDescription description, MemoryMappedFileFactory memoryMappedFileFactory, int chunk) throws IOException {
+    private final SecurityIndexesCounters securityIndexesCounters;
+
+    OfflineDbTableChunk(Path workflowDir, OfflineDbTableDescription description, MemoryMappedFileFactory memoryMappedFileFactory,
+                        SecurityIndexesCounters securityIndexesCounters, int chunk) throws IOException {
         this.description = description;
+        this.securityIndexesCounters = securityIndexesCounters;
         memoryMappedFile = memoryMappedFileFactory.create(workflowDir.resolve("offlinedb." + chunk));
         boolean exists = memoryMappedFile.exists();
         buffer = memoryMappedFile.getBuffer(description.getRowSize() * description.getSampleChunkSize());
         if (!exists) {
             resetBuffer();
         }
+        // the initialized buffer is made visible to other threads by the volatile publication of the chunk in the table
+        rowStamps = new AtomicIntegerArray(description.getSampleChunkSize());
     }
 
     private void resetBuffer() {
         // init the buffer with default values
+        int rowSize = description.getRowSize();
+        int tasksStatusRowSize = OfflineDbTableDescription.getTasksStatusRowSize();
+        int securityIndexesRowSize = description.getSecurityIndexesRowSize();
         for (int sampleId = 0; sampleId < description.getSampleChunkSize(); sampleId++) {
-            for (OfflineTaskType ignored : OfflineTaskType.values()) {
-                buffer.put((byte) -1);
-            }
-            for (int i = 0; i < description.getMaxSecurityIndexesCount(); i++) {
-                buffer.put((byte) -1);
+            int position = sampleId * rowSize;
+            for (int i = 0; i < tasksStatusRowSize + securityIndexesRowSize; i++) {
+                buffer.put(position++, (byte) -1);
             }
             for (int i = 0; i < description.getMaxNetworkAttributesCount(); i++) {
-                buffer.putFloat(Float.NaN);
+                buffer.putFloat(position, Float.NaN);
+                position += Float.BYTES;
             }
         }
+    }
 
-        buffer.rewind();
+    private void publish(int sample) {
+        // only the memory ordering matters, not the stamp value, so concurrent writers of a sample may lose an increment
+        rowStamps.lazySet(sample, rowStamps.get(sample) + 1);
+    }
+
+    private void acquire(int sample) {
+        rowStamps.get(sample);
     }
 
     void writeTaskStatus(int sample, OfflineTaskType taskType, OfflineTaskStatus taskStatus) {
-        bufferLock.lock();
-        try {
-            buffer.put(description.getTaskTypeBufferPosition(sample, taskType), (byte) taskStatus.ordinal());
-        } finally {
-            bufferLock.unlock();
-        }
+        buffer.put(description.getTaskTypeBufferPosition(sample, taskType), (byte) taskStatus.ordinal());
+        publish(sample);
     }
 
     private static byte okToByte(boolean ok) {
         return ok ? (byte) 1 : 0;
     }
 
+    private void putSecurityIndex(int sample, SecurityIndexId securityIndexId, boolean ok) {
+        int position = description.getSecurityIndexBufferPosition(sample, securityIndexId);
+        byte oldValue = buffer.get(position);
+        byte newValue = okToByte(ok);
+        buffer.put(position, newValue);
+        securityIndexesCounters.update(description.getColumnIndex(securityIndexId), oldValue, newValue);
+    }
+
     void writeSecurityIndex(int sample, SecurityIndexId securityIndexId, boolean ok) {
-        bufferLock.lock();
-        try {
-            buffer.put(description.getSecurityIndexBufferPosition(sample, securityIndexId), okToByte(ok));
-        } finally {
-            bufferLock.unlock();
-        }
+        putSecurityIndex(sample, securityIndexId, ok);
+        publish(sample);
     }
 
     void writeSecurityIndex(int sample, SecurityIndex securityIndex) {
@@ -89,36 +111,24 @@ class OfflineDbTableChunk implements AutoCloseable {
     }
 
     void writeSecurityIndexes(int sample, Collection<SecurityIndex> securityIndexes) {
-        bufferLock.lock();
-        try {
-            for (SecurityIndex securityIndex : securityIndexes) {
-                buffer.put(description.getSecurityIndexBufferPosition(sample, securityIndex.getId()), okToByte(securityIndex.isOk()));
-            }
-        } finally {
-            bufferLock.unlock();
+        for (SecurityIndex securityIndex : securityIndexes) {
+            putSecurityIndex(sample, securityIndex.getId(), securityIndex.isOk());
         }
+        publish(sample);
     }
 
     void writeNetworkAttributeValue(int sample, HistoDbNetworkAttributeId attributeId, float value) {
-        bufferLock.lock();
-        try {
-            buffer.putFloat(description.getNetworkAttributeBufferPosition(sample, attributeId), value);
-        } finally {
-            bufferLock.unlock();
-        }
+        buffer.putFloat(description.getNetworkAttributeBufferPosition(sample, attributeId), value);
+        publish(sample);
     }
 
     void writeNetworkAttributesValue(int sample, Map<HistoDbNetworkAttributeId, Float> values) {
-        bufferLock.lock();
-        try {
-            for (Map.Entry<HistoDbNetworkAttributeId, Float> entry : values.entrySet()) {
-                HistoDbNetworkAttributeId attributeId = entry.getKey();
-                float value = entry.getValue();
-                buffer.putFloat(description.getNetworkAttributeBufferPosition(sample, attributeId), value);
-            }
-        } finally {
-            bufferLock.unlock();
+        for (Map.Entry<HistoDbNetworkAttributeId, Float> entry : values.entrySet()) {
+            HistoDbNetworkAttributeId attributeId = entry.getKey();
+            float value = entry.getValue();
+            buffer.putFloat(description.getNetworkAttributeBufferPosition(sample, attributeId), value);
         }
+        publish(sample);
     }
 
     private static OfflineTaskStatus intToTaskStatus(int i) {
@@ -126,24 +136,16 @@ class OfflineDbTableChunk implements AutoCloseable {
     }
 
     OfflineTaskStatus getTaskStatus(int sample, OfflineTaskType taskType) {
-        bufferLock.lock();
-        try {
-            int i = buffer.get(description.getTaskTypeBufferPosition(sample, taskType));
-            return intToTaskStatus(i);
-        } finally {
-            bufferLock.unlock();
-        }
+        acquire(sample);
+        int i = buffer.get(description.getTaskTypeBufferPosition(sample, taskType));
+        return intToTaskStatus(i);
     }
 
     void getTasksStatus(int sample, Map<OfflineTaskType, OfflineTaskStatus> tasksStatus) {
-        bufferLock.lock();
-        try {
-            for (OfflineTaskType taskType : OfflineTaskType.values()) {
-                int i = buffer.get(description.getTaskTypeBufferPosition(sample, taskType));
-                tasksStatus.put(taskType, intToTaskStatus(i));
-            }
-        } finally {
-            bufferLock.unlock();
+        acquire(sample);
+        for (OfflineTaskType taskType : OfflineTaskType.values()) {
+            int i = buffer.get(description.getTaskTypeBufferPosition(sample, taskType));
+            tasksStatus.put(taskType, intToTaskStatus(i));
         }
     }
 
@@ -157,46 +159,47 @@ class OfflineDbTableChunk implements AutoCloseable {
     }
 
     Boolean isSecurityIndexOk(int sample, SecurityIndexId securityIndexId) {
-        bufferLock.lock();
-        try {
-            return intToSecurityIndexOk(buffer.get(description.getSecurityIndexBufferPosition(sample, securityIndexId)));
-        } finally {
-            bufferLock.unlock();
-        }
+        acquire(sample);
+        return intToSecurityIndexOk(buffer.get(description.getSecurityIndexBufferPosition(sample, securityIndexId)));
     }
 
     void getSecurityIndexesOk(int sample, Map<SecurityIndexId, Boolean> securityIndexesOk) {
-        bufferLock.lock();
-        try {
-            for (Map.Entry<SecurityIndexId, Boolean> e : securityIndexesOk.entrySet()) {
-                SecurityIndexId securityIndexId = e.getKey();
-                Boolean ok = intToSecurityIndexOk(buffer.get(description.getSecurityIndexBufferPosition(sample, securityIndexId)));
-                e.setValue(ok);
-            }
-        } finally {
-            bufferLock.unlock();
+        acquire(sample);
+        for (Map.Entry<SecurityIndexId, Boolean> e : securityIndexesOk.entrySet()) {
+            SecurityIndexId securityIndexId = e.getKey();
+            Boolean ok = intToSecurityIndexOk(buffer.get(description.getSecurityIndexBufferPosition(sample, securityIndexId)));
+            e.setValue(ok);
         }
     }
 
     float getNetworkAttributeValue(int sample, HistoDbNetworkAttributeId attributeId) {
-        bufferLock.lock();
-        try {
-            return buffer.getFloat(description.getNetworkAttributeBufferPosition(sample, attributeId));
-        } finally {
-            bufferLock.unlock();
-        }
+        acquire(sample);
+        return buffer.getFloat(description.getNetworkAttributeBufferPosition(sample, attributeId));
     }
 
     void getNetworkAttributesValue(int sample, Map<HistoDbNetworkAttributeId, Float> networkAttributesValue) {
-        bufferLock.lock();
-        try {
-            for (Map.Entry<HistoDbNetworkAttributeId, Float> e : networkAttributesValue.entrySet()) {
-                HistoDbNetworkAttributeId attributeId = e.getKey();
-                float value = buffer.getFloat(description.getNetworkAttributeBufferPosition(sample, attributeId));
-                e.setValue(value);
-            }
-        } finally {
-            bufferLock.unlock();
+        acquire(sample);
+        for (Map.Entry<HistoDbNetworkAttributeId, Float> e : networkAttributesValue.entrySet()) {
+            HistoDbNetworkAttributeId attributeId = e.getKey();
+            float value = buffer.getFloat(description.getNetworkAttributeBufferPosition(sample, attributeId));
+            e.setValue(value);
+        }
+    }
+
+    /**
+     * Read some cells of a row into primitive arrays
+     *
+     * @param byteCells positions in the row of the task status and security index cells to read
+     * @param floatCells positions in the row of the network attribute cells to read
+     */
+    void readRow(int sample, int[] byteCells, byte[] bytes, int bytesOffset, int[] floatCells, float[] floats, int floatsOffset) {
+        acquire(sample);
+        int rowPosition = sample * description.getRowSize();
+        for (int i = 0; i < byteCells.length; i++) {
+            bytes[bytesOffset + i] = buffer.get(rowPosition + byteCells[i]);
+        }
+        for (int i = 0; i < floatCells.length; i++) {
+            floats[floatsOffset + i] = buffer.getFloat(rowPosition + floatCells[i]);
         }
     }
 
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -38,11 +39,13 @@ public class OfflineDbTableDescription {
     private static final int TASK_STATUS_CELL_SIZE = Byte.BYTES;
     private static final int SECURITY_INDEX_CELL_SIZE = Byte.BYTES;
     private static final int NETWORK_ATTRIBUTE_CELL_SIZE = Float.BYTES;
+    private static final int TASKS_STATUS_ROW_SIZE = OfflineTaskType.values().length * TASK_STATUS_CELL_SIZE;
 
     private final int sampleChunkSize;
     private final int maxSecurityIndexesCount;
     private final int maxNetworkAttributesCount;
 
+    // column index maps are read without locking, new columns are added under the lock of the column list
     private final List<SecurityIndexId> securityIndexes;
     private final Map<SecurityIndexId, Integer> securityIndexesColumnIndex;
     private final Lock securityIndexesLock = new ReentrantLock();
@@ -122,12 +125,12 @@ public class OfflineDbTableDescription {
         this.maxSecurityIndexesCount = maxSecurityIndexesCount;
         this.maxNetworkAttributesCount = maxNetworkAttributesCount;
         this.securityIndexes = Objects.requireNonNull(securityIndexes);
-        securityIndexesColumnIndex = new HashMap<>(securityIndexes.size());
+        securityIndexesColumnIndex = new ConcurrentHashMap<>(securityIndexes.size());
         for (int i = 0; i < securityIndexes.size(); i++) {
             securityIndexesColumnIndex.put(securityIndexes.get(i), i);
         }
         this.networkAttributes = Objects.requireNonNull(networkAttributes);
-        networkAttributesColumnIndex = new HashMap<>(networkAttributes.size());
+        networkAttributesColumnIndex = new ConcurrentHashMap<>(networkAttributes.size());
         for (int i = 0; i < networkAttributes.size(); i++) {
             networkAttributesColumnIndex.put(networkAttributes.get(i), i);
         }
@@ -189,11 +192,15 @@ public class OfflineDbTableDescription {
     }
 
     int getColumnIndex(SecurityIndexId securityIndexId) {
+        Integer index = securityIndexesColumnIndex.get(securityIndexId);
+        if (index != null) {
+            return index;
+        }
         securityIndexesLock.lock();
         try {
-            Integer index = securityIndexesColumnIndex.get(securityIndexId);
+            index = securityIndexesColumnIndex.get(securityIndexId);
             if (index == null) {
-                if (securityIndexes.size() > maxSecurityIndexesCount) {
+                if (securityIndexes.size() >= maxSecurityIndexesCount) {
                     throw new RuntimeException("Max number of security indexes reached (" + maxSecurityIndexesCount + ")");
                 }
                 index = securityIndexes.size();
@@ -220,14 +227,18 @@ public class OfflineDbTableDescription {
     }
 
     int getColumnIndex(HistoDbNetworkAttributeId attributeId) {
+        Integer index = networkAttributesColumnIndex.get(attributeId);
+        if (index != null) {
+            return index;
+        }
         networkAttributesLock.lock();
         try {
-            Integer index = networkAttributesColumnIndex.get(attributeId);
+            index = networkAttributesColumnIndex.get(attributeId);
             if (index == null) {
-                if (networkAttributes.size() > maxNetworkAttributesCount) {
+                if (networkAttributes.size() >= maxNetworkAttributesCount) {
                     throw new RuntimeException("Max number of network attributes reached (" + maxNetworkAttributesCount + ")");
                 }
-                index = networkAttributesColumnIndex.size();
+                index = networkAttributes.size();
                 networkAttributes.add(attributeId);
                 networkAttributesColumnIndex.put(attributeId, index);
                 changed = true;
@@ -251,7 +262,7 @@ public class OfflineDbTableDescription {
     }
 
     static int getTasksStatusRowSize() {
-        return OfflineTaskType.values().length * TASK_STATUS_CELL_SIZE;
+        return TASKS_STATUS_ROW_SIZE;
     }
 
     int getSecurityIndexesRowSize() {
@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.google.common.base.Predicate;
+import com.powsybl.simulation.securityindexes.SecurityIndexId;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.offline.OfflineTaskStatus;
+import eu.itesla_project.modules.offline.OfflineTaskType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Export of a range of samples of an offline db table, restricted to the task status, the security indexes and
+ * a projection of the network attributes.
+ * <p>
+ * The samples are split in ranges read in parallel: only the projected cells of each row are copied to primitive
+ * buffers, and the ranges are written in sample order so that the output does not depend on the parallelism.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class OfflineDbTableExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineDbTableExporter.class);
+
+    private static final int RANGE_SIZE = 1024;
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private static final byte SUCCEED = (byte) OfflineTaskStatus.SUCCEED.ordinal();
+
+    /**
+     * Projected cells of a range of samples, row by row
+     */
+    private static final class Rows {
+
+        private int count = 0;
+
+        private final int[] samples;
+
+        private final byte[] bytes;
+
+        private final float[] floats;
+
+        private Rows(int maxCount, int byteCellCount, int floatCellCount) {
+            samples = new int[maxCount];
+            bytes = new byte[maxCount * byteCellCount];
+            floats = new float[maxCount * floatCellCount];
+        }
+    }
+
+    private final OfflineDbTable table;
+
+    private final ExecutorService executorService;
+
+    private final int parallelism;
+
+    private final boolean keepAllSamples;
+
+    private final int startSample;
+
+    private final int endSample;
+
+    private final List<SecurityIndexId> securityIndexIds = new ArrayList<>();
+
+    private final List<HistoDbNetworkAttributeId> networkAttributeIds = new ArrayList<>();
+
+    // row positions of the task status cells followed by the security index cells
+    private final int[] byteCells;
+
+    // row positions of the network attribute cells
+    private final int[] floatCells;
+
+    private final int[] impactAnalysisCell;
+
+    OfflineDbTableExporter(OfflineDbTable table, Predicate<HistoDbNetworkAttributeId> filter, boolean keepAllSamples,
+                           int startSample, int maxSamples, ExecutorService executorService, int parallelism) {
+        this.table = Objects.requireNonNull(table);
+        this.executorService = Objects.requireNonNull(executorService);
+        this.parallelism = parallelism;
+        this.keepAllSamples = keepAllSamples;
+        this.startSample = startSample;
+
+        int sampleCount = table.getSampleCount().getValue();
+        endSample = maxSamples != -1 && (sampleCount - startSample) > maxSamples ? startSample + maxSamples : sampleCount;
+        if (startSample >= endSample) {
+            throw new RuntimeException("startSample >= sampleCount");
+        }
+
+        OfflineDbTableDescription description = table.getDescription();
+        OfflineTaskType[] taskTypes = OfflineTaskType.values();
+        for (int i = 0; i < description.getSecurityIndexesCount(); i++) {
+            securityIndexIds.add(description.getSecurityIndexId(i));
+        }
+        Collection<HistoDbNetworkAttributeId> allNetworkAttributeIds = description.getNetworkAttributeIds();
+        for (HistoDbNetworkAttributeId networkAttributeId : allNetworkAttributeIds) {
+            if (filter == null || filter.apply(networkAttributeId)) {
+                networkAttributeIds.add(networkAttributeId);
+            }
+        }
+        if (networkAttributeIds.size() != allNetworkAttributeIds.size()) {
+            LOGGER.info("{}/{} of the attributes are exported", networkAttributeIds.size(), allNetworkAttributeIds.size());
+        }
+
+        byteCells = new int[taskTypes.length + securityIndexIds.size()];
+        for (OfflineTaskType taskType : taskTypes) {
+            byteCells[taskType.ordinal()] = description.getTaskTypeBufferPosition(0, taskType);
+        }
+        for (int i = 0; i < securityIndexIds.size(); i++) {
+            byteCells[taskTypes.length + i] = description.getSecurityIndexBufferPosition(0, securityIndexIds.get(i));
+        }
+        floatCells = new int[networkAttributeIds.size()];
+        for (int i = 0; i < networkAttributeIds.size(); i++) {
+            floatCells[i] = description.getNetworkAttributeBufferPosition(0, networkAttributeIds.get(i));
+        }
+        impactAnalysisCell = new int[] {byteCells[OfflineTaskType.IMPACT_ANALYSIS.ordinal()]};
+    }
+
+    private boolean isKept(int sample, byte[] status) throws IOException {
+        if (keepAllSamples) {
+            return true;
+        }
+        table.readRow(sample, impactAnalysisCell, status, 0, NO_CELLS, null, 0);
+        return status[0] == SUCCEED;
+    }
+
+    private Rows readRows(int[] samples, int from, int to) throws IOException {
+        Rows rows = new Rows(to - from, byteCells.length, floatCells.length);
+        for (int i = from; i < to; i++) {
+            int sample = samples[i];
+            table.readRow(sample, byteCells, rows.bytes, rows.count * byteCells.length, floatCells, rows.floats, rows.count * floatCells.length);
+            rows.samples[rows.count++] = sample;
+        }
+        return rows;
+    }
+
+    private Rows readRows(int from, int to) throws IOException {
+        byte[] status = new byte[1];
+        int[] samples = new int[to - from];
+        int count = 0;
+        for (int sample = from; sample < to; sample++) {
+            if (isKept(sample, status)) {
+                samples[count++] = sample;
+            }
+        }
+        return readRows(samples, 0, count);
+    }
+
+    private interface RangeTask<T> {
+        T call(int from, int to) throws IOException;
+    }
+
+    private interface RangeConsumer<T> {
+        void accept(T result) throws IOException;
+    }
+
+    /**
+     * Process [from, to) by ranges on the executor, at most 2 ranges per thread in flight, the results being
+     * consumed in range order by the calling thread.
+     */
+    private <T> void forEachRange(int from, int to, RangeTask<T> task, RangeConsumer<T> consumer) throws IOException {
+        Deque<Future<T>> futures = new ArrayDeque<>();
+        int next = from;
+        try {
+            while (next < to || !futures.isEmpty()) {
+                while (next < to && futures.size() < 2 * parallelism) {
+                    int rangeFrom = next;
+                    int rangeTo = Math.min(next + RANGE_SIZE, to);
+                    futures.add(executorService.submit(() -> task.call(rangeFrom, rangeTo)));
+                    next = rangeTo;
+                }
+                consumer.accept(getResult(futures.poll()));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void writeCsvHeader(Writer writer, char delimiter, boolean addSampleColumn) throws IOException {
+        if (addSampleColumn) {
+            writer.append("sample").append(delimiter);
+        }
+        for (OfflineTaskType taskType : OfflineTaskType.values()) {
+            writer.append(taskType.getHistoDbName()).append(delimiter);
+        }
+        for (SecurityIndexId securityIndexId : securityIndexIds) {
+            writer.append(securityIndexId.toString()).append(delimiter);
+        }
+        for (HistoDbNetworkAttributeId networkAttributeId : networkAttributeIds) {
+            writer.append(networkAttributeId.toString()).append(delimiter);
+        }
+        writer.append("\n");
+    }
+
+    private String formatCsvRows(Rows rows, char delimiter, boolean addSampleColumn) {
+        int taskCount = OfflineTaskType.values().length;
+        StringBuilder builder = new StringBuilder(rows.count * (byteCells.length * 5 + floatCells.length * 12));
+        for (int row = 0; row < rows.count; row++) {
+            if (addSampleColumn) {
+                builder.append(rows.samples[row]).append(delimiter);
+            }
+            for (int i = 0; i < byteCells.length; i++) {
+                byte value = rows.bytes[row * byteCells.length + i];
+                if (value != OfflineDbColumnarFile.NOT_SET) {
+                    if (i < taskCount) {
+                        builder.append(value == SUCCEED ? "OK" : "NOK");
+                    } else {
+                        builder.append(value == 1);
+                    }
+                }
+                builder.append(delimiter);
+            }
+            for (int i = 0; i < floatCells.length; i++) {
+                float value = rows.floats[row * floatCells.length + i];
+                if (!Float.isNaN(value)) {
+                    builder.append(value);
+                }
+                builder.append(delimiter);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    void exportCsv(Writer writer, char delimiter, boolean addSampleColumn, boolean addHeader) throws IOException {
+        Objects.requireNonNull(writer);
+        boolean[] headerDone = new boolean[] {!addHeader};
+        forEachRange(startSample, endSample, (from, to) -> {
+            Rows rows = readRows(from, to);
+            return rows.count > 0 ? formatCsvRows(rows, delimiter, addSampleColumn) : null;
+        }, csvRows -> {
+            if (csvRows != null) {
+                if (!headerDone[0]) {
+                    headerDone[0] = true;
+                    writeCsvHeader(writer, delimiter, addSampleColumn);
+                }
+                writer.write(csvRows);
+            }
+        });
+    }
+
+    private int[] getKeptSamples() throws IOException {
+        if (keepAllSamples) {
+            int[] samples = new int[endSample - startSample];
+            Arrays.setAll(samples, i -> startSample + i);
+            return samples;
+        }
+        int[][] samples = new int[1][endSample - startSample];
+        int[] count = new int[1];
+        forEachRange(startSample, endSample, (from, to) -> {
+            byte[] status = new byte[1];
+            int[] kept = new int[to - from];
+            int keptCount = 0;
+            for (int sample = from; sample < to; sample++) {
+                if (isKept(sample, status)) {
+                    kept[keptCount++] = sample;
+                }
+            }
+            return Arrays.copyOf(kept, keptCount);
+        }, kept -> {
+            System.arraycopy(kept, 0, samples[0], count[0], kept.length);
+            count[0] += kept.length;
+        });
+        return Arrays.copyOf(samples[0], count[0]);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void writeColumns(FileChannel channel, OfflineDbColumnarFile.Layout layout, int firstRow, Rows rows) throws IOException {
+        ByteBuffer samples = ByteBuffer.allocate(Integer.BYTES * rows.count);
+        samples.asIntBuffer().put(rows.samples, 0, rows.count);
+        write(channel, samples, layout.getSamplesPosition(firstRow));
+
+        ByteBuffer bytes = ByteBuffer.allocate(rows.count);
+        for (int column = 0; column < byteCells.length; column++) {
+            bytes.clear();
+            for (int row = 0; row < rows.count; row++) {
+                bytes.put(rows.bytes[row * byteCells.length + column]);
+            }
+            bytes.flip();
+            write(channel, bytes, layout.getBytePosition(column, firstRow));
+        }
+
+        ByteBuffer floats = ByteBuffer.allocate(Float.BYTES * rows.count);
+        for (int column = 0; column < floatCells.length; column++) {
+            floats.clear();
+            for (int row = 0; row < rows.count; row++) {
+                floats.putFloat(rows.floats[row * floatCells.length + column]);
+            }
+            floats.flip();
+            write(channel, floats, layout.getFloatPosition(column, firstRow));
+        }
+    }
+
+    /**
+     * Export to the columnar format of {@link OfflineDbColumnarFile}, each range of rows being read and transposed
+     * in parallel and written at its own position in the file.
+     */
+    void exportColumnar(Path file) throws IOException {
+        Objects.requireNonNull(file);
+        int[] samples = getKeptSamples();
+
+        ByteBuffer header = OfflineDbColumnarFile.createHeader(samples.length,
+                Arrays.stream(OfflineTaskType.values()).map(OfflineTaskType::getHistoDbName).collect(Collectors.toList()),
+                securityIndexIds.stream().map(SecurityIndexId::toString).collect(Collectors.toList()),
+                networkAttributeIds.stream().map(HistoDbNetworkAttributeId::toString).collect(Collectors.toList()));
+        OfflineDbColumnarFile.Layout layout = new OfflineDbColumnarFile.Layout(header.remaining(), samples.length,
+                byteCells.length, floatCells.length);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            write(channel, header, 0);
+            forEachRange(0, samples.length, (from, to) -> {
+                writeColumns(channel, layout, from, readRows(samples, from, to));
+                return null;
+            }, nothing -> { });
+            // padding and empty columns
+            if (channel.size() < layout.getSize()) {
+                write(channel, ByteBuffer.allocate(1), layout.getSize() - 1);
+            }
+        }
+    }
+}
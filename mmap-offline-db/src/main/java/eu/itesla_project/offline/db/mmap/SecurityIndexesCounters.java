@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.powsybl.commons.io.mmap.MemoryMappedFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Persistent count of the ok and not ok values of each security index column of the offline db table, so that
+ * the security indexes synthesis does not need to scan the table.
+ * <p>
+ * The counters are updated in memory without locking and written to the file when closed. The file ends with
+ * a flag which is only set while the file is up to date, so that counters not flushed because of a crash are
+ * detected when opened, and have to be computed again from the table.
+ * <p>
+ * The counters are updated with the previous and the new value of a cell, so a cell must not be written
+ * concurrently by several threads, which is already the case as a sample is processed by a single task.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class SecurityIndexesCounters implements AutoCloseable {
+
+    static final String FILE_NAME = "security-indexes-counters";
+
+    private static final int CLEAN = 1;
+
+    private static final int DIRTY = 0;
+
+    private final MemoryMappedFile file;
+
+    private final ByteBuffer buffer;
+
+    private final int flagPosition;
+
+    // ok count of column i at 2 * i, not ok count at 2 * i + 1
+    private final AtomicIntegerArray counters;
+
+    private final boolean valid;
+
+    SecurityIndexesCounters(MemoryMappedFile file, int maxSecurityIndexesCount) throws IOException {
+        this.file = file;
+        counters = new AtomicIntegerArray(2 * maxSecurityIndexesCount);
+        flagPosition = counters.length() * Integer.BYTES;
+        boolean exists = file.exists();
+        // a file written before the flag existed is mapped with a zero, so dirty, flag
+        buffer = file.getBuffer(flagPosition + Integer.BYTES);
+        valid = exists && buffer.getInt(flagPosition) == CLEAN;
+        if (valid) {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, buffer.getInt(i * Integer.BYTES));
+            }
+        }
+        buffer.putInt(flagPosition, DIRTY);
+    }
+
+    /**
+     * @return false if the counters did not exist yet or were not flushed before the store was closed, so have
+     * to be computed from the table
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    private void add(int column, boolean ok, int delta) {
+        counters.addAndGet(2 * column + (ok ? 0 : 1), delta);
+    }
+
+    /**
+     * Update the counters of a column following the write of a cell.
+     *
+     * @param oldValue previous value of the cell, 1 if ok, 0 if not ok, -1 if not set
+     * @param newValue new value of the cell
+     */
+    void update(int column, byte oldValue, byte newValue) {
+        if (oldValue == newValue) {
+            return;
+        }
+        if (oldValue != -1) {
+            add(column, oldValue == 1, -1);
+        }
+        if (newValue != -1) {
+            add(column, newValue == 1, 1);
+        }
+    }
+
+    int getOkCount(int column) {
+        return counters.get(2 * column);
+    }
+
+    int getNokCount(int column) {
+        return counters.get(2 * column + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < counters.length(); i++) {
+            buffer.putInt(i * Integer.BYTES, counters.get(i));
+        }
+        buffer.putInt(flagPosition, CLEAN);
+        file.close();
+    }
+}
@@ -0,0 +1,412 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append only store of the XML of the security indexes of a workflow, indexed by sample and by security index
+ * column.
+ * <p>
+ * The XML of the security indexes stored for a sample at once are written as a block at the end of the current
+ * segment file. A block starts with a directory of its records, sorted by column: record count, then column,
+ * offset in the block and length of each record. Segment files are rolled over when they reach
+ * {@link #MAX_SEGMENT_SIZE}. Each block is then registered by appending an entry (sample, segment, offset,
+ * length and record count) to the offset index file, which is loaded in memory when the store is opened, so
+ * that a block not yet registered because of a crash is ignored. The block directories are also loaded in
+ * memory, as an index of the records by column and sample.
+ * <p>
+ * Reading the security indexes of a column only reads the records of the column, reading the security indexes
+ * of a sample only reads the blocks of the sample. Reads are thread safe and can run concurrently with writes.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class SecurityIndexesXmlStore implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityIndexesXmlStore.class);
+
+    static final String LEGACY_FILE_NAME = "security-indexes-xml.csv";
+
+    private static final String SEGMENT_FILE_NAME_PREFIX = "security-indexes-xml.";
+    private static final String SEGMENT_FILE_NAME_SUFFIX = ".seg";
+    private static final String INDEX_FILE_NAME = "security-indexes-xml.idx";
+    private static final String IMPORTED_FILE_NAME = "security-indexes-xml.imported";
+
+    private static final long MAX_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+    private static final int INDEX_ENTRY_SIZE = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int DIRECTORY_ENTRY_SIZE = 3 * Integer.BYTES;
+
+    private static final class Block {
+
+        private final int sample;
+
+        private final int segment;
+
+        private final long offset;
+
+        private final int length;
+
+        private final int recordCount;
+
+        private Block(int sample, int segment, long offset, int length, int recordCount) {
+            this.sample = sample;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordCount = recordCount;
+        }
+
+        private int getDirectorySize() {
+            return Integer.BYTES + recordCount * DIRECTORY_ENTRY_SIZE;
+        }
+    }
+
+    private static final class Record {
+
+        private final int segment;
+
+        private final long offset;
+
+        private final int length;
+
+        private Record(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Path workflowDir;
+
+    private final List<SeekableByteChannel> segments = new ArrayList<>();
+
+    private final SeekableByteChannel indexChannel;
+
+    // the blocks of each sample in write order, and the last record written of each column and sample
+    private final Map<Integer, List<Block>> blocksBySample = new HashMap<>();
+
+    private final Map<Integer, Map<Integer, Record>> recordsByColumn = new HashMap<>();
+
+    private final Lock lock = new ReentrantLock();
+
+    SecurityIndexesXmlStore(Path workflowDir) throws IOException {
+        this.workflowDir = Objects.requireNonNull(workflowDir);
+        indexChannel = Files.newByteChannel(workflowDir.resolve(INDEX_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            for (int segment = 0; Files.exists(getSegmentFile(segment)); segment++) {
+                segments.add(openSegment(segment));
+            }
+            // the import is done once the marker file exists, an interrupted import is restarted from scratch
+            if (Files.exists(workflowDir.resolve(LEGACY_FILE_NAME)) && !Files.exists(workflowDir.resolve(IMPORTED_FILE_NAME))) {
+                importLegacyFile();
+            } else {
+                loadIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Path getSegmentFile(int segment) {
+        return workflowDir.resolve(SEGMENT_FILE_NAME_PREFIX + segment + SEGMENT_FILE_NAME_SUFFIX);
+    }
+
+    private SeekableByteChannel openSegment(int segment) throws IOException {
+        return Files.newByteChannel(getSegmentFile(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void read(SeekableByteChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        if (channel instanceof FileChannel) {
+            // positional reads of a file channel can run concurrently
+            while (buffer.hasRemaining()) {
+                int n = ((FileChannel) channel).read(buffer, p);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of security indexes file");
+                }
+                p += n;
+            }
+        } else {
+            synchronized (channel) {
+                channel.position(p);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of security indexes file");
+                    }
+                }
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void write(SeekableByteChannel channel, ByteBuffer buffer, long position) throws IOException {
+        synchronized (channel) {
+            channel.position(position);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static long size(SeekableByteChannel channel) throws IOException {
+        synchronized (channel) {
+            return channel.size();
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        long size = size(indexChannel);
+        long entryCount = size / INDEX_ENTRY_SIZE;
+        if (entryCount * INDEX_ENTRY_SIZE != size) {
+            LOGGER.warn("Security indexes index of {} is truncated", workflowDir);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entryCount * INDEX_ENTRY_SIZE, 1024 * INDEX_ENTRY_SIZE));
+        long position = 0;
+        while (position < entryCount * INDEX_ENTRY_SIZE) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), entryCount * INDEX_ENTRY_SIZE - position));
+            read(indexChannel, buffer, position);
+            position += buffer.limit();
+            while (buffer.hasRemaining()) {
+                Block block = new Block(buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+                if (block.segment >= segments.size() || block.offset + block.length > size(segments.get(block.segment))) {
+                    throw new IOException("Invalid security indexes index entry, segment " + block.segment + " is missing or truncated");
+                }
+                ByteBuffer directory = ByteBuffer.allocate(block.getDirectorySize());
+                read(segments.get(block.segment), directory, block.offset);
+                addBlock(block, directory);
+            }
+        }
+        // ignore an incomplete last entry, it will be overwritten
+        indexChannel.truncate(entryCount * INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Import the security indexes of a workflow created before this store, stored in a CSV file
+     * with a line per security index: sample, column and XML.
+     */
+    private void importLegacyFile() throws IOException {
+        Path legacyFile = workflowDir.resolve(LEGACY_FILE_NAME);
+        LOGGER.info("Importing security indexes of {}", workflowDir);
+
+        // drop what a previous interrupted import may have written
+        for (SeekableByteChannel segment : segments) {
+            segment.close();
+        }
+        for (int segment = 0; segment < segments.size(); segment++) {
+            Files.delete(getSegmentFile(segment));
+        }
+        segments.clear();
+        indexChannel.truncate(0);
+
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8)) {
+            int currentSample = -1;
+            SortedMap<Integer, String> xmlByColumn = new TreeMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split(";", 3);
+                if (tokens.length < 3) {
+                    continue;
+                }
+                int sample = Integer.parseInt(tokens[0]);
+                int column = Integer.parseInt(tokens[1]);
+                String xml = tokens[2].endsWith(";") ? tokens[2].substring(0, tokens[2].length() - 1) : tokens[2];
+                if (sample != currentSample && !xmlByColumn.isEmpty()) {
+                    write(currentSample, xmlByColumn);
+                    xmlByColumn.clear();
+                }
+                currentSample = sample;
+                xmlByColumn.put(column, xml);
+            }
+            if (!xmlByColumn.isEmpty()) {
+                write(currentSample, xmlByColumn);
+            }
+        }
+        forceAll();
+        Files.createFile(workflowDir.resolve(IMPORTED_FILE_NAME));
+    }
+
+    private void forceAll() throws IOException {
+        List<SeekableByteChannel> channels = new ArrayList<>(segments);
+        channels.add(indexChannel);
+        for (SeekableByteChannel channel : channels) {
+            if (channel instanceof FileChannel) {
+                ((FileChannel) channel).force(false);
+            }
+        }
+    }
+
+    /**
+     * @param directory buffer starting with the directory of the block
+     */
+    private void addBlock(Block block, ByteBuffer directory) {
+        blocksBySample.computeIfAbsent(block.sample, s -> new ArrayList<>(1)).add(block);
+        for (int i = 0; i < block.recordCount; i++) {
+            int position = Integer.BYTES + i * DIRECTORY_ENTRY_SIZE;
+            Record record = new Record(block.segment, block.offset + directory.getInt(position + Integer.BYTES),
+                                       directory.getInt(position + 2 * Integer.BYTES));
+            recordsByColumn.computeIfAbsent(directory.getInt(position), c -> new HashMap<>()).put(block.sample, record);
+        }
+    }
+
+    /**
+     * Append the XML of some security indexes of a sample
+     *
+     * @param xmlByColumn XML of the security indexes, by column
+     */
+    void write(int sample, SortedMap<Integer, String> xmlByColumn) throws IOException {
+        Objects.requireNonNull(xmlByColumn);
+        if (xmlByColumn.isEmpty()) {
+            return;
+        }
+
+        // the block is built before taking the lock
+        List<byte[]> records = new ArrayList<>(xmlByColumn.size());
+        int length = Integer.BYTES + xmlByColumn.size() * DIRECTORY_ENTRY_SIZE;
+        for (String xml : xmlByColumn.values()) {
+            byte[] record = xml.getBytes(StandardCharsets.UTF_8);
+            records.add(record);
+            length += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(xmlByColumn.size());
+        int offset = Integer.BYTES + xmlByColumn.size() * DIRECTORY_ENTRY_SIZE;
+        int i = 0;
+        for (int column : xmlByColumn.keySet()) {
+            buffer.putInt(column).putInt(offset).putInt(records.get(i).length);
+            offset += records.get(i).length;
+            i++;
+        }
+        for (byte[] record : records) {
+            buffer.put(record);
+        }
+        buffer.flip();
+
+        lock.lock();
+        try {
+            int segment = segments.size() - 1;
+            long position = segment >= 0 ? size(segments.get(segment)) : 0;
+            if (segment < 0 || (position > 0 && position + length > MAX_SEGMENT_SIZE)) {
+                segment++;
+                segments.add(openSegment(segment));
+                position = size(segments.get(segment));
+            }
+            write(segments.get(segment), buffer, position);
+
+            Block block = new Block(sample, segment, position, length, xmlByColumn.size());
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            entry.putInt(sample).putInt(segment).putLong(position).putInt(length).putInt(block.recordCount);
+            entry.flip();
+            write(indexChannel, entry, size(indexChannel));
+            addBlock(block, buffer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SeekableByteChannel getSegment(int segment) {
+        lock.lock();
+        try {
+            return segments.get(segment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read the XML of the security indexes of a column
+     *
+     * @return the XML by sample, the last one written for a sample
+     */
+    Map<Integer, String> readColumn(int column) throws IOException {
+        Map<Integer, Record> records;
+        lock.lock();
+        try {
+            records = new TreeMap<>(recordsByColumn.getOrDefault(column, Collections.emptyMap()));
+        } finally {
+            lock.unlock();
+        }
+        Map<Integer, String> xmlBySample = new TreeMap<>();
+        for (Map.Entry<Integer, Record> e : records.entrySet()) {
+            Record record = e.getValue();
+            ByteBuffer buffer = ByteBuffer.allocate(record.length);
+            read(getSegment(record.segment), buffer, record.offset);
+            xmlBySample.put(e.getKey(), new String(buffer.array(), StandardCharsets.UTF_8));
+        }
+        return xmlBySample;
+    }
+
+    /**
+     * Read the XML of the security indexes of a sample
+     *
+     * @return the XML by column
+     */
+    Map<Integer, String> readSample(int sample) throws IOException {
+        List<Block> sampleBlocks;
+        lock.lock();
+        try {
+            sampleBlocks = new ArrayList<>(blocksBySample.getOrDefault(sample, Collections.emptyList()));
+        } finally {
+            lock.unlock();
+        }
+        Map<Integer, String> xmlByColumn = new TreeMap<>();
+        for (Block block : sampleBlocks) {
+            ByteBuffer buffer = ByteBuffer.allocate(block.length);
+            read(getSegment(block.segment), buffer, block.offset);
+            for (int i = 0; i < block.recordCount; i++) {
+                int position = Integer.BYTES + i * DIRECTORY_ENTRY_SIZE;
+                int column = buffer.getInt(position);
+                int offset = buffer.getInt(position + Integer.BYTES);
+                int length = buffer.getInt(position + 2 * Integer.BYTES);
+                xmlByColumn.put(column, new String(buffer.array(), offset, length, StandardCharsets.UTF_8));
+            }
+        }
+        return xmlByColumn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            IOException failure = null;
+            List<SeekableByteChannel> channels = new ArrayList<>(segments);
+            channels.add(indexChannel);
+            for (SeekableByteChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            segments.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
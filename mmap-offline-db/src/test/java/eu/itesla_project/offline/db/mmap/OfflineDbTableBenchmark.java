@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.powsybl.commons.io.mmap.MemoryMappedFileImpl;
+import eu.itesla_project.modules.histo.HistoDbAttr;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.offline.OfflineTaskStatus;
+import eu.itesla_project.modules.offline.OfflineTaskType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent writes of the state threads of an offline workflow to a memory mapped table, each thread
+ * writing to its own samples.
+ * Not run by the unit tests, launch the main method to run it.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(16)
+public class OfflineDbTableBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TableState {
+
+        @Param({"100"})
+        private int sampleChunkSize;
+
+        @Param({"1000"})
+        private int networkAttributeCount;
+
+        private Path workflowDir;
+
+        private OfflineDbTable table;
+
+        private final Map<HistoDbNetworkAttributeId, Float> values = new HashMap<>();
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Setup
+        public void setUp() throws IOException {
+            workflowDir = Files.createTempDirectory("offlinedb-benchmark");
+            table = new OfflineDbTable(workflowDir, new OfflineDbTableDescription(sampleChunkSize, 100, networkAttributeCount),
+                                       path -> new MemoryMappedFileImpl(path.toFile()));
+            for (int i = 0; i < networkAttributeCount; i++) {
+                values.put(new HistoDbNetworkAttributeId("eq" + i, HistoDbAttr.P), (float) i);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            table.close();
+            try (Stream<Path> files = Files.list(workflowDir)) {
+                files.forEach(file -> {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+            Files.delete(workflowDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SampleState {
+
+        private static final int SAMPLES_PER_THREAD = 10;
+
+        private int firstSample;
+
+        private int sample;
+
+        @Setup
+        public void setUp(TableState tableState) {
+            firstSample = tableState.threadCount.getAndIncrement() * SAMPLES_PER_THREAD;
+            sample = firstSample;
+        }
+
+        private int nextSample() {
+            int next = sample;
+            sample = next + 1 < firstSample + SAMPLES_PER_THREAD ? next + 1 : firstSample;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void writeTaskStatus(TableState tableState, SampleState sampleState) throws IOException {
+        tableState.table.writeTaskStatus(sampleState.nextSample(), OfflineTaskType.LOAD_FLOW, OfflineTaskStatus.SUCCEED);
+    }
+
+    @Benchmark
+    public void writeNetworkAttributes(TableState tableState, SampleState sampleState) throws IOException {
+        tableState.table.writeNetworkAttributesValue(sampleState.nextSample(), tableState.values);
+    }
+
+    @Benchmark
+    public void readTaskStatus(TableState tableState, SampleState sampleState, Blackhole blackhole) throws IOException {
+        blackhole.consume(tableState.table.getTaskStatus(sampleState.nextSample(), OfflineTaskType.LOAD_FLOW));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OfflineDbTableBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
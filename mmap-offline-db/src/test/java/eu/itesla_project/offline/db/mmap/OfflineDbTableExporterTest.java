@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.powsybl.commons.io.mmap.MemoryMappedFileImpl;
+import com.powsybl.simulation.securityindexes.SecurityIndexId;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+import eu.itesla_project.modules.histo.HistoDbAttr;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.offline.OfflineTaskStatus;
+import eu.itesla_project.modules.offline.OfflineTaskType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineDbTableExporterTest {
+
+    private static final int SAMPLE_COUNT = 2500;
+
+    private static final SecurityIndexId SECURITY_INDEX_ID = new SecurityIndexId("c1", SecurityIndexType.SMALLSIGNAL);
+
+    private static final HistoDbNetworkAttributeId P1 = new HistoDbNetworkAttributeId("l1", HistoDbAttr.P);
+
+    private static final HistoDbNetworkAttributeId Q1 = new HistoDbNetworkAttributeId("l1", HistoDbAttr.Q);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private OfflineDbTable table;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws IOException {
+        table = new OfflineDbTable(tmpDir.getRoot().toPath(), new OfflineDbTableDescription(100, 5, 10),
+                                   path -> new MemoryMappedFileImpl(path.toFile()));
+        for (int sample = 0; sample < SAMPLE_COUNT; sample++) {
+            table.getSampleCount().nextValue();
+            // every third sample has a failed impact analysis
+            table.writeTaskStatus(sample, OfflineTaskType.IMPACT_ANALYSIS, sample % 3 == 0 ? OfflineTaskStatus.FAILED : OfflineTaskStatus.SUCCEED);
+            table.writeSecurityIndex(sample, SECURITY_INDEX_ID, sample % 2 == 0);
+            table.writeNetworkAttributeValue(sample, P1, sample);
+            if (sample % 5 != 0) {
+                table.writeNetworkAttributeValue(sample, Q1, -sample);
+            }
+        }
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executorService.shutdownNow();
+        table.close();
+    }
+
+    private String exportCsv(int parallelism) throws IOException {
+        StringWriter writer = new StringWriter();
+        new OfflineDbTableExporter(table, null, false, 0, -1, executorService, parallelism).exportCsv(writer, ';', true, true);
+        return writer.toString();
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        String csv = exportCsv(1);
+        String[] lines = csv.split("\n");
+        assertEquals(1 + SAMPLE_COUNT * 2 / 3, lines.length);
+        assertEquals("sample;TASK_SAMPLING;TASK_STARTING_POINT_INITIALIZATION;TASK_LOAD_FLOW;TASK_STABILIZATION;TASK_IMPACT_ANALYSIS;" + SECURITY_INDEX_ID + ";" + P1 + ";" + Q1 + ";", lines[0]);
+        assertEquals("1;;;;;OK;false;1.0;-1.0;", lines[1]);
+        assertEquals("5;;;;;OK;false;5.0;;", lines[4]);
+        // the output does not depend on the parallelism
+        assertEquals(csv, exportCsv(4));
+    }
+
+    @Test
+    public void testColumnar() throws IOException {
+        Path file = tmpDir.getRoot().toPath().resolve("export.bin");
+        new OfflineDbTableExporter(table, P1::equals, true, 10, 2000, executorService, 4).exportColumnar(file);
+        try (OfflineDbColumnarFile columnarFile = new OfflineDbColumnarFile(file)) {
+            assertEquals(2000, columnarFile.getRowCount());
+            assertEquals(Arrays.asList(OfflineTaskType.values()), columnarFile.getTaskTypes());
+            assertEquals(Arrays.asList(SECURITY_INDEX_ID), columnarFile.getSecurityIndexIds());
+            assertEquals(Arrays.asList(P1), columnarFile.getNetworkAttributeIds());
+            IntBuffer sampleIds = columnarFile.getSampleIds();
+            ByteBuffer impactAnalysis = columnarFile.getTaskStatusColumn(OfflineTaskType.IMPACT_ANALYSIS);
+            ByteBuffer securityIndex = columnarFile.getSecurityIndexColumn(0);
+            FloatBuffer p1 = columnarFile.getNetworkAttributeColumn(0);
+            for (int row = 0; row < 2000; row++) {
+                int sample = 10 + row;
+                assertEquals(sample, sampleIds.get(row));
+                assertEquals(sample % 3 == 0 ? OfflineTaskStatus.FAILED : OfflineTaskStatus.SUCCEED,
+                             OfflineDbColumnarFile.toTaskStatus(impactAnalysis.get(row)));
+                assertEquals(sample % 2 == 0 ? 1 : 0, securityIndex.get(row));
+                assertEquals(sample, p1.get(row), 0f);
+            }
+            assertNull(OfflineDbColumnarFile.toTaskStatus(columnarFile.getTaskStatusColumn(OfflineTaskType.LOAD_FLOW).get(0)));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.powsybl.commons.io.mmap.MemoryMappedFileImpl;
+import com.powsybl.simulation.securityindexes.SecurityIndexId;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+import eu.itesla_project.modules.offline.SecurityIndexSynthesis;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineDbTableTest {
+
+    private static final SecurityIndexId ID1 = new SecurityIndexId("c1", SecurityIndexType.SMALLSIGNAL);
+
+    private static final SecurityIndexId ID2 = new SecurityIndexId("c2", SecurityIndexType.OVERLOAD);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private OfflineDbTable createTable(Path workflowDir, OfflineDbTableDescription description) throws IOException {
+        return new OfflineDbTable(workflowDir, description, path -> new MemoryMappedFileImpl(path.toFile()));
+    }
+
+    private static void assertBalance(SecurityIndexSynthesis synthesis, SecurityIndexId id, int stableCount, int unstableCount) {
+        SecurityIndexSynthesis.SecurityBalance balance = synthesis.getSecurityBalance(id.getContingencyId(), id.getSecurityIndexType());
+        assertEquals(stableCount, balance.getStableCount());
+        assertEquals(unstableCount, balance.getUnstableCount());
+    }
+
+    @Test
+    public void testSecurityIndexesSynthesis() throws IOException {
+        Path workflowDir = tmpDir.getRoot().toPath();
+        OfflineDbTableDescription description = new OfflineDbTableDescription(2, 5, 10);
+        try (OfflineDbTable table = createTable(workflowDir, description)) {
+            for (int sample = 0; sample < 5; sample++) {
+                table.getSampleCount().nextValue();
+                table.writeSecurityIndex(sample, ID1, sample % 2 == 0);
+            }
+            table.writeSecurityIndex(0, ID2, false);
+            // overwriting a cell moves its count
+            table.writeSecurityIndex(1, ID1, true);
+            table.writeSecurityIndex(2, ID1, true);
+
+            SecurityIndexSynthesis synthesis = table.getSecurityIndexesSynthesis();
+            assertBalance(synthesis, ID1, 4, 1);
+            assertBalance(synthesis, ID2, 0, 1);
+        }
+
+        // the counters are persistent
+        try (OfflineDbTable table = createTable(workflowDir, description)) {
+            assertBalance(table.getSecurityIndexesSynthesis(), ID1, 4, 1);
+        }
+
+        // and computed from the table if missing
+        Files.delete(workflowDir.resolve(SecurityIndexesCounters.FILE_NAME));
+        try (OfflineDbTable table = createTable(workflowDir, description)) {
+            SecurityIndexSynthesis synthesis = table.getSecurityIndexesSynthesis();
+            assertBalance(synthesis, ID1, 4, 1);
+            assertBalance(synthesis, ID2, 0, 1);
+        }
+    }
+
+    @Test
+    public void testSecurityIndexesCountersNotClosed() throws IOException {
+        Path workflowDir = tmpDir.getRoot().toPath();
+        OfflineDbTableDescription description = new OfflineDbTableDescription(2, 5, 10);
+        try (OfflineDbTable table = createTable(workflowDir, description)) {
+            table.getSampleCount().nextValue();
+            table.writeSecurityIndex(0, ID1, true);
+        }
+        try (OfflineDbTable table = createTable(workflowDir, description)) {
+            for (int sample = 1; sample < 5; sample++) {
+                table.getSampleCount().nextValue();
+                table.writeSecurityIndex(sample, ID1, false);
+            }
+
+            // the counters of the table not closed yet, as after a crash, are not trusted but computed again
+            try (OfflineDbTable table2 = createTable(workflowDir, description)) {
+                assertBalance(table2.getSecurityIndexesSynthesis(), ID1, 1, 4);
+            }
+        }
+    }
+}
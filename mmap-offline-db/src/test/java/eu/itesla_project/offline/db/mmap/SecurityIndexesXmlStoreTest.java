@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.db.mmap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class SecurityIndexesXmlStoreTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path workflowDir = tmpDir.getRoot().toPath();
+        try (SecurityIndexesXmlStore store = new SecurityIndexesXmlStore(workflowDir)) {
+            store.write(0, ImmutableSortedMap.of(0, "<a0/>", 1, "<b0/>", 2, "<c0/>"));
+            store.write(1, ImmutableSortedMap.of(2, "<c1/>", 0, "<a1/>"));
+            store.write(2, ImmutableSortedMap.of(1, "<b2/>"));
+            // a second block for sample 0, overriding column 1
+            store.write(0, ImmutableSortedMap.of(1, "<b0'/>", 3, "<d0/>"));
+
+            assertEquals(ImmutableMap.of(0, "<a0/>", 1, "<a1/>"), store.readColumn(0));
+            assertEquals(ImmutableMap.of(0, "<b0'/>", 2, "<b2/>"), store.readColumn(1));
+            assertEquals(Collections.emptyMap(), store.readColumn(4));
+            assertEquals(ImmutableMap.of(0, "<a0/>", 1, "<b0'/>", 2, "<c0/>", 3, "<d0/>"), store.readSample(0));
+            assertEquals(Collections.emptyMap(), store.readSample(3));
+        }
+
+        // the offset index is reloaded
+        try (SecurityIndexesXmlStore store = new SecurityIndexesXmlStore(workflowDir)) {
+            assertEquals(ImmutableMap.of(0, "<c0/>", 1, "<c1/>"), store.readColumn(2));
+            assertEquals(ImmutableMap.of(0, "<a1/>", 2, "<c1/>"), store.readSample(1));
+            store.write(3, ImmutableSortedMap.of(2, "<c3/>"));
+            assertEquals(ImmutableMap.of(0, "<c0/>", 1, "<c1/>", 3, "<c3/>"), store.readColumn(2));
+        }
+    }
+
+    @Test
+    public void testLegacyImport() throws IOException {
+        Path workflowDir = tmpDir.getRoot().toPath();
+        Files.write(workflowDir.resolve(SecurityIndexesXmlStore.LEGACY_FILE_NAME),
+                    "0;0;<a0/>;\n0;1;<b0/>;\n1;1;<b1/>;\n".getBytes(StandardCharsets.UTF_8));
+        try (SecurityIndexesXmlStore store = new SecurityIndexesXmlStore(workflowDir)) {
+            assertEquals(ImmutableMap.of(0, "<b0/>", 1, "<b1/>"), store.readColumn(1));
+            assertEquals(ImmutableMap.of(0, "<a0/>", 1, "<b0/>"), store.readSample(0));
+        }
+
+        // an import interrupted before its end is restarted from scratch
+        Files.delete(workflowDir.resolve("security-indexes-xml.imported"));
+        try (SecurityIndexesXmlStore store = new SecurityIndexesXmlStore(workflowDir)) {
+            assertEquals(ImmutableMap.of(0, "<b0/>", 1, "<b1/>"), store.readColumn(1));
+            assertEquals(ImmutableMap.of(1, "<b1/>"), store.readSample(1));
+            store.write(2, ImmutableSortedMap.of(1, "<b2/>"));
+        }
+
+        // once done, the import is not run again
+        try (SecurityIndexesXmlStore store = new SecurityIndexesXmlStore(workflowDir)) {
+            assertEquals(ImmutableMap.of(0, "<b0/>", 1, "<b1/>", 2, "<b2/>"), store.readColumn(1));
+        }
+    }
+}
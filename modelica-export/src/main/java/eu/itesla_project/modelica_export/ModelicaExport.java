@@ -32,6 +32,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Class that exports a proprietary system to a Modelica system.
@@ -211,9 +212,12 @@ public class ModelicaExport {
          * Classifying generators & fixed injections
          */
         genList = Identifiables.sort(_network.getGenerators());
+        Set<String> equipmentIds = _ddbManager.findEquipments(genList.stream().map(Generator::getId).collect(Collectors.toList()))
+                .stream()
+                .map(Equipment::getCimId)
+                .collect(Collectors.toSet());
         for (Generator gen : genList) {
-            Equipment eq = _ddbManager.findEquipment(gen.getId());
-            if (eq != null) {
+            if (equipmentIds.contains(gen.getId())) {
                 generators.add(gen);
             } else {
                 generatorsInyections.add(gen);
@@ -146,6 +146,7 @@ public final class IIDM2DB {
         private final boolean replaceMissingValues;
         private final Set<Country> countryFilter;
         private final int minBaseVoltageFilter;
+        private final Set<String> equipmentFilter;
 
         public Config(String cimName, boolean extractTemporalFields) {
             this(cimName, extractTemporalFields, false);
@@ -160,11 +161,20 @@ public final class IIDM2DB {
         }
 
         public Config(String cimName, boolean extractTemporalFields, boolean replaceMissingValues, Set<Country> countryFilter, int minBaseVoltageFilter) {
+            this(cimName, extractTemporalFields, replaceMissingValues, countryFilter, minBaseVoltageFilter, null);
+        }
+
+        /**
+         * @param equipmentFilter if not null, only the values of these equipments and voltage levels are extracted
+         */
+        public Config(String cimName, boolean extractTemporalFields, boolean replaceMissingValues, Set<Country> countryFilter, int minBaseVoltageFilter,
+                      Set<String> equipmentFilter) {
             this.cimName = cimName;
             this.extractTemporalFields = extractTemporalFields;
             this.replaceMissingValues = replaceMissingValues;
             this.countryFilter = countryFilter;
             this.minBaseVoltageFilter = minBaseVoltageFilter;
+            this.equipmentFilter = equipmentFilter;
         }
 
         public String getCimName() {
@@ -186,6 +196,35 @@ public final class IIDM2DB {
         public int getMinBaseVoltageFilter() {
             return minBaseVoltageFilter;
         }
+
+        public Set<String> getEquipmentFilter() {
+            return equipmentFilter;
+        }
+
+        private boolean accept(String id) {
+            return equipmentFilter == null || equipmentFilter.contains(id);
+        }
+    }
+
+    /**
+     * Voltage levels to visit to extract the values of the filtered equipments, null if there is no filter
+     */
+    private static Set<String> getVoltageLevelFilter(Network n, Config config) {
+        if (config.getEquipmentFilter() == null) {
+            return null;
+        }
+        Set<String> voltageLevelIds = new HashSet<>();
+        for (String id : config.getEquipmentFilter()) {
+            Identifiable identifiable = n.getIdentifiable(id);
+            if (identifiable instanceof VoltageLevel) {
+                voltageLevelIds.add(id);
+            } else if (identifiable instanceof Connectable) {
+                for (Terminal t : ((Connectable<?>) identifiable).getTerminals()) {
+                    voltageLevelIds.add(t.getVoltageLevel().getId());
+                }
+            }
+        }
+        return voltageLevelIds;
     }
 
     private static class TerminalContext {
@@ -214,6 +253,34 @@ public final class IIDM2DB {
 
         CimValuesMap valuesMap = new CimValuesMap();
 
+        Set<String> voltageLevelFilter = getVoltageLevelFilter(n, config);
+
+        // meta attributes are extracted even if no voltage level passes the filters
+        String horizon = n.getForecastDistance() > 0 ? "DACF" : "SN"; // for backward compatibility
+        final LinkedHashMap<HistoDbAttributeId, Object> valueMap = valuesMap.getValueMap(new HorizonKey(n.getForecastDistance(), horizon));
+
+        if (config.getCimName() != null && !valueMap.containsKey(HistoDbMetaAttributeId.cimName)) {
+            valueMap.put(HistoDbMetaAttributeId.cimName, config.getCimName());
+        }
+
+        if (config.isExtractTemporalFields()) {
+            if (!valueMap.containsKey(HistoDbMetaAttributeId.datetime)) {
+                valueMap.put(HistoDbMetaAttributeId.datetime, n.getCaseDate().toDate());
+            }
+            if (!valueMap.containsKey(HistoDbMetaAttributeId.daytime)) {
+                valueMap.put(HistoDbMetaAttributeId.daytime, n.getCaseDate().getMillisOfDay());
+            }
+            if (!valueMap.containsKey(HistoDbMetaAttributeId.month)) {
+                valueMap.put(HistoDbMetaAttributeId.month, n.getCaseDate().getMonthOfYear());
+            }
+            if (!valueMap.containsKey(HistoDbMetaAttributeId.forecastTime)) {
+                valueMap.put(HistoDbMetaAttributeId.forecastTime, n.getForecastDistance());
+            }
+            if (!valueMap.containsKey(HistoDbMetaAttributeId.horizon)) {
+                valueMap.put(HistoDbMetaAttributeId.horizon, horizon);
+            }
+        }
+
         for (Substation ss : n.getSubstations()) {
 
             if (config.getCountryFilter() != null && !config.getCountryFilter().contains(ss.getCountry())) {
@@ -226,29 +293,8 @@ public final class IIDM2DB {
                     continue;
                 }
 
-                String horizon = n.getForecastDistance() > 0 ? "DACF" : "SN"; // for backward compatibility
-                final LinkedHashMap<HistoDbAttributeId, Object> valueMap = valuesMap.getValueMap(new HorizonKey(n.getForecastDistance(), horizon));
-
-                if (config.getCimName() != null && !valueMap.containsKey(HistoDbMetaAttributeId.cimName)) {
-                    valueMap.put(HistoDbMetaAttributeId.cimName, config.getCimName());
-                }
-
-                if (config.isExtractTemporalFields()) {
-                    if (!valueMap.containsKey(HistoDbMetaAttributeId.datetime)) {
-                        valueMap.put(HistoDbMetaAttributeId.datetime, n.getCaseDate().toDate());
-                    }
-                    if (!valueMap.containsKey(HistoDbMetaAttributeId.daytime)) {
-                        valueMap.put(HistoDbMetaAttributeId.daytime, n.getCaseDate().getMillisOfDay());
-                    }
-                    if (!valueMap.containsKey(HistoDbMetaAttributeId.month)) {
-                        valueMap.put(HistoDbMetaAttributeId.month, n.getCaseDate().getMonthOfYear());
-                    }
-                    if (!valueMap.containsKey(HistoDbMetaAttributeId.forecastTime)) {
-                        valueMap.put(HistoDbMetaAttributeId.forecastTime, n.getForecastDistance());
-                    }
-                    if (!valueMap.containsKey(HistoDbMetaAttributeId.horizon)) {
-                        valueMap.put(HistoDbMetaAttributeId.horizon, horizon);
-                    }
+                if (voltageLevelFilter != null && !voltageLevelFilter.contains(vl.getId())) {
+                    continue;
                 }
 
                 vl.visitEquipments(new DefaultTopologyVisitor() {
@@ -258,6 +304,9 @@ public final class IIDM2DB {
                     }
 
                     private void visitInjection(Injection inj, TerminalContext context) {
+                        if (!config.accept(inj.getId())) {
+                            return;
+                        }
                         Terminal t = inj.getTerminal();
                         context.update(t);
 
@@ -286,6 +335,9 @@ public final class IIDM2DB {
                     }
 
                     private void visitBranch(Branch branch, Branch.Side side, double r, double x, double g1, double b1, double g2, double b2, double ratio) {
+                        if (!config.accept(branch.getId())) {
+                            return;
+                        }
                         Terminal t = side == Branch.Side.ONE ? branch.getTerminal1() : branch.getTerminal2();
 
                         TerminalContext context = TerminalContext.create(t);
@@ -332,6 +384,9 @@ public final class IIDM2DB {
 
                     @Override
                     public void visitGenerator(Generator g) {
+                        if (!config.accept(g.getId())) {
+                            return;
+                        }
                         TerminalContext context = new TerminalContext();
                         visitInjection(g, context);
                         // reactive limit
@@ -353,6 +408,9 @@ public final class IIDM2DB {
 
                     @Override
                     public void visitDanglingLine(DanglingLine dl) {
+                        if (!config.accept(dl.getId())) {
+                            return;
+                        }
                         visitInjection(dl);
                         valueMap.put(new HistoDbNetworkAttributeId(dl.getId(), HistoDbAttr.P0), dl.getP0());
                         valueMap.put(new HistoDbNetworkAttributeId(dl.getId(), HistoDbAttr.Q0), dl.getQ0());
@@ -370,6 +428,9 @@ public final class IIDM2DB {
 
                     @Override
                     public void visitThreeWindingsTransformer(ThreeWindingsTransformer twt, ThreeWindingsTransformer.Side side) {
+                        if (!config.accept(twt.getId())) {
+                            return;
+                        }
                         Terminal t;
                         switch (side) {
                             case ONE:
@@ -410,6 +471,9 @@ public final class IIDM2DB {
 
                 // taps
                 for (TwoWindingsTransformer twt : ss.getTwoWindingsTransformers()) {
+                    if (!config.accept(twt.getId())) {
+                        continue;
+                    }
                     if (twt.getPhaseTapChanger() != null) {
                         valueMap.put(new HistoDbNetworkAttributeId(twt.getId(), HistoDbAttr.PTC), twt.getPhaseTapChanger().getTapPosition());
                     }
@@ -418,10 +482,17 @@ public final class IIDM2DB {
                     }
                 }
                 for (ThreeWindingsTransformer twt : ss.getThreeWindingsTransformers()) {
+                    if (!config.accept(twt.getId())) {
+                        continue;
+                    }
                     valueMap.put(new HistoDbNetworkAttributeId(twt.getId(), twt.getLeg2().getTerminal().getVoltageLevel().getId(), HistoDbAttr.RTC), twt.getLeg2().getRatioTapChanger().getTapPosition());
                     valueMap.put(new HistoDbNetworkAttributeId(twt.getId(), twt.getLeg3().getTerminal().getVoltageLevel().getId(), HistoDbAttr.RTC), twt.getLeg3().getRatioTapChanger().getTapPosition());
                 }
 
+                if (!config.accept(vl.getId())) {
+                    continue;
+                }
+
                 /**
                  * Extract topologies and mean tension
                  */
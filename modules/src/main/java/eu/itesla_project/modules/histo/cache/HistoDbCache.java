@@ -9,7 +9,9 @@ package eu.itesla_project.modules.histo.cache;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -17,10 +19,38 @@ import java.util.List;
  */
 public interface HistoDbCache extends AutoCloseable {
 
+    @FunctionalInterface
+    interface QueryLoader {
+
+        /**
+         * Run a query on the queried resource, without going through the cache
+         */
+        InputStream load(Map<String, String> query) throws IOException;
+    }
+
     InputStream getData(String url) throws IOException;
 
+    /**
+     * Get the result of a query, the cache being allowed to rebuild it from parts of previous results and
+     * to run only the queries of the missing parts with the loader.
+     *
+     * @param resourceUrl url of the queried resource, without the query parameters
+     * @param query the query parameters
+     * @return the result, or null if the cache does not split this query, its result is then cached as a whole
+     */
+    default InputStream getData(String resourceUrl, Map<String, String> query, QueryLoader loader) throws IOException {
+        return null;
+    }
+
     OutputStream putData(String url) throws IOException;
 
     List<String> listUrls() throws IOException;
 
+    /**
+     * Usage metrics of the cache (hits, misses, bytes...), by name
+     */
+    default Map<String, Long> getMetrics() {
+        return Collections.emptyMap();
+    }
+
 }
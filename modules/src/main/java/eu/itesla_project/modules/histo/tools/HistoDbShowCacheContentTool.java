@@ -62,6 +62,7 @@ public class HistoDbShowCacheContentTool implements Tool {
             HistoDbCache cache = histoDbClient.getCache();
             if (cache != null) {
                 cache.listUrls().forEach(context.getOutputStream()::println);
+                cache.getMetrics().forEach((name, value) -> context.getOutputStream().println(name + ": " + value));
             }
         }
     }
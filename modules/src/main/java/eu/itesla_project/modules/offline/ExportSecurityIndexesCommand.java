@@ -73,6 +73,9 @@ public class ExportSecurityIndexesCommand implements Command {
         options.addOption(Option.builder().longOpt("keep-all-samples")
                                 .desc("keep unsuccessful samples")
                                 .build());
+        options.addOption(Option.builder().longOpt("columnar")
+                                .desc("export to a columnar binary file instead of a csv file")
+                                .build());
         return options;
     }
 
@@ -52,8 +52,13 @@ public class ExportSecurityIndexesTool implements Tool {
         }
         boolean addSampleColumn = line.hasOption("add-sample-column");
         boolean keepAllSamples = line.hasOption("keep-all-samples");
-        try (Writer writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
-            offlineDb.exportCsv(workflowId, writer, new OfflineDbCsvExportConfig(delimiter, stateAttrFilter, addSampleColumn, keepAllSamples));
+        OfflineDbCsvExportConfig exportConfig = new OfflineDbCsvExportConfig(delimiter, stateAttrFilter, addSampleColumn, keepAllSamples);
+        if (line.hasOption("columnar")) {
+            offlineDb.exportColumnar(workflowId, outputFile, exportConfig);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                offlineDb.exportCsv(workflowId, writer, exportConfig);
+            }
         }
     }
 
@@ -12,6 +12,7 @@ import com.powsybl.simulation.securityindexes.SecurityIndex;
 import com.powsybl.simulation.securityindexes.SecurityIndexId;
 
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -91,6 +92,11 @@ public class ForwardingOfflineDb<T extends OfflineDb> implements OfflineDb {
         delegate.exportCsv(workflowId, writer, config);
     }
 
+    @Override
+    public void exportColumnar(String workflowId, Path file, OfflineDbCsvExportConfig config) {
+        delegate.exportColumnar(workflowId, file, config);
+    }
+
     @Override
     public void close() throws Exception {
         delegate.close();
@@ -15,6 +15,7 @@ import com.powsybl.simulation.securityindexes.SecurityIndex;
 import com.powsybl.simulation.securityindexes.SecurityIndexId;
 
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -157,6 +158,16 @@ public interface OfflineDb extends AutoCloseable {
      */
     void exportCsv(String workflowId, Writer writer, OfflineDbCsvExportConfig config);
 
+    /**
+     * For a given workflow, export the db content to a columnar binary file, if supported by the db.
+     * @param workflowId the workflow id
+     * @param file the output file
+     * @param config export configuration, delimiter, sample column and header are ignored
+     */
+    default void exportColumnar(String workflowId, Path file, OfflineDbCsvExportConfig config) {
+        throw new UnsupportedOperationException("Columnar export not supported");
+    }
+
     default void flush(String workflowId) {
     }
 
@@ -60,12 +60,17 @@ public class SecurityIndexSynthesis implements Serializable {
         return table.columnKeySet();
     }
 
-    public void addSecurityIndex(SecurityIndexId securityIndexId, boolean stable) {
+    private SecurityBalance getOrCreateSecurityBalance(SecurityIndexId securityIndexId) {
         SecurityBalance balance = table.get(securityIndexId.getContingencyId(), securityIndexId.getSecurityIndexType());
         if (balance == null) {
             balance = new SecurityBalance();
             table.put(securityIndexId.getContingencyId(), securityIndexId.getSecurityIndexType(), balance);
         }
+        return balance;
+    }
+
+    public void addSecurityIndex(SecurityIndexId securityIndexId, boolean stable) {
+        SecurityBalance balance = getOrCreateSecurityBalance(securityIndexId);
         if (stable) {
             balance.stableCount++;
         } else {
@@ -73,6 +78,12 @@ public class SecurityIndexSynthesis implements Serializable {
         }
     }
 
+    public void addSecurityIndexes(SecurityIndexId securityIndexId, int stableCount, int unstableCount) {
+        SecurityBalance balance = getOrCreateSecurityBalance(securityIndexId);
+        balance.stableCount += stableCount;
+        balance.unstableCount += unstableCount;
+    }
+
     public void addSecurityIndex(SecurityIndex securityIndex) {
         addSecurityIndex(securityIndex.getId(), securityIndex.isOk());
     }
@@ -422,4 +422,13 @@ public interface OnlineDb extends AutoCloseable {
      */
     void exportPostcontingencyStates(String workflowId, Path file);
 
+    /**
+     * Make durable all the data of a workflow stored so far: the store methods may
+     * write the data in background, this method returns once it has been written.
+     * Closing the db also writes all the stored data.
+     *
+     * @param workflowId the id of the workflow
+     */
+    void flush(String workflowId);
+
 }
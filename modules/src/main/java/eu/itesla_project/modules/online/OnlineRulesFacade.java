@@ -21,4 +21,9 @@ public interface OnlineRulesFacade {
 
     RulesFacadeResults wcaEvaluate(Contingency contingency, Network network);
 
+    /**
+     * Create an evaluator bound to the current working state of the network, to be reused for all the contingencies.
+     */
+    StateRulesEvaluator stateEvaluator(Network network);
+
 }
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) 2016, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.online;
+
+import com.powsybl.contingency.Contingency;
+
+/**
+ * Evaluates the security rules of every contingency on a single state of a network.
+ * The network attribute values are extracted once and shared by all the evaluations.
+ *
+ * @author Quinary <itesla@quinary.com>
+ */
+public interface StateRulesEvaluator {
+
+    RulesFacadeResults evaluate(Contingency contingency);
+
+    RulesFacadeResults wcaEvaluate(Contingency contingency);
+
+    /**
+     * Time spent extracting the network attribute values, in ms
+     */
+    long getExtractionTime();
+
+}
@@ -7,6 +7,8 @@
 package eu.itesla_project.modules.rules;
 
 import eu.itesla_project.modules.histo.HistoDbAttributeId;
+import eu.itesla_project.modules.rules.expr.AttributeSlots;
+import eu.itesla_project.modules.rules.expr.CompiledExpression;
 import eu.itesla_project.modules.rules.expr.ExpressionEvaluator;
 import eu.itesla_project.modules.rules.expr.ExpressionNode;
 
@@ -63,6 +65,22 @@ public class SecurityRuleExpression implements Serializable {
         return new SecurityRuleCheckReport(safe, missingAttributes);
     }
 
+    /**
+     * Compile the expression, attributes are given slots in {@code attributeSlots}.
+     */
+    public CompiledExpression compile(AttributeSlots attributeSlots) {
+        switch (status) {
+            case ALWAYS_SECURE:
+                return CompiledExpression.constant(true);
+            case ALWAYS_UNSECURE:
+                return CompiledExpression.constant(false);
+            case SECURE_IF:
+                return CompiledExpression.compile(condition, attributeSlots);
+            default:
+                throw new AssertionError(status.name());
+        }
+    }
+
     public ExpressionNode getCondition() {
         return condition;
     }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2016, All partners of the iTesla project (http://www.itesla-project.eu/consortium)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.rules.expr;
+
+import eu.itesla_project.modules.histo.HistoDbAttributeId;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Index of the attributes referenced by compiled expressions: each attribute is given a slot
+ * in the value array the compiled expressions are evaluated on.
+ * Slots are allocated while compiling, the index is then read only and can be shared by several threads.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class AttributeSlots {
+
+    private final Map<HistoDbAttributeId, Integer> slots = new LinkedHashMap<>();
+
+    int getSlot(HistoDbAttributeId id) {
+        Objects.requireNonNull(id);
+        return slots.computeIfAbsent(id, k -> slots.size());
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public Set<HistoDbAttributeId> getAttributes() {
+        return Collections.unmodifiableSet(slots.keySet());
+    }
+
+    /**
+     * Build the value array of the attributes, a missing value is replaced by NaN.
+     *
+     * @throws RuntimeException if a value is not a number
+     */
+    public double[] toValues(Map<HistoDbAttributeId, Object> attributeValues) {
+        Objects.requireNonNull(attributeValues);
+        double[] values = new double[slots.size()];
+        Arrays.fill(values, Double.NaN);
+        for (Map.Entry<HistoDbAttributeId, Integer> e : slots.entrySet()) {
+            Object value = attributeValues.get(e.getKey());
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Number) {
+                values[e.getValue()] = ((Number) value).doubleValue();
+            } else {
+                throw new RuntimeException("Attribute " + e.getKey() + " is not a number");
+            }
+        }
+        return values;
+    }
+
+}
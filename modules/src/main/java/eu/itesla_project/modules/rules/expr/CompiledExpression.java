@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2016, All partners of the iTesla project (http://www.itesla-project.eu/consortium)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.rules.expr;
+
+import java.util.Objects;
+
+/**
+ * An expression flattened into a postfix program, evaluated on a value array indexed by
+ * {@link AttributeSlots}. Gives the same result as {@link ExpressionEvaluator} without
+ * boxing nor attribute hashing.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public final class CompiledExpression {
+
+    static final byte LESS = 0;
+    static final byte GREATER_EQUAL = 1;
+    static final byte AND = 2;
+    static final byte OR = 3;
+    static final byte TRUE = 4;
+    static final byte FALSE = 5;
+
+    private static final CompiledExpression ALWAYS_TRUE = new CompiledExpression(new byte[] {TRUE}, new int[1], new double[1], 1);
+    private static final CompiledExpression ALWAYS_FALSE = new CompiledExpression(new byte[] {FALSE}, new int[1], new double[1], 1);
+
+    /**
+     * Evaluation stack of the current thread, grown to the depth of the deepest expression evaluated
+     */
+    private static final ThreadLocal<boolean[]> STACK = ThreadLocal.withInitial(() -> new boolean[16]);
+
+    private final byte[] opcodes;
+
+    private final int[] slots;
+
+    private final double[] litterals;
+
+    private final int maxDepth;
+
+    CompiledExpression(byte[] opcodes, int[] slots, double[] litterals, int maxDepth) {
+        this.opcodes = opcodes;
+        this.slots = slots;
+        this.litterals = litterals;
+        this.maxDepth = maxDepth;
+    }
+
+    public static CompiledExpression constant(boolean value) {
+        return value ? ALWAYS_TRUE : ALWAYS_FALSE;
+    }
+
+    public static CompiledExpression compile(ExpressionNode node, AttributeSlots attributeSlots) {
+        return ExpressionCompiler.compile(node, attributeSlots);
+    }
+
+    public boolean eval(double[] values) {
+        Objects.requireNonNull(values);
+        boolean[] stack = STACK.get();
+        if (stack.length < maxDepth) {
+            stack = new boolean[maxDepth];
+            STACK.set(stack);
+        }
+        int top = -1;
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case LESS:
+                case GREATER_EQUAL: {
+                    double value1 = values[slots[i]];
+                    double value2 = litterals[i];
+                    // if value is undefined (no calculation?), we consider ok
+                    if (Double.isNaN(value1) || Double.isNaN(value2)) {
+                        stack[++top] = true;
+                    } else {
+                        stack[++top] = opcodes[i] == LESS ? value1 < value2 : value1 >= value2;
+                    }
+                    break;
+                }
+                case AND: {
+                    boolean value2 = stack[top--];
+                    stack[top] = stack[top] && value2;
+                    break;
+                }
+                case OR: {
+                    boolean value2 = stack[top--];
+                    stack[top] = stack[top] || value2;
+                    break;
+                }
+                case TRUE:
+                    stack[++top] = true;
+                    break;
+                case FALSE:
+                    stack[++top] = false;
+                    break;
+                default:
+                    throw new InternalError();
+            }
+        }
+        return stack[0];
+    }
+
+    public int size() {
+        return opcodes.length;
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2016, All partners of the iTesla project (http://www.itesla-project.eu/consortium)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.rules.expr;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Flatten an expression tree into a {@link CompiledExpression} postfix program.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class ExpressionCompiler extends AbstractExpressionVisitor<Void, Void> {
+
+    private final AttributeSlots attributeSlots;
+
+    private byte[] opcodes = new byte[16];
+
+    private int[] slots = new int[16];
+
+    private double[] litterals = new double[16];
+
+    private int size = 0;
+
+    private int depth = 0;
+
+    private int maxDepth = 0;
+
+    ExpressionCompiler(AttributeSlots attributeSlots) {
+        this.attributeSlots = attributeSlots;
+    }
+
+    static CompiledExpression compile(ExpressionNode node, AttributeSlots attributeSlots) {
+        Objects.requireNonNull(node);
+        Objects.requireNonNull(attributeSlots);
+        ExpressionCompiler compiler = new ExpressionCompiler(attributeSlots);
+        node.accept(compiler, null);
+        return new CompiledExpression(Arrays.copyOf(compiler.opcodes, compiler.size),
+                                      Arrays.copyOf(compiler.slots, compiler.size),
+                                      Arrays.copyOf(compiler.litterals, compiler.size),
+                                      compiler.maxDepth);
+    }
+
+    private void emit(byte opcode, int slot, double litteral, int depthIncrement) {
+        if (size == opcodes.length) {
+            opcodes = Arrays.copyOf(opcodes, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+            litterals = Arrays.copyOf(litterals, size * 2);
+        }
+        opcodes[size] = opcode;
+        slots[size] = slot;
+        litterals[size] = litteral;
+        size++;
+        depth += depthIncrement;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    @Override
+    public Void visit(Attribute node, Void arg) {
+        throw new IllegalStateException("Attribute " + node.getId() + " outside of a comparison");
+    }
+
+    @Override
+    public Void visit(Litteral node, Void arg) {
+        throw new IllegalStateException("Litteral " + node.getValue() + " outside of a comparison");
+    }
+
+    @Override
+    public Void visit(ComparisonOperator node, Void arg) {
+        byte opcode;
+        switch (node.getType()) {
+            case LESS:
+                opcode = CompiledExpression.LESS;
+                break;
+            case GREATER_EQUAL:
+                opcode = CompiledExpression.GREATER_EQUAL;
+                break;
+            default:
+                throw new InternalError();
+        }
+        emit(opcode, attributeSlots.getSlot(node.getNode1().getId()), node.getNode2().getValue(), 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(AndOperator node, Void arg) {
+        node.getNode1().accept(this, arg);
+        node.getNode2().accept(this, arg);
+        emit(CompiledExpression.AND, -1, Double.NaN, -1);
+        return null;
+    }
+
+    @Override
+    public Void visit(OrOperator node, Void arg) {
+        node.getNode1().accept(this, arg);
+        node.getNode2().accept(this, arg);
+        emit(CompiledExpression.OR, -1, Double.NaN, -1);
+        return null;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016, All partners of the iTesla project (http://www.itesla-project.eu/consortium)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.rules.expr;
+
+import eu.itesla_project.modules.histo.HistoDbAttr;
+import eu.itesla_project.modules.histo.HistoDbAttributeId;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class CompiledExpressionTest {
+
+    private static final HistoDbAttributeId A = new HistoDbNetworkAttributeId("a", HistoDbAttr.P);
+    private static final HistoDbAttributeId B = new HistoDbNetworkAttributeId("b", HistoDbAttr.Q);
+    private static final HistoDbAttributeId C = new HistoDbNetworkAttributeId("c", HistoDbAttr.V);
+
+    // (a < 1 and b >= 2) or c < 3
+    private static ExpressionNode createExpression() {
+        return new OrOperator(new AndOperator(new ComparisonOperator(new Attribute(A), new Litteral(1), ComparisonOperator.Type.LESS),
+                                              new ComparisonOperator(new Attribute(B), new Litteral(2), ComparisonOperator.Type.GREATER_EQUAL)),
+                              new ComparisonOperator(new Attribute(C), new Litteral(3), ComparisonOperator.Type.LESS));
+    }
+
+    @Test
+    public void testSlots() {
+        AttributeSlots slots = new AttributeSlots();
+        CompiledExpression compiled = CompiledExpression.compile(createExpression(), slots);
+        assertEquals(5, compiled.size());
+        assertEquals(3, slots.size());
+        // attributes already referenced keep their slot
+        CompiledExpression.compile(new ComparisonOperator(new Attribute(B), new Litteral(0), ComparisonOperator.Type.LESS), slots);
+        assertEquals(3, slots.size());
+    }
+
+    @Test
+    public void testConstant() {
+        assertTrue(CompiledExpression.constant(true).eval(new double[0]));
+        assertFalse(CompiledExpression.constant(false).eval(new double[0]));
+    }
+
+    @Test
+    public void testNaN() {
+        AttributeSlots slots = new AttributeSlots();
+        CompiledExpression compiled = CompiledExpression.compile(new ComparisonOperator(new Attribute(A), new Litteral(1), ComparisonOperator.Type.LESS), slots);
+        // a missing attribute is considered ok, as with the visitor
+        Map<HistoDbAttributeId, Object> values = new HashMap<>();
+        assertTrue(compiled.eval(slots.toValues(values)));
+        values.put(A, Double.NaN);
+        assertTrue(compiled.eval(slots.toValues(values)));
+        values.put(A, 2f);
+        assertFalse(compiled.eval(slots.toValues(values)));
+        // integer values, like tap positions, are numbers too
+        values.put(A, 2);
+        assertFalse(compiled.eval(slots.toValues(values)));
+        values.put(A, 0);
+        assertTrue(compiled.eval(slots.toValues(values)));
+        // a non numeric value is an error
+        values.put(A, "2");
+        try {
+            slots.toValues(values);
+            fail();
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    @Test
+    public void testSameResultAsEvaluator() {
+        ExpressionNode expression = createExpression();
+        AttributeSlots slots = new AttributeSlots();
+        CompiledExpression compiled = CompiledExpression.compile(expression, slots);
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            Map<HistoDbAttributeId, Object> values = new HashMap<>();
+            for (HistoDbAttributeId id : new HistoDbAttributeId[] {A, B, C}) {
+                int r = random.nextInt(10);
+                if (r == 0) {
+                    continue; // missing
+                } else if (r == 1) {
+                    values.put(id, Double.NaN);
+                } else {
+                    values.put(id, random.nextDouble() * 5);
+                }
+            }
+            assertEquals(ExpressionEvaluator.eval(expression, values, null), compiled.eval(slots.toValues(values)));
+        }
+    }
+
+}
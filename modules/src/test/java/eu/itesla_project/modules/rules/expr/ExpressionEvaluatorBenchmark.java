@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2016, All partners of the iTesla project (http://www.itesla-project.eu/consortium)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.modules.rules.expr;
+
+import eu.itesla_project.modules.histo.HistoDbAttr;
+import eu.itesla_project.modules.histo.HistoDbAttributeId;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare rule evaluation with the {@link ExpressionEvaluator} visitor and with {@link CompiledExpression}.
+ * Not run by the unit tests, launch the main method to run it.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpressionEvaluatorBenchmark {
+
+    @Param({"1000"})
+    private int ruleCount;
+
+    @Param({"8"})
+    private int ruleDepth;
+
+    @Param({"5000"})
+    private int attributeCount;
+
+    private final List<ExpressionNode> rules = new ArrayList<>();
+
+    private final List<CompiledExpression> compiledRules = new ArrayList<>();
+
+    private Map<HistoDbAttributeId, Object> values;
+
+    private double[] slotValues;
+
+    private static FirstLevelNode createTree(Random random, int depth, int attributeCount) {
+        ComparisonOperator comparison = new ComparisonOperator(new Attribute(new HistoDbNetworkAttributeId("eq" + random.nextInt(attributeCount), HistoDbAttr.P)),
+                                                               new Litteral(random.nextDouble() * 100),
+                                                               random.nextBoolean() ? ComparisonOperator.Type.LESS : ComparisonOperator.Type.GREATER_EQUAL);
+        if (depth == 0) {
+            return comparison;
+        }
+        return random.nextBoolean() ? new AndOperator(createTree(random, depth - 1, attributeCount), comparison)
+                                    : new OrOperator(new AndOperator(createTree(random, depth - 1, attributeCount), comparison), comparison);
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        AttributeSlots slots = new AttributeSlots();
+        for (int i = 0; i < ruleCount; i++) {
+            ExpressionNode rule = createTree(random, ruleDepth, attributeCount);
+            rules.add(rule);
+            compiledRules.add(CompiledExpression.compile(rule, slots));
+        }
+        values = new HashMap<>();
+        for (int i = 0; i < attributeCount; i++) {
+            values.put(new HistoDbNetworkAttributeId("eq" + i, HistoDbAttr.P), random.nextDouble() * 100);
+        }
+        slotValues = slots.toValues(values);
+    }
+
+    @Benchmark
+    public void visitor(Blackhole blackhole) {
+        for (ExpressionNode rule : rules) {
+            blackhole.consume(ExpressionEvaluator.eval(rule, values, null));
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (CompiledExpression rule : compiledRules) {
+            blackhole.consume(rule.eval(slotValues));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExpressionEvaluatorBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
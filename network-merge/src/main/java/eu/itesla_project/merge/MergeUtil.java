@@ -21,9 +21,12 @@ import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -82,43 +85,45 @@ public final class MergeUtil {
                     .setPhaseShifterRegulationOn(false)
                     .setVoltageInitMode(LoadFlowParameters.VoltageInitMode.DC_VALUES);
 
-            List<Network> networksToMerge = new ArrayList<>();
+            // load and compute a loadflow on each country case concurrently
+            Map<Country, CompletableFuture<List<Network>>> networksByCountry = new LinkedHashMap<>();
             for (Country country : countries.stream().sorted().collect(Collectors.toList())) {
-                List<Network> networks = caseRepository.load(date, caseType, country);
-                if (networks.isEmpty()) {
-                    throw new RuntimeException("Network not found for date " + date + " and country " + country);
-                }
-                if (optimize) {
-                    for (Network network : networks) {
-                        LoadFlow loadFlow = loadFlowFactory.create(network, computationManager, loadFlowPriority);
-                        LoadFlowResult result = loadFlow.run(network.getStateManager().getWorkingStateId(), loadFlowParameters).join();
-                        if (!result.isOk()) {
-                            LOGGER.error("LF divergence on network " + network.getId());
+                networksByCountry.put(country, loadCountry(caseRepository, date, caseType, country, loadFlowFactory, loadFlowPriority,
+                                                           loadFlowParameters, computationManager, optimize));
+            }
+
+            // topological merge, in the country order so that the result does not depend on the tasks completion order
+            Network merge = null;
+            int networkCount = 0;
+            try {
+                for (CompletableFuture<List<Network>> networks : networksByCountry.values()) {
+                    for (Network network : networks.join()) {
+                        // store initial case date in properties for maybe later use
+                        for (VoltageLevel vl : network.getVoltageLevels()) {
+                            vl.getProperties().setProperty(CASE_DATE, network.getCaseDate().toString());
+                            vl.getProperties().setProperty(FORECAST_DISTANCE, Integer.toString(network.getForecastDistance()));
                         }
+                        if (merge == null) {
+                            merge = network;
+                        } else {
+                            merge.merge(network);
+                        }
+                        networkCount++;
                     }
                 }
-                networksToMerge.addAll(networks);
+            } catch (RuntimeException e) {
+                // do not wait for the other countries, and report the failure of the country task as is
+                networksByCountry.values().forEach(networks -> networks.cancel(true));
+                if (e instanceof CompletionException && e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
             }
-            if (networksToMerge.isEmpty()) {
+            if (merge == null) {
                 throw new RuntimeException("Empty network list to merge");
             }
 
-            // store initial case date in properties for maybe later use
-            for (Network network : networksToMerge) {
-                for (VoltageLevel vl : network.getVoltageLevels()) {
-                    vl.getProperties().setProperty(CASE_DATE, network.getCaseDate().toString());
-                    vl.getProperties().setProperty(FORECAST_DISTANCE, Integer.toString(network.getForecastDistance()));
-                }
-            }
-
-            // topological merge
-            Network merge = networksToMerge.get(0);
-            if (networksToMerge.size() > 1) {
-                for (int i = 1; i < networksToMerge.size(); i++) {
-                    Network otherNetwork = networksToMerge.get(i);
-                    merge.merge(otherNetwork);
-                }
-
+            if (networkCount > 1) {
                 if (optimize) {
                     // global optimization to build a consistent case
                     MergeOptimizer optimizer = mergeOptimizerFactory.newMergeOptimizer(merge, computationManager);
@@ -140,4 +145,41 @@ public final class MergeUtil {
         }
     }
 
+    private static CompletableFuture<List<Network>> loadCountry(CaseRepository caseRepository, DateTime date, CaseType caseType, Country country,
+                                                                LoadFlowFactory loadFlowFactory, int loadFlowPriority, LoadFlowParameters loadFlowParameters,
+                                                                ComputationManager computationManager, boolean optimize) {
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    long start = System.currentTimeMillis();
+                    List<Network> networks = caseRepository.load(date, caseType, country);
+                    if (networks.isEmpty()) {
+                        throw new RuntimeException("Network not found for date " + date + " and country " + country);
+                    }
+                    LOGGER.info("{} case loaded in {} ms", country, System.currentTimeMillis() - start);
+                    return networks;
+                }, computationManager.getExecutor())
+                .thenCompose(networks -> {
+                    if (!optimize) {
+                        return CompletableFuture.completedFuture(networks);
+                    }
+                    long loadFlowStart = System.currentTimeMillis();
+                    CompletableFuture<?>[] loadFlows = networks.stream()
+                            .map(network -> {
+                                LoadFlow loadFlow = loadFlowFactory.create(network, computationManager, loadFlowPriority);
+                                return loadFlow.run(network.getStateManager().getWorkingStateId(), loadFlowParameters)
+                                        .thenAccept(result -> {
+                                            if (!result.isOk()) {
+                                                LOGGER.error("LF divergence on network " + network.getId());
+                                            }
+                                        });
+                            })
+                            .toArray(CompletableFuture<?>[]::new);
+                    return CompletableFuture.allOf(loadFlows)
+                            .thenApply(ignored -> {
+                                LOGGER.info("{} case loadflow computed in {} ms", country, System.currentTimeMillis() - loadFlowStart);
+                                return networks;
+                            });
+                });
+    }
+
 }
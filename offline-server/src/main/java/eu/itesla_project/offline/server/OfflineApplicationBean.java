@@ -11,6 +11,7 @@ import eu.itesla_project.modules.rules.RuleId;
 import eu.itesla_project.modules.rules.SecurityRule;
 import eu.itesla_project.offline.*;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import eu.itesla_project.offline.server.message.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,7 @@ import javax.naming.InitialContext;
 import java.net.MalformedURLException;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -66,6 +68,11 @@ public class OfflineApplicationBean {
             webSocketContext.send(new BusyCoresSeriesMessage(busyCores));
         }
 
+        @Override
+        public void onPipelineMetricsUpdate(String workflowId, List<PipelineStageMetrics> metrics) {
+            webSocketContext.send(new PipelineMetricsMessage(workflowId, metrics));
+        }
+
         @Override
         public void onWorkflowStatusChange(OfflineWorkflowStatus status) {
             webSocketContext.send(new WorkflowStatusMessage(status));
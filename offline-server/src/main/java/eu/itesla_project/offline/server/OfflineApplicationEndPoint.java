@@ -32,6 +32,7 @@ import org.slf4j.LoggerFactory;
 @ServerEndpoint(value = "/messages/offline", encoders = {
     BusyCoresSeriesMessageEncoder.class,
     LoginMessageEncoder.class,
+    PipelineMetricsMessageEncoder.class,
     SamplesSynthesisMessageEncoder.class,
     SecurityIndexesSynthesisMessageEncoder.class,
     SecurityRuleDescriptionMessageEncoder.class,
@@ -20,6 +20,7 @@ import com.powsybl.simulation.securityindexes.SecurityIndexId;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 import eu.itesla_project.offline.*;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -70,6 +71,13 @@ public class OfflineApplicationMock implements RemoteOfflineApplication {
             }
         }
 
+        @Override
+        public void onPipelineMetricsUpdate(String workflowId, List<PipelineStageMetrics> metrics) {
+            for (OfflineApplicationListener l : listeners) {
+                l.onPipelineMetricsUpdate(workflowId, metrics);
+            }
+        }
+
         @Override
         public void onWorkflowStatusChange(OfflineWorkflowStatus status) {
             for (OfflineApplicationListener l : listeners) {
@@ -266,6 +274,11 @@ public class OfflineApplicationMock implements RemoteOfflineApplication {
             return creationParameters;
         }
 
+        @Override
+        public List<PipelineStageMetrics> getPipelineMetrics() {
+            return Collections.emptyList();
+        }
+
         @Override
         public void addListener(OfflineWorkflowListener listener) {
             throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.server.message;
+
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
+import java.util.List;
+import javax.json.stream.JsonGenerator;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class PipelineMetricsMessage extends Message {
+
+    private final String workflowId;
+
+    private final List<PipelineStageMetrics> metrics;
+
+    public PipelineMetricsMessage(String workflowId, List<PipelineStageMetrics> metrics) {
+        this.workflowId = workflowId;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected String getType() {
+        return "pipelineMetrics";
+    }
+
+    @Override
+    public void toJson(JsonGenerator generator) {
+        generator.write("workflowId", workflowId);
+        generator.writeStartArray("stages");
+        for (PipelineStageMetrics stageMetrics : metrics) {
+            generator.writeStartObject()
+                    .write("stage", stageMetrics.getStage())
+                    .write("parallelism", stageMetrics.getParallelism())
+                    .write("queueSize", stageMetrics.getQueueSize())
+                    .write("queueCapacity", stageMetrics.getQueueCapacity())
+                    .write("processed", stageMetrics.getProcessed())
+                    .write("failed", stageMetrics.getFailed())
+                    .write("throughput", stageMetrics.getThroughput())
+                    .writeEnd();
+        }
+        generator.writeEnd();
+    }
+
+}
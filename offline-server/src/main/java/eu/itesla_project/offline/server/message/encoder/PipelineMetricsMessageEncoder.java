@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.server.message.encoder;
+
+import eu.itesla_project.offline.server.message.PipelineMetricsMessage;
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+import javax.websocket.EndpointConfig;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class PipelineMetricsMessageEncoder implements Encoder.Text<PipelineMetricsMessage> {
+
+    @Override
+    public String encode(PipelineMetricsMessage message) throws EncodeException {
+        return message.toJson();
+    }
+
+    @Override
+    public void init(EndpointConfig config) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -24,12 +24,15 @@ import eu.itesla_project.modules.rules.RulesBuildListener;
 import eu.itesla_project.modules.rules.RulesBuilder;
 import com.powsybl.simulation.SimulatorFactory;
 import eu.itesla_project.modules.validation.ValidationDb;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
@@ -215,6 +218,11 @@ abstract class AbstractOfflineWorkflow implements OfflineWorkflow {
         return creationParameters;
     }
 
+    @Override
+    public List<PipelineStageMetrics> getPipelineMetrics() {
+        return Collections.emptyList();
+    }
+
     @Override
     public void addListener(OfflineWorkflowListener listener) {
     }
@@ -23,6 +23,7 @@ import com.powsybl.simulation.SimulatorFactory;
 import eu.itesla_project.modules.topo.TopologyMinerFactory;
 import eu.itesla_project.modules.validation.ValidationDb;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -146,6 +147,8 @@ public class LocalOfflineApplication extends NotificationBroadcasterSupport impl
 
                     notifyBusyCoresSeriesChange();
 
+                    notifyPipelineMetricsChange();
+
                 } catch (Throwable t) {
                     LOGGER.error(t.toString(), t);
                 }
@@ -207,6 +210,42 @@ public class LocalOfflineApplication extends NotificationBroadcasterSupport impl
         }
     }
 
+    private void notifyPipelineMetricsChange() {
+        List<OfflineWorkflow> runningWorkflows = new ArrayList<>();
+        workflowsLock.lock();
+        try {
+            for (OfflineWorkflow workflow : workflows.values()) {
+                if (workflow.getStatus().isRunning()) {
+                    runningWorkflows.add(workflow);
+                }
+            }
+        } finally {
+            workflowsLock.unlock();
+        }
+        for (OfflineWorkflow workflow : runningWorkflows) {
+            List<PipelineStageMetrics> metrics = workflow.getPipelineMetrics();
+            if (metrics.isEmpty()) {
+                continue;
+            }
+            for (OfflineApplicationListener l : listeners) {
+                try {
+                    l.onPipelineMetricsUpdate(workflow.getId(), metrics);
+                } catch (Exception e) {
+                    LOGGER.error(e.toString(), e);
+                }
+            }
+
+            sendNotification(new AttributeChangeNotification(this,
+                                                             notificationIndex.getAndIncrement(),
+                                                             System.currentTimeMillis(),
+                                                             "Pipeline metrics have changed",
+                                                             PIPELINE_METRICS.toString(),
+                                                             Object[].class.getName(),
+                                                             null,
+                                                             new Object[] {workflow.getId(), new ArrayList<>(metrics)}));
+        }
+    }
+
     private void notifyWorkflowCreation(OfflineWorkflow workflow) {
         for (OfflineApplicationListener l : listeners) {
             try {
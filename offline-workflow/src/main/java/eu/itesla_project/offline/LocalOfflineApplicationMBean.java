@@ -17,6 +17,7 @@ public interface LocalOfflineApplicationMBean extends OfflineApplication {
     enum Attribute {
         /* Resources management */
         BUSY_CORES,
+        PIPELINE_METRICS,           // metrics of the stages of a running workflow
         /* Workflow lifecycle */
         WORKFLOW_CREATION, WORKFLOW_REMOVAL, WORKFLOW_LIST, WORKFLOW_STATUS,
         /* Workflow details */
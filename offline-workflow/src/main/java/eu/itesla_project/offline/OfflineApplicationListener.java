@@ -10,8 +10,10 @@ import eu.itesla_project.modules.offline.SecurityIndexSynthesis;
 import eu.itesla_project.modules.rules.RuleId;
 import eu.itesla_project.modules.rules.SecurityRule;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  *
@@ -25,6 +27,8 @@ public interface OfflineApplicationListener {
 
     void onBusyCoresUpdate(BusyCoresSeries busyCoresSeries);
 
+    void onPipelineMetricsUpdate(String workflowId, List<PipelineStageMetrics> metrics);
+
     void onWorkflowStatusChange(OfflineWorkflowStatus status);
 
     void onWorkflowListChange(Collection<OfflineWorkflowStatus> statuses);
@@ -12,8 +12,10 @@ import eu.itesla_project.modules.rules.RuleId;
 import eu.itesla_project.modules.rules.SecurityRule;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  *
@@ -36,6 +38,11 @@ public class OfflineApplicationPrinter implements OfflineApplicationListener {
         System.out.println("onBusyCoresUpdate " + busyCores);
     }
 
+    @Override
+    public void onPipelineMetricsUpdate(String workflowId, List<PipelineStageMetrics> metrics) {
+        System.out.println("onPipelineMetricsUpdate " + workflowId + " " + metrics);
+    }
+
     @Override
     public void onWorkflowListChange(Collection<OfflineWorkflowStatus> statuses) {
         System.out.println("onWorkflowListChange");
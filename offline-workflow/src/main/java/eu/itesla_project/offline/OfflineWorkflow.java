@@ -7,6 +7,9 @@
 package eu.itesla_project.offline;
 
 import eu.itesla_project.modules.offline.OfflineWorkflowCreationParameters;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
+
+import java.util.List;
 
 
 /**
@@ -30,6 +33,11 @@ public interface OfflineWorkflow {
 
     OfflineWorkflowCreationParameters getCreationParameters();
 
+    /**
+     * Metrics of the stages of the workflow, empty if the workflow is not running
+     */
+    List<PipelineStageMetrics> getPipelineMetrics();
+
     void addListener(OfflineWorkflowListener listener);
 
     void removeListener(OfflineWorkflowListener listener);
@@ -6,8 +6,6 @@
  */
 package eu.itesla_project.offline;
 
-import com.google.common.collect.ForwardingBlockingDeque;
-import com.google.common.collect.Queues;
 import com.powsybl.computation.ComputationManager;
 import com.powsybl.iidm.network.*;
 import com.powsybl.iidm.network.util.Networks;
@@ -33,6 +31,8 @@ import eu.itesla_project.modules.topo.TopologyMiner;
 import eu.itesla_project.modules.topo.TopologyMinerFactory;
 import eu.itesla_project.modules.topo.UniqueTopologyBuilder;
 import eu.itesla_project.modules.validation.ValidationDb;
+import eu.itesla_project.offline.OfflineWorkflowPipeline.HandOff;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import com.powsybl.security.Security;
 import com.powsybl.simulation.securityindexes.SecurityIndex;
 import com.powsybl.simulation.*;
@@ -43,9 +43,12 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
 import static eu.itesla_project.modules.offline.OfflineTaskStatus.FAILED;
 import static eu.itesla_project.modules.offline.OfflineTaskStatus.SUCCEED;
@@ -59,13 +62,16 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OfflineWorkflowImpl.class);
 
-    protected static final int TIMEOUT = 100;
-
     protected  interface ImpactAnalysisController {
 
         boolean isStopRequested();
 
-        SimulationState nextState();
+        /**
+         * Wait for the next state to analyse
+         *
+         * @return the next state, null if the workflow is stopped
+         */
+        SimulationState nextState() throws InterruptedException;
 
     }
 
@@ -107,6 +113,35 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
 
     private final SampleIdGenerator idGenerator;
 
+    private final AtomicReference<OfflineWorkflowPipeline> currentPipeline = new AtomicReference<>();
+
+    /**
+     * A sample going through the stages of the workflow, with its network state
+     */
+    private static final class SampleTask {
+
+        private final Sample sample;
+
+        private final String stateId;
+
+        private SampleTask(Sample sample) {
+            this.sample = Objects.requireNonNull(sample);
+            stateId = "Sample-" + sample.getId();
+        }
+
+        private Sample getSample() {
+            return sample;
+        }
+
+        private int getSampleId() {
+            return sample.getId();
+        }
+
+        private String getStateId() {
+            return stateId;
+        }
+    }
+
     public OfflineWorkflowImpl(String id, OfflineWorkflowCreationParameters creationParameters, ComputationManager computationManager,
                                ContingenciesAndActionsDatabaseClientFactory cadbClientFactory,
                                HistoDbClientFactory histoDbClientFactory, TopologyMinerFactory topologyMinerFactory,
@@ -259,62 +294,83 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
 
     public void runImpactAnalysis(WorkflowContext context, int availableCores, ImpactAnalysisController controller, final ImpactAnalysisResultCallback callback,
                                   ContingenciesAndActionsDatabaseClient cadbClient) throws Exception {
-        final AtomicInteger busyCores = new AtomicInteger();
-
+        final Lock lock = new ReentrantLock();
+        final Condition coresReleased = lock.newCondition();
+        final Condition zero = lock.newCondition();
+        final int[] busyCores = new int[1];
         final int[] startCounter = new int[1];
-        final Lock startLock = new ReentrantLock();
-        final Condition zero = startLock.newCondition();
 
         int contingencyCount = cadbClient.getContingencies(context.getNetwork()).size();
 
+        IntConsumer releaseCores = count -> {
+            if (count > 0) {
+                lock.lock();
+                try {
+                    busyCores[0] -= count;
+                    coresReleased.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+
         while (!controller.isStopRequested()) {
-            SimulationState state;
-            if (busyCores.get() >= availableCores || (state = controller.nextState()) == null) {
-                TimeUnit.MILLISECONDS.sleep(TIMEOUT);
-                continue;
+            SimulationState state = controller.nextState();
+            if (state == null) {
+                break;
             }
 
-            busyCores.addAndGet(contingencyCount);
+            // wait for the running impact analysis to release enough cores, no need to check for a stop request
+            // as running impact analysis always end
+            lock.lock();
+            try {
+                while (busyCores[0] >= availableCores) {
+                    coresReleased.await();
+                }
+                busyCores[0] += contingencyCount;
+                startCounter[0]++;
+            } finally {
+                lock.unlock();
+            }
 
             callback.onStart(state);
 
-            context.getImpactAnalysis().runAsync(state, null, index -> busyCores.decrementAndGet())
-                    .thenAcceptAsync(impactAnalysisResult -> {
+            // cores of this impact analysis not released yet
+            AtomicInteger cores = new AtomicInteger(contingencyCount);
+
+            context.getImpactAnalysis().runAsync(state, null, index -> releaseCores.accept(cores.getAndUpdate(c -> Math.max(c - 1, 0)) > 0 ? 1 : 0))
+                    .whenCompleteAsync((impactAnalysisResult, throwable) -> {
                         try {
-                            try {
+                            releaseCores.accept(cores.getAndSet(0));
+                            if (throwable != null) {
+                                LOGGER.error(throwable.toString(), throwable);
+                            } else {
                                 callback.onResult(state, impactAnalysisResult);
-                            } finally {
-                                startLock.lock();
-                                try {
-                                    startCounter[0]--;
-                                    if (startCounter[0] == 0) {
-                                        zero.signal();
-                                    }
-                                } finally {
-                                    startLock.unlock();
-                                }
                             }
                         } catch (Exception e) {
                             LOGGER.error(e.toString(), e);
+                        } finally {
+                            lock.lock();
+                            try {
+                                startCounter[0]--;
+                                if (startCounter[0] == 0) {
+                                    zero.signal();
+                                }
+                            } finally {
+                                lock.unlock();
+                            }
                         }
                     }, executorService);
-
-            startLock.lock();
-            try {
-                startCounter[0]++;
-            } finally {
-                startLock.unlock();
-            }
         }
 
         // wait for startCount to reach zero
-        startLock.lock();
+        lock.lock();
         try {
             while (startCounter[0] != 0) {
                 zero.await();
             }
         } finally {
-            startLock.unlock();
+            lock.unlock();
         }
     }
 
@@ -440,8 +496,12 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
             LOGGER.info("Stabilization module: {} {}", stabilization.getName(), Objects.toString(stabilization.getVersion(), ""));
             LOGGER.info("Impact analysis module: {} {}", impactAnalysis.getName(), Objects.toString(impactAnalysis.getVersion(), ""));
 
+            OfflineWorkflowStartParameters startParameters = startContext.getStartParameters();
             int cores = computationManager.getResourcesStatus().getAvailableCores();
-            final int stateQueueSize = startContext.getStartParameters().getStateQueueSize() != -1 ? startContext.getStartParameters().getStateQueueSize() : 2;
+            final int stateQueueSize = startParameters.getStateQueueSize() != -1 ? startParameters.getStateQueueSize() : 2;
+            int startingPointInitThreads = startParameters.getStartingPointInitThreads() != -1 ? startParameters.getStartingPointInitThreads() : stateQueueSize;
+            int loadFlowThreads = startParameters.getLoadFlowThreads() != -1 ? startParameters.getLoadFlowThreads() : stateQueueSize;
+            int stabilizationThreads = startParameters.getStabilizationThreads() != -1 ? startParameters.getStabilizationThreads() : stateQueueSize;
 
             LOGGER.trace("State queue initial size: {}", stateQueueSize);
 
@@ -460,146 +520,85 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
             final WorkflowContext context = new WorkflowContext(network, sampler, optimizer, loadFlow, stabilization,
                     impactAnalysis, loadFlowParameters);
 
-            final BlockingDeque<Sample> samples = new ForwardingBlockingDeque<Sample>() {
-
-                private final BlockingDeque<Sample> delegate = new LinkedBlockingDeque<>(startContext.getStartParameters().getSampleQueueSize());
-
-                @Override
-                protected BlockingDeque<Sample> delegate() {
-                    return delegate;
-                }
-
-                @Override
-                public boolean offer(Sample o) {
-                    boolean inserted = super.offer(o);
-                    LOGGER.trace("Sample queue size ++: {}", delegate.size());
-                    return inserted;
-                }
+            // sampling -> starting point initialization -> load flow -> stabilization -> impact analysis
+            final OfflineWorkflowPipeline pipeline = new OfflineWorkflowPipeline(id, executorService);
+            final HandOff<Sample> samples = pipeline.newHandOff(startParameters.getSampleQueueSize());
+            final HandOff<SampleTask> initializedSamples = pipeline.newHandOff(loadFlowThreads);
+            final HandOff<SampleTask> loadFlowSamples = pipeline.newHandOff(stabilizationThreads);
+            final HandOff<SimulationState> states = pipeline.newHandOff(stateQueueSize);
+            final Map<SimulationState, Integer> sampleIds = new ConcurrentHashMap<>();
+
+            OfflineWorkflowPipeline.Stage samplingStage = pipeline.newStage(SAMPLING.name(), startParameters.getSamplingThreads(), null);
+            OfflineWorkflowPipeline.Stage startingPointInitStage = pipeline.newStage(STARTING_POINT_INITIALIZATION.name(), startingPointInitThreads, samples);
+            OfflineWorkflowPipeline.Stage loadFlowStage = pipeline.newStage(LOAD_FLOW.name(), loadFlowThreads, initializedSamples);
+            OfflineWorkflowPipeline.Stage stabilizationStage = pipeline.newStage(STABILIZATION.name(), stabilizationThreads, loadFlowSamples);
+            OfflineWorkflowPipeline.Stage impactAnalysisStage = pipeline.newStage(IMPACT_ANALYSIS.name(), cores, states);
+
+            currentPipeline.set(pipeline);
+            if (isStopRequested(startContext)) {
+                pipeline.cancel();
+            }
+            if (startParameters.getDuration() != -1) {
+                pipeline.cancelAfter(startContext.getStartMs() + TimeUnit.MINUTES.toMillis(startParameters.getDuration()) - System.currentTimeMillis(),
+                                     TimeUnit.MILLISECONDS);
+            }
 
-                @Override
-                public Sample poll(long timeout, TimeUnit unit) throws InterruptedException {
-                    Sample sample = super.poll(timeout, unit);
-                    if (sample != null) {
-                        int size = delegate.size();
-                        LOGGER.trace("Sample queue size --: {}", size);
-                        if (size == 0) {
-                            LOGGER.warn("Sample queue is empty");
+            pipeline.produce(samplingStage, () -> {
+                SamplerResult result = runSampling(startParameters.getSamplesPerThread(), context, startContext);
+                if (result != null && result.isOk()) {
+                    samplingStage.processed(result.getSamples().size());
+                    for (Sample sample : result.getSamples()) {
+                        if (!samples.put(sample)) {
+                            break;
                         }
                     }
-                    return sample;
+                } else {
+                    samplingStage.failed();
                 }
-
-            };
-
-            List<Future<?>> sampleFutures = new ArrayList<>();
-            final Semaphore samplePermits = new Semaphore(startContext.getStartParameters().getSampleQueueSize(), true);
-
-            for (int i = 0; i < startContext.getStartParameters().getSamplingThreads(); i++) {
-                sampleFutures.add(executorService.submit(() -> {
-                    try {
-                        // and then we continousloy re-sample
-                        while (!isStopRequested(startContext)) {
-                            // wait for a sample permit
-                            while (!isStopRequested(startContext) && !samplePermits.tryAcquire(startContext.getStartParameters().getSamplesPerThread(), TIMEOUT, TimeUnit.MILLISECONDS)) {
-                            }
-
-                            if (!isStopRequested(startContext)) {
-                                SamplerResult result = runSampling(startContext.getStartParameters().getSamplesPerThread(), context, startContext);
-                                if (result != null && result.isOk()) {
-                                    for (Sample sample : result.getSamples()) {
-                                        samples.offer(sample);
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Throwable e) {
-                        LOGGER.error(e.toString(), e);
-                    }
-                }));
-            }
-
-            List<Future<?>> stateFutures = new ArrayList<>();
-            final Semaphore statePermits = new Semaphore(stateQueueSize, true);
-            final Queue<SimulationState> states = Queues.synchronizedQueue(new ArrayDeque<SimulationState>(stateQueueSize));
-            final Map<SimulationState, Integer> sampleIds = Collections.synchronizedMap(new HashMap<>());
-
-            for (int i = 0; i < stateQueueSize; i++) {
-                stateFutures.add(executorService.submit(() -> {
-                    try {
-                        while (!isStopRequested(startContext)) {
-                            // wait for a state permit
-                            while (!isStopRequested(startContext) && !statePermits.tryAcquire(TIMEOUT, TimeUnit.MILLISECONDS)) {
-                            }
-
-                            // wait for a sample to be available
-                            Sample sample = null;
-                            while (!isStopRequested(startContext) && (sample = samples.poll(TIMEOUT, TimeUnit.MILLISECONDS)) == null) {
-                            }
-
-                            if (sample != null) {
-                                samplePermits.release();
-
-                                String stateId = "Sample-" + sample.getId();
-
-                                // create a new network state
-                                context.getNetwork().getStateManager().cloneState(StateManagerConstants.INITIAL_STATE_ID, stateId);
-                                try {
-                                    // set current thread working state
-                                    context.getNetwork().getStateManager().setWorkingState(stateId);
-
-                                    // apply the sample to the network
-                                    sample.apply(context.getNetwork());
-
-                                    SimulationState state = null;
-                                    if (!isStopRequested(startContext) && runStartingPointInit(context, startContext, sample.getId())
-                                            && !isStopRequested(startContext) && runLoadFlow(context, startContext, sample)
-                                            && !isStopRequested(startContext) && (state = runStabilization(context, startContext, sample.getId())) != null) {
-                                        sampleIds.put(state, sample.getId());
-                                        states.add(state);
-                                        LOGGER.trace("State queue size ++: {}", states.size());
-                                    } else {
-                                        statePermits.release();
-                                    }
-
-                                    // in any case store the sample in the and simulation db and validation
-                                    // db for later deep analysis
-                                    storeState(sample.getId(), context.getNetwork());
-
-                                    startContext.incrementProcessedSamples();
-
-                                    try {
-                                        validationDb.save(context.getNetwork(), OfflineWorkflow.getValidationDir(id), "sample-" + sample.getId());
-                                    } catch (Exception e) {
-                                        LOGGER.error(e.toString(), e);
-                                    }
-                                } finally {
-                                    context.getNetwork().getStateManager().removeState(stateId);
-                                }
-                            }
+            });
+
+            pipeline.consume(startingPointInitStage, samples, sample -> {
+                SampleTask task = new SampleTask(sample);
+                // create a new network state
+                context.getNetwork().getStateManager().cloneState(StateManagerConstants.INITIAL_STATE_ID, task.getStateId());
+                return runStep(pipeline, context, startContext, task, initializedSamples, () -> {
+                    // apply the sample to the network
+                    sample.apply(context.getNetwork());
+                    return runStartingPointInit(context, startContext, sample.getId());
+                });
+            });
+
+            pipeline.consume(loadFlowStage, initializedSamples, task -> runStep(pipeline, context, startContext, task, loadFlowSamples,
+                () -> runLoadFlow(context, startContext, task.getSample())));
+
+            pipeline.consume(stabilizationStage, loadFlowSamples, task -> {
+                SimulationState state = null;
+                try {
+                    context.getNetwork().getStateManager().setWorkingState(task.getStateId());
+                    if (!pipeline.isCancelled() && (state = runStabilization(context, startContext, task.getSampleId())) != null) {
+                        sampleIds.put(state, task.getSampleId());
+                        if (!states.put(state)) {
+                            sampleIds.remove(state);
                         }
-                    } catch (Throwable e) {
-                        LOGGER.error(e.toString(), e);
                     }
-                }));
-            }
+                } finally {
+                    completeSample(pipeline, context, startContext, task);
+                }
+                return state != null;
+            });
 
             ImpactAnalysisController controller = new ImpactAnalysisController() {
 
                 @Override
                 public boolean isStopRequested() {
-                    return OfflineWorkflowImpl.this.isStopRequested(startContext);
+                    return pipeline.isCancelled();
                 }
 
                 @Override
-                public SimulationState nextState() {
-                    SimulationState state = states.poll();
-                    if (state != null) {
-                        statePermits.release();
-                        int size = states.size();
-                        LOGGER.trace("State queue size --: {}", size);
-                        if (size == 0) {
-                            LOGGER.warn("State queue is empty");
-                        }
+                public SimulationState nextState() throws InterruptedException {
+                    SimulationState state = states.take();
+                    if (state != null && states.size() == 0) {
+                        LOGGER.warn("State queue is empty");
                     }
                     return state;
                 }
@@ -619,8 +618,10 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
                     try {
                         int sampleId = sampleIds.remove(state);
                         storeImpactAnalysisResults(context, startContext, sampleId, result);
+                        impactAnalysisStage.processed(1);
                     } catch (Exception e) {
                         LOGGER.error(e.toString(), e);
+                        impactAnalysisStage.failed();
                     }
                 }
             };
@@ -630,17 +631,19 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
             } catch (Exception e) {
                 LOGGER.error(e.toString(), e);
                 stopRequested.set(true);
+            } finally {
+                pipeline.cancel();
+                pipeline.await();
+                currentPipeline.set(null);
             }
 
-            for (Future<?> f : stateFutures) {
-                f.get();
-            }
-
-            samplePermits.release(samples.size());
-
-            for (Future<?> f : sampleFutures) {
-                f.get();
+            // release the network states of the samples left in the pipeline
+            for (HandOff<SampleTask> handOff : Arrays.asList(initializedSamples, loadFlowSamples)) {
+                for (SampleTask task : handOff.drain()) {
+                    context.getNetwork().getStateManager().removeState(task.getStateId());
+                }
             }
+            sampleIds.clear();
 
             // some offline db implementation may require to explicitly flush data on disk
             offlineDb.flush(id);
@@ -656,6 +659,64 @@ public class OfflineWorkflowImpl extends AbstractOfflineWorkflow {
         }
     }
 
+    /**
+     * Run a step on the network state of a sample, and hand the sample off to the next stage if the step succeeded
+     */
+    private boolean runStep(OfflineWorkflowPipeline pipeline, WorkflowContext context, WorkflowStartContext startContext, SampleTask task,
+                            HandOff<SampleTask> next, BooleanSupplier step) throws InterruptedException {
+        boolean ok = false;
+        boolean handedOff = false;
+        try {
+            // set current thread working state
+            context.getNetwork().getStateManager().setWorkingState(task.getStateId());
+            ok = !pipeline.isCancelled() && step.getAsBoolean();
+            handedOff = ok && next.put(task);
+        } finally {
+            if (!handedOff) {
+                completeSample(pipeline, context, startContext, task);
+            }
+        }
+        return ok;
+    }
+
+    private void completeSample(OfflineWorkflowPipeline pipeline, WorkflowContext context, WorkflowStartContext startContext, SampleTask task) {
+        try {
+            // in any case store the sample in the and simulation db and validation
+            // db for later deep analysis
+            storeState(task.getSampleId(), context.getNetwork());
+
+            startContext.incrementProcessedSamples();
+
+            try {
+                validationDb.save(context.getNetwork(), OfflineWorkflow.getValidationDir(id), "sample-" + task.getSampleId());
+            } catch (Exception e) {
+                LOGGER.error(e.toString(), e);
+            }
+        } finally {
+            context.getNetwork().getStateManager().removeState(task.getStateId());
+        }
+
+        // the maximum number of processed samples may have been reached
+        if (isStopRequested(startContext)) {
+            pipeline.cancel();
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        OfflineWorkflowPipeline pipeline = currentPipeline.get();
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+    }
+
+    @Override
+    public List<PipelineStageMetrics> getPipelineMetrics() {
+        OfflineWorkflowPipeline pipeline = currentPipeline.get();
+        return pipeline != null ? pipeline.getMetrics() : Collections.emptyList();
+    }
+
     @Override
     protected void notifyStatusChange(OfflineWorkflowStatus status) {
         for (OfflineWorkflowListener l : listeners) {
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline;
+
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stages of the offline workflow, connected by bounded hand-offs.
+ * <p>
+ * The workers of a stage block on their input hand-off until an item is available, and on their output
+ * hand-off until there is room for the processed item, so that the stages run at the pace of the slowest one
+ * without any polling. Cancelling the pipeline closes all the hand-offs, which wakes up the blocked workers:
+ * the items still queued are dropped and the workers terminate after their current item.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class OfflineWorkflowPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineWorkflowPipeline.class);
+
+    /**
+     * Bounded blocking queue which can be closed
+     */
+    static final class HandOff<T> {
+
+        private final int capacity;
+
+        private final ArrayDeque<T> items;
+
+        private final Lock lock = new ReentrantLock();
+
+        private final Condition notEmpty = lock.newCondition();
+
+        private final Condition notFull = lock.newCondition();
+
+        private boolean closed = false;
+
+        private HandOff(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Invalid hand-off capacity " + capacity);
+            }
+            this.capacity = capacity;
+            items = new ArrayDeque<>(capacity);
+        }
+
+        /**
+         * Wait for some room and add an item
+         *
+         * @return false if the hand-off has been closed, true otherwise
+         */
+        boolean put(T item) throws InterruptedException {
+            Objects.requireNonNull(item);
+            lock.lock();
+            try {
+                while (items.size() >= capacity && !closed) {
+                    notFull.await();
+                }
+                if (closed) {
+                    return false;
+                }
+                items.add(item);
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Wait for an item and remove it
+         *
+         * @return the item, null if the hand-off has been closed
+         */
+        T take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (items.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (closed) {
+                    return null;
+                }
+                T item = items.poll();
+                notFull.signal();
+                return item;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Remove the items left in the hand-off
+         */
+        List<T> drain() {
+            lock.lock();
+            try {
+                List<T> drained = new ArrayList<>(items);
+                items.clear();
+                notFull.signalAll();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return items.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+    }
+
+    @FunctionalInterface
+    interface Producer {
+
+        void produce() throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    interface Consumer<T> {
+
+        /**
+         * @return true if the item has been successfully processed
+         */
+        boolean consume(T item) throws InterruptedException;
+    }
+
+    final class Stage {
+
+        private final String name;
+
+        private final int parallelism;
+
+        private final HandOff<?> input;
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private Stage(String name, int parallelism, HandOff<?> input) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Invalid parallelism " + parallelism + " for stage " + name);
+            }
+            this.name = Objects.requireNonNull(name);
+            this.parallelism = parallelism;
+            this.input = input;
+        }
+
+        void processed(int count) {
+            processed.addAndGet(count);
+        }
+
+        void failed() {
+            failed.incrementAndGet();
+        }
+
+        private PipelineStageMetrics getMetrics(long elapsedMs) {
+            long processedCount = processed.get();
+            return new PipelineStageMetrics(name, parallelism,
+                                            input != null ? input.size() : 0,
+                                            input != null ? input.getCapacity() : 0,
+                                            processedCount, failed.get(),
+                                            (double) processedCount * TimeUnit.MINUTES.toMillis(1) / Math.max(elapsedMs, 1));
+        }
+    }
+
+    private final String workflowId;
+
+    private final ExecutorService executorService;
+
+    private final long startMs = System.currentTimeMillis();
+
+    private final List<HandOff<?>> handOffs = new CopyOnWriteArrayList<>();
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    private final List<Future<?>> workers = new CopyOnWriteArrayList<>();
+
+    private volatile Future<?> deadline;
+
+    private volatile boolean cancelled = false;
+
+    OfflineWorkflowPipeline(String workflowId, ExecutorService executorService) {
+        this.workflowId = Objects.requireNonNull(workflowId);
+        this.executorService = Objects.requireNonNull(executorService);
+    }
+
+    <T> HandOff<T> newHandOff(int capacity) {
+        HandOff<T> handOff = new HandOff<>(capacity);
+        handOffs.add(handOff);
+        if (cancelled) {
+            handOff.close();
+        }
+        return handOff;
+    }
+
+    Stage newStage(String name, int parallelism, HandOff<?> input) {
+        Stage stage = new Stage(name, parallelism, input);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Run the producer of a stage in a loop, until the pipeline is cancelled
+     */
+    void produce(Stage stage, Producer producer) {
+        Objects.requireNonNull(producer);
+        for (int i = 0; i < stage.parallelism; i++) {
+            workers.add(executorService.submit(() -> {
+                while (!cancelled) {
+                    try {
+                        producer.produce();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    } catch (Throwable e) {
+                        LOGGER.error(e.toString(), e);
+                        stage.failed();
+                    }
+                }
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Run the consumer of a stage on each item of its input hand-off, until the pipeline is cancelled
+     */
+    <T> void consume(Stage stage, HandOff<T> input, Consumer<T> consumer) {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(consumer);
+        for (int i = 0; i < stage.parallelism; i++) {
+            workers.add(executorService.submit(() -> {
+                T item;
+                try {
+                    while ((item = input.take()) != null) {
+                        try {
+                            if (consumer.consume(item)) {
+                                stage.processed(1);
+                            } else {
+                                stage.failed();
+                            }
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Throwable e) {
+                            LOGGER.error(e.toString(), e);
+                            stage.failed();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Cancel the pipeline when a delay has elapsed
+     */
+    void cancelAfter(long delay, TimeUnit unit) {
+        deadline = executorService.submit(() -> {
+            unit.sleep(delay);
+            LOGGER.info("Workflow {}: run duration elapsed", workflowId);
+            cancel();
+            return null;
+        });
+    }
+
+    void cancel() {
+        if (!cancelled) {
+            LOGGER.debug("Workflow {}: cancelling pipeline", workflowId);
+            cancelled = true;
+            for (HandOff<?> handOff : handOffs) {
+                handOff.close();
+            }
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Wait for the workers of the stages to terminate, the pipeline has to be cancelled first
+     */
+    void await() throws InterruptedException {
+        if (!cancelled) {
+            throw new IllegalStateException("Pipeline of workflow " + workflowId + " is not cancelled");
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                LOGGER.error(e.toString(), e);
+            }
+        }
+        Future<?> deadlineFuture = deadline;
+        if (deadlineFuture != null) {
+            deadlineFuture.cancel(true);
+        }
+    }
+
+    List<PipelineStageMetrics> getMetrics() {
+        long elapsedMs = System.currentTimeMillis() - startMs;
+        List<PipelineStageMetrics> metrics = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            metrics.add(stage.getMetrics(elapsedMs));
+        }
+        return metrics;
+    }
+}
@@ -31,6 +31,12 @@ public class OfflineWorkflowStartParameters implements Serializable {
 
     private final int maxProcessedSamples;
 
+    private final int startingPointInitThreads;
+
+    private final int loadFlowThreads;
+
+    private final int stabilizationThreads;
+
     public static OfflineWorkflowStartParameters load() {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("offline-default-start-parameters");
         int duration = config.getIntProperty("duration", -1);
@@ -39,20 +45,41 @@ public class OfflineWorkflowStartParameters implements Serializable {
         int samplesPerThread = config.getIntProperty("samplesPerThread");
         int stateQueueSize = config.getIntProperty("stateQueueSize", -1);
         int maxProcessedSamples = config.getIntProperty("maxProcessedSamples", -1);
-        return new OfflineWorkflowStartParameters(sampleQueueSize, samplingThreads, samplesPerThread, stateQueueSize, duration, maxProcessedSamples);
+        int startingPointInitThreads = config.getIntProperty("startingPointInitThreads", -1);
+        int loadFlowThreads = config.getIntProperty("loadFlowThreads", -1);
+        int stabilizationThreads = config.getIntProperty("stabilizationThreads", -1);
+        return new OfflineWorkflowStartParameters(sampleQueueSize, samplingThreads, samplesPerThread, stateQueueSize, duration, maxProcessedSamples,
+                                                  startingPointInitThreads, loadFlowThreads, stabilizationThreads);
     }
 
     public OfflineWorkflowStartParameters(int sampleQueueSize, int samplingThreads, int samplesPerThread,
                                      int stateQueueSize, int duration, int maxProcessedSamples) {
+        this(sampleQueueSize, samplingThreads, samplesPerThread, stateQueueSize, duration, maxProcessedSamples, -1, -1, -1);
+    }
+
+    /**
+     * @param startingPointInitThreads number of threads of the starting point initialization stage, -1 to use the state queue size
+     * @param loadFlowThreads number of threads of the load flow stage, -1 to use the state queue size
+     * @param stabilizationThreads number of threads of the stabilization stage, -1 to use the state queue size
+     */
+    public OfflineWorkflowStartParameters(int sampleQueueSize, int samplingThreads, int samplesPerThread,
+                                          int stateQueueSize, int duration, int maxProcessedSamples,
+                                          int startingPointInitThreads, int loadFlowThreads, int stabilizationThreads) {
         if (samplesPerThread > sampleQueueSize) {
             throw new IllegalArgumentException("samplesPerThread > sampleQueueSize");
         }
+        if (startingPointInitThreads == 0 || loadFlowThreads == 0 || stabilizationThreads == 0) {
+            throw new IllegalArgumentException("A stage of the workflow has no thread");
+        }
         this.sampleQueueSize = sampleQueueSize;
         this.samplingThreads = samplingThreads;
         this.samplesPerThread = samplesPerThread;
         this.stateQueueSize = stateQueueSize;
         this.duration = duration;
         this.maxProcessedSamples = maxProcessedSamples;
+        this.startingPointInitThreads = startingPointInitThreads;
+        this.loadFlowThreads = loadFlowThreads;
+        this.stabilizationThreads = stabilizationThreads;
     }
 
     public int getSampleQueueSize() {
@@ -79,6 +106,18 @@ public class OfflineWorkflowStartParameters implements Serializable {
         return maxProcessedSamples;
     }
 
+    public int getStartingPointInitThreads() {
+        return startingPointInitThreads;
+    }
+
+    public int getLoadFlowThreads() {
+        return loadFlowThreads;
+    }
+
+    public int getStabilizationThreads() {
+        return stabilizationThreads;
+    }
+
     public void print(PrintStream out) {
         out.println("duration: " + duration);
         out.println("sample queue size: " + sampleQueueSize);
@@ -86,13 +125,18 @@ public class OfflineWorkflowStartParameters implements Serializable {
         out.println("samples per thread: " + samplesPerThread);
         out.println("state queue size: " + stateQueueSize);
         out.println("max processed samples: " + maxProcessedSamples);
+        out.println("starting point init threads: " + startingPointInitThreads);
+        out.println("load flow threads: " + loadFlowThreads);
+        out.println("stabilization threads: " + stabilizationThreads);
     }
 
     @Override
     public String toString() {
         return "{sampleQueueSize=" + sampleQueueSize + ", samplingThreads=" + samplingThreads
                 + ", samplesPerThread=" + samplesPerThread + ", stateQueueSize=" + stateQueueSize
-                + ", duration=" + duration + ", maxProcessedSamples=" + maxProcessedSamples + "}";
+                + ", duration=" + duration + ", maxProcessedSamples=" + maxProcessedSamples
+                + ", startingPointInitThreads=" + startingPointInitThreads + ", loadFlowThreads=" + loadFlowThreads
+                + ", stabilizationThreads=" + stabilizationThreads + "}";
     }
 
 }
@@ -12,6 +12,7 @@ import eu.itesla_project.modules.rules.RuleId;
 import eu.itesla_project.modules.rules.SecurityRule;
 import eu.itesla_project.modules.rules.SecurityRuleExpression;
 import eu.itesla_project.offline.monitoring.BusyCoresSeries;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,7 +50,8 @@ public class RemoteOfflineApplicationImpl implements RemoteOfflineApplication {
         @SuppressWarnings("unchecked")
         public void handleNotification(Notification notification, Object handback) {
             AttributeChangeNotification changeNotification = (AttributeChangeNotification) notification;
-            if (!changeNotification.getAttributeName().equals(LocalOfflineApplicationMBean.Attribute.BUSY_CORES.toString())) {
+            if (!changeNotification.getAttributeName().equals(LocalOfflineApplicationMBean.Attribute.BUSY_CORES.toString())
+                    && !changeNotification.getAttributeName().equals(LocalOfflineApplicationMBean.Attribute.PIPELINE_METRICS.toString())) {
                 LOGGER.info(changeNotification.getAttributeName());
             }
             switch (LocalOfflineApplicationMBean.Attribute.valueOf(changeNotification.getAttributeName())) {
@@ -58,6 +60,13 @@ public class RemoteOfflineApplicationImpl implements RemoteOfflineApplication {
                         l.onBusyCoresUpdate((BusyCoresSeries) changeNotification.getNewValue());
                     }
                     break;
+                case PIPELINE_METRICS: {
+                    Object[] newValue = (Object[]) changeNotification.getNewValue();
+                    for (OfflineApplicationListener l : listeners) {
+                        l.onPipelineMetricsUpdate((String) newValue[0], (List<PipelineStageMetrics>) newValue[1]);
+                    }
+                }
+                break;
                 case WORKFLOW_CREATION: {
                     OfflineWorkflowStatus newWorkflowStatus = (OfflineWorkflowStatus) changeNotification.getNewValue();
                     LOGGER.info(newWorkflowStatus.toString());
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline.monitoring;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Metrics of a stage of the offline workflow pipeline, at a given time.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class PipelineStageMetrics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String stage;
+
+    private final int parallelism;
+
+    private final int queueSize;
+
+    private final int queueCapacity;
+
+    private final long processed;
+
+    private final long failed;
+
+    private final double throughput;
+
+    public PipelineStageMetrics(String stage, int parallelism, int queueSize, int queueCapacity, long processed, long failed, double throughput) {
+        this.stage = Objects.requireNonNull(stage);
+        this.parallelism = parallelism;
+        this.queueSize = queueSize;
+        this.queueCapacity = queueCapacity;
+        this.processed = processed;
+        this.failed = failed;
+        this.throughput = throughput;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * Number of threads, or of cores for the impact analysis, working for the stage
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of items waiting in the input queue of the stage
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Number of items processed per minute since the start of the workflow
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: parallelism=%d, queue=%d/%d, processed=%d, failed=%d, throughput=%.2f/min",
+                             stage, parallelism, queueSize, queueCapacity, processed, failed, throughput);
+    }
+
+}
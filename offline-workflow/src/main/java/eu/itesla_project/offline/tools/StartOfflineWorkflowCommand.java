@@ -73,6 +73,21 @@ public class StartOfflineWorkflowCommand implements Command {
                         .hasArg()
                         .argName("MAX_SAMPLES")
                         .build());
+        options.addOption(Option.builder().longOpt("starting-point-init-threads")
+                        .desc("starting point initialization threads")
+                        .hasArg()
+                        .argName("THREADS")
+                        .build());
+        options.addOption(Option.builder().longOpt("load-flow-threads")
+                        .desc("load flow threads")
+                        .hasArg()
+                        .argName("THREADS")
+                        .build());
+        options.addOption(Option.builder().longOpt("stabilization-threads")
+                        .desc("stabilization threads")
+                        .hasArg()
+                        .argName("THREADS")
+                        .build());
         return options;
     }
 
@@ -57,12 +57,24 @@ public class StartOfflineWorkflowTool implements Tool {
         int maxProcessedSamples = line.hasOption("max-processed-samples")
                 ? Integer.parseInt(line.getOptionValue("max-processed-samples"))
                 : getDefaultParameters().getMaxProcessedSamples();
+        int startingPointInitThreads = line.hasOption("starting-point-init-threads")
+                ? Integer.parseInt(line.getOptionValue("starting-point-init-threads"))
+                : getDefaultParameters().getStartingPointInitThreads();
+        int loadFlowThreads = line.hasOption("load-flow-threads")
+                ? Integer.parseInt(line.getOptionValue("load-flow-threads"))
+                : getDefaultParameters().getLoadFlowThreads();
+        int stabilizationThreads = line.hasOption("stabilization-threads")
+                ? Integer.parseInt(line.getOptionValue("stabilization-threads"))
+                : getDefaultParameters().getStabilizationThreads();
         OfflineWorkflowStartParameters parameters = new OfflineWorkflowStartParameters(sampleQueueSize,
                                                                                        samplingThreads,
                                                                                        samplesPerThread,
                                                                                        stateQueueSize,
                                                                                        duration,
-                                                                                       maxProcessedSamples);
+                                                                                       maxProcessedSamples,
+                                                                                       startingPointInitThreads,
+                                                                                       loadFlowThreads,
+                                                                                       stabilizationThreads);
         try (OfflineApplication app = new RemoteOfflineApplicationImpl()) {
             app.startWorkflow(workflowId, parameters);
         }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.offline;
+
+import eu.itesla_project.offline.OfflineWorkflowPipeline.HandOff;
+import eu.itesla_project.offline.monitoring.PipelineStageMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OfflineWorkflowPipelineTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testStages() throws Exception {
+        OfflineWorkflowPipeline pipeline = new OfflineWorkflowPipeline("test", executorService);
+        HandOff<Integer> numbers = pipeline.newHandOff(2);
+        HandOff<Integer> evens = pipeline.newHandOff(1);
+        OfflineWorkflowPipeline.Stage producerStage = pipeline.newStage("producer", 2, null);
+        OfflineWorkflowPipeline.Stage filterStage = pipeline.newStage("filter", 3, numbers);
+
+        AtomicInteger counter = new AtomicInteger();
+        pipeline.produce(producerStage, () -> {
+            producerStage.processed(1);
+            numbers.put(counter.getAndIncrement());
+        });
+        pipeline.consume(filterStage, numbers, number -> number % 2 == 0 && evens.put(number));
+
+        for (int i = 0; i < 10; i++) {
+            Integer even = evens.take();
+            assertNotNull(even);
+            assertEquals(0, even % 2);
+        }
+        pipeline.cancel();
+        pipeline.await();
+        assertNull(evens.take());
+
+        List<PipelineStageMetrics> metrics = pipeline.getMetrics();
+        assertEquals(2, metrics.size());
+        assertEquals("producer", metrics.get(0).getStage());
+        assertEquals(2, metrics.get(0).getParallelism());
+        assertEquals(0, metrics.get(0).getQueueCapacity());
+        assertEquals("filter", metrics.get(1).getStage());
+        assertEquals(2, metrics.get(1).getQueueCapacity());
+        assertTrue(metrics.get(1).getProcessed() >= 10);
+        assertTrue(metrics.get(1).getFailed() >= 10);
+    }
+
+    @Test
+    public void testCancelWakesUpBlockedWorkers() throws Exception {
+        OfflineWorkflowPipeline pipeline = new OfflineWorkflowPipeline("test", executorService);
+        HandOff<Integer> input = pipeline.newHandOff(1);
+        HandOff<Integer> output = pipeline.newHandOff(1);
+        OfflineWorkflowPipeline.Stage stage = pipeline.newStage("stage", 2, input);
+        CountDownLatch started = new CountDownLatch(1);
+        pipeline.consume(stage, input, number -> {
+            started.countDown();
+            return output.put(number);
+        });
+
+        // the first item fills the output, the second one blocks a worker on the output
+        // and the third one waits in the input
+        input.put(1);
+        input.put(2);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        pipeline.cancel();
+        pipeline.await();
+        assertFalse(input.put(3));
+        assertNull(input.take());
+    }
+
+    @Test
+    public void testCancelAfter() throws Exception {
+        OfflineWorkflowPipeline pipeline = new OfflineWorkflowPipeline("test", executorService);
+        HandOff<Integer> input = pipeline.newHandOff(1);
+        pipeline.cancelAfter(10, TimeUnit.MILLISECONDS);
+        assertNull(input.take());
+        assertTrue(pipeline.isCancelled());
+        pipeline.await();
+    }
+}
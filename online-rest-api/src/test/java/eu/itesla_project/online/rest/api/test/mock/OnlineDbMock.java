@@ -103,6 +103,11 @@ public class OnlineDbMock implements OnlineDb {
 
     }
 
+    @Override
+    public void flush(String workflowId) {
+
+    }
+
     @Override
     public List<OnlineWorkflowDetails> listWorkflows() {
         return null;
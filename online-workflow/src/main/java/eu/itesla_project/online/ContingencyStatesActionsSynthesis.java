@@ -49,7 +49,6 @@ public class ContingencyStatesActionsSynthesis implements Serializable {
 
 
         statesActions.put(stateId, actions);
-        System.out.println(" statesActions -->stateId: " + stateId);
         contingencyMap.put(contingencyId, statesActions);
     }
 
@@ -72,7 +72,6 @@ public class ContingencyStatesIndexesSynthesis implements Serializable {
         }
 
         statesIndexes.put(stateId, mapIndexType);
-        System.out.println(" state index stateid: " + stateId + ", " + mapIndexType);
 
         contingencyMap.put(contingencyId, statesIndexes);
 
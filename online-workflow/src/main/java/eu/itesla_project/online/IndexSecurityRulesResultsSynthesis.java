@@ -72,8 +72,11 @@ public class IndexSecurityRulesResultsSynthesis implements Serializable {
 
 
     public void addStateSecurityRuleIndexes(String contingencyId, Integer stateId, SecurityRulesApplicationResults rulesApplicationResults) {
-        Map<SecurityIndexType, StateStatus> indexStatus = rulesApplicationResults.getSecurityRulesResults(contingencyId, stateId);
-        StateStatus stateStatus = rulesApplicationResults.getStateStatus(contingencyId, stateId);
+        addStateSecurityRuleIndexes(contingencyId, stateId, rulesApplicationResults.getStateStatus(contingencyId, stateId),
+                rulesApplicationResults.getSecurityRulesResults(contingencyId, stateId));
+    }
+
+    public void addStateSecurityRuleIndexes(String contingencyId, Integer stateId, StateStatus stateStatus, Map<SecurityIndexType, StateStatus> indexStatus) {
         StateInfo stateInfo = new StateInfo(stateId, stateStatus, indexStatus);
 
         if (contingencySecurityRulesMap.containsKey(contingencyId)) {
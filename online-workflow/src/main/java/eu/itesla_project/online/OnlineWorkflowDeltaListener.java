@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online;
+
+/**
+ * Online application listener notified of the changes of the states analysis only, instead of the whole
+ * syntheses. The whole syntheses are notified once, through the {@link OnlineApplicationListener} methods,
+ * when the listener is added to a workflow which has already made some progress.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public interface OnlineWorkflowDeltaListener extends OnlineApplicationListener {
+
+    /**
+     * @param changedStates status of the states changed since the previous notification
+     */
+    void onWorkflowStateDelta(WorkSynthesis changedStates);
+
+    /**
+     * @param addedIndexes security indexes of the unsafe states added since the previous notification
+     */
+    void onStatesWithIndexesDelta(ContingencyStatesIndexesSynthesis addedIndexes);
+
+    /**
+     * @param addedActions actions of the unsafe states added since the previous notification
+     */
+    void onStatesWithActionsDelta(ContingencyStatesActionsSynthesis addedActions);
+
+    /**
+     * @param addedResults security rules results added since the previous notification
+     */
+    void onStatesWithSecurityRulesResultsDelta(IndexSecurityRulesResultsSynthesis addedResults);
+}
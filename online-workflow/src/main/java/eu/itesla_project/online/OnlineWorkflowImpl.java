@@ -29,12 +29,10 @@ import eu.itesla_project.modules.optimizer.CorrectiveControlOptimizerFactory;
 import eu.itesla_project.modules.optimizer.CorrectiveControlOptimizerParameters;
 import eu.itesla_project.modules.rules.RulesDbClient;
 import eu.itesla_project.modules.wca.*;
-import eu.itesla_project.online.ContingencyStatesIndexesSynthesis.SecurityIndexInfo;
 import com.powsybl.simulation.ImpactAnalysis;
 import com.powsybl.simulation.SimulationParameters;
 import com.powsybl.simulation.SimulatorFactory;
 import com.powsybl.simulation.Stabilization;
-import com.powsybl.simulation.securityindexes.SecurityIndex;
 import org.joda.time.format.DateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -58,7 +57,7 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
     private final RulesDbClient rulesDbClient;
     private final ForecastErrorsDataStorage feDataStorage;
     private final OnlineWorkflowParameters parameters;
-    private List<OnlineApplicationListener> listeners = new ArrayList<OnlineApplicationListener>();
+    private final List<OnlineApplicationListener> listeners = new CopyOnWriteArrayList<>();
     private final CaseRepository caseRepository;
     private final WCAFactory wcaFactory;
     private final LoadFlowFactory loadFlowFactory;
@@ -72,6 +71,7 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
     private final OnlineWorkflowStartParameters startParameters;
     private final String id;
     private final String logHeader;
+    private final OnlineWorkflowProgress progress;
 
     public OnlineWorkflowImpl(
             ComputationManager computationManager,
@@ -136,6 +136,7 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
         }
         this.id = DateTimeFormat.forPattern("yyyyMMdd_HHmm_").print(OnlineUtils.toCetDate(this.parameters.getBaseCaseDate())) + new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date());
         this.logHeader = " [WorkflowId=" + id + "] ";
+        this.progress = new OnlineWorkflowProgress(id, listeners, startParameters.getProgressTick());
         logger.info(this.logHeader + this.parameters.toString());
     }
 
@@ -236,37 +237,43 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
         ConstraintsModifier constraintsModifier = new ConstraintsModifier(oCtx.getNetwork());
         StateAnalizerListener stateListener = new StateAnalizerListener();
 
-        // initialize modules
-        rulesFacade.init(new RulesFacadeParameters(oCtx.getOfflineWorkflowId(),
-                oCtx.getContingenciesToAnalyze(),
-                parameters.getRulesPurityThreshold(),
-                parameters.getSecurityIndexes(),
-                parameters.validation(),
-                parameters.isHandleViolationsInN()));
-        Map<String, Object> simulationInitContext = new HashMap<>();
-        SimulationParameters simulationParameters = SimulationParameters.load();
-        stabilization.init(simulationParameters, simulationInitContext);
-        impactAnalysis.init(simulationParameters, simulationInitContext);
-        optimizer.init(new CorrectiveControlOptimizerParameters());
-        if (parameters.isHandleViolationsInN() && parameters.analyseBasecase()) { // I need to analyze basecase before initializing the sampler
-            new StateAnalyzer(oCtx, sampler, loadflow, rulesFacade, optimizer, stabilization, impactAnalysis, onlineDb, stateListener,
-                    constraintsModifier, parameters, computationManager).call();
-        }
-        sampler.init(new MontecarloSamplerParameters(oCtx.getTimeHorizon(), parameters.getFeAnalysisId(), parameters.getStates()));
+        progress.start();
+        try {
+            // initialize modules
+            rulesFacade.init(new RulesFacadeParameters(oCtx.getOfflineWorkflowId(),
+                    oCtx.getContingenciesToAnalyze(),
+                    parameters.getRulesPurityThreshold(),
+                    parameters.getSecurityIndexes(),
+                    parameters.validation(),
+                    parameters.isHandleViolationsInN()));
+            Map<String, Object> simulationInitContext = new HashMap<>();
+            SimulationParameters simulationParameters = SimulationParameters.load();
+            stabilization.init(simulationParameters, simulationInitContext);
+            impactAnalysis.init(simulationParameters, simulationInitContext);
+            optimizer.init(new CorrectiveControlOptimizerParameters());
+            if (parameters.isHandleViolationsInN() && parameters.analyseBasecase()) { // I need to analyze basecase before initializing the sampler
+                new StateAnalyzer(oCtx, sampler, loadflow, rulesFacade, optimizer, stabilization, impactAnalysis, onlineDb, stateListener,
+                        constraintsModifier, parameters, computationManager).call();
+            }
+            sampler.init(new MontecarloSamplerParameters(oCtx.getTimeHorizon(), parameters.getFeAnalysisId(), parameters.getStates()));
 
-        // run states analysis
-        int statesNumber = parameters.getStates();
-        if (parameters.isHandleViolationsInN() && parameters.analyseBasecase()) { // I already analyzed basecase
-            statesNumber--;
-        }
-        List<Callable<Void>> tasks = new ArrayList<>(statesNumber);
-        for (int i = 0; i < statesNumber; i++) {
-            tasks.add(new StateAnalyzer(oCtx, sampler, loadflow, rulesFacade, optimizer, stabilization, impactAnalysis, onlineDb, stateListener,
-                    constraintsModifier, parameters, computationManager));
+            // run states analysis
+            int statesNumber = parameters.getStates();
+            if (parameters.isHandleViolationsInN() && parameters.analyseBasecase()) { // I already analyzed basecase
+                statesNumber--;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(statesNumber);
+            for (int i = 0; i < statesNumber; i++) {
+                tasks.add(new StateAnalyzer(oCtx, sampler, loadflow, rulesFacade, optimizer, stabilization, impactAnalysis, onlineDb, stateListener,
+                        constraintsModifier, parameters, computationManager));
+            }
+            ExecutorService taskExecutor = Executors.newFixedThreadPool(startParameters.getThreads());
+            taskExecutor.invokeAll(tasks);
+            taskExecutor.shutdown();
+        } finally {
+            // publish the last changes of the states analysis
+            progress.close();
         }
-        ExecutorService taskExecutor = Executors.newFixedThreadPool(startParameters.getThreads());
-        taskExecutor.invokeAll(tasks);
-        taskExecutor.shutdown();
         logger.info(this.logHeader + "{} Online workflow - Analysis of states, terminated.", id);
 
         logger.info(this.logHeader + "{} Online workflow processing, terminated.", id);
@@ -282,7 +289,7 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
         // store workflow parameters
         onlineDb.storeWorkflowParameters(id, parameters);
         // store status of the processing steps for the different states
-        onlineDb.storeStatesProcessingStatus(id, stateListener.statusMap);
+        onlineDb.storeStatesProcessingStatus(id, progress.getStates());
         // store workflow results
         onlineDb.storeResults(id, oCtx.getResults());
         // store workflow rules results
@@ -293,6 +300,8 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
             // store workflow wca rules results
             onlineDb.storeWcaRulesResults(id, oCtx.getWcaSecurityRulesResults());
         }
+        // write all the workflow data before notifying the end of the workflow
+        onlineDb.flush(id);
         onlineDb.close();
 
         //send itesla notification to apogee only if config.xml contains configuration parameters
@@ -307,8 +316,7 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
      */
     @Override
     public void addOnlineApplicationListener(OnlineApplicationListener listener) {
-        Objects.requireNonNull(listener);
-        listeners.add(listener);
+        progress.addListener(listener);
     }
 
     /* (non-Javadoc)
@@ -316,126 +324,50 @@ public class OnlineWorkflowImpl implements OnlineWorkflow {
      */
     @Override
     public void removeOnlineApplicationListener(OnlineApplicationListener listener) {
-        Objects.requireNonNull(listener);
-        listeners.remove(listener);
-
+        progress.removeListener(listener);
     }
 
 
+    /**
+     * Records the progress of the states analysis, each state only recording its own results
+     */
     class StateAnalizerListener {
-        HashMap<Integer, WorkStatus> statusMap = new HashMap<Integer, WorkStatus>();
-        WorkSynthesis work = new WorkSynthesis(id, statusMap);
-        ContingencyStatesActionsSynthesis acts = new ContingencyStatesActionsSynthesis(id);
-        ContingencyStatesIndexesSynthesis stindex = new ContingencyStatesIndexesSynthesis(id);
-        IndexSecurityRulesResultsSynthesis stateWithSecRulesResults = new IndexSecurityRulesResultsSynthesis(id);
 
         public void onUpdate(Integer stateId, EnumMap<OnlineTaskType, OnlineTaskStatus> status, TimeHorizon t) {
-            //statusMap.put(stateId, new WorkStatus(stateId, status, t.toString()));
-
-            if (statusMap.containsKey(stateId)) {
-                WorkStatus ws = statusMap.get(stateId);
-                ws.setStatus(status);
-                ws.setTimeHorizon(t.toString());
-                statusMap.put(stateId, ws);
-            } else {
-                statusMap.put(stateId, new WorkStatus(stateId, status, t.toString()));
-            }
-
-            for (OnlineApplicationListener l : listeners) {
-                l.onWorkflowStateUpdate(work);
-            }
-
+            progress.updateState(stateId, status, t.toString(), null);
         }
 
         public void onSecurityRulesApplicationResults(String contingencyId, Integer stateId, OnlineWorkflowContext oCtx) {
-
             SecurityRulesApplicationResults rulesApplicationResults = oCtx.getSecurityRulesResults();
-            stateWithSecRulesResults.addStateSecurityRuleIndexes(contingencyId, stateId, rulesApplicationResults);
-            for (OnlineApplicationListener l : listeners) {
-                l.onStatesWithSecurityRulesResultsUpdate(stateWithSecRulesResults);
-            }
+            progress.addSecurityRulesResults(contingencyId, stateId, rulesApplicationResults.getStateStatus(contingencyId, stateId),
+                    rulesApplicationResults.getSecurityRulesResults(contingencyId, stateId));
         }
 
-
         public void onUpdate(Integer stateId, EnumMap<OnlineTaskType, OnlineTaskStatus> status, TimeHorizon t, String detail) {
-            //  statusMap.put(stateId, new WorkStatus(stateId, status, t.toString(),detail));
-            if (statusMap.containsKey(stateId)) {
-                WorkStatus ws = statusMap.get(stateId);
-                StringBuffer sb = new StringBuffer();
-
-                if (ws.getDetail() != null && !ws.getDetail().equals("")) {
-                    sb.append(ws.getDetail()).append("<br>").append(detail);
-                } else {
-                    sb.append(detail);
-                }
-
-                ws.setDetail(sb.toString());
-                ws.setStatus(status);
-                ws.setTimeHorizon(t.toString());
-                statusMap.put(stateId, ws);
-            } else {
-                statusMap.put(stateId, new WorkStatus(stateId, status, t.toString(), detail));
-            }
-
-            for (OnlineApplicationListener l : listeners) {
-                l.onWorkflowStateUpdate(work);
-            }
-
+            progress.updateState(stateId, status, t.toString(), detail);
         }
 
-
         public void onImpactAnalysisResults(Integer stateId, OnlineWorkflowContext oCtx) {
-
             ForecastAnalysisResults res = oCtx.getResults();
-            Collection<String> unsafes = res.getUnsafeContingencies();
-            for (String c : unsafes) {
-
+            for (String c : res.getUnsafeContingencies()) {
                 List<Integer> sts = res.getUnstableStates(c);
-                for (Integer s : sts) {
-                    List<SecurityIndex> sec = res.getIndexes(c, s);
-                    ArrayList<SecurityIndexInfo> indexes = new ArrayList<SecurityIndexInfo>();
-                    for (SecurityIndex idx : sec) {
-                        indexes.add(stindex.new SecurityIndexInfo(idx));
-                    }
-                    stindex.addStateIndexes(c, s, indexes);
+                if (sts != null && sts.contains(stateId)) {
+                    progress.addStateIndexes(c, stateId, res.getIndexes(c, stateId));
                 }
-
             }
-
-            for (OnlineApplicationListener l : listeners) {
-                l.onStatesWithIndexesUpdate(stindex);
-            }
-
-
         }
 
         public void onOptimizerResults(Integer stateId, OnlineWorkflowContext oCtx) {
-
             ForecastAnalysisResults res = oCtx.getResults();
-            Collection<String> conts = res.getContingenciesWithActions();
-
-
-            for (String c : conts) {
+            for (String c : res.getContingenciesWithActions()) {
                 Map<Integer, Boolean> unsafeStatesWithActions = res.getUnsafeStatesWithActions(c);
-                if (unsafeStatesWithActions != null) {
-                    Set<Integer> sts = unsafeStatesWithActions.keySet();
-                    for (Integer s : sts) {
-                        List<String> actiondIds = res.getActionsIds(c, s);
-                        if (actiondIds != null) {
-                            ArrayList<ActionInfo> infos = new ArrayList<ActionInfo>();
-                            for (String a : actiondIds) {
-                                infos.add(new ActionInfo(a));
-                            }
-                            acts.addStateActions(c, s, infos);
-                        }
+                if (unsafeStatesWithActions != null && unsafeStatesWithActions.containsKey(stateId)) {
+                    List<String> actiondIds = res.getActionsIds(c, stateId);
+                    if (actiondIds != null) {
+                        progress.addStateActions(c, stateId, actiondIds);
                     }
                 }
             }
-            for (OnlineApplicationListener l : listeners) {
-                l.onStatesWithActionsUpdate(acts);
-            }
-
-
         }
     }
 
@@ -0,0 +1,358 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online;
+
+import com.powsybl.simulation.securityindexes.SecurityIndex;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+import eu.itesla_project.modules.online.StateStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Thread safe progress of the states analysis of an online workflow.
+ * <p>
+ * The state threads only record the changes of their own state, which are published to the listeners at most
+ * once per tick, or immediately if the tick is zero. Listeners implementing {@link OnlineWorkflowDeltaListener}
+ * receive the changes since the previous publication, the other ones the whole syntheses. A listener added once
+ * the analysis has started first receives the whole syntheses.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class OnlineWorkflowProgress implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OnlineWorkflowProgress.class);
+
+    private static final class SecurityRulesResult {
+
+        private final StateStatus stateStatus;
+
+        private final Map<SecurityIndexType, StateStatus> indexStatus;
+
+        private SecurityRulesResult(StateStatus stateStatus, Map<SecurityIndexType, StateStatus> indexStatus) {
+            this.stateStatus = stateStatus;
+            this.indexStatus = indexStatus;
+        }
+    }
+
+    /**
+     * Progress of the states, per state and per contingency and state
+     */
+    private static final class Progress {
+
+        private final Map<Integer, WorkStatus> states = new HashMap<>();
+
+        private final Map<String, Map<Integer, List<SecurityIndex>>> indexes = new LinkedHashMap<>();
+
+        private final Map<String, Map<Integer, List<String>>> actions = new LinkedHashMap<>();
+
+        private final Map<String, Map<Integer, SecurityRulesResult>> securityRulesResults = new LinkedHashMap<>();
+
+        private static <T> void put(Map<String, Map<Integer, T>> map, String contingencyId, Integer stateId, T value) {
+            map.computeIfAbsent(contingencyId, k -> new HashMap<>()).put(stateId, value);
+        }
+
+        private boolean isEmpty() {
+            return states.isEmpty() && indexes.isEmpty() && actions.isEmpty() && securityRulesResults.isEmpty();
+        }
+    }
+
+    private final String workflowId;
+
+    private final List<OnlineApplicationListener> listeners;
+
+    private final long tick;
+
+    private final Lock lock = new ReentrantLock();
+
+    // guarded by lock
+    private final Progress progress = new Progress();
+
+    // guarded by lock, changes since the previous publication
+    private Progress changes = new Progress();
+
+    // publications, and the snapshot of an added listener, are serialized so that the listeners see them in order
+    private final Lock publicationLock = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param listeners the listeners to notify, has to be thread safe
+     * @param tick minimum duration in ms between 2 publications of the changes
+     */
+    OnlineWorkflowProgress(String workflowId, List<OnlineApplicationListener> listeners, long tick) {
+        this.workflowId = Objects.requireNonNull(workflowId);
+        this.listeners = Objects.requireNonNull(listeners);
+        if (tick < 0) {
+            throw new IllegalArgumentException("Invalid tick " + tick);
+        }
+        this.tick = tick;
+    }
+
+    /**
+     * Start the periodic publication of the changes
+     */
+    void start() {
+        if (tick > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "online-workflow-progress-" + workflowId);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    publish();
+                } catch (Exception e) {
+                    LOGGER.error(e.toString(), e);
+                }
+            }, tick, tick, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void addListener(OnlineApplicationListener listener) {
+        Objects.requireNonNull(listener);
+        publicationLock.lock();
+        try {
+            listeners.add(listener);
+            WorkSynthesis work;
+            ContingencyStatesIndexesSynthesis indexes;
+            ContingencyStatesActionsSynthesis actions;
+            IndexSecurityRulesResultsSynthesis securityRulesResults;
+            lock.lock();
+            try {
+                if (progress.isEmpty()) {
+                    return;
+                }
+                work = createWorkSynthesis(progress);
+                indexes = createIndexesSynthesis(progress);
+                actions = createActionsSynthesis(progress);
+                securityRulesResults = createSecurityRulesResultsSynthesis(progress);
+            } finally {
+                lock.unlock();
+            }
+            listener.onWorkflowStateUpdate(work);
+            listener.onStatesWithIndexesUpdate(indexes);
+            listener.onStatesWithActionsUpdate(actions);
+            listener.onStatesWithSecurityRulesResultsUpdate(securityRulesResults);
+        } finally {
+            publicationLock.unlock();
+        }
+    }
+
+    void removeListener(OnlineApplicationListener listener) {
+        listeners.remove(Objects.requireNonNull(listener));
+    }
+
+    private void changed() {
+        if (tick == 0) {
+            publish();
+        }
+    }
+
+    void updateState(Integer stateId, EnumMap<OnlineTaskType, OnlineTaskStatus> status, String timeHorizon, String detail) {
+        lock.lock();
+        try {
+            // a new status object so that the published syntheses are not modified afterwards
+            WorkStatus oldStatus = progress.states.get(stateId);
+            String newDetail = detail;
+            if (oldStatus != null) {
+                if (detail == null) {
+                    newDetail = oldStatus.getDetail();
+                } else if (oldStatus.getDetail() != null && !oldStatus.getDetail().equals("")) {
+                    newDetail = oldStatus.getDetail() + "<br>" + detail;
+                }
+            }
+            WorkStatus newStatus = new WorkStatus(stateId, status, timeHorizon, newDetail);
+            progress.states.put(stateId, newStatus);
+            changes.states.put(stateId, newStatus);
+        } finally {
+            lock.unlock();
+        }
+        changed();
+    }
+
+    void addStateIndexes(String contingencyId, Integer stateId, List<SecurityIndex> indexes) {
+        List<SecurityIndex> copy = new ArrayList<>(indexes);
+        lock.lock();
+        try {
+            Progress.put(progress.indexes, contingencyId, stateId, copy);
+            Progress.put(changes.indexes, contingencyId, stateId, copy);
+        } finally {
+            lock.unlock();
+        }
+        changed();
+    }
+
+    void addStateActions(String contingencyId, Integer stateId, List<String> actionIds) {
+        List<String> copy = new ArrayList<>(actionIds);
+        lock.lock();
+        try {
+            Progress.put(progress.actions, contingencyId, stateId, copy);
+            Progress.put(changes.actions, contingencyId, stateId, copy);
+        } finally {
+            lock.unlock();
+        }
+        changed();
+    }
+
+    void addSecurityRulesResults(String contingencyId, Integer stateId, StateStatus stateStatus, Map<SecurityIndexType, StateStatus> indexStatus) {
+        SecurityRulesResult result = new SecurityRulesResult(stateStatus, indexStatus != null ? new EnumMap<>(indexStatus) : null);
+        lock.lock();
+        try {
+            Progress.put(progress.securityRulesResults, contingencyId, stateId, result);
+            Progress.put(changes.securityRulesResults, contingencyId, stateId, result);
+        } finally {
+            lock.unlock();
+        }
+        changed();
+    }
+
+    /**
+     * @return a copy of the status of each state
+     */
+    Map<Integer, WorkStatus> getStates() {
+        lock.lock();
+        try {
+            return new HashMap<>(progress.states);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WorkSynthesis createWorkSynthesis(Progress p) {
+        return new WorkSynthesis(workflowId, new HashMap<>(p.states));
+    }
+
+    private ContingencyStatesIndexesSynthesis createIndexesSynthesis(Progress p) {
+        ContingencyStatesIndexesSynthesis synthesis = new ContingencyStatesIndexesSynthesis(workflowId);
+        p.indexes.forEach((contingencyId, statesIndexes) -> statesIndexes.forEach((stateId, indexes) ->
+                synthesis.addStateIndexes(contingencyId, stateId, indexes.stream()
+                        .map(index -> synthesis.new SecurityIndexInfo(index))
+                        .collect(Collectors.toList()))));
+        return synthesis;
+    }
+
+    private ContingencyStatesActionsSynthesis createActionsSynthesis(Progress p) {
+        ContingencyStatesActionsSynthesis synthesis = new ContingencyStatesActionsSynthesis(workflowId);
+        p.actions.forEach((contingencyId, statesActions) -> statesActions.forEach((stateId, actionIds) ->
+                synthesis.addStateActions(contingencyId, stateId, actionIds.stream()
+                        .map(ActionInfo::new)
+                        .collect(Collectors.toList()))));
+        return synthesis;
+    }
+
+    private IndexSecurityRulesResultsSynthesis createSecurityRulesResultsSynthesis(Progress p) {
+        IndexSecurityRulesResultsSynthesis synthesis = new IndexSecurityRulesResultsSynthesis(workflowId);
+        p.securityRulesResults.forEach((contingencyId, statesResults) -> statesResults.forEach((stateId, result) ->
+                synthesis.addStateSecurityRuleIndexes(contingencyId, stateId, result.stateStatus, result.indexStatus)));
+        return synthesis;
+    }
+
+    /**
+     * Publish the changes since the previous publication
+     */
+    void publish() {
+        publicationLock.lock();
+        try {
+            boolean deltaListeners = false;
+            boolean snapshotListeners = false;
+            for (OnlineApplicationListener listener : listeners) {
+                if (listener instanceof OnlineWorkflowDeltaListener) {
+                    deltaListeners = true;
+                } else {
+                    snapshotListeners = true;
+                }
+            }
+
+            Progress delta;
+            WorkSynthesis work = null;
+            ContingencyStatesIndexesSynthesis indexes = null;
+            ContingencyStatesActionsSynthesis actions = null;
+            IndexSecurityRulesResultsSynthesis securityRulesResults = null;
+            lock.lock();
+            try {
+                if (changes.isEmpty()) {
+                    return;
+                }
+                delta = changes;
+                changes = new Progress();
+                // the whole syntheses are only built if some listeners need them, and only for what changed
+                if (snapshotListeners) {
+                    work = delta.states.isEmpty() ? null : createWorkSynthesis(progress);
+                    indexes = delta.indexes.isEmpty() ? null : createIndexesSynthesis(progress);
+                    actions = delta.actions.isEmpty() ? null : createActionsSynthesis(progress);
+                    securityRulesResults = delta.securityRulesResults.isEmpty() ? null : createSecurityRulesResultsSynthesis(progress);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            WorkSynthesis workDelta = deltaListeners && !delta.states.isEmpty() ? createWorkSynthesis(delta) : null;
+            ContingencyStatesIndexesSynthesis indexesDelta = deltaListeners && !delta.indexes.isEmpty() ? createIndexesSynthesis(delta) : null;
+            ContingencyStatesActionsSynthesis actionsDelta = deltaListeners && !delta.actions.isEmpty() ? createActionsSynthesis(delta) : null;
+            IndexSecurityRulesResultsSynthesis securityRulesResultsDelta = deltaListeners && !delta.securityRulesResults.isEmpty()
+                    ? createSecurityRulesResultsSynthesis(delta) : null;
+
+            for (OnlineApplicationListener listener : listeners) {
+                if (listener instanceof OnlineWorkflowDeltaListener) {
+                    OnlineWorkflowDeltaListener deltaListener = (OnlineWorkflowDeltaListener) listener;
+                    if (workDelta != null) {
+                        deltaListener.onWorkflowStateDelta(workDelta);
+                    }
+                    if (indexesDelta != null) {
+                        deltaListener.onStatesWithIndexesDelta(indexesDelta);
+                    }
+                    if (actionsDelta != null) {
+                        deltaListener.onStatesWithActionsDelta(actionsDelta);
+                    }
+                    if (securityRulesResultsDelta != null) {
+                        deltaListener.onStatesWithSecurityRulesResultsDelta(securityRulesResultsDelta);
+                    }
+                } else {
+                    if (work != null) {
+                        listener.onWorkflowStateUpdate(work);
+                    }
+                    if (indexes != null) {
+                        listener.onStatesWithIndexesUpdate(indexes);
+                    }
+                    if (actions != null) {
+                        listener.onStatesWithActionsUpdate(actions);
+                    }
+                    if (securityRulesResults != null) {
+                        listener.onStatesWithSecurityRulesResultsUpdate(securityRulesResults);
+                    }
+                }
+            }
+        } finally {
+            publicationLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the periodic publication and publish the remaining changes
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        publish();
+    }
+}
@@ -19,12 +19,14 @@ public class OnlineWorkflowStartParameters implements Serializable {
 
     private static final long serialVersionUID = 1L;
     public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_PROGRESS_TICK = 500;
 
     private int threads;
     private String jmxHost;
     private int jmxPort;
     private Class<? extends OnlineApplicationListenerFactory> listenerFactoryClasses = null;
     private Class<? extends OnlineWorkflowFactory> onlineWorkflowFactory;
+    private int progressTick = DEFAULT_PROGRESS_TICK;
 
     public static OnlineWorkflowStartParameters loadDefault() {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("online-start-parameters");
@@ -34,7 +36,11 @@ public class OnlineWorkflowStartParameters implements Serializable {
         Class<? extends OnlineWorkflowFactory> onlineWorkflowFactory = config.getClassProperty("onlineWorkflowFactoryClass", OnlineWorkflowFactory.class, OnlineWorkflowFactoryImpl.class);
         Class<? extends OnlineApplicationListenerFactory> listenerFactoryClass = config.getClassProperty("listenerFactoryClasses", OnlineApplicationListenerFactory.class, null);
 
-        return new OnlineWorkflowStartParameters(threads, jmxHost, jmxPort, listenerFactoryClass, onlineWorkflowFactory);
+        int progressTick = config.getIntProperty("progressTick", DEFAULT_PROGRESS_TICK);
+
+        OnlineWorkflowStartParameters startParameters = new OnlineWorkflowStartParameters(threads, jmxHost, jmxPort, listenerFactoryClass, onlineWorkflowFactory);
+        startParameters.setProgressTick(progressTick);
+        return startParameters;
     }
 
     public OnlineWorkflowStartParameters(int threads, String jmxHost, int jmxPort, Class<? extends OnlineApplicationListenerFactory> listenerFactoryClass, Class<? extends OnlineWorkflowFactory> onlineWorkflowFactory) {
@@ -62,7 +68,7 @@ public class OnlineWorkflowStartParameters implements Serializable {
     public String toString() {
         return "OnlineWorkflowStartParameters [threads=" + threads + ", jmxHost=" + jmxHost + ", jmxPort=" + jmxPort
                 + ", listenerFactoryClasses=" + listenerFactoryClasses + ", onlineWorkflowFactory="
-                + onlineWorkflowFactory + "]";
+                + onlineWorkflowFactory + ", progressTick=" + progressTick + "]";
     }
 
     public void setThreads(int threads) {
@@ -84,6 +90,21 @@ public class OnlineWorkflowStartParameters implements Serializable {
         this.jmxPort = jmxPort;
     }
 
+    /**
+     * Minimum duration in ms between 2 notifications of the states analysis progress to the listeners, 0 to
+     * notify each change immediately
+     */
+    public int getProgressTick() {
+        return progressTick;
+    }
+
+    public void setProgressTick(int progressTick) {
+        if (progressTick < 0) {
+            throw new IllegalArgumentException("progressTick must be greater or equal to zero: " + progressTick);
+        }
+        this.progressTick = progressTick;
+    }
+
     public Class<? extends OnlineApplicationListenerFactory> getOnlineApplicationListenerFactoryClass() {
         return listenerFactoryClasses;
     }
@@ -184,9 +184,11 @@ public class StateAnalyzer implements Callable<Void> {
                 status.put(currentStatus, OnlineTaskStatus.RUNNING);
                 stateListener.onUpdate(stateId, status, context.timeHorizon);
 
+                // network attribute values are extracted once for this state and shared by all the contingencies
+                StateRulesEvaluator rulesEvaluator = rulesFacade.stateEvaluator(context.getNetwork());
                 for (Contingency contingency : context.getContingenciesToAnalyze()) {
                     logger.info(this.logHeader + "{}: check security rules against contingency {}", stateId, contingency.getId());
-                    RulesFacadeResults rulesResults = rulesFacade.evaluate(contingency, context.getNetwork());
+                    RulesFacadeResults rulesResults = rulesEvaluator.evaluate(contingency);
                     if (rulesResults.areRulesAvailable()) {
                         if (rulesResults.getStateStatus() == StateStatus.SAFE) {  // check if this contingency is ok
                             logger.info(this.logHeader + "{}: is safe for contingency {}", stateId, contingency.getId());
@@ -222,7 +224,7 @@ public class StateAnalyzer implements Callable<Void> {
                     }
 
                     if (parameters.validation()) {
-                        RulesFacadeResults wcaRulesResults = rulesFacade.wcaEvaluate(contingency, context.getNetwork());
+                        RulesFacadeResults wcaRulesResults = rulesEvaluator.wcaEvaluate(contingency);
                         synchronized (context.getWcaSecurityRulesResults()) {
                             context.getWcaSecurityRulesResults().addStateWithSecurityRulesResults(contingency.getId(), stateId, wcaRulesResults.getStateStatus(),
                                     wcaRulesResults.getIndexesResults(), rulesResults.areRulesAvailable(),
@@ -230,6 +232,11 @@ public class StateAnalyzer implements Callable<Void> {
                         }
                     }
                 }
+                logger.info(this.logHeader + "{}: security rules attributes extraction time: {} ms", stateId,
+                        rulesEvaluator.getExtractionTime());
+                Map<String, String> rulesMetrics = new HashMap<>();
+                rulesMetrics.put("attributes_extraction_time", Long.toString(rulesEvaluator.getExtractionTime()));
+                onlineDb.storeMetrics(context.getWorkflowId(), stateId, OnlineStep.SECURITY_RULES_ASSESSMENT, rulesMetrics);
                 status.put(currentStatus, OnlineTaskStatus.SUCCESS);
                 stateListener.onUpdate(stateId, status, context.timeHorizon);
                 computeAndStorePostContingencyViolations(context.getNetwork(), context.getContingenciesToAnalyze());
@@ -303,6 +310,8 @@ public class StateAnalyzer implements Callable<Void> {
             if (context.getNetwork().getStateManager().getStateIds().contains(String.valueOf(stateId))) {
                 context.getNetwork().getStateManager().removeState(String.valueOf(stateId));
             }
+            // in write behind mode, make the data of the analysed state durable
+            onlineDb.flush(context.getWorkflowId());
         }
         return null;
     }
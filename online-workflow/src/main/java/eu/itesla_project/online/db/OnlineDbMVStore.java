@@ -34,6 +34,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -141,6 +142,7 @@ public class OnlineDbMVStore implements OnlineDb {
     private static final String STORED_STATE_PREFIX = "state-";
     private static final String STORED_STATE_POST_PREFIX = "post-state-";
     private static final String STORED_STATE_CONT_PREFIX = "-cont-";
+    private static final String STORED_BASE_STATE_FOLDER = "base";
     private static final String STORED_VIOLATIONS_STEPS_MAP_NAME = "storedViolationsSteps";
     private static final String STORED_VIOLATIONS_STATES_MAP_SUFFIX = "_violationsstates";
     private static final String STORED_VIOLATIONS_STATES_MAP_NAME = "storedViolationsStates";
@@ -163,7 +165,6 @@ public class OnlineDbMVStore implements OnlineDb {
     private static final String SERIALIZED_STATES_FILENAME = "network-states.csv";
     private static final String STORED_POST_CONTINGENCY_STATES_MAP_NAME = "wfPostcontinenciesStates";
     private static final String STORED_POST_CONTINGENCY_STATES_HEADERS_KEY = "PostcontinenciesStatesHeaders";
-    private final String[] XIIDMEXTENSIONS = {".xiidm", ".iidm", ".xml"};
 
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OnlineDbMVStore.class);
@@ -171,8 +172,9 @@ public class OnlineDbMVStore implements OnlineDb {
 
     private OnlineDbMVStoreConfig config = null;
 
-    HashMap<String, MVStore> storedWFMetrics = new HashMap<String, MVStore>();
-    ConcurrentHashMap<String, ConcurrentHashMap<Integer, Map<HistoDbAttributeId, Object>>> workflowsStates = new ConcurrentHashMap<String, ConcurrentHashMap<Integer, Map<HistoDbAttributeId, Object>>>();
+    ConcurrentHashMap<String, MVStore> storedWFMetrics = new ConcurrentHashMap<String, MVStore>();
+    ConcurrentHashMap<String, OnlineDbMVStoreBinaryResults> storedWFBinaryResults = new ConcurrentHashMap<String, OnlineDbMVStoreBinaryResults>();
+    ConcurrentHashMap<String, OnlineDbMVStoreStates> storedWFStates = new ConcurrentHashMap<String, OnlineDbMVStoreStates>();
 
     MVMapConcurrent.Builder<String, String> mapBuilder;
 
@@ -206,23 +208,76 @@ public class OnlineDbMVStore implements OnlineDb {
         }
         for (String workflowId : workflowIds) {
             storedWFMetrics.remove(workflowId);
+            storedWFBinaryResults.remove(workflowId);
+            storedWFStates.remove(workflowId);
         }
     }
 
-    private synchronized MVStore getStore(String workflowId) {
-        MVStore wfMVStore;
-        if (storedWFMetrics.containsKey(workflowId)) {
-            wfMVStore = storedWFMetrics.get(workflowId);
-        } else {
-            LOGGER.debug("Opening file for workflow {}", workflowId);
-            wfMVStore = openStore(workflowId);
-            storedWFMetrics.put(workflowId, wfMVStore);
+    private MVStore getStore(String workflowId) {
+        return storedWFMetrics.computeIfAbsent(workflowId, id -> {
+            LOGGER.debug("Opening file for workflow {}", id);
+            return openStore(id);
+        });
+    }
+
+    private OnlineDbMVStoreBinaryResults getBinaryResults(String workflowId) {
+        return storedWFBinaryResults.computeIfAbsent(workflowId, id -> new OnlineDbMVStoreBinaryResults(getStore(id)));
+    }
+
+    private OnlineDbMVStoreStates getStates(String workflowId) {
+        return storedWFStates.computeIfAbsent(workflowId, id -> new OnlineDbMVStoreStates(getStore(id)));
+    }
+
+    /**
+     * In write behind mode, the changes are written in background by the store, when the
+     * commit delay has elapsed or when the size of the changes exceeds the commit buffer size
+     */
+    private void commit(MVStore wfMVStore) {
+        if (!config.isWriteBehind()) {
+            wfMVStore.commit();
         }
-        return wfMVStore;
+    }
+
+    @Override
+    public void flush(String workflowId) {
+        Objects.requireNonNull(workflowId, "workflow id is null");
+        MVStore wfMVStore = storedWFMetrics.get(workflowId);
+        if (wfMVStore != null && !wfMVStore.isClosed()) {
+            LOGGER.info("Flushing data of wf {}", workflowId);
+            wfMVStore.commit();
+            wfMVStore.sync();
+        }
+    }
+
+    /**
+     * Workflows stored by previous versions keep violations and post-contingency data in one string map
+     * per state and step/contingency: they are still read with this format.
+     */
+    private boolean isLegacyFormat(String workflowId, String legacyMapName) {
+        return getStore(workflowId).hasMap(legacyMapName);
+    }
+
+    /**
+     * Workflows stored by previous versions keep one XIIDM file per state, in the states folder:
+     * they are still read with this format.
+     */
+    private boolean hasStateSnapshots(String workflowId) {
+        return isWorkflowStored(workflowId) && getStore(workflowId).hasMap(OnlineDbMVStoreStates.SNAPSHOTS_MAP_NAME);
+    }
+
+    private static <K, V> Map<K, V> nullIfEmpty(Map<K, V> map) {
+        return map.isEmpty() ? null : map;
     }
 
     private MVStore openStore(String workflowId) {
-        return MVStore.open(config.getOnlineDbDir().toString() + File.separator + STORED_WORKFLOW_PREFIX + workflowId);
+        MVStore.Builder builder = new MVStore.Builder()
+                .fileName(config.getOnlineDbDir().toString() + File.separator + STORED_WORKFLOW_PREFIX + workflowId);
+        if (!config.isWriteBehind()) {
+            return builder.open();
+        }
+        MVStore wfMVStore = builder.autoCommitBufferSize(config.getCommitBufferSize()).open();
+        wfMVStore.setAutoCommitDelay(config.getCommitDelay());
+        return wfMVStore;
     }
 
     private boolean isStoreOpen(String workflowId) {
@@ -232,53 +287,26 @@ public class OnlineDbMVStore implements OnlineDb {
     @Override
     public void storeMetrics(String workflowId, OnlineStep step, Map<String, String> metrics) {
         LOGGER.info("Storing metrics for wf {} and step {}", workflowId, step.name());
-        storeMetrics(workflowId, step.name() + "__", metrics);
-        LOGGER.info("Storing metadata for wf {} and step {}", workflowId, step.name());
-        storeStepMetadata(workflowId, "_", step, metrics);
-
-    }
-
-    @Override
-    public void storeMetrics(String workflowId, Integer stateId, OnlineStep step, Map<String, String> metrics) {
-        String stateIdStr = String.valueOf(stateId);
-        LOGGER.info("Storing metrics for wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
-        storeMetrics(workflowId, step.name() + "_" + stateIdStr, metrics);
-        LOGGER.info("Storing metadata for wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
-        storeStepMetadata(workflowId, stateIdStr, step, metrics);
-    }
-
-    private void storeMetrics(String workflowId, String mapName, Map<String, String> metrics) {
         try {
             MVStore wfMVStore = getStore(workflowId);
-            Map<String, String> metricsMap = wfMVStore.openMap(mapName, mapBuilder);
-            for (String parameter : metrics.keySet()) {
-                metricsMap.put(parameter, metrics.get(parameter));
-            }
-            wfMVStore.commit();
+            getBinaryResults(workflowId).storeMetrics(step, metrics);
+            commit(wfMVStore);
         } catch (Throwable e) {
-            String errorMessage = "Error storing metrics for wf " + workflowId + " in map " + mapName + ": " + e.getMessage();
+            String errorMessage = "Error storing metrics for wf " + workflowId + " and step " + step.name() + ": " + e.getMessage();
             LOGGER.error(errorMessage);
             throw new RuntimeException(errorMessage, e);
         }
     }
 
-    private void storeStepMetadata(String workflowId, String stateId, OnlineStep step, Map<String, String> metrics) {
+    @Override
+    public void storeMetrics(String workflowId, Integer stateId, OnlineStep step, Map<String, String> metrics) {
+        LOGGER.info("Storing metrics for wf {}, step {} and state {}", workflowId, step.name(), stateId);
         try {
             MVStore wfMVStore = getStore(workflowId);
-            // save info about stored wf steps
-            MVMap<String, String> storedStepsMap = wfMVStore.openMap(STORED_METRICS_STEPS_MAP_NAME, mapBuilder);
-            storedStepsMap.putIfAbsent(step.name(), "1");
-            // save info about stored states per step
-            MVMap<String, String> stepStatesMap = wfMVStore.openMap(step.name() + STORED_METRICS_STATES_MAP_SUFFIX, mapBuilder);
-            stepStatesMap.putIfAbsent(stateId, "");
-            // save info about stored params per step
-            MVMap<String, String> stepParamsMap = wfMVStore.openMap(step.name() + STORED_METRICS_PARAMS_MAP_SUFFIX, mapBuilder);
-            for (String parameter : metrics.keySet()) {
-                stepParamsMap.putIfAbsent(parameter, "");
-            }
-            wfMVStore.commit();
+            getBinaryResults(workflowId).storeMetrics(stateId, step, metrics);
+            commit(wfMVStore);
         } catch (Throwable e) {
-            String errorMessage = "Error storing metadata for wf " + workflowId + ", step " + step.name() + ", state " + stateId + ": " + e.getMessage();
+            String errorMessage = "Error storing metrics for wf " + workflowId + ", step " + step.name() + " and state " + stateId + ": " + e.getMessage();
             LOGGER.error(errorMessage);
             throw new RuntimeException(errorMessage, e);
         }
@@ -287,6 +315,9 @@ public class OnlineDbMVStore implements OnlineDb {
     @Override
     public Map<String, String> getMetrics(String workflowId, OnlineStep step) {
         LOGGER.info("Getting metrics from wf {} and step {}", workflowId, step.name());
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_METRICS_STEPS_MAP_NAME)) {
+            return getBinaryResults(workflowId).getMetrics(step);
+        }
         return getMetrics(workflowId, step.name() + "__");
     }
 
@@ -294,6 +325,9 @@ public class OnlineDbMVStore implements OnlineDb {
     public Map<String, String> getMetrics(String workflowId, Integer stateId, OnlineStep step) {
         String stateIdStr = String.valueOf(stateId);
         LOGGER.info("Getting metrics from wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_METRICS_STEPS_MAP_NAME)) {
+            return getBinaryResults(workflowId).getMetrics(stateId, step);
+        }
         return getMetrics(workflowId, step.name() + "_" + stateIdStr);
     }
 
@@ -317,6 +351,9 @@ public class OnlineDbMVStore implements OnlineDb {
     @Override
     public List<String[]> getAllMetrics(String workflowId, OnlineStep step) {
         LOGGER.info("Preparing CSV data for wf {} and step {}", workflowId, step.name());
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_METRICS_STEPS_MAP_NAME)) {
+            return getBinaryResults(workflowId).getAllMetrics(step);
+        }
         List<String[]> retTable = new ArrayList<>();
         if (isWorkflowStored(workflowId)) {
             try {
@@ -494,60 +531,12 @@ public class OnlineDbMVStore implements OnlineDb {
         Objects.requireNonNull(results, "online workflow results is null");
         LOGGER.info("Storing results for workflow {}", workflowId);
         MVStore wfMVStore = getStore(workflowId);
-        // check if the results for this wf have already been stored
+        // results stored by a previous version are replaced
         if (wfMVStore.hasMap(STORED_RESULTS_MAP_NAME)) {
             removeWfResults(workflowId, wfMVStore);
         }
-        MVMap<String, String> storedResultsMap = wfMVStore.openMap(STORED_RESULTS_MAP_NAME, mapBuilder);
-        // store time horizon
-        storedResultsMap.put(STORED_RESULTS_TIMEHORIZON_KEY, results.getTimeHorizon().getName());
-        // store contingencies with actions
-        storedResultsMap.put(STORED_RESULTS_CONTINGENCIES_WITH_ACTIONS_KEY, OnlineDbMVStoreUtils.contingenciesIdsToJson(results.getContingenciesWithActions()));
-        // store contingencies with actions
-        storedResultsMap.put(STORED_RESULTS_UNSAFE_CONTINGENCIES_KEY, OnlineDbMVStoreUtils.contingenciesIdsToJson(results.getUnsafeContingencies()));
-        // store actions for contingencies
-        for (String contingencyId : results.getContingenciesWithActions()) {
-            MVMap<String, String> storedActionsInfosMap = wfMVStore.openMap(contingencyId + STORED_RESULTS_ACTIONINFO_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedActionsMap = wfMVStore.openMap(contingencyId + STORED_RESULTS_ACTIONS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedActionsEquipmentsMap = wfMVStore.openMap(contingencyId + STORED_RESULTS_ACTIONS_EQUIPMENTS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedActionsParametersMap = wfMVStore.openMap(contingencyId + STORED_RESULTS_ACTIONS_PARAMETERS_MAP_SUFFIX, mapBuilder);
-            for (Integer stateId : results.getUnsafeStatesWithActions(contingencyId).keySet()) {
-                storedActionsInfosMap.put(stateId.toString() + STORED_RESULTS_ACTIONINFO_ACTIONSFOUND_KEY_SUFFIX,
-                        Boolean.toString(results.getUnsafeStatesWithActions(contingencyId).get(stateId)));
-                storedActionsInfosMap.put(stateId.toString() + STORED_RESULTS_ACTIONINFO_STATUS_KEY_SUFFIX, results.getStateStatus(contingencyId, stateId).name());
-                if (results.getCause(contingencyId, stateId) != null) {
-                    storedActionsInfosMap.put(stateId.toString() + STORED_RESULTS_ACTIONINFO_CAUSE_KEY_SUFFIX, results.getCause(contingencyId, stateId));
-                }
-                if (results.getActionPlan(contingencyId, stateId) != null) {
-                    storedActionsInfosMap.put(stateId.toString() + STORED_RESULTS_ACTIONINFO_ACTIONPLAN_KEY_SUFFIX, results.getActionPlan(contingencyId, stateId));
-                }
-                List<String> actionsIds = results.getActionsIds(contingencyId, stateId);
-                if (actionsIds != null) {
-                    for (String actionId : actionsIds) {
-                        List<String> equipmentsIds = results.getEquipmentsIds(contingencyId, stateId, actionId);
-                        storedActionsEquipmentsMap.put(stateId + "_" + actionId, OnlineDbMVStoreUtils.actionsIdsToJson(equipmentsIds));
-                        for (String equipmentId : equipmentsIds) {
-                            ActionParameters actionParameters = results.getParameters(contingencyId, stateId, actionId, equipmentId);
-                            if (actionParameters != null) {
-                                storedActionsParametersMap.put(stateId + "_" + actionId + "_" + equipmentId, OnlineDbMVStoreUtils.actionParametersToJson(actionParameters));
-                            }
-                        }
-                    }
-                } else {
-                    actionsIds = new ArrayList<String>(); // I need anyway an empty list, for the getResults to work
-                }
-                storedActionsMap.put(stateId.toString(), OnlineDbMVStoreUtils.actionsIdsToJson(actionsIds));
-            }
-        }
-        // store indexes for contingencies
-        for (String contingencyId : results.getUnsafeContingencies()) {
-            MVMap<String, String> storedIndexesMap = wfMVStore.openMap(contingencyId + STORED_RESULTS_INDEXES_MAP_SUFFIX, mapBuilder);
-            for (Integer stateId : results.getUnstableStates(contingencyId)) {
-                Map<String, Boolean> indexesData = results.getIndexesData(contingencyId, stateId);
-                storedIndexesMap.put(stateId.toString(), OnlineDbMVStoreUtils.indexesDataToJson(indexesData));
-            }
-        }
-        wfMVStore.commit();
+        getBinaryResults(workflowId).storeResults(results);
+        commit(wfMVStore);
     }
 
     private void removeWfResults(String workflowId, MVStore wfMVStore) {
@@ -570,13 +559,20 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove info about stored wf results
         wfMVStore.removeMap(storedResultsMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     @Override
     public OnlineWorkflowResults getResults(String workflowId) {
         Objects.requireNonNull(workflowId, "workflow id is null");
         LOGGER.info("Getting results of wf {}", workflowId);
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_RESULTS_MAP_NAME)) {
+            OnlineWorkflowResults results = getBinaryResults(workflowId).getResults(workflowId);
+            if (results == null) {
+                LOGGER.warn("No results of wf {} stored in online db", workflowId);
+            }
+            return results;
+        }
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
             if (wfMVStore.hasMap(STORED_RESULTS_MAP_NAME)) {
@@ -650,38 +646,12 @@ public class OnlineDbMVStore implements OnlineDb {
         Objects.requireNonNull(results, "online workflow rules results is null");
         LOGGER.info("Storing results of rules for workflow {}", workflowId);
         MVStore wfMVStore = getStore(workflowId);
-        // check if the results for this wf have already been stored
+        // rules results stored by a previous version are replaced
         if (wfMVStore.hasMap(STORED_RULES_RESULTS_MAP_NAME)) {
             removeWfRulesResults(workflowId, wfMVStore);
         }
-        MVMap<String, String> storedRulesResultsMap = wfMVStore.openMap(STORED_RULES_RESULTS_MAP_NAME, mapBuilder);
-        // store time horizon
-        storedRulesResultsMap.put(STORED_RESULTS_TIMEHORIZON_KEY, results.getTimeHorizon().getName());
-        // store contingencies with security rules results
-        storedRulesResultsMap.put(STORED_RULES_RESULTS_CONTINGENCIES_WITH_RULES_KEY,
-                OnlineDbMVStoreUtils.contingenciesIdsToJson(results.getContingenciesWithSecurityRulesResults()));
-        // store rules results for contingencies
-        for (String contingencyId : results.getContingenciesWithSecurityRulesResults()) {
-            MVMap<String, String> storedStateStatusMap = wfMVStore.openMap(contingencyId + STORED_RULES_RESULTS_STATE_STATUS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateResultsMap = wfMVStore.openMap(contingencyId + STORED_RULES_RESULTS_STATE_RESULTS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateAvailableRulesMap = wfMVStore.openMap(contingencyId + STORED_RULES_RESULTS_STATE_RULES_AVAILABLE_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateInvalidRulesMap = wfMVStore.openMap(contingencyId + STORED_RULES_RESULTS_STATE_INVALID_RULES_MAP_SUFFIX, mapBuilder);
-            for (Integer stateId : results.getStatesWithSecurityRulesResults(contingencyId)) {
-                // store state status
-                StateStatus status = results.getStateStatus(contingencyId, stateId);
-                storedStateStatusMap.put(stateId.toString(), status.name());
-                // store state rules results
-                Map<String, Boolean> stateResults = results.getStateResults(contingencyId, stateId);
-                storedStateResultsMap.put(stateId.toString(), OnlineDbMVStoreUtils.indexesDataToJson(stateResults));
-                // store state rules available flag
-                boolean rulesAvalable = results.areValidRulesAvailable(contingencyId, stateId);
-                storedStateAvailableRulesMap.put(stateId.toString(), Boolean.toString(rulesAvalable));
-                // store state invalid rules
-                List<SecurityIndexType> invalidRules = results.getInvalidRules(contingencyId, stateId);
-                storedStateInvalidRulesMap.put(stateId.toString(), OnlineDbMVStoreUtils.indexesTypesToJson(new HashSet<SecurityIndexType>(invalidRules)));
-            }
-        }
-        wfMVStore.commit();
+        getBinaryResults(workflowId).storeRulesResults(results);
+        commit(wfMVStore);
     }
 
     private void removeWfRulesResults(String workflowId, MVStore wfMVStore) {
@@ -703,13 +673,20 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove info about stored rules results
         wfMVStore.removeMap(storedRulesResultsMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     @Override
     public OnlineWorkflowRulesResults getRulesResults(String workflowId) {
         Objects.requireNonNull(workflowId, "workflow id is null");
         LOGGER.info("Getting rules results of wf {}", workflowId);
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_RULES_RESULTS_MAP_NAME)) {
+            OnlineWorkflowRulesResults results = getBinaryResults(workflowId).getRulesResults(workflowId);
+            if (results == null) {
+                LOGGER.warn("No rules results of wf {} stored in online db", workflowId);
+            }
+            return results;
+        }
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
             if (wfMVStore.hasMap(STORED_RULES_RESULTS_MAP_NAME)) {
@@ -758,24 +735,12 @@ public class OnlineDbMVStore implements OnlineDb {
         Objects.requireNonNull(results, "online workflow wca results is null");
         LOGGER.info("Storing results of WCA for workflow {}", workflowId);
         MVStore wfMVStore = getStore(workflowId);
-        // check if the results for this wf have already been stored
+        // WCA results stored by a previous version are replaced
         if (wfMVStore.hasMap(STORED_WCA_RESULTS_MAP_NAME)) {
             removeWfWcaResults(workflowId, wfMVStore);
         }
-        MVMap<String, String> storedWcaResultsMap = wfMVStore.openMap(STORED_WCA_RESULTS_MAP_NAME, mapBuilder);
-        // store time horizon
-        storedWcaResultsMap.put(STORED_RESULTS_TIMEHORIZON_KEY, results.getTimeHorizon().getName());
-        // store wca results for contingencies
-        MVMap<String, String> storedClustersMap = wfMVStore.openMap(STORED_WCA_RESULTS_CLUSTERS_MAP_NAME, mapBuilder);
-        MVMap<String, String> storedCausesMap = wfMVStore.openMap(STORED_WCA_RESULTS_CAUSES_MAP_NAME, mapBuilder);
-        for (String contingencyId : results.getContingencies()) {
-            storedClustersMap.put(contingencyId, Integer.toString(results.getClusterIndex(contingencyId)));
-            List<String> causes = results.getCauses(contingencyId);
-            if (causes != null && causes.size() > 0) {
-                storedCausesMap.put(contingencyId, causes.get(0));
-            }
-        }
-        wfMVStore.commit();
+        getBinaryResults(workflowId).storeWcaResults(results);
+        commit(wfMVStore);
     }
 
     private void removeWfWcaResults(String workflowId, MVStore wfMVStore) {
@@ -789,13 +754,20 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove info about stored wca results
         wfMVStore.removeMap(storedWcaResultsMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     @Override
     public OnlineWorkflowWcaResults getWcaResults(String workflowId) {
         Objects.requireNonNull(workflowId, "workflow id is null");
         LOGGER.info("Getting WCA results of wf {}", workflowId);
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_WCA_RESULTS_MAP_NAME)) {
+            OnlineWorkflowWcaResults results = getBinaryResults(workflowId).getWcaResults(workflowId);
+            if (results == null) {
+                LOGGER.warn("No WCA results of wf {} stored in online db", workflowId);
+            }
+            return results;
+        }
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
             if (wfMVStore.hasMap(STORED_WCA_RESULTS_MAP_NAME)) {
@@ -877,7 +849,7 @@ public class OnlineDbMVStore implements OnlineDb {
             storedParametersMap.put(STORED_PARAMETERS_CASE_FILE_KEY, parameters.getCaseFile());
         }
 
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     private void removeWfParameters(String workflowId, MVStore wfMVStore) {
@@ -886,7 +858,7 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove parameters
         wfMVStore.removeMap(storedParametersMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     @Override
@@ -989,7 +961,7 @@ public class OnlineDbMVStore implements OnlineDb {
             }
             stateProcessingStatusMap.put(STORED_STATES_STATE_DETAILS_KEY, statesProcessingStatus.get(stateId).getDetail() == null ? "" : statesProcessingStatus.get(stateId).getDetail());
         }
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     private void removeStatesProcessingStatus(String workflowId, MVStore wfMVStore) {
@@ -1004,7 +976,7 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove info about states with processing status
         wfMVStore.removeMap(statesProcessingStatusMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
 
     }
 
@@ -1041,6 +1013,60 @@ public class OnlineDbMVStore implements OnlineDb {
         }
     }
 
+    private static String getStateKey(Integer stateId, String contingencyId) {
+        if (contingencyId != null) {
+            return STORED_STATE_POST_PREFIX + stateId + STORED_STATE_CONT_PREFIX + contingencyId;
+        }
+        return STORED_STATE_PREFIX + stateId;
+    }
+
+    private static Network loadNetwork(Path stateFolder) {
+        try (Stream<Path> stateFiles = Files.list(stateFolder)) {
+            Path stateFile = stateFiles.findFirst().orElseThrow(() -> new RuntimeException("No network file in folder " + stateFolder));
+            LOGGER.debug("loading network from file {}", stateFile.toString());
+            return Importers.loadNetwork(stateFile, LocalComputationManager.getDefault(), new ImportConfig(), (Properties) null);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private Path getBaseStateFolder(String workflowId) {
+        return Paths.get(getWorkflowStatesFolder(workflowId).toString(), STORED_BASE_STATE_FOLDER);
+    }
+
+    /**
+     * The network of the first state stored for a workflow is exported as the base case of the stored states
+     */
+    private Map<String, double[]> getBaseStateVariables(String workflowId, Network network, Map<String, double[]> stateVariables) {
+        OnlineDbMVStoreStates states = getStates(workflowId);
+        synchronized (states) {
+            Map<String, double[]> baseStateVariables = states.getBaseStateVariables();
+            if (baseStateVariables == null) {
+                Path baseStateFolder = getBaseStateFolder(workflowId);
+                if (Files.isDirectory(baseStateFolder)) {
+                    // base case exported by a previous run
+                    baseStateVariables = OnlineDbMVStoreStates.extract(loadNetwork(baseStateFolder));
+                } else {
+                    LOGGER.info("Storing base case of the states of workflow {}", workflowId);
+                    try {
+                        Files.createDirectories(baseStateFolder);
+                    } catch (IOException e) {
+                        String errorMessage = "online db: folder " + baseStateFolder + " for workflow " + workflowId + " cannot be created: " + e.getMessage();
+                        LOGGER.error(errorMessage);
+                        throw new RuntimeException(errorMessage, e);
+                    }
+                    DataSource dataSource = new GzFileDataSource(baseStateFolder, network.getId());
+                    Properties parameters = new Properties();
+                    parameters.setProperty("iidm.export.xml.with-branch-state-variables", "true");
+                    Exporters.export("XIIDM", network, parameters, dataSource);
+                    baseStateVariables = stateVariables;
+                }
+                states.setBaseStateVariables(baseStateVariables);
+            }
+            return baseStateVariables;
+        }
+    }
+
     @Override
     public void storeState(String workflowId, Integer stateId, Network network, String contingencyId) {
         String stateIdStr;
@@ -1053,50 +1079,17 @@ public class OnlineDbMVStore implements OnlineDb {
         }
         if (network.getStateManager().getStateIds().contains(stateIdStr)) {
             network.getStateManager().setWorkingState(stateIdStr);
-            Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
-            Path stateFolder;
-            if (contingencyId != null) {
-                stateFolder = Paths.get(workflowStatesFolder.toString(), STORED_STATE_POST_PREFIX + stateId + STORED_STATE_CONT_PREFIX + contingencyId);
-            } else {
-                stateFolder = Paths.get(workflowStatesFolder.toString(), STORED_STATE_PREFIX + stateId);
-            }
-            if (Files.exists(stateFolder)) {
-                //remove current state file, if it already exists
-                for (int i = 0; i < XIIDMEXTENSIONS.length; i++) {
-                    Path stateFile = Paths.get(stateFolder.toString(), network.getId() + XIIDMEXTENSIONS[i]);
-                    try {
-                        Files.deleteIfExists(stateFile);
-                    } catch (IOException e) {
-                        String errorMessage = "online db: folder " + workflowStatesFolder + " for workflow " + workflowId
-                                + " , state " + stateIdStr + " ; cannot remove existing state file: " + e.getMessage();
-                        LOGGER.error(errorMessage);
-                        throw new RuntimeException(errorMessage, e);
-                    }
-                }
-            } else {
-                try {
-                    Files.createDirectories(stateFolder);
-                } catch (IOException e) {
-                    String errorMessage = "online db: folder " + workflowStatesFolder + " for workflow " + workflowId
-                            + " and state " + stateIdStr + " cannot be created: " + e.getMessage();
-                    LOGGER.error(errorMessage);
-                    throw new RuntimeException(errorMessage, e);
-                }
-            }
-            DataSource dataSource = new GzFileDataSource(stateFolder, network.getId());
-            Properties parameters = new Properties();
-            parameters.setProperty("iidm.export.xml.indent", "true");
-            parameters.setProperty("iidm.export.xml.with-branch-state-variables", "true");
-            Exporters.export("XIIDM", network, parameters, dataSource);
-            // store network state values, for later serialization
+            OnlineDbMVStoreStates states = getStates(workflowId);
+            Map<String, double[]> stateVariables = OnlineDbMVStoreStates.extract(network);
+            Map<String, double[]> baseStateVariables = getBaseStateVariables(workflowId, network, stateVariables);
+            states.storeSnapshot(getStateKey(stateId, contingencyId), states.toSnapshot(stateVariables, baseStateVariables));
             if (contingencyId == null) {
+                // store network state values, for later export
                 Map<HistoDbAttributeId, Object> networkValues = IIDM2DB.extractCimValues(network, new IIDM2DB.Config(network.getId(), true, true)).getSingleValueMap();
-                ConcurrentHashMap<Integer, Map<HistoDbAttributeId, Object>> workflowStates = new ConcurrentHashMap<Integer, Map<HistoDbAttributeId, Object>>();
-                if (workflowsStates.containsKey(workflowId)) {
-                    workflowStates = workflowsStates.get(workflowId);
-                }
-                workflowStates.put(stateId, networkValues);
-                workflowsStates.put(workflowId, workflowStates);
+                Map<String, Object> stateValues = new LinkedHashMap<>(networkValues.size());
+                networkValues.forEach((attrId, value) -> stateValues.put(attrId.toString(), value));
+                states.storeValues(stateId, stateValues);
+                commit(getStore(workflowId));
             } else {
                 storePostcontingencyStateData(workflowId, stateId, contingencyId, network);
             }
@@ -1111,79 +1104,50 @@ public class OnlineDbMVStore implements OnlineDb {
         try {
             LOGGER.info("Storing post-contingency state data of network {} for wf {}, state {}, contingency {}", network.getId(), workflowId, stateId, contingencyId);
             MVStore wfMVStore = getStore(workflowId);
-            Map<String, String> postcontingencyStatesMap = wfMVStore.openMap(STORED_POST_CONTINGENCY_STATES_MAP_NAME, mapBuilder);
             LinkedHashMap<String, Double> branchesData = OnlineUtils.getBranchesData(network);
-            if (!postcontingencyStatesMap.containsKey(STORED_POST_CONTINGENCY_STATES_HEADERS_KEY)) {
-                postcontingencyStatesMap.put(STORED_POST_CONTINGENCY_STATES_HEADERS_KEY, OnlineDbMVStoreUtils.branchesDataToCsvHeaders(branchesData));
-            }
-            postcontingencyStatesMap.put(OnlineDbMVStoreUtils.postContingencyStateKey(stateId, contingencyId), OnlineDbMVStoreUtils.branchesDataToCsv(network.getId(), stateId, contingencyId, branchesData));
-            wfMVStore.commit();
+            getBinaryResults(workflowId).storePostContingencyState(network.getId(), stateId, contingencyId, branchesData);
+            commit(wfMVStore);
         } catch (Throwable e) {
             String errorMessage = "Error storing post-contingency state data of network " + network.getId() + " for wf " + workflowId + ", state " + stateId
-                                  + ", contingency " + contingencyId + " in map " + STORED_POST_CONTINGENCY_STATES_MAP_NAME + ": " + e.getMessage();
+                                  + ", contingency " + contingencyId + ": " + e.getMessage();
             LOGGER.error(errorMessage);
             throw new RuntimeException(errorMessage, e);
         }
     }
 
-    private void serializeStoredWorkflowsStates() {
-        LOGGER.info("Serializing stored workflows states");
-        for (String workflowId : workflowsStates.keySet()) {
-            if (workflowStatesFolderExists(workflowId)) {
-                LOGGER.info("Serializing network data of workflow {}", workflowId);
-                ConcurrentHashMap<Integer, Map<HistoDbAttributeId, Object>> workflowStates = workflowsStates.get(workflowId);
-                Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
-                Path csvFile = Paths.get(workflowStatesFolder.toString(), SERIALIZED_STATES_FILENAME);
-                try (FileWriter fileWriter = new FileWriter(csvFile.toFile());
-                     CsvListWriter csvWriter = new CsvListWriter(fileWriter, new CsvPreference.Builder('"', ';', "\r\n").build())) {
-                    boolean printHeaders = true;
-                    for (Integer stateId : workflowStates.keySet()) {
-                        Map<HistoDbAttributeId, Object> networkValues = workflowStates.get(stateId);
-                        if (printHeaders) {
-                            List<String> headers = new ArrayList<>(networkValues.size());
-                            for (HistoDbAttributeId attrId : networkValues.keySet()) {
-                                headers.add(attrId.toString());
-                            }
-                            ArrayList<String> headersList = new ArrayList<>();
-                            headersList.add("workflow");
-                            headersList.add("state");
-                            headersList.addAll(Arrays.asList(headers.toArray(new String[]{})));
-                            csvWriter.writeHeader(headersList.toArray(new String[]{}));
-                            printHeaders = false;
-                        }
-                        ArrayList<Object> valuesList = new ArrayList<>();
-                        valuesList.add(workflowId);
-                        valuesList.add(stateId);
-                        valuesList.addAll(Arrays.asList(networkValues.values().toArray()));
-                        csvWriter.write(valuesList.toArray());
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Error serializing network data for workflow {}", workflowId);
-                }
+    /**
+     * Names of the stored states and post-contingency states: snapshot keys, or state folders for the
+     * workflows stored by previous versions
+     */
+    private List<String> getStoredStateNames(String workflowId) {
+        if (hasStateSnapshots(workflowId)) {
+            return new ArrayList<>(getStates(workflowId).getSnapshotKeys());
+        }
+        if (workflowStatesFolderExists(workflowId)) {
+            try (Stream<Path> stateDirs = Files.walk(getWorkflowStatesFolder(workflowId))) {
+                return stateDirs.filter(Files::isDirectory)
+                                .map(stateDir -> stateDir.getFileName().toString())
+                                .collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
             }
         }
+        return Collections.emptyList();
     }
 
     @Override
     public List<Integer> listStoredStates(String workflowId) {
         Objects.requireNonNull(workflowId);
         LOGGER.info("Getting list of stored states for workflow {}", workflowId);
-        List<Integer> storedStates = new ArrayList<Integer>();
-        if (workflowStatesFolderExists(workflowId)) {
-            Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
-            try {
-                storedStates = Files.walk(workflowStatesFolder)
-                        .filter(Files::isDirectory)
-                        .filter(stateDir -> stateDir.getFileName().toString().startsWith(STORED_STATE_PREFIX))
-                        .map(stateDir -> Integer.parseInt(stateDir.getFileName().toString().substring(STORED_STATE_PREFIX.length())))
-                        .sorted()
-                        .collect(Collectors.toList());
-            } catch (IOException e) {
-                throw new RuntimeException(e.getMessage(), e);
-            }
-            LOGGER.info("Found {} state(s) for workflow {}", storedStates.size(), workflowId);
-        } else {
+        List<Integer> storedStates = getStoredStateNames(workflowId).stream()
+                .filter(stateName -> stateName.startsWith(STORED_STATE_PREFIX))
+                .map(stateName -> Integer.parseInt(stateName.substring(STORED_STATE_PREFIX.length())))
+                .sorted()
+                .collect(Collectors.toList());
+        if (storedStates.isEmpty()) {
             LOGGER.info("Found no state(s) for workflow {}", workflowId);
+        } else {
+            LOGGER.info("Found {} state(s) for workflow {}", storedStates.size(), workflowId);
         }
         return storedStates;
     }
@@ -1193,26 +1157,15 @@ public class OnlineDbMVStore implements OnlineDb {
         Objects.requireNonNull(workflowId);
         LOGGER.info("Getting list of stored post contingency states for workflow {}", workflowId);
         Map<Integer, Set<String>> storedContingencyStates = new TreeMap<>();
-        if (workflowStatesFolderExists(workflowId)) {
-            Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
-            try {
-                Files.walk(workflowStatesFolder)
-                        .filter(Files::isDirectory)
-                        .filter(stateDirPath -> stateDirPath.getFileName().toString().startsWith(STORED_STATE_POST_PREFIX))
-                        .forEach(statePostDirPath -> {
-                            List<String> statePostIdContId = Splitter.on(STORED_STATE_CONT_PREFIX).splitToList(statePostDirPath.getFileName().toString().substring(STORED_STATE_POST_PREFIX.length()));
-                            Integer statePostId = Integer.parseInt(statePostIdContId.get(0));
-                            String contId = statePostIdContId.get(1);
-                            if (storedContingencyStates.containsKey(statePostId)) {
-                                storedContingencyStates.get(statePostId).add(contId);
-                            } else {
-                                storedContingencyStates.put(statePostId, new HashSet<String>(Arrays.asList(contId)));
-                            }
-                        });
-            } catch (IOException e) {
-                throw new RuntimeException(e.getMessage(), e);
-            }
-        } else {
+        getStoredStateNames(workflowId).stream()
+                .filter(stateName -> stateName.startsWith(STORED_STATE_POST_PREFIX))
+                .forEach(stateName -> {
+                    List<String> statePostIdContId = Splitter.on(STORED_STATE_CONT_PREFIX).splitToList(stateName.substring(STORED_STATE_POST_PREFIX.length()));
+                    Integer statePostId = Integer.parseInt(statePostIdContId.get(0));
+                    String contId = statePostIdContId.get(1);
+                    storedContingencyStates.computeIfAbsent(statePostId, k -> new HashSet<>()).add(contId);
+                });
+        if (storedContingencyStates.isEmpty()) {
             LOGGER.info("Found no state(s) for workflow {}", workflowId);
         }
         return storedContingencyStates;
@@ -1223,23 +1176,24 @@ public class OnlineDbMVStore implements OnlineDb {
     public Network getState(String workflowId, Integer stateId, String contingencyId) {
         Objects.requireNonNull(workflowId);
         Objects.requireNonNull(stateId);
-        String stateIdStr = String.valueOf(stateId);
-        Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
-        Path stateFolder;
         if (contingencyId == null) {
-            LOGGER.info("Getting state {} of workflow {}", stateIdStr, workflowId);
-            stateFolder = Paths.get(workflowStatesFolder.toString(), STORED_STATE_PREFIX + stateIdStr);
+            LOGGER.info("Getting state {} of workflow {}", stateId, workflowId);
         } else {
-            LOGGER.info("Getting state {}, contingency {} of workflow {}", stateIdStr, contingencyId, workflowId);
-            stateFolder = Paths.get(workflowStatesFolder.toString(), STORED_STATE_POST_PREFIX + stateIdStr + STORED_STATE_CONT_PREFIX + contingencyId);
-        }
-        if (Files.isDirectory(stateFolder)) {
-            try {
-                Path stateFile = Files.list(stateFolder).findFirst().get();
-                LOGGER.debug("loading network from file {}", stateFile.toString());
-                return Importers.loadNetwork(stateFile, LocalComputationManager.getDefault(), new ImportConfig(), (Properties) null);
-            } catch (IOException e) {
-                throw new RuntimeException(e.getMessage(), e);
+            LOGGER.info("Getting state {}, contingency {} of workflow {}", stateId, contingencyId, workflowId);
+        }
+        String stateKey = getStateKey(stateId, contingencyId);
+        if (hasStateSnapshots(workflowId)) {
+            OnlineDbMVStoreStates states = getStates(workflowId);
+            byte[] snapshot = states.getSnapshot(stateKey);
+            if (snapshot != null) {
+                Network network = loadNetwork(getBaseStateFolder(workflowId));
+                states.apply(snapshot, network);
+                return network;
+            }
+        } else if (workflowStatesFolderExists(workflowId)) {
+            Path stateFolder = Paths.get(getWorkflowStatesFolder(workflowId).toString(), stateKey);
+            if (Files.isDirectory(stateFolder)) {
+                return loadNetwork(stateFolder);
             }
         }
         return null;
@@ -1290,6 +1244,10 @@ public class OnlineDbMVStore implements OnlineDb {
     public boolean deleteStates(String workflowId) {
         LOGGER.info("Deleting stored states of workflow {}", workflowId);
         boolean workflowStatesDeleted = false;
+        if (hasStateSnapshots(workflowId)) {
+            getStates(workflowId).clear();
+            commit(getStore(workflowId));
+        }
         Path workflowStatesFolder = Paths.get(config.getOnlineDbDir().toFile().toString(), STORED_WORKFLOW_STATES_FOLDER_PREFIX + workflowId);
         if (workflowStatesFolder.toFile().exists() && workflowStatesFolder.toFile().isDirectory()) {
             try {
@@ -1307,7 +1265,30 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public void exportStates(String workflowId, Path file) {
-        if (workflowStatesFolderExists(workflowId)) {
+        if (hasStateSnapshots(workflowId)) {
+            LOGGER.info("Exporting states for workflow {}", workflowId);
+            try (BufferedWriter writer = Files.newBufferedWriter(file);
+                 CsvListWriter csvWriter = new CsvListWriter(writer, new CsvPreference.Builder('"', ';', "\r\n").build())) {
+                boolean printHeaders = true;
+                for (Map.Entry<Integer, Map<String, Object>> stateValues : getStates(workflowId).getValues()) {
+                    if (printHeaders) {
+                        List<String> headersList = new ArrayList<>();
+                        headersList.add("workflow");
+                        headersList.add("state");
+                        headersList.addAll(stateValues.getValue().keySet());
+                        csvWriter.writeHeader(headersList.toArray(new String[]{}));
+                        printHeaders = false;
+                    }
+                    List<Object> valuesList = new ArrayList<>();
+                    valuesList.add(workflowId);
+                    valuesList.add(stateValues.getKey());
+                    valuesList.addAll(stateValues.getValue().values());
+                    csvWriter.write(valuesList);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error exporting network data of workflow {} to file {}: {}", workflowId, file, e.getMessage());
+            }
+        } else if (workflowStatesFolderExists(workflowId)) {
             LOGGER.info("Exporting states for workflow {}", workflowId);
             Path workflowStatesFolder = getWorkflowStatesFolder(workflowId);
             Path csvFile = Paths.get(workflowStatesFolder.toString(), SERIALIZED_STATES_FILENAME);
@@ -1355,52 +1336,13 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public void storeViolations(String workflowId, Integer stateId, OnlineStep step, List<LimitViolation> violations) {
-        String stateIdStr = String.valueOf(stateId);
-        LOGGER.info("Storing violations for wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
-        storeViolations(workflowId, STORED_VIOLATIONS_MAP_PREFIX + step.name() + "_" + stateIdStr, violations);
-        LOGGER.info("Storing violations metadata for wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
-        storeViolationsMetadata(workflowId, stateIdStr, step, violations);
-    }
-
-    private void storeViolations(String workflowId, String mapName, List<LimitViolation> violations) {
+        LOGGER.info("Storing violations for wf {}, step {} and state {}", workflowId, step.name(), stateId);
         try {
             MVStore wfMVStore = getStore(workflowId);
-            Map<String, String> metricsMap = wfMVStore.openMap(mapName, mapBuilder);
-            int violationIndex = 0;
-            for (LimitViolation limitViolation : violations) {
-                String violationId = limitViolation.getSubjectId() + "_" + violationIndex;
-                metricsMap.put(violationId, OnlineDbMVStoreUtils.limitViolationToJson(limitViolation));
-                violationIndex++;
-            }
-            wfMVStore.commit();
-        } catch (Throwable e) {
-            String errorMessage = "Error storing violations for wf " + workflowId + " in map " + mapName + ": " + e.getMessage();
-            LOGGER.error(errorMessage);
-            throw new RuntimeException(errorMessage, e);
-        }
-    }
-
-    private void storeViolationsMetadata(String workflowId, String stateId, OnlineStep step, List<LimitViolation> violations) {
-        try {
-            MVStore wfMVStore = getStore(workflowId);
-
-            // save info about stored wf steps
-            MVMap<String, String> storedStepsMap = wfMVStore.openMap(STORED_VIOLATIONS_STEPS_MAP_NAME, mapBuilder);
-            storedStepsMap.putIfAbsent(step.name(), "1");
-            // save info about stored states per step
-            MVMap<String, String> stepStateMap = wfMVStore.openMap(step.name() + STORED_VIOLATIONS_STATES_MAP_SUFFIX, mapBuilder);
-            stepStateMap.putIfAbsent(stateId, "");
-
-            // save info about stored wf states
-            MVMap<String, String> storedStatesMap = wfMVStore.openMap(STORED_VIOLATIONS_STATES_MAP_NAME, mapBuilder);
-            storedStatesMap.putIfAbsent(stateId, "1");
-            // save info about stored steps per state
-            MVMap<String, String> stepStepMap = wfMVStore.openMap(stateId + STORED_VIOLATIONS_STEPS_MAP_SUFFIX, mapBuilder);
-            stepStepMap.putIfAbsent(step.name(), "");
-
-            wfMVStore.commit();
+            getBinaryResults(workflowId).storeViolations(stateId, step, violations);
+            commit(wfMVStore);
         } catch (Throwable e) {
-            String errorMessage = "Error storing violations metadata for wf " + workflowId + ", step " + step.name() + ", state " + stateId + ": " + e.getMessage();
+            String errorMessage = "Error storing violations for wf " + workflowId + ", step " + step.name() + ", state " + stateId + ": " + e.getMessage();
             LOGGER.error(errorMessage);
             throw new RuntimeException(errorMessage, e);
         }
@@ -1408,6 +1350,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public List<LimitViolation> getViolations(String workflowId, Integer stateId, OnlineStep step) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting violations for wf {}, step {} and state {}", workflowId, step.name(), stateId);
+            return getBinaryResults(workflowId).getViolations(stateId, step);
+        }
         String stateIdStr = String.valueOf(stateId);
         LOGGER.info("Getting violations for wf {}, step {} and state {}", workflowId, step.name(), stateIdStr);
         return getStoredViolations(workflowId, STORED_VIOLATIONS_MAP_PREFIX + step.name() + "_" + stateIdStr, null);
@@ -1448,6 +1394,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<OnlineStep, List<LimitViolation>> getViolations(String workflowId, Integer stateId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting violations for wf {} and state {}", workflowId, stateId);
+            return nullIfEmpty(getBinaryResults(workflowId).getViolations(stateId));
+        }
         String stateIdStr = Integer.toString(stateId);
         LOGGER.info("Getting violations for wf {} and state {}", workflowId, stateIdStr);
         if (isWorkflowStored(workflowId)) {
@@ -1485,6 +1435,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, List<LimitViolation>> getViolations(String workflowId, OnlineStep step) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting violations for wf {} and step {}", workflowId, step.name());
+            return nullIfEmpty(getBinaryResults(workflowId).getViolations(step));
+        }
         LOGGER.info("Getting violations for wf {} and step {}", workflowId, step.name());
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
@@ -1519,6 +1473,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, Map<OnlineStep, List<LimitViolation>>> getViolations(String workflowId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting violations for wf {}", workflowId);
+            return nullIfEmpty(getBinaryResults(workflowId).getViolations());
+        }
         LOGGER.info("Getting violations for wf {}", workflowId);
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
@@ -1562,76 +1520,13 @@ public class OnlineDbMVStore implements OnlineDb {
     @Override
     public void storePostContingencyViolations(String workflowId, Integer stateId, String contingencyId,
                                                boolean loadflowConverge, List<LimitViolation> violations) {
-        String stateIdStr = String.valueOf(stateId);
-        LOGGER.info("Storing post contingency violations for wf {}, contingency {} and state {}", workflowId, contingencyId, stateIdStr);
-        storeViolations(workflowId, STORED_PC_VIOLATIONS_MAP_PREFIX + contingencyId + "_" + stateIdStr, violations);
-        LOGGER.info("Storing post contingency violations metadata for wf {}, contingency {} and state {}", workflowId, contingencyId, stateIdStr);
-        storePCViolationsMetadata(workflowId, stateIdStr, contingencyId, violations);
-        LOGGER.info("Storing post contingency loadflow convergence for wf {}, contingency {} and state {}", workflowId, contingencyId, stateIdStr);
-        storePSLoadflowConvergence(workflowId, stateIdStr, contingencyId, loadflowConverge);
-    }
-
-    private synchronized void storePCViolationsMetadata(String workflowId, String stateId, String contingencyId, List<LimitViolation> violations) {
-        try {
-            MVStore wfMVStore = getStore(workflowId);
-
-            // save info about stored wf contingencies
-            MVMap<String, String> storedContingenciesMap = wfMVStore.openMap(STORED_PC_VIOLATIONS_CONTINGENCIES_MAP_NAME, mapBuilder);
-            storedContingenciesMap.putIfAbsent(contingencyId, "1");
-            // save info about stored states per contingency
-            MVMap<String, String> contingencyStateMap = wfMVStore.openMap(contingencyId + STORED_PC_VIOLATIONS_STATES_MAP_SUFFIX, mapBuilder);
-            contingencyStateMap.putIfAbsent(stateId, "");
-
-            // save info about stored wf states
-            MVMap<String, String> storedStatesMap = wfMVStore.openMap(STORED_PC_VIOLATIONS_STATES_MAP_NAME, mapBuilder);
-            storedStatesMap.putIfAbsent(stateId, "1");
-            // save info about stored contingencies per state
-            MVMap<String, String> stateContingencyMap = wfMVStore.openMap(stateId + STORED_PC_VIOLATIONS_CONTINGENCIES_MAP_SUFFIX, mapBuilder);
-            LOGGER.info("storePCViolationsMetadata: Adding contingency {} to map {} for workflow {}, state {}",
-                    contingencyId,
-                    stateId + STORED_PC_VIOLATIONS_CONTINGENCIES_MAP_SUFFIX,
-                    workflowId,
-                    stateId
-            );
-            //stateContingencyMap.putIfAbsent(contingencyId, "");
-            stateContingencyMap.put(contingencyId, "");
-
-            wfMVStore.commit();
-        } catch (Throwable e) {
-            String errorMessage = "Error storing pc violations metadata for wf " + workflowId + ", contingency " + contingencyId + ", state " + stateId + ": " + e.getMessage();
-            LOGGER.error(errorMessage);
-            throw new RuntimeException(errorMessage, e);
-        }
-    }
-
-    private synchronized void storePSLoadflowConvergence(String workflowId, String stateId, String contingencyId, boolean loadflowConverge) {
+        LOGGER.info("Storing post contingency violations and loadflow convergence for wf {}, contingency {} and state {}", workflowId, contingencyId, stateId);
         try {
             MVStore wfMVStore = getStore(workflowId);
-
-            // save info about stored wf contingencies
-            MVMap<String, String> storedContingenciesMap = wfMVStore.openMap(STORED_PC_LOADFLOW_CONTINGENCIES_MAP_NAME, mapBuilder);
-            storedContingenciesMap.putIfAbsent(contingencyId, "1");
-            // save info about stored states per contingency
-            MVMap<String, String> contingencyStateMap = wfMVStore.openMap(contingencyId + STORED_PC_LOADFLOW_STATES_MAP_SUFFIX, mapBuilder);
-            contingencyStateMap.putIfAbsent(stateId, Boolean.toString(loadflowConverge));
-
-            // save info about stored wf states
-            MVMap<String, String> storedStatesMap = wfMVStore.openMap(STORED_PC_LOADFLOW_STATES_MAP_NAME, mapBuilder);
-            storedStatesMap.putIfAbsent(stateId, "1");
-            // save info about stored contingencies per state
-            MVMap<String, String> stateContingencyMap = wfMVStore.openMap(stateId + STORED_PC_LOADFLOW_CONTINGENCIES_MAP_SUFFIX, mapBuilder);
-            LOGGER.info("storePSLoadflowConvergence: Adding contingency {} to map {} for workflow {}, state {}",
-                    contingencyId,
-                    stateId + STORED_PC_LOADFLOW_CONTINGENCIES_MAP_SUFFIX,
-                    workflowId,
-                    stateId
-            );
-            //stateContingencyMap.putIfAbsent(contingencyId, Boolean.toString(loadflowConverge));
-            stateContingencyMap.put(contingencyId, Boolean.toString(loadflowConverge));
-
-            wfMVStore.commit();
+            getBinaryResults(workflowId).storePostContingencyViolations(stateId, contingencyId, loadflowConverge, violations);
+            commit(wfMVStore);
         } catch (Throwable e) {
-            String errorMessage = "Error storing pc loadflow convergence for wf " + workflowId + ", contingency " + contingencyId + ", state " + stateId + ": " + e.getMessage();
+            String errorMessage = "Error storing pc violations for wf " + workflowId + ", contingency " + contingencyId + ", state " + stateId + ": " + e.getMessage();
             LOGGER.error(errorMessage);
             throw new RuntimeException(errorMessage, e);
         }
@@ -1639,6 +1534,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public List<LimitViolation> getPostContingencyViolations(String workflowId, Integer stateId, String contingencyId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting post contingency violations for wf {}, contingency {} and state {}", workflowId, contingencyId, stateId);
+            return getBinaryResults(workflowId).getPostContingencyViolations(stateId, contingencyId);
+        }
         String stateIdStr = String.valueOf(stateId);
         LOGGER.info("Getting post contingency violations for wf {}, contingency {} and state {}", workflowId, contingencyId, stateIdStr);
         return getStoredViolations(workflowId, STORED_PC_VIOLATIONS_MAP_PREFIX + contingencyId + "_" + stateIdStr, null);
@@ -1646,6 +1545,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<String, List<LimitViolation>> getPostContingencyViolations(String workflowId, Integer stateId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting post contingency violations for wf {} and state {}", workflowId, stateId);
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyViolations(stateId));
+        }
         String stateIdStr = Integer.toString(stateId);
         LOGGER.info("Getting post contingency violations for wf {} and state {}", workflowId, stateIdStr);
         if (isWorkflowStored(workflowId)) {
@@ -1681,6 +1584,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, List<LimitViolation>> getPostContingencyViolations(String workflowId, String contingencyId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting post contingency violations for wf {} and contingency {}", workflowId, contingencyId);
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyViolations(contingencyId));
+        }
         LOGGER.info("Getting post contingency violations for wf {} and contingency {}", workflowId, contingencyId);
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
@@ -1715,6 +1622,10 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, Map<String, List<LimitViolation>>> getPostContingencyViolations(String workflowId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_VIOLATIONS_STATES_MAP_NAME)) {
+            LOGGER.info("Getting post contingency violations for wf {}", workflowId);
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyViolations());
+        }
         LOGGER.info("Getting post contingency violations for wf {}", workflowId);
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
@@ -1756,6 +1667,9 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<String, Boolean> getPostContingencyLoadflowConvergence(String workflowId, Integer stateId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_LOADFLOW_STATES_MAP_NAME)) {
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyLoadflowConvergence(stateId));
+        }
         String stateIdStr = Integer.toString(stateId);
         if (isWorkflowStored(workflowId)) {
             Map<String, Boolean> loadflowConvergence = new HashMap<String, Boolean>();
@@ -1784,6 +1698,9 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, Boolean> getPostContingencyLoadflowConvergence(String workflowId, String contingencyId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_LOADFLOW_STATES_MAP_NAME)) {
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyLoadflowConvergence(contingencyId));
+        }
         if (isWorkflowStored(workflowId)) {
             Map<Integer, Boolean> loadflowConvergence = new HashMap<Integer, Boolean>();
             MVStore wfMVStore = getStore(workflowId);
@@ -1811,6 +1728,9 @@ public class OnlineDbMVStore implements OnlineDb {
 
     @Override
     public Map<Integer, Map<String, Boolean>> getPostContingencyLoadflowConvergence(String workflowId) {
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_PC_LOADFLOW_STATES_MAP_NAME)) {
+            return nullIfEmpty(getBinaryResults(workflowId).getPostContingencyLoadflowConvergence());
+        }
         if (isWorkflowStored(workflowId)) {
             Map<Integer, Map<String, Boolean>> loadflowConvergence = new HashMap<Integer, Map<String, Boolean>>();
             MVStore wfMVStore = getStore(workflowId);
@@ -1842,38 +1762,12 @@ public class OnlineDbMVStore implements OnlineDb {
         Objects.requireNonNull(results, "online workflow wca rules results is null");
         LOGGER.info("Storing results of wca rules for workflow {}", workflowId);
         MVStore wfMVStore = getStore(workflowId);
-        // check if the results for this wf have already been stored
+        // wca rules results stored by a previous version are replaced
         if (wfMVStore.hasMap(STORED_WCA_RULES_RESULTS_MAP_NAME)) {
             removeWfWcaRulesResults(workflowId, wfMVStore);
         }
-        MVMap<String, String> storedRulesResultsMap = wfMVStore.openMap(STORED_WCA_RULES_RESULTS_MAP_NAME, mapBuilder);
-        // store time horizon
-        storedRulesResultsMap.put(STORED_RESULTS_TIMEHORIZON_KEY, results.getTimeHorizon().getName());
-        // store contingencies with security rules results
-        storedRulesResultsMap.put(STORED_RULES_RESULTS_CONTINGENCIES_WITH_RULES_KEY,
-                OnlineDbMVStoreUtils.contingenciesIdsToJson(results.getContingenciesWithSecurityRulesResults()));
-        // store wca rules results for contingencies
-        for (String contingencyId : results.getContingenciesWithSecurityRulesResults()) {
-            MVMap<String, String> storedStateStatusMap = wfMVStore.openMap(contingencyId + STORED_WCA_RULES_RESULTS_STATE_STATUS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateResultsMap = wfMVStore.openMap(contingencyId + STORED_WCA_RULES_RESULTS_STATE_RESULTS_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateAvailableRulesMap = wfMVStore.openMap(contingencyId + STORED_WCA_RULES_RESULTS_STATE_RULES_AVAILABLE_MAP_SUFFIX, mapBuilder);
-            MVMap<String, String> storedStateInvalidRulesMap = wfMVStore.openMap(contingencyId + STORED_WCA_RULES_RESULTS_STATE_INVALID_RULES_MAP_SUFFIX, mapBuilder);
-            for (Integer stateId : results.getStatesWithSecurityRulesResults(contingencyId)) {
-                // store state status
-                StateStatus status = results.getStateStatus(contingencyId, stateId);
-                storedStateStatusMap.put(stateId.toString(), status.name());
-                // store state rules results
-                Map<String, Boolean> stateResults = results.getStateResults(contingencyId, stateId);
-                storedStateResultsMap.put(stateId.toString(), OnlineDbMVStoreUtils.indexesDataToJson(stateResults));
-                // store state rules available flag
-                boolean rulesAvalable = results.areValidRulesAvailable(contingencyId, stateId);
-                storedStateAvailableRulesMap.put(stateId.toString(), Boolean.toString(rulesAvalable));
-                // store state invalid rules
-                List<SecurityIndexType> invalidRules = results.getInvalidRules(contingencyId, stateId);
-                storedStateInvalidRulesMap.put(stateId.toString(), OnlineDbMVStoreUtils.indexesTypesToJson(new HashSet<SecurityIndexType>(invalidRules)));
-            }
-        }
-        wfMVStore.commit();
+        getBinaryResults(workflowId).storeWcaRulesResults(results);
+        commit(wfMVStore);
     }
 
     private void removeWfWcaRulesResults(String workflowId, MVStore wfMVStore) {
@@ -1895,13 +1789,20 @@ public class OnlineDbMVStore implements OnlineDb {
         // remove info about stored rules results
         wfMVStore.removeMap(storedRulesResultsMap);
         // commit removal
-        wfMVStore.commit();
+        commit(wfMVStore);
     }
 
     @Override
     public OnlineWorkflowRulesResults getWcaRulesResults(String workflowId) {
         Objects.requireNonNull(workflowId, "workflow id is null");
         LOGGER.info("Getting wca rules results of wf {}", workflowId);
+        if (isWorkflowStored(workflowId) && !isLegacyFormat(workflowId, STORED_WCA_RULES_RESULTS_MAP_NAME)) {
+            OnlineWorkflowRulesResults results = getBinaryResults(workflowId).getWcaRulesResults(workflowId);
+            if (results == null) {
+                LOGGER.warn("No wca rules results of wf {} stored in online db", workflowId);
+            }
+            return results;
+        }
         if (isWorkflowStored(workflowId)) {
             MVStore wfMVStore = getStore(workflowId);
             if (wfMVStore.hasMap(STORED_WCA_RULES_RESULTS_MAP_NAME)) {
@@ -2001,7 +1902,6 @@ public class OnlineDbMVStore implements OnlineDb {
     @Override
     public void close() throws Exception {
         closeStores();
-        serializeStoredWorkflowsStates();
     }
 
     private boolean isWorkflowStored(String workflowId) {
@@ -2036,7 +1936,17 @@ public class OnlineDbMVStore implements OnlineDb {
         if (isWorkflowStored(workflowId)) {
             LOGGER.info("Exporting post-contingency states for workflow {}", workflowId);
             MVStore wfMVStore = getStore(workflowId);
-            if (wfMVStore.hasMap(STORED_POST_CONTINGENCY_STATES_MAP_NAME)) {
+            if (!isLegacyFormat(workflowId, STORED_POST_CONTINGENCY_STATES_MAP_NAME)) {
+                if (getBinaryResults(workflowId).hasPostContingencyStates()) {
+                    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                        getBinaryResults(workflowId).exportPostContingencyStates(workflowId, writer);
+                    } catch (IOException e) {
+                        LOGGER.error("Error writing post-contingency states of workflow {} to file {}: {}", workflowId, file.toAbsolutePath().toString(), e.getMessage());
+                    }
+                } else {
+                    LOGGER.error("No stored post-contingency states for workflow {}", workflowId);
+                }
+            } else if (wfMVStore.hasMap(STORED_POST_CONTINGENCY_STATES_MAP_NAME)) {
                 MVMap<String, String> postcontingencyStatesMap = wfMVStore.openMap(STORED_POST_CONTINGENCY_STATES_MAP_NAME, mapBuilder);
                 try (BufferedWriter writer = Files.newBufferedWriter(file)) {
                     writer.write("workflowId;" + postcontingencyStatesMap.get(STORED_POST_CONTINGENCY_STATES_HEADERS_KEY) + System.lineSeparator());
@@ -0,0 +1,863 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import com.powsybl.iidm.network.Branch;
+import com.powsybl.security.LimitViolation;
+import com.powsybl.security.LimitViolationType;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+
+import eu.itesla_project.modules.contingencies.ActionParameterBooleanValue;
+import eu.itesla_project.modules.contingencies.ActionParameterFloatValue;
+import eu.itesla_project.modules.contingencies.ActionParameterIntegerValue;
+import eu.itesla_project.modules.contingencies.ActionParameterStringValue;
+import eu.itesla_project.modules.contingencies.ActionParameters;
+import eu.itesla_project.modules.online.OnlineStep;
+import eu.itesla_project.modules.online.OnlineWorkflowResults;
+import eu.itesla_project.modules.online.OnlineWorkflowRulesResults;
+import eu.itesla_project.modules.online.OnlineWorkflowWcaResults;
+import eu.itesla_project.modules.online.StateStatus;
+import eu.itesla_project.modules.online.TimeHorizon;
+import eu.itesla_project.modules.optimizer.CCOFinalStatus;
+
+/**
+ * Binary storage of the violations, post-contingency loadflow convergence, post-contingency
+ * branches data, results (actions, security indexes, security rules, WCA) and metrics of a workflow.
+ * <p>
+ * Instead of one string map per state and step/contingency, rows are stored in a few wide maps,
+ * keyed by (state id, interned step or contingency id) packed in a long, so that the rows of a state are contiguous.
+ * Strings (equipments, contingencies, limit names...) are interned once per workflow store and rows only
+ * contain their int ids.
+ *
+ * @author Massimo Ferraro <massimo.ferraro@techrain.eu>
+ */
+class OnlineDbMVStoreBinaryResults {
+
+    static final String IDS_MAP_NAME = "binIds";
+    static final String NAMES_MAP_NAME = "binNames";
+    static final String VIOLATIONS_MAP_NAME = "binViolations";
+    static final String PC_VIOLATIONS_MAP_NAME = "binPCViolations";
+    static final String PC_STATES_MAP_NAME = "binPCStates";
+    static final String PC_STATES_HEADERS_MAP_NAME = "binPCStatesHeaders";
+    static final String RESULTS_INFO_MAP_NAME = "binResultsInfo";
+    static final String ACTIONS_MAP_NAME = "binActions";
+    static final String INDEXES_MAP_NAME = "binIndexes";
+    static final String RULES_RESULTS_MAP_NAME = "binRulesResults";
+    static final String WCA_RULES_RESULTS_MAP_NAME = "binWcaRulesResults";
+    static final String WCA_RESULTS_MAP_NAME = "binWcaResults";
+    static final String METRICS_MAP_NAME = "binMetrics";
+
+    private static final String PC_STATES_HEADERS_KEY = "headers";
+    // keys of the results info map, which give the time horizon of the stored results
+    private static final String RESULTS_KEY = "results";
+    private static final String RULES_RESULTS_KEY = "rulesResults";
+    private static final String WCA_RULES_RESULTS_KEY = "wcaRulesResults";
+    private static final String WCA_RESULTS_KEY = "wcaResults";
+    private static final int NO_ID = -1;
+    // state id of the metrics of a whole step
+    private static final int STEP_METRICS_STATE_ID = -1;
+    private static final String STEP_METRICS_STATE_LABEL = "_";
+
+    private static final byte FLOAT_PARAMETER = 0;
+    private static final byte INTEGER_PARAMETER = 1;
+    private static final byte STRING_PARAMETER = 2;
+    private static final byte BOOLEAN_PARAMETER = 3;
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(DataOutputStream dos) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(DataInputStream dis) throws IOException;
+    }
+
+    private final MVMap<String, Integer> ids;
+    private final MVMap<Integer, String> names;
+    private final MVMap<Long, byte[]> violations;
+    private final MVMap<Long, byte[]> pcViolations;
+    private final MVMap<Long, byte[]> pcStates;
+    private final MVMap<String, String> pcStatesHeaders;
+    private final MVMap<String, String> resultsInfo;
+    private final MVMap<Long, byte[]> actions;
+    private final MVMap<Long, byte[]> indexes;
+    private final MVMap<Long, byte[]> rulesResults;
+    private final MVMap<Long, byte[]> wcaRulesResults;
+    private final MVMap<Integer, byte[]> wcaResults;
+    private final MVMap<Long, byte[]> metrics;
+
+    // cache of the interned strings
+    private final Map<String, Integer> idsCache = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesCache = new ConcurrentHashMap<>();
+
+    OnlineDbMVStoreBinaryResults(MVStore store) {
+        Objects.requireNonNull(store);
+        ids = store.openMap(IDS_MAP_NAME);
+        names = store.openMap(NAMES_MAP_NAME);
+        violations = store.openMap(VIOLATIONS_MAP_NAME);
+        pcViolations = store.openMap(PC_VIOLATIONS_MAP_NAME);
+        pcStates = store.openMap(PC_STATES_MAP_NAME);
+        pcStatesHeaders = store.openMap(PC_STATES_HEADERS_MAP_NAME);
+        resultsInfo = store.openMap(RESULTS_INFO_MAP_NAME);
+        actions = store.openMap(ACTIONS_MAP_NAME);
+        indexes = store.openMap(INDEXES_MAP_NAME);
+        rulesResults = store.openMap(RULES_RESULTS_MAP_NAME);
+        wcaRulesResults = store.openMap(WCA_RULES_RESULTS_MAP_NAME);
+        wcaResults = store.openMap(WCA_RESULTS_MAP_NAME);
+        metrics = store.openMap(METRICS_MAP_NAME);
+    }
+
+    private static long key(int stateId, int id) {
+        return ((long) stateId << 32) | (id & 0xffffffffL);
+    }
+
+    private static int stateId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int id(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Rows of a state, which are stored contiguously
+     */
+    private static List<Map.Entry<Long, byte[]>> stateEntries(MVMap<Long, byte[]> map, int stateId) {
+        List<Map.Entry<Long, byte[]>> entries = new ArrayList<>();
+        long lastKey = key(stateId, -1);
+        Cursor<Long, byte[]> cursor = map.cursor(key(stateId, 0));
+        while (cursor.hasNext()) {
+            Long key = cursor.next();
+            if (key > lastKey) {
+                break;
+            }
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(key, cursor.getValue()));
+        }
+        return entries;
+    }
+
+    private int intern(String name) {
+        Integer id = idsCache.get(name);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(name);
+                if (id == null) {
+                    id = ids.size();
+                    names.put(id, name);
+                    ids.put(name, id);
+                }
+            }
+            idsCache.put(name, id);
+        }
+        return id;
+    }
+
+    private int internNullable(String name) {
+        return name != null ? intern(name) : NO_ID;
+    }
+
+    private Integer getId(String name) {
+        Integer id = idsCache.get(name);
+        return id != null ? id : ids.get(name);
+    }
+
+    private String getName(int id) {
+        if (id == NO_ID) {
+            return null;
+        }
+        String name = namesCache.get(id);
+        if (name == null) {
+            name = names.get(id);
+            if (name == null) {
+                throw new RuntimeException("Unknown interned id " + id);
+            }
+            namesCache.put(id, name);
+        }
+        return name;
+    }
+
+    private void writeViolations(DataOutputStream dos, List<LimitViolation> limitViolations) throws IOException {
+        dos.writeInt(limitViolations.size());
+        for (LimitViolation violation : limitViolations) {
+            dos.writeInt(intern(violation.getSubjectId()));
+            dos.writeInt(intern(violation.getLimitType().name()));
+            dos.writeInt(internNullable(violation.getLimitName()));
+            dos.writeDouble(violation.getLimit());
+            dos.writeFloat(violation.getLimitReduction());
+            dos.writeDouble(violation.getValue());
+            dos.writeInt(internNullable(violation.getSide() != null ? violation.getSide().name() : null));
+        }
+    }
+
+    private List<LimitViolation> readViolations(DataInputStream dis) throws IOException {
+        int count = dis.readInt();
+        List<LimitViolation> limitViolations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String subjectId = getName(dis.readInt());
+            LimitViolationType limitType = LimitViolationType.valueOf(getName(dis.readInt()));
+            String limitName = getName(dis.readInt());
+            double limit = dis.readDouble();
+            float limitReduction = dis.readFloat();
+            double value = dis.readDouble();
+            String sideName = getName(dis.readInt());
+            // same default as the json format
+            Branch.Side side = sideName != null ? Branch.Side.valueOf(sideName)
+                    : (limitType == LimitViolationType.CURRENT ? Branch.Side.ONE : null);
+            limitViolations.add(new LimitViolation(subjectId, limitType, limitName, Integer.MAX_VALUE, limit, limitReduction, value, side));
+        }
+        return limitViolations;
+    }
+
+    private byte[] toBytes(List<LimitViolation> limitViolations, Boolean loadflowConverge) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream dos = new DataOutputStream(bos)) {
+                if (loadflowConverge != null) {
+                    dos.writeBoolean(loadflowConverge);
+                }
+                writeViolations(dos, limitViolations);
+            }
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<LimitViolation> toViolations(byte[] bytes, boolean withLoadflowConvergence) {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (withLoadflowConvergence) {
+                dis.readBoolean();
+            }
+            return readViolations(dis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] toBytes(RowWriter rowWriter) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream dos = new DataOutputStream(bos)) {
+                rowWriter.write(dos);
+            }
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T fromBytes(byte[] bytes, RowReader<T> rowReader) {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return rowReader.read(dis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Free text (causes, metric values) is not interned
+     */
+    private static void writeString(DataOutputStream dos, String value) throws IOException {
+        if (value == null) {
+            dos.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            dos.writeInt(bytes.length);
+            dos.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        int length = dis.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeBooleans(DataOutputStream dos, Map<String, Boolean> values) throws IOException {
+        if (values == null) {
+            dos.writeInt(-1);
+            return;
+        }
+        dos.writeInt(values.size());
+        for (Map.Entry<String, Boolean> e : values.entrySet()) {
+            dos.writeInt(intern(e.getKey()));
+            dos.writeBoolean(e.getValue());
+        }
+    }
+
+    private Map<String, Boolean> readBooleans(DataInputStream dis) throws IOException {
+        int count = dis.readInt();
+        if (count == -1) {
+            return null;
+        }
+        Map<String, Boolean> values = new HashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            values.put(getName(dis.readInt()), dis.readBoolean());
+        }
+        return values;
+    }
+
+    private static boolean toLoadflowConvergence(byte[] bytes) {
+        return bytes[0] != 0;
+    }
+
+    boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+
+    boolean hasPostContingencyViolations() {
+        return !pcViolations.isEmpty();
+    }
+
+    boolean hasPostContingencyStates() {
+        return !pcStates.isEmpty();
+    }
+
+    void storeViolations(int stateId, OnlineStep step, List<LimitViolation> limitViolations) {
+        Objects.requireNonNull(step);
+        Objects.requireNonNull(limitViolations);
+        violations.put(key(stateId, intern(step.name())), toBytes(limitViolations, null));
+    }
+
+    List<LimitViolation> getViolations(int stateId, OnlineStep step) {
+        Integer stepId = getId(step.name());
+        byte[] bytes = stepId != null ? violations.get(key(stateId, stepId)) : null;
+        return bytes != null ? toViolations(bytes, false) : null;
+    }
+
+    Map<OnlineStep, List<LimitViolation>> getViolations(int stateId) {
+        Map<OnlineStep, List<LimitViolation>> stateViolations = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : stateEntries(violations, stateId)) {
+            stateViolations.put(OnlineStep.valueOf(getName(id(e.getKey()))), toViolations(e.getValue(), false));
+        }
+        return stateViolations;
+    }
+
+    Map<Integer, List<LimitViolation>> getViolations(OnlineStep step) {
+        Integer stepId = getId(step.name());
+        Map<Integer, List<LimitViolation>> stepViolations = new HashMap<>();
+        if (stepId != null) {
+            for (Map.Entry<Long, byte[]> e : violations.entrySet()) {
+                if (id(e.getKey()) == stepId) {
+                    stepViolations.put(stateId(e.getKey()), toViolations(e.getValue(), false));
+                }
+            }
+        }
+        return stepViolations;
+    }
+
+    Map<Integer, Map<OnlineStep, List<LimitViolation>>> getViolations() {
+        Map<Integer, Map<OnlineStep, List<LimitViolation>>> wfViolations = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : violations.entrySet()) {
+            wfViolations.computeIfAbsent(stateId(e.getKey()), k -> new HashMap<>())
+                    .put(OnlineStep.valueOf(getName(id(e.getKey()))), toViolations(e.getValue(), false));
+        }
+        return wfViolations;
+    }
+
+    void storePostContingencyViolations(int stateId, String contingencyId, boolean loadflowConverge, List<LimitViolation> limitViolations) {
+        Objects.requireNonNull(contingencyId);
+        Objects.requireNonNull(limitViolations);
+        pcViolations.put(key(stateId, intern(contingencyId)), toBytes(limitViolations, loadflowConverge));
+    }
+
+    List<LimitViolation> getPostContingencyViolations(int stateId, String contingencyId) {
+        Integer contingencyIdx = getId(contingencyId);
+        byte[] bytes = contingencyIdx != null ? pcViolations.get(key(stateId, contingencyIdx)) : null;
+        return bytes != null ? toViolations(bytes, true) : null;
+    }
+
+    Map<String, List<LimitViolation>> getPostContingencyViolations(int stateId) {
+        Map<String, List<LimitViolation>> stateViolations = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : stateEntries(pcViolations, stateId)) {
+            stateViolations.put(getName(id(e.getKey())), toViolations(e.getValue(), true));
+        }
+        return stateViolations;
+    }
+
+    Map<Integer, List<LimitViolation>> getPostContingencyViolations(String contingencyId) {
+        Integer contingencyIdx = getId(contingencyId);
+        Map<Integer, List<LimitViolation>> contingencyViolations = new HashMap<>();
+        if (contingencyIdx != null) {
+            for (Map.Entry<Long, byte[]> e : pcViolations.entrySet()) {
+                if (id(e.getKey()) == contingencyIdx) {
+                    contingencyViolations.put(stateId(e.getKey()), toViolations(e.getValue(), true));
+                }
+            }
+        }
+        return contingencyViolations;
+    }
+
+    Map<Integer, Map<String, List<LimitViolation>>> getPostContingencyViolations() {
+        Map<Integer, Map<String, List<LimitViolation>>> wfViolations = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : pcViolations.entrySet()) {
+            wfViolations.computeIfAbsent(stateId(e.getKey()), k -> new HashMap<>())
+                    .put(getName(id(e.getKey())), toViolations(e.getValue(), true));
+        }
+        return wfViolations;
+    }
+
+    Map<String, Boolean> getPostContingencyLoadflowConvergence(int stateId) {
+        Map<String, Boolean> loadflowConvergence = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : stateEntries(pcViolations, stateId)) {
+            loadflowConvergence.put(getName(id(e.getKey())), toLoadflowConvergence(e.getValue()));
+        }
+        return loadflowConvergence;
+    }
+
+    Map<Integer, Boolean> getPostContingencyLoadflowConvergence(String contingencyId) {
+        Integer contingencyIdx = getId(contingencyId);
+        Map<Integer, Boolean> loadflowConvergence = new HashMap<>();
+        if (contingencyIdx != null) {
+            for (Map.Entry<Long, byte[]> e : pcViolations.entrySet()) {
+                if (id(e.getKey()) == contingencyIdx) {
+                    loadflowConvergence.put(stateId(e.getKey()), toLoadflowConvergence(e.getValue()));
+                }
+            }
+        }
+        return loadflowConvergence;
+    }
+
+    Map<Integer, Map<String, Boolean>> getPostContingencyLoadflowConvergence() {
+        Map<Integer, Map<String, Boolean>> loadflowConvergence = new HashMap<>();
+        for (Map.Entry<Long, byte[]> e : pcViolations.entrySet()) {
+            loadflowConvergence.computeIfAbsent(stateId(e.getKey()), k -> new HashMap<>())
+                    .put(getName(id(e.getKey())), toLoadflowConvergence(e.getValue()));
+        }
+        return loadflowConvergence;
+    }
+
+    private static String toTimeHorizonName(TimeHorizon timeHorizon) {
+        return timeHorizon.name();
+    }
+
+    private void writeActionParameters(DataOutputStream dos, ActionParameters actionParameters) throws IOException {
+        if (actionParameters == null) {
+            dos.writeInt(-1);
+            return;
+        }
+        dos.writeInt(actionParameters.getNames().size());
+        for (String name : actionParameters.getNames()) {
+            dos.writeInt(intern(name));
+            Object value = actionParameters.getValue(name);
+            if (value instanceof Float) {
+                dos.writeByte(FLOAT_PARAMETER);
+                dos.writeFloat((Float) value);
+            } else if (value instanceof Integer) {
+                dos.writeByte(INTEGER_PARAMETER);
+                dos.writeInt((Integer) value);
+            } else if (value instanceof String) {
+                dos.writeByte(STRING_PARAMETER);
+                writeString(dos, (String) value);
+            } else if (value instanceof Boolean) {
+                dos.writeByte(BOOLEAN_PARAMETER);
+                dos.writeBoolean((Boolean) value);
+            } else {
+                throw new RuntimeException("Unexpected type of action parameter " + name + ": " + value);
+            }
+        }
+    }
+
+    /**
+     * A missing action parameters is read as empty, as with the json format
+     */
+    private ActionParameters readActionParameters(DataInputStream dis) throws IOException {
+        ActionParameters actionParameters = new ActionParameters();
+        int count = dis.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = getName(dis.readInt());
+            byte type = dis.readByte();
+            switch (type) {
+                case FLOAT_PARAMETER:
+                    actionParameters.addParameter(name, new ActionParameterFloatValue(dis.readFloat()));
+                    break;
+                case INTEGER_PARAMETER:
+                    actionParameters.addParameter(name, new ActionParameterIntegerValue(dis.readInt()));
+                    break;
+                case STRING_PARAMETER:
+                    actionParameters.addParameter(name, new ActionParameterStringValue(readString(dis)));
+                    break;
+                case BOOLEAN_PARAMETER:
+                    actionParameters.addParameter(name, new ActionParameterBooleanValue(dis.readBoolean()));
+                    break;
+                default:
+                    throw new RuntimeException("Unexpected type of action parameter " + name + ": " + type);
+            }
+        }
+        return actionParameters;
+    }
+
+    private void writeActions(DataOutputStream dos, OnlineWorkflowResults results, String contingencyId, Integer stateId,
+                              boolean actionsFound) throws IOException {
+        dos.writeBoolean(actionsFound);
+        dos.writeInt(intern(results.getStateStatus(contingencyId, stateId).name()));
+        writeString(dos, results.getCause(contingencyId, stateId));
+        dos.writeInt(internNullable(results.getActionPlan(contingencyId, stateId)));
+        List<String> actionsIds = results.getActionsIds(contingencyId, stateId);
+        if (actionsIds == null) {
+            dos.writeInt(0);
+            return;
+        }
+        dos.writeInt(actionsIds.size());
+        for (String actionId : actionsIds) {
+            dos.writeInt(intern(actionId));
+            List<String> equipmentsIds = results.getEquipmentsIds(contingencyId, stateId, actionId);
+            dos.writeInt(equipmentsIds.size());
+            for (String equipmentId : equipmentsIds) {
+                dos.writeInt(intern(equipmentId));
+                writeActionParameters(dos, results.getParameters(contingencyId, stateId, actionId, equipmentId));
+            }
+        }
+    }
+
+    private void readActions(DataInputStream dis, OnlineWorkflowResultsImpl wfResults, String contingencyId, int stateId) throws IOException {
+        boolean actionsFound = dis.readBoolean();
+        CCOFinalStatus status = CCOFinalStatus.valueOf(getName(dis.readInt()));
+        String cause = readString(dis);
+        String actionPlan = getName(dis.readInt());
+        int actionCount = dis.readInt();
+        Map<String, Map<String, ActionParameters>> stateActions = new HashMap<>(actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            String actionId = getName(dis.readInt());
+            int equipmentCount = dis.readInt();
+            Map<String, ActionParameters> equipments = new HashMap<>(equipmentCount);
+            for (int j = 0; j < equipmentCount; j++) {
+                String equipmentId = getName(dis.readInt());
+                equipments.put(equipmentId, readActionParameters(dis));
+            }
+            stateActions.put(actionId, equipments);
+        }
+        wfResults.addContingenciesWithActions(contingencyId, stateId, actionsFound, status, cause, actionPlan, stateActions);
+    }
+
+    boolean hasResults() {
+        return resultsInfo.containsKey(RESULTS_KEY);
+    }
+
+    /**
+     * Replace the stored results, the time horizon is stored last and marks the results as complete
+     */
+    void storeResults(OnlineWorkflowResults results) {
+        Objects.requireNonNull(results);
+        resultsInfo.remove(RESULTS_KEY);
+        actions.clear();
+        indexes.clear();
+        for (String contingencyId : results.getContingenciesWithActions()) {
+            int contingencyIdx = intern(contingencyId);
+            for (Map.Entry<Integer, Boolean> e : results.getUnsafeStatesWithActions(contingencyId).entrySet()) {
+                actions.put(key(e.getKey(), contingencyIdx), toBytes(dos -> writeActions(dos, results, contingencyId, e.getKey(), e.getValue())));
+            }
+        }
+        for (String contingencyId : results.getUnsafeContingencies()) {
+            int contingencyIdx = intern(contingencyId);
+            for (Integer stateId : results.getUnstableStates(contingencyId)) {
+                indexes.put(key(stateId, contingencyIdx), toBytes(dos -> writeBooleans(dos, results.getIndexesData(contingencyId, stateId))));
+            }
+        }
+        resultsInfo.put(RESULTS_KEY, toTimeHorizonName(results.getTimeHorizon()));
+    }
+
+    OnlineWorkflowResults getResults(String workflowId) {
+        String timeHorizon = resultsInfo.get(RESULTS_KEY);
+        if (timeHorizon == null) {
+            return null;
+        }
+        OnlineWorkflowResultsImpl wfResults = new OnlineWorkflowResultsImpl(workflowId, TimeHorizon.valueOf(timeHorizon));
+        for (Map.Entry<Long, byte[]> e : actions.entrySet()) {
+            String contingencyId = getName(id(e.getKey()));
+            int stateId = stateId(e.getKey());
+            fromBytes(e.getValue(), dis -> {
+                readActions(dis, wfResults, contingencyId, stateId);
+                return null;
+            });
+        }
+        for (Map.Entry<Long, byte[]> e : indexes.entrySet()) {
+            wfResults.addUnsafeContingencies(getName(id(e.getKey())), stateId(e.getKey()), fromBytes(e.getValue(), this::readBooleans));
+        }
+        return wfResults;
+    }
+
+    private void storeRulesResults(String infoKey, MVMap<Long, byte[]> map, OnlineWorkflowRulesResults results) {
+        Objects.requireNonNull(results);
+        resultsInfo.remove(infoKey);
+        map.clear();
+        for (String contingencyId : results.getContingenciesWithSecurityRulesResults()) {
+            int contingencyIdx = intern(contingencyId);
+            for (Integer stateId : results.getStatesWithSecurityRulesResults(contingencyId)) {
+                map.put(key(stateId, contingencyIdx), toBytes(dos -> {
+                    dos.writeInt(intern(results.getStateStatus(contingencyId, stateId).name()));
+                    writeBooleans(dos, results.getStateResults(contingencyId, stateId));
+                    dos.writeBoolean(results.areValidRulesAvailable(contingencyId, stateId));
+                    Set<SecurityIndexType> invalidRules = new LinkedHashSet<>(results.getInvalidRules(contingencyId, stateId));
+                    dos.writeInt(invalidRules.size());
+                    for (SecurityIndexType invalidRule : invalidRules) {
+                        dos.writeInt(intern(invalidRule.name()));
+                    }
+                }));
+            }
+        }
+        resultsInfo.put(infoKey, toTimeHorizonName(results.getTimeHorizon()));
+    }
+
+    private OnlineWorkflowRulesResults getRulesResults(String infoKey, MVMap<Long, byte[]> map, String workflowId) {
+        String timeHorizon = resultsInfo.get(infoKey);
+        if (timeHorizon == null) {
+            return null;
+        }
+        OnlineWorkflowRulesResultsImpl wfRulesResults = new OnlineWorkflowRulesResultsImpl(workflowId, TimeHorizon.valueOf(timeHorizon));
+        for (Map.Entry<Long, byte[]> e : map.entrySet()) {
+            String contingencyId = getName(id(e.getKey()));
+            int stateId = stateId(e.getKey());
+            fromBytes(e.getValue(), dis -> {
+                StateStatus stateStatus = StateStatus.valueOf(getName(dis.readInt()));
+                Map<String, Boolean> stateResults = readBooleans(dis);
+                boolean rulesAvailable = dis.readBoolean();
+                int invalidRuleCount = dis.readInt();
+                List<SecurityIndexType> invalidRules = new ArrayList<>(invalidRuleCount);
+                for (int i = 0; i < invalidRuleCount; i++) {
+                    invalidRules.add(SecurityIndexType.valueOf(getName(dis.readInt())));
+                }
+                wfRulesResults.addContingencyWithSecurityRulesResults(contingencyId, stateId, stateStatus, stateResults, rulesAvailable, invalidRules);
+                return null;
+            });
+        }
+        return wfRulesResults;
+    }
+
+    boolean hasRulesResults() {
+        return resultsInfo.containsKey(RULES_RESULTS_KEY);
+    }
+
+    void storeRulesResults(OnlineWorkflowRulesResults results) {
+        storeRulesResults(RULES_RESULTS_KEY, rulesResults, results);
+    }
+
+    OnlineWorkflowRulesResults getRulesResults(String workflowId) {
+        return getRulesResults(RULES_RESULTS_KEY, rulesResults, workflowId);
+    }
+
+    boolean hasWcaRulesResults() {
+        return resultsInfo.containsKey(WCA_RULES_RESULTS_KEY);
+    }
+
+    void storeWcaRulesResults(OnlineWorkflowRulesResults results) {
+        storeRulesResults(WCA_RULES_RESULTS_KEY, wcaRulesResults, results);
+    }
+
+    OnlineWorkflowRulesResults getWcaRulesResults(String workflowId) {
+        return getRulesResults(WCA_RULES_RESULTS_KEY, wcaRulesResults, workflowId);
+    }
+
+    boolean hasWcaResults() {
+        return resultsInfo.containsKey(WCA_RESULTS_KEY);
+    }
+
+    /**
+     * As with the previous storage, only the first cause of a contingency is kept
+     */
+    void storeWcaResults(OnlineWorkflowWcaResults results) {
+        Objects.requireNonNull(results);
+        resultsInfo.remove(WCA_RESULTS_KEY);
+        wcaResults.clear();
+        for (String contingencyId : results.getContingencies()) {
+            List<String> causes = results.getCauses(contingencyId);
+            wcaResults.put(intern(contingencyId), toBytes(dos -> {
+                dos.writeInt(results.getClusterIndex(contingencyId));
+                writeString(dos, causes != null && !causes.isEmpty() ? causes.get(0) : null);
+            }));
+        }
+        resultsInfo.put(WCA_RESULTS_KEY, toTimeHorizonName(results.getTimeHorizon()));
+    }
+
+    OnlineWorkflowWcaResults getWcaResults(String workflowId) {
+        String timeHorizon = resultsInfo.get(WCA_RESULTS_KEY);
+        if (timeHorizon == null) {
+            return null;
+        }
+        OnlineWorkflowWcaResultsImpl wfWcaResults = new OnlineWorkflowWcaResultsImpl(workflowId, TimeHorizon.valueOf(timeHorizon));
+        for (Map.Entry<Integer, byte[]> e : wcaResults.entrySet()) {
+            String contingencyId = getName(e.getKey());
+            fromBytes(e.getValue(), dis -> {
+                int cluster = dis.readInt();
+                String cause = readString(dis);
+                wfWcaResults.addContingencyWithCluster(contingencyId, cluster, cause != null ? Collections.singletonList(cause) : null);
+                return null;
+            });
+        }
+        return wfWcaResults;
+    }
+
+    private Map<String, String> readMetrics(DataInputStream dis) throws IOException {
+        int count = dis.readInt();
+        Map<String, String> values = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            values.put(getName(dis.readInt()), readString(dis));
+        }
+        return values;
+    }
+
+    /**
+     * Metrics of a state and step are merged with the ones already stored
+     */
+    private synchronized void mergeMetrics(int stateId, OnlineStep step, Map<String, String> stepMetrics) {
+        long key = key(stateId, intern(step.name()));
+        byte[] bytes = metrics.get(key);
+        Map<String, String> values = bytes != null ? fromBytes(bytes, this::readMetrics) : new TreeMap<>();
+        values.putAll(stepMetrics);
+        metrics.put(key, toBytes(dos -> {
+            dos.writeInt(values.size());
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                dos.writeInt(intern(e.getKey()));
+                writeString(dos, e.getValue());
+            }
+        }));
+    }
+
+    void storeMetrics(OnlineStep step, Map<String, String> stepMetrics) {
+        Objects.requireNonNull(step);
+        Objects.requireNonNull(stepMetrics);
+        mergeMetrics(STEP_METRICS_STATE_ID, step, stepMetrics);
+    }
+
+    void storeMetrics(int stateId, OnlineStep step, Map<String, String> stateMetrics) {
+        Objects.requireNonNull(step);
+        Objects.requireNonNull(stateMetrics);
+        if (stateId < 0) {
+            throw new IllegalArgumentException("Invalid state id " + stateId);
+        }
+        mergeMetrics(stateId, step, stateMetrics);
+    }
+
+    private Map<String, String> getMetrics(int stateId, String stepName) {
+        Integer stepId = getId(stepName);
+        byte[] bytes = stepId != null ? metrics.get(key(stateId, stepId)) : null;
+        return bytes != null ? fromBytes(bytes, this::readMetrics) : new TreeMap<>();
+    }
+
+    Map<String, String> getMetrics(OnlineStep step) {
+        return getMetrics(STEP_METRICS_STATE_ID, step.name());
+    }
+
+    Map<String, String> getMetrics(int stateId, OnlineStep step) {
+        return getMetrics(stateId, step.name());
+    }
+
+    /**
+     * Metrics of a step as a table, with the same layout as the previous storage: a header row with the sorted
+     * names of the metrics, then a row for the whole step, labelled "_", and a row per state, in state order
+     */
+    List<String[]> getAllMetrics(OnlineStep step) {
+        List<String[]> table = new ArrayList<>();
+        Integer stepId = getId(step.name());
+        if (stepId == null) {
+            return table;
+        }
+        // whole step metrics first, as their state id is negative
+        TreeMap<Integer, Map<String, String>> statesMetrics = new TreeMap<>();
+        for (Map.Entry<Long, byte[]> e : metrics.entrySet()) {
+            if (id(e.getKey()) == stepId) {
+                statesMetrics.put(stateId(e.getKey()), fromBytes(e.getValue(), this::readMetrics));
+            }
+        }
+        if (statesMetrics.isEmpty()) {
+            return table;
+        }
+        TreeSet<String> names = new TreeSet<>();
+        statesMetrics.values().forEach(stateMetrics -> names.addAll(stateMetrics.keySet()));
+        String[] headers = new String[names.size() + 1];
+        headers[0] = "state";
+        Map<String, Integer> columns = new HashMap<>(names.size());
+        int i = 1;
+        for (String name : names) {
+            headers[i] = name;
+            columns.put(name, i++);
+        }
+        table.add(headers);
+        for (Map.Entry<Integer, Map<String, String>> e : statesMetrics.entrySet()) {
+            String[] row = new String[names.size() + 1];
+            row[0] = e.getKey() == STEP_METRICS_STATE_ID ? STEP_METRICS_STATE_LABEL : Integer.toString(e.getKey());
+            e.getValue().forEach((name, value) -> row[columns.get(name)] = value);
+            table.add(row);
+        }
+        return table;
+    }
+
+    void storePostContingencyState(String networkId, int stateId, String contingencyId, LinkedHashMap<String, Double> branchesData) {
+        Objects.requireNonNull(networkId);
+        Objects.requireNonNull(contingencyId);
+        Objects.requireNonNull(branchesData);
+        pcStatesHeaders.putIfAbsent(PC_STATES_HEADERS_KEY, OnlineDbMVStoreUtils.branchesDataToCsvHeaders(branchesData));
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(8 + 8 * branchesData.size());
+            try (DataOutputStream dos = new DataOutputStream(bos)) {
+                dos.writeInt(intern(networkId));
+                dos.writeInt(branchesData.size());
+                for (Double value : branchesData.values()) {
+                    dos.writeDouble(value);
+                }
+            }
+            pcStates.put(key(stateId, intern(contingencyId)), bos.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the post-contingency branches data with the same csv format as the previous storage
+     */
+    void exportPostContingencyStates(String workflowId, Writer writer) throws IOException {
+        writer.write("workflowId;" + pcStatesHeaders.get(PC_STATES_HEADERS_KEY) + System.lineSeparator());
+        // same order as the previous storage, which used "stateId_contingencyId" string keys
+        TreeMap<String, Long> sortedKeys = new TreeMap<>();
+        for (Long key : pcStates.keySet()) {
+            sortedKeys.put(OnlineDbMVStoreUtils.postContingencyStateKey(stateId(key), getName(id(key))), key);
+        }
+        for (Long key : sortedKeys.values()) {
+            try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(pcStates.get(key)))) {
+                String networkId = getName(dis.readInt());
+                LinkedHashMap<String, Double> values = new LinkedHashMap<>();
+                int count = dis.readInt();
+                for (int i = 0; i < count; i++) {
+                    values.put(Integer.toString(i), dis.readDouble());
+                }
+                writer.write(workflowId + ";" + OnlineDbMVStoreUtils.branchesDataToCsv(networkId, stateId(key), getName(id(key)), values)
+                        + System.lineSeparator());
+            }
+        }
+    }
+}
@@ -22,23 +22,55 @@ public class OnlineDbMVStoreConfig {
      *
     #path to the directory containing the db data
     onlineDbDir=/shared/allrw/onlinewf-db
+    #write the stored data in background, instead of committing each store call (default true)
+    writeBehind=true
+    #max delay in ms before the stored data is written in background (default 1000)
+    commitDelay=1000
+    #max size in KB of the stored data not yet written (default 1024)
+    commitBufferSize=1024
 
     */
 
+    public static final boolean DEFAULT_WRITE_BEHIND = true;
+    public static final int DEFAULT_COMMIT_DELAY = 1000;
+    public static final int DEFAULT_COMMIT_BUFFER_SIZE = 1024;
+
     private final Path onlineDbDir;
 
+    private final boolean writeBehind;
+
+    private final int commitDelay;
+
+    private final int commitBufferSize;
+
     public OnlineDbMVStoreConfig(Path onlineDbDir) {
+        this(onlineDbDir, DEFAULT_WRITE_BEHIND, DEFAULT_COMMIT_DELAY, DEFAULT_COMMIT_BUFFER_SIZE);
+    }
+
+    public OnlineDbMVStoreConfig(Path onlineDbDir, boolean writeBehind, int commitDelay, int commitBufferSize) {
         Objects.requireNonNull(onlineDbDir, "onlie db directory is null");
+        if (commitDelay <= 0) {
+            throw new IllegalArgumentException("Invalid commit delay " + commitDelay);
+        }
+        if (commitBufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid commit buffer size " + commitBufferSize);
+        }
 
         this.onlineDbDir = onlineDbDir;
+        this.writeBehind = writeBehind;
+        this.commitDelay = commitDelay;
+        this.commitBufferSize = commitBufferSize;
     }
 
     public static OnlineDbMVStoreConfig load() {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("onlineDbMVStore");
 
         Path onlienDbDir = config.getPathProperty("onlineDbDir");
+        boolean writeBehind = config.getBooleanProperty("writeBehind", DEFAULT_WRITE_BEHIND);
+        int commitDelay = config.getIntProperty("commitDelay", DEFAULT_COMMIT_DELAY);
+        int commitBufferSize = config.getIntProperty("commitBufferSize", DEFAULT_COMMIT_BUFFER_SIZE);
 
-        return new OnlineDbMVStoreConfig(onlienDbDir);
+        return new OnlineDbMVStoreConfig(onlienDbDir, writeBehind, commitDelay, commitBufferSize);
     }
 
 
@@ -46,9 +78,28 @@ public class OnlineDbMVStoreConfig {
         return onlineDbDir;
     }
 
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Max delay in ms before the stored data is written in background
+     */
+    public int getCommitDelay() {
+        return commitDelay;
+    }
+
+    /**
+     * Max size in KB of the stored data not yet written
+     */
+    public int getCommitBufferSize() {
+        return commitBufferSize;
+    }
+
     @Override
     public String toString() {
-        return "OnlineDbMVStoreConfig [" + "onlineDbDir=" + onlineDbDir + "]";
+        return "OnlineDbMVStoreConfig [" + "onlineDbDir=" + onlineDbDir + ", writeBehind=" + writeBehind
+                + ", commitDelay=" + commitDelay + ", commitBufferSize=" + commitBufferSize + "]";
     }
 
 }
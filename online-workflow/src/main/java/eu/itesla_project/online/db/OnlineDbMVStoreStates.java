@@ -0,0 +1,552 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.powsybl.iidm.network.Bus;
+import com.powsybl.iidm.network.DanglingLine;
+import com.powsybl.iidm.network.Generator;
+import com.powsybl.iidm.network.HvdcConverterStation;
+import com.powsybl.iidm.network.HvdcLine;
+import com.powsybl.iidm.network.Identifiable;
+import com.powsybl.iidm.network.Injection;
+import com.powsybl.iidm.network.Line;
+import com.powsybl.iidm.network.Load;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.PhaseTapChanger;
+import com.powsybl.iidm.network.RatioTapChanger;
+import com.powsybl.iidm.network.ShuntCompensator;
+import com.powsybl.iidm.network.StaticVarCompensator;
+import com.powsybl.iidm.network.Switch;
+import com.powsybl.iidm.network.Terminal;
+import com.powsybl.iidm.network.ThreeWindingsTransformer;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.TwoWindingsTransformer;
+import com.powsybl.iidm.network.VoltageLevel;
+import com.powsybl.iidm.network.VscConverterStation;
+
+/**
+ * Binary storage of the network states of a workflow.
+ * <p>
+ * The network of the first stored state is exported once, as the base case of the workflow. Each stored
+ * state then only keeps the state variables (switches status, terminals connection and flows, injections
+ * setpoints, HVDC lines setpoint and converters mode, tap positions, buses voltage) of the equipments which differ from the base case, packed in a
+ * byte array. A full network is rebuilt by loading the base case and applying the state variables.
+ * The values extracted for the histo DB are stored too, so that the states can be exported without loading them.
+ *
+ * @author Massimo Ferraro <massimo.ferraro@techrain.eu>
+ */
+class OnlineDbMVStoreStates {
+
+    static final String IDS_MAP_NAME = "stateIds";
+    static final String NAMES_MAP_NAME = "stateNames";
+    static final String SNAPSHOTS_MAP_NAME = "stateSnapshots";
+    static final String VALUES_MAP_NAME = "stateValues";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OnlineDbMVStoreStates.class);
+
+    // equipment types, first character of the extracted state variables keys
+    private static final char SWITCH = 'S';
+    private static final char LOAD = 'L';
+    private static final char GENERATOR = 'G';
+    private static final char DANGLING_LINE = 'D';
+    private static final char SHUNT = 'H';
+    private static final char STATIC_VAR_COMPENSATOR = 'C';
+    private static final char VSC_CONVERTER_STATION = 'O';
+    private static final char INJECTION = 'I';
+    private static final char HVDC_LINE = 'P';
+    private static final char LINE = 'B';
+    private static final char TWO_WINDINGS_TRANSFORMER = 'T';
+    private static final char THREE_WINDINGS_TRANSFORMER = 'W';
+    private static final char BUS = 'V';
+
+    // types of the stored histo DB values
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte INTEGER_VALUE = 2;
+    private static final byte LONG_VALUE = 3;
+    private static final byte FLOAT_VALUE = 4;
+    private static final byte DOUBLE_VALUE = 5;
+    private static final byte BOOLEAN_VALUE = 6;
+    private static final byte DATE_VALUE = 7;
+
+    private final MVMap<String, Integer> ids;
+    private final MVMap<Integer, String> names;
+    private final MVMap<String, byte[]> snapshots;
+    private final MVMap<Integer, byte[]> values;
+
+    // cache of the interned strings
+    private final Map<String, Integer> idsCache = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesCache = new ConcurrentHashMap<>();
+
+    // state variables of the base case
+    private Map<String, double[]> baseStateVariables;
+
+    OnlineDbMVStoreStates(MVStore store) {
+        Objects.requireNonNull(store);
+        ids = store.openMap(IDS_MAP_NAME);
+        names = store.openMap(NAMES_MAP_NAME);
+        snapshots = store.openMap(SNAPSHOTS_MAP_NAME);
+        values = store.openMap(VALUES_MAP_NAME);
+    }
+
+    private int intern(String name) {
+        return idsCache.computeIfAbsent(name, n -> {
+            synchronized (ids) {
+                Integer id = ids.get(n);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(n, id);
+                    names.put(id, n);
+                }
+                return id;
+            }
+        });
+    }
+
+    private String getName(int id) {
+        return namesCache.computeIfAbsent(id, i -> {
+            String name = names.get(i);
+            if (name == null) {
+                throw new RuntimeException("Unknown interned id " + i);
+            }
+            return name;
+        });
+    }
+
+    private static double toDouble(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static boolean toBoolean(double value) {
+        return value != 0;
+    }
+
+    private static double[] terminalVariables(Terminal... terminals) {
+        double[] variables = new double[3 * terminals.length];
+        for (int i = 0; i < terminals.length; i++) {
+            variables[3 * i] = toDouble(terminals[i].isConnected());
+            variables[3 * i + 1] = terminals[i].getP();
+            variables[3 * i + 2] = terminals[i].getQ();
+        }
+        return variables;
+    }
+
+    private static double[] append(double[] variables, double... others) {
+        double[] result = Arrays.copyOf(variables, variables.length + others.length);
+        System.arraycopy(others, 0, result, variables.length, others.length);
+        return result;
+    }
+
+    private static double tapPosition(RatioTapChanger tapChanger) {
+        return tapChanger != null ? tapChanger.getTapPosition() : Double.NaN;
+    }
+
+    private static double tapPosition(PhaseTapChanger tapChanger) {
+        return tapChanger != null ? tapChanger.getTapPosition() : Double.NaN;
+    }
+
+    private static Iterable<Switch> getSwitches(VoltageLevel vl) {
+        return vl.getTopologyKind() == TopologyKind.NODE_BREAKER ? vl.getNodeBreakerView().getSwitches()
+                                                                 : vl.getBusBreakerView().getSwitches();
+    }
+
+    /**
+     * Extract the state variables of the working state of a network. Switches come first and buses last, so that
+     * the topology is set before the buses voltage when the state variables are applied in the same order.
+     */
+    static Map<String, double[]> extract(Network network) {
+        Objects.requireNonNull(network);
+        Map<String, double[]> variables = new LinkedHashMap<>();
+        for (VoltageLevel vl : network.getVoltageLevels()) {
+            for (Switch sw : getSwitches(vl)) {
+                variables.put(SWITCH + sw.getId(), new double[] {toDouble(sw.isOpen())});
+            }
+        }
+        for (Load load : network.getLoads()) {
+            variables.put(LOAD + load.getId(), append(terminalVariables(load.getTerminal()), load.getP0(), load.getQ0()));
+        }
+        for (Generator generator : network.getGenerators()) {
+            variables.put(GENERATOR + generator.getId(), append(terminalVariables(generator.getTerminal()),
+                    generator.getTargetP(), generator.getTargetQ(), generator.getTargetV(), toDouble(generator.isVoltageRegulatorOn())));
+        }
+        for (DanglingLine danglingLine : network.getDanglingLines()) {
+            variables.put(DANGLING_LINE + danglingLine.getId(), append(terminalVariables(danglingLine.getTerminal()),
+                    danglingLine.getP0(), danglingLine.getQ0()));
+        }
+        for (ShuntCompensator shunt : network.getShunts()) {
+            variables.put(SHUNT + shunt.getId(), append(terminalVariables(shunt.getTerminal()), shunt.getCurrentSectionCount()));
+        }
+        for (StaticVarCompensator svc : network.getStaticVarCompensators()) {
+            variables.put(STATIC_VAR_COMPENSATOR + svc.getId(), append(terminalVariables(svc.getTerminal()),
+                    svc.getVoltageSetPoint(), svc.getReactivePowerSetPoint(), svc.getRegulationMode().ordinal()));
+        }
+        for (HvdcConverterStation<?> station : network.getHvdcConverterStations()) {
+            if (station.getHvdcType() == HvdcConverterStation.HvdcType.VSC) {
+                VscConverterStation vsc = (VscConverterStation) station;
+                variables.put(VSC_CONVERTER_STATION + vsc.getId(), append(terminalVariables(vsc.getTerminal()),
+                        vsc.getVoltageSetpoint(), vsc.getReactivePowerSetpoint(), toDouble(vsc.isVoltageRegulatorOn())));
+            } else {
+                variables.put(INJECTION + station.getId(), terminalVariables(station.getTerminal()));
+            }
+        }
+        for (HvdcLine hvdcLine : network.getHvdcLines()) {
+            variables.put(HVDC_LINE + hvdcLine.getId(), new double[] {hvdcLine.getActivePowerSetpoint(), hvdcLine.getConvertersMode().ordinal()});
+        }
+        for (Line line : network.getLines()) {
+            variables.put(LINE + line.getId(), terminalVariables(line.getTerminal1(), line.getTerminal2()));
+        }
+        for (TwoWindingsTransformer twt : network.getTwoWindingsTransformers()) {
+            variables.put(TWO_WINDINGS_TRANSFORMER + twt.getId(), append(terminalVariables(twt.getTerminal1(), twt.getTerminal2()),
+                    tapPosition(twt.getRatioTapChanger()), tapPosition(twt.getPhaseTapChanger())));
+        }
+        for (ThreeWindingsTransformer twt : network.getThreeWindingsTransformers()) {
+            variables.put(THREE_WINDINGS_TRANSFORMER + twt.getId(),
+                    append(terminalVariables(twt.getLeg1().getTerminal(), twt.getLeg2().getTerminal(), twt.getLeg3().getTerminal()),
+                    tapPosition(twt.getLeg2().getRatioTapChanger()), tapPosition(twt.getLeg3().getRatioTapChanger())));
+        }
+        for (Bus bus : network.getBusView().getBuses()) {
+            variables.put(BUS + bus.getId(), new double[] {bus.getV(), bus.getAngle()});
+        }
+        return variables;
+    }
+
+    /**
+     * Pack the state variables which differ from the base case
+     */
+    byte[] toSnapshot(Map<String, double[]> stateVariables, Map<String, double[]> baseStateVariables) {
+        Objects.requireNonNull(stateVariables);
+        Objects.requireNonNull(baseStateVariables);
+        List<Map.Entry<String, double[]>> changed = new ArrayList<>();
+        for (Map.Entry<String, double[]> e : stateVariables.entrySet()) {
+            // Arrays.equals compares the bits of the doubles, so NaN values are equal
+            if (!Arrays.equals(e.getValue(), baseStateVariables.get(e.getKey()))) {
+                changed.add(e);
+            }
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeInt(changed.size());
+            for (Map.Entry<String, double[]> e : changed) {
+                dos.writeInt(intern(e.getKey()));
+                dos.writeByte(e.getValue().length);
+                for (double value : e.getValue()) {
+                    dos.writeDouble(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void applyTerminal(Terminal terminal, double[] variables, int offset) {
+        boolean connected = toBoolean(variables[offset]);
+        if (terminal.isConnected() != connected) {
+            if (connected) {
+                terminal.connect();
+            } else {
+                terminal.disconnect();
+            }
+        }
+        terminal.setP(variables[offset + 1]);
+        terminal.setQ(variables[offset + 2]);
+    }
+
+    private static void applyTapPosition(RatioTapChanger tapChanger, double tapPosition) {
+        if (tapChanger != null && !Double.isNaN(tapPosition)) {
+            tapChanger.setTapPosition((int) tapPosition);
+        }
+    }
+
+    private static void applyTapPosition(PhaseTapChanger tapChanger, double tapPosition) {
+        if (tapChanger != null && !Double.isNaN(tapPosition)) {
+            tapChanger.setTapPosition((int) tapPosition);
+        }
+    }
+
+    private static void apply(Network network, char type, String id, double[] variables) {
+        Identifiable<?> identifiable = network.getIdentifiable(id);
+        if (identifiable == null) {
+            LOGGER.warn("Equipment {} not found in network {}", id, network.getId());
+            return;
+        }
+        switch (type) {
+            case SWITCH:
+                ((Switch) identifiable).setOpen(toBoolean(variables[0]));
+                break;
+            case LOAD:
+                Load load = (Load) identifiable;
+                applyTerminal(load.getTerminal(), variables, 0);
+                load.setP0(variables[3]).setQ0(variables[4]);
+                break;
+            case GENERATOR:
+                Generator generator = (Generator) identifiable;
+                applyTerminal(generator.getTerminal(), variables, 0);
+                generator.setTargetP(variables[3])
+                         .setTargetQ(variables[4])
+                         .setTargetV(variables[5])
+                         .setVoltageRegulatorOn(toBoolean(variables[6]));
+                break;
+            case DANGLING_LINE:
+                DanglingLine danglingLine = (DanglingLine) identifiable;
+                applyTerminal(danglingLine.getTerminal(), variables, 0);
+                danglingLine.setP0(variables[3]).setQ0(variables[4]);
+                break;
+            case SHUNT:
+                ShuntCompensator shunt = (ShuntCompensator) identifiable;
+                applyTerminal(shunt.getTerminal(), variables, 0);
+                shunt.setCurrentSectionCount((int) variables[3]);
+                break;
+            case STATIC_VAR_COMPENSATOR:
+                StaticVarCompensator svc = (StaticVarCompensator) identifiable;
+                applyTerminal(svc.getTerminal(), variables, 0);
+                // regulation off first, as the setpoints are checked against the current regulation mode
+                svc.setRegulationMode(StaticVarCompensator.RegulationMode.OFF)
+                   .setVoltageSetPoint(variables[3])
+                   .setReactivePowerSetPoint(variables[4])
+                   .setRegulationMode(StaticVarCompensator.RegulationMode.values()[(int) variables[5]]);
+                break;
+            case VSC_CONVERTER_STATION:
+                VscConverterStation vsc = (VscConverterStation) identifiable;
+                applyTerminal(vsc.getTerminal(), variables, 0);
+                // the setpoints are checked against the regulator status, so the setpoint of the new status is set first
+                if (toBoolean(variables[5])) {
+                    vsc.setVoltageSetpoint(variables[3]);
+                    vsc.setVoltageRegulatorOn(true);
+                    vsc.setReactivePowerSetpoint(variables[4]);
+                } else {
+                    vsc.setReactivePowerSetpoint(variables[4]);
+                    vsc.setVoltageRegulatorOn(false);
+                    vsc.setVoltageSetpoint(variables[3]);
+                }
+                break;
+            case INJECTION:
+                applyTerminal(((Injection<?>) identifiable).getTerminal(), variables, 0);
+                break;
+            case HVDC_LINE:
+                ((HvdcLine) identifiable).setActivePowerSetpoint(variables[0])
+                                         .setConvertersMode(HvdcLine.ConvertersMode.values()[(int) variables[1]]);
+                break;
+            case LINE:
+                Line line = (Line) identifiable;
+                applyTerminal(line.getTerminal1(), variables, 0);
+                applyTerminal(line.getTerminal2(), variables, 3);
+                break;
+            case TWO_WINDINGS_TRANSFORMER:
+                TwoWindingsTransformer twt = (TwoWindingsTransformer) identifiable;
+                applyTerminal(twt.getTerminal1(), variables, 0);
+                applyTerminal(twt.getTerminal2(), variables, 3);
+                applyTapPosition(twt.getRatioTapChanger(), variables[6]);
+                applyTapPosition(twt.getPhaseTapChanger(), variables[7]);
+                break;
+            case THREE_WINDINGS_TRANSFORMER:
+                ThreeWindingsTransformer twt3 = (ThreeWindingsTransformer) identifiable;
+                applyTerminal(twt3.getLeg1().getTerminal(), variables, 0);
+                applyTerminal(twt3.getLeg2().getTerminal(), variables, 3);
+                applyTerminal(twt3.getLeg3().getTerminal(), variables, 6);
+                applyTapPosition(twt3.getLeg2().getRatioTapChanger(), variables[9]);
+                applyTapPosition(twt3.getLeg3().getRatioTapChanger(), variables[10]);
+                break;
+            default:
+                throw new AssertionError("Unexpected equipment type " + type);
+        }
+    }
+
+    /**
+     * Apply the state variables of a snapshot to the working state of a network loaded from the base case
+     */
+    void apply(byte[] snapshot, Network network) {
+        Objects.requireNonNull(snapshot);
+        Objects.requireNonNull(network);
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int count = dis.readInt();
+            // buses of the bus view, indexed once the topology is set, as buses come last
+            Map<String, Bus> buses = null;
+            for (int i = 0; i < count; i++) {
+                String key = getName(dis.readInt());
+                double[] variables = new double[dis.readUnsignedByte()];
+                for (int j = 0; j < variables.length; j++) {
+                    variables[j] = dis.readDouble();
+                }
+                if (key.charAt(0) == BUS) {
+                    if (buses == null) {
+                        buses = network.getBusView().getBusStream().collect(Collectors.toMap(Bus::getId, Function.identity()));
+                    }
+                    Bus bus = buses.get(key.substring(1));
+                    if (bus == null) {
+                        LOGGER.warn("Bus {} not found in network {}", key.substring(1), network.getId());
+                    } else {
+                        bus.setV(variables[0]).setAngle(variables[1]);
+                    }
+                } else {
+                    apply(network, key.charAt(0), key.substring(1), variables);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized Map<String, double[]> getBaseStateVariables() {
+        return baseStateVariables;
+    }
+
+    synchronized void setBaseStateVariables(Map<String, double[]> baseStateVariables) {
+        this.baseStateVariables = baseStateVariables;
+    }
+
+    void storeSnapshot(String stateKey, byte[] snapshot) {
+        snapshots.put(Objects.requireNonNull(stateKey), Objects.requireNonNull(snapshot));
+    }
+
+    byte[] getSnapshot(String stateKey) {
+        return snapshots.get(Objects.requireNonNull(stateKey));
+    }
+
+    Set<String> getSnapshotKeys() {
+        return snapshots.keySet();
+    }
+
+    private void writeValue(DataOutputStream dos, Object value) throws IOException {
+        if (value == null) {
+            dos.writeByte(NULL_VALUE);
+        } else if (value instanceof Integer) {
+            dos.writeByte(INTEGER_VALUE);
+            dos.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            dos.writeByte(LONG_VALUE);
+            dos.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            dos.writeByte(FLOAT_VALUE);
+            dos.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            dos.writeByte(DOUBLE_VALUE);
+            dos.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            dos.writeByte(BOOLEAN_VALUE);
+            dos.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            dos.writeByte(DATE_VALUE);
+            dos.writeLong(((Date) value).getTime());
+        } else {
+            dos.writeByte(STRING_VALUE);
+            dos.writeUTF(value.toString());
+        }
+    }
+
+    private Object readValue(DataInputStream dis) throws IOException {
+        byte type = dis.readByte();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case INTEGER_VALUE:
+                return dis.readInt();
+            case LONG_VALUE:
+                return dis.readLong();
+            case FLOAT_VALUE:
+                return dis.readFloat();
+            case DOUBLE_VALUE:
+                return dis.readDouble();
+            case BOOLEAN_VALUE:
+                return dis.readBoolean();
+            case DATE_VALUE:
+                return new Date(dis.readLong());
+            case STRING_VALUE:
+                return dis.readUTF();
+            default:
+                throw new RuntimeException("Unexpected value type " + type);
+        }
+    }
+
+    /**
+     * Store the values of a state, as extracted for the histo DB
+     *
+     * @param stateId id of the state
+     * @param stateValues values of the state, keyed by attribute name
+     */
+    void storeValues(int stateId, Map<String, Object> stateValues) {
+        Objects.requireNonNull(stateValues);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeInt(stateValues.size());
+            for (Map.Entry<String, Object> e : stateValues.entrySet()) {
+                dos.writeInt(intern(e.getKey()));
+                writeValue(dos, e.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        values.put(stateId, bos.toByteArray());
+    }
+
+    private Map<String, Object> readValues(byte[] data) {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = dis.readInt();
+            Map<String, Object> stateValues = new LinkedHashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = getName(dis.readInt());
+                stateValues.put(name, readValue(dis));
+            }
+            return stateValues;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Values of the stored states, as extracted for the histo DB, ordered by state id. The values of a state
+     * are only decoded when the iteration reaches it, so that a single state is in memory at a time.
+     */
+    Iterable<Map.Entry<Integer, Map<String, Object>>> getValues() {
+        return () -> new Iterator<Map.Entry<Integer, Map<String, Object>>>() {
+
+            private final Iterator<Map.Entry<Integer, byte[]>> it = values.entrySet().iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Integer, Map<String, Object>> next() {
+                Map.Entry<Integer, byte[]> e = it.next();
+                return new AbstractMap.SimpleImmutableEntry<>(e.getKey(), readValues(e.getValue()));
+            }
+        };
+    }
+
+    void clear() {
+        snapshots.clear();
+        values.clear();
+        setBaseStateVariables(null);
+    }
+}
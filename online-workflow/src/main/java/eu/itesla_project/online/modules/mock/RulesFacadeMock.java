@@ -18,6 +18,7 @@ import com.powsybl.contingency.Contingency;
 import eu.itesla_project.modules.online.OnlineRulesFacade;
 import eu.itesla_project.modules.online.RulesFacadeParameters;
 import eu.itesla_project.modules.online.RulesFacadeResults;
+import eu.itesla_project.modules.online.StateRulesEvaluator;
 import eu.itesla_project.modules.online.StateStatus;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 
@@ -53,6 +54,27 @@ public class RulesFacadeMock implements OnlineRulesFacade {
         return getMockResults(contingency, network);
     }
 
+    @Override
+    public StateRulesEvaluator stateEvaluator(Network network) {
+        Objects.requireNonNull(network, "network is null");
+        return new StateRulesEvaluator() {
+            @Override
+            public RulesFacadeResults evaluate(Contingency contingency) {
+                return RulesFacadeMock.this.evaluate(contingency, network);
+            }
+
+            @Override
+            public RulesFacadeResults wcaEvaluate(Contingency contingency) {
+                return RulesFacadeMock.this.wcaEvaluate(contingency, network);
+            }
+
+            @Override
+            public long getExtractionTime() {
+                return 0;
+            }
+        };
+    }
+
     private RulesFacadeResults getMockResults(Contingency contingency, Network network) {
         Map<SecurityIndexType, StateStatus> indexesResults = new EnumMap<>(SecurityIndexType.class);
         for (SecurityIndexType indexType : securityIndexTypes) {
@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.IntPredicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +25,8 @@ import eu.itesla_project.modules.histo.IIDM2DB;
 import eu.itesla_project.modules.online.RulesFacadeResults;
 import eu.itesla_project.modules.online.StateStatus;
 import eu.itesla_project.modules.rules.SecurityRule;
+import eu.itesla_project.modules.rules.expr.AttributeSlots;
+import eu.itesla_project.modules.rules.expr.CompiledExpression;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 
 /**
@@ -43,6 +46,8 @@ public class ContingencyEvaluator {
     private final boolean checkRules;
     private List<SecurityIndexType> bacecaseInvalidMcRulesIndexes = new ArrayList<SecurityIndexType>();
     private List<SecurityIndexType> bacecaseInvalidWcaRulesIndexes = new ArrayList<SecurityIndexType>();
+    private List<CompiledExpression> compiledMcRules;
+    private List<CompiledExpression> compiledWcaRules;
 
     public ContingencyEvaluator(Contingency contingency, List<SecurityRule> mcRules, double purityThreshold, Map<SecurityIndexType,
             List<String>> mcViolatedEquipment, boolean checkRules) {
@@ -74,6 +79,23 @@ public class ContingencyEvaluator {
         return contingency;
     }
 
+    /**
+     * Compile the rules, so that they can be evaluated on value arrays indexed by {@code attributeSlots}.
+     */
+    public void compile(AttributeSlots attributeSlots) {
+        Objects.requireNonNull(attributeSlots, "attribute slots is null");
+        compiledMcRules = compile(mcRules, attributeSlots);
+        compiledWcaRules = compile(wcaRules, attributeSlots);
+    }
+
+    private List<CompiledExpression> compile(List<SecurityRule> rules, AttributeSlots attributeSlots) {
+        List<CompiledExpression> compiledRules = new ArrayList<>(rules.size());
+        for (SecurityRule rule : rules) {
+            compiledRules.add(rule.toExpression(purityThreshold).compile(attributeSlots));
+        }
+        return compiledRules;
+    }
+
     public RulesFacadeResults evaluate(Network network) {
         return evaluate(network, mcRules, bacecaseInvalidMcRulesIndexes);
     }
@@ -82,6 +104,10 @@ public class ContingencyEvaluator {
         return evaluate(networkId, stateId, networkValues, mcRules, bacecaseInvalidMcRulesIndexes);
     }
 
+    public RulesFacadeResults evaluate(String networkId, String stateId, double[] networkValues) {
+        return evaluate(networkId, stateId, networkValues, mcRules, compiledMcRules, bacecaseInvalidMcRulesIndexes);
+    }
+
     public RulesFacadeResults wcaEvaluate(Network network) {
         return evaluate(network, wcaRules, bacecaseInvalidWcaRulesIndexes);
     }
@@ -90,6 +116,10 @@ public class ContingencyEvaluator {
         return evaluate(networkId, stateId, networkValues, wcaRules, bacecaseInvalidWcaRulesIndexes);
     }
 
+    public RulesFacadeResults wcaEvaluate(String networkId, String stateId, double[] networkValues) {
+        return evaluate(networkId, stateId, networkValues, wcaRules, compiledWcaRules, bacecaseInvalidWcaRulesIndexes);
+    }
+
     private RulesFacadeResults evaluate(Network network, List<SecurityRule> rules, List<SecurityIndexType> bacecaseInvalidRulesIndexes) {
         Objects.requireNonNull(network, "network is null");
         HashMap<HistoDbAttributeId, Object> networkValues = IIDM2DB.extractCimValues(network, new IIDM2DB.Config(null, true)).getSingleValueMap();
@@ -99,6 +129,21 @@ public class ContingencyEvaluator {
     private RulesFacadeResults evaluate(String networkId, String stateId, Map<HistoDbAttributeId, Object> networkValues, List<SecurityRule> rules,
             List<SecurityIndexType> bacecaseInvalidRulesIndexes) {
         Objects.requireNonNull(networkValues, "networkValues is null");
+        return evaluate(networkId, stateId, rules, bacecaseInvalidRulesIndexes,
+            i -> rules.get(i).toExpression(purityThreshold).check(networkValues).isSafe());
+    }
+
+    private RulesFacadeResults evaluate(String networkId, String stateId, double[] networkValues, List<SecurityRule> rules,
+            List<CompiledExpression> compiledRules, List<SecurityIndexType> bacecaseInvalidRulesIndexes) {
+        Objects.requireNonNull(networkValues, "networkValues is null");
+        if (compiledRules == null) {
+            throw new IllegalStateException("Security rules for contingency " + contingency.getId() + " have not been compiled");
+        }
+        return evaluate(networkId, stateId, rules, bacecaseInvalidRulesIndexes, i -> compiledRules.get(i).eval(networkValues));
+    }
+
+    private RulesFacadeResults evaluate(String networkId, String stateId, List<SecurityRule> rules,
+            List<SecurityIndexType> bacecaseInvalidRulesIndexes, IntPredicate safeRule) {
         LOGGER.info("Evaluating {} network, {} state, {} contingency", networkId, stateId, contingency.getId());
         StateStatus stateStatus = StateStatus.SAFE;
         List<SecurityIndexType> invalidRulesIndexes = new ArrayList<SecurityIndexType>();
@@ -108,8 +153,9 @@ public class ContingencyEvaluator {
             checkRules(rules, invalidRulesIndexes, bacecaseInvalidRulesIndexes);
         }
         Map<SecurityIndexType, StateStatus> indexesResults = new EnumMap<>(SecurityIndexType.class);
-        for (SecurityRule rule : rules) {
-            boolean safe = rule.toExpression(purityThreshold).check(networkValues).isSafe();
+        for (int i = 0; i < rules.size(); i++) {
+            SecurityRule rule = rules.get(i);
+            boolean safe = safeRule.test(i);
             LOGGER.debug("{}: Result on {} network, {} state, {} contingency, {} index: safe = {}",
                     rule.getId(), networkId, stateId, contingency.getId(), rule.getId().getSecurityIndexId().getSecurityIndexType(), safe);
             if (safe) {
@@ -21,9 +21,11 @@ import com.powsybl.contingency.Contingency;
 import eu.itesla_project.modules.online.OnlineRulesFacade;
 import eu.itesla_project.modules.online.RulesFacadeParameters;
 import eu.itesla_project.modules.online.RulesFacadeResults;
+import eu.itesla_project.modules.online.StateRulesEvaluator;
 import eu.itesla_project.modules.rules.RuleAttributeSet;
 import eu.itesla_project.modules.rules.RulesDbClient;
 import eu.itesla_project.modules.rules.SecurityRule;
+import eu.itesla_project.modules.rules.expr.AttributeSlots;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 
 /**
@@ -38,6 +40,9 @@ public class SecurityRulesFacade implements OnlineRulesFacade {
 
     private final Map<String, ContingencyEvaluator> evaluators = new HashMap<>();
 
+    // slots of the attributes referenced by the preloaded rules
+    private final AttributeSlots attributeSlots = new AttributeSlots();
+
     public SecurityRulesFacade(RulesDbClient rulesDbClient) {
         this.rulesDbClient = rulesDbClient;
     }
@@ -72,6 +77,11 @@ public class SecurityRulesFacade implements OnlineRulesFacade {
                         mcViolatedEquipmentForContingency, parameters.isCheckRules()));
             }
         }
+        // compile the rules, once all the attributes have been given a slot the index is read only
+        for (ContingencyEvaluator evaluator : evaluators.values()) {
+            evaluator.compile(attributeSlots);
+        }
+        LOGGER.info("Security rules compiled, {} attributes referenced", attributeSlots.size());
     }
 
     public ContingencyEvaluator getContingencyEvaluator(Contingency contingency) {
@@ -93,4 +103,9 @@ public class SecurityRulesFacade implements OnlineRulesFacade {
         return getContingencyEvaluator(contingency).wcaEvaluate(network);
     }
 
+    @Override
+    public StateRulesEvaluator stateEvaluator(Network network) {
+        return new SecurityRulesStateEvaluator(this, network, attributeSlots);
+    }
+
 }
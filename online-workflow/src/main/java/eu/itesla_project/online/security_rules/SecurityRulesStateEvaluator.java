@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.security_rules;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.powsybl.contingency.Contingency;
+import com.powsybl.iidm.network.Network;
+import eu.itesla_project.modules.histo.HistoDbAttributeId;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.histo.IIDM2DB;
+import eu.itesla_project.modules.online.RulesFacadeResults;
+import eu.itesla_project.modules.online.StateRulesEvaluator;
+import eu.itesla_project.modules.rules.expr.AttributeSlots;
+
+/**
+ * Security rules evaluator bound to a state of a network: the values of the attributes
+ * referenced by the rules are extracted once, at the first evaluation, into a value array
+ * shared by the compiled rules of all the contingencies.
+ * Not thread safe, an instance is meant to be used by the thread analysing the state.
+ *
+ * @author Quinary <itesla@quinary.com>
+ */
+class SecurityRulesStateEvaluator implements StateRulesEvaluator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityRulesStateEvaluator.class);
+
+    private final SecurityRulesFacade facade;
+    private final Network network;
+    private final String stateId;
+    private final AttributeSlots attributeSlots;
+
+    private double[] networkValues;
+    private long extractionTime = 0;
+
+    SecurityRulesStateEvaluator(SecurityRulesFacade facade, Network network, AttributeSlots attributeSlots) {
+        this.facade = Objects.requireNonNull(facade, "facade is null");
+        this.network = Objects.requireNonNull(network, "network is null");
+        this.attributeSlots = Objects.requireNonNull(attributeSlots, "attribute slots is null");
+        this.stateId = network.getStateManager().getWorkingStateId();
+    }
+
+    private double[] getNetworkValues() {
+        if (networkValues == null) {
+            long start = System.currentTimeMillis();
+            // only extract the values of the equipments used by the rules
+            Set<String> equipmentIds = new HashSet<>();
+            for (HistoDbAttributeId attributeId : attributeSlots.getAttributes()) {
+                if (attributeId instanceof HistoDbNetworkAttributeId) {
+                    equipmentIds.add(((HistoDbNetworkAttributeId) attributeId).getEquipmentId());
+                }
+            }
+            Map<HistoDbAttributeId, Object> values = IIDM2DB.extractCimValues(network, new IIDM2DB.Config(null, true, false, null, 0, equipmentIds))
+                    .getSingleValueMap();
+            networkValues = attributeSlots.toValues(values);
+            extractionTime = System.currentTimeMillis() - start;
+            LOGGER.debug("Extracted {} attribute values of {} equipments from {} network, {} state in {} ms",
+                    networkValues.length, equipmentIds.size(), network.getId(), stateId, extractionTime);
+        }
+        return networkValues;
+    }
+
+    @Override
+    public RulesFacadeResults evaluate(Contingency contingency) {
+        return facade.getContingencyEvaluator(contingency).evaluate(network.getId(), stateId, getNetworkValues());
+    }
+
+    @Override
+    public RulesFacadeResults wcaEvaluate(Contingency contingency) {
+        return facade.getContingencyEvaluator(contingency).wcaEvaluate(network.getId(), stateId, getNetworkValues());
+    }
+
+    @Override
+    public long getExtractionTime() {
+        return extractionTime;
+    }
+
+}
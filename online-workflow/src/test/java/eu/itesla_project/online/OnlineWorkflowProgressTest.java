@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online;
+
+import eu.itesla_project.modules.contingencies.ContingenciesAndActionsDatabaseClient;
+import eu.itesla_project.modules.online.OnlineDb;
+import eu.itesla_project.modules.online.OnlineWorkflowParameters;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OnlineWorkflowProgressTest {
+
+    /**
+     * Records the whole syntheses
+     */
+    private static class SnapshotListener implements OnlineApplicationListener {
+
+        final List<WorkSynthesis> works = new ArrayList<>();
+
+        final List<ContingencyStatesActionsSynthesis> actions = new ArrayList<>();
+
+        @Override
+        public void onBusyCoresUpdate(int[] busyCores) {
+        }
+
+        @Override
+        public void onWorkflowUpdate(StatusSynthesis status) {
+        }
+
+        @Override
+        public void onWcaUpdate(RunningSynthesis wcaRunning) {
+        }
+
+        @Override
+        public void onStatesWithActionsUpdate(ContingencyStatesActionsSynthesis acts) {
+            actions.add(acts);
+        }
+
+        @Override
+        public void onStatesWithIndexesUpdate(ContingencyStatesIndexesSynthesis stindex) {
+        }
+
+        @Override
+        public void onWorkflowStateUpdate(WorkSynthesis work) {
+            works.add(work);
+        }
+
+        @Override
+        public void onWcaContingencies(WcaContingenciesSynthesis wcaContingencies) {
+        }
+
+        @Override
+        public void onStatesWithSecurityRulesResultsUpdate(IndexSecurityRulesResultsSynthesis indexesResults) {
+        }
+
+        @Override
+        public void onDisconnection() {
+        }
+
+        @Override
+        public void onConnection() {
+        }
+
+        @Override
+        public void onWorkflowEnd(OnlineWorkflowContext context, OnlineDb onlineDb, ContingenciesAndActionsDatabaseClient cadbClient, OnlineWorkflowParameters parameters) {
+        }
+    }
+
+    /**
+     * Records the changes, and the whole syntheses received when subscribing
+     */
+    private static class DeltaListener extends SnapshotListener implements OnlineWorkflowDeltaListener {
+
+        final List<WorkSynthesis> workDeltas = new ArrayList<>();
+
+        final List<ContingencyStatesActionsSynthesis> actionsDeltas = new ArrayList<>();
+
+        @Override
+        public void onWorkflowStateDelta(WorkSynthesis changedStates) {
+            workDeltas.add(changedStates);
+        }
+
+        @Override
+        public void onStatesWithIndexesDelta(ContingencyStatesIndexesSynthesis addedIndexes) {
+        }
+
+        @Override
+        public void onStatesWithActionsDelta(ContingencyStatesActionsSynthesis addedActions) {
+            actionsDeltas.add(addedActions);
+        }
+
+        @Override
+        public void onStatesWithSecurityRulesResultsDelta(IndexSecurityRulesResultsSynthesis addedResults) {
+        }
+    }
+
+    private static EnumMap<OnlineTaskType, OnlineTaskStatus> status(OnlineTaskStatus sampling) {
+        EnumMap<OnlineTaskType, OnlineTaskStatus> status = new EnumMap<>(OnlineTaskType.class);
+        status.put(OnlineTaskType.SAMPLING, sampling);
+        return status;
+    }
+
+    @Test
+    public void testCoalescedDeltas() {
+        DeltaListener listener = new DeltaListener();
+        SnapshotListener snapshotListener = new SnapshotListener();
+        try (OnlineWorkflowProgress progress = new OnlineWorkflowProgress("wf", new CopyOnWriteArrayList<>(), 60000)) {
+            progress.addListener(listener);
+            progress.addListener(snapshotListener);
+            progress.start();
+            progress.updateState(0, status(OnlineTaskStatus.RUNNING), "DACF", null);
+            progress.updateState(1, status(OnlineTaskStatus.RUNNING), "DACF", null);
+            progress.updateState(0, status(OnlineTaskStatus.SUCCESS), "DACF", "done");
+            progress.addStateActions("c1", 0, Collections.singletonList("a1"));
+            assertTrue(listener.workDeltas.isEmpty());
+
+            // a burst of changes is published once
+            progress.publish();
+            assertEquals(1, listener.workDeltas.size());
+            WorkSynthesis delta = listener.workDeltas.get(0);
+            assertEquals("wf", delta.getWorkflowId());
+            assertEquals(2, delta.getStatus().size());
+            assertEquals("SUCCESS", delta.getStatus().get(0).getStatus().get("SAMPLING"));
+            assertEquals("done", delta.getStatus().get(0).getDetail());
+            assertEquals(1, listener.actionsDeltas.size());
+            assertEquals(1, snapshotListener.works.size());
+            assertEquals(1, snapshotListener.actions.size());
+
+            // only the changed states are published
+            progress.updateState(1, status(OnlineTaskStatus.FAILED), "DACF", "failed");
+            progress.publish();
+            assertEquals(2, listener.workDeltas.size());
+            assertEquals(Collections.singleton(1), listener.workDeltas.get(1).getStatus().keySet());
+            assertEquals(1, listener.actionsDeltas.size());
+            // the other listeners receive the whole syntheses of what changed
+            assertEquals(2, snapshotListener.works.size());
+            assertEquals(2, snapshotListener.works.get(1).getStatus().size());
+            assertEquals(1, snapshotListener.actions.size());
+
+            // nothing changed, nothing published
+            progress.publish();
+            assertEquals(2, listener.workDeltas.size());
+            // a delta listener never receives the whole syntheses once subscribed
+            assertTrue(listener.works.isEmpty());
+
+            // a late listener first receives the whole syntheses
+            DeltaListener lateListener = new DeltaListener();
+            progress.addListener(lateListener);
+            assertEquals(1, lateListener.works.size());
+            assertEquals(2, lateListener.works.get(0).getStatus().size());
+            assertEquals(1, lateListener.actions.size());
+            assertTrue(lateListener.workDeltas.isEmpty());
+
+            progress.updateState(2, status(OnlineTaskStatus.RUNNING), "DACF", null);
+        }
+        // closing publishes the remaining changes
+        assertEquals(3, listener.workDeltas.size());
+        assertEquals(Collections.singleton(2), listener.workDeltas.get(2).getStatus().keySet());
+    }
+}
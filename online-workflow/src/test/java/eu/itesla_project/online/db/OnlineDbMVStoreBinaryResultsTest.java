@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.mvstore.MVStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.powsybl.iidm.network.Branch;
+import com.powsybl.security.LimitViolation;
+import com.powsybl.security.LimitViolationType;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+
+import eu.itesla_project.modules.contingencies.ActionParameterFloatValue;
+import eu.itesla_project.modules.contingencies.ActionParameters;
+import eu.itesla_project.modules.online.OnlineStep;
+import eu.itesla_project.modules.online.OnlineWorkflowResults;
+import eu.itesla_project.modules.online.OnlineWorkflowRulesResults;
+import eu.itesla_project.modules.online.OnlineWorkflowWcaResults;
+import eu.itesla_project.modules.online.StateStatus;
+import eu.itesla_project.modules.online.TimeHorizon;
+import eu.itesla_project.modules.optimizer.CCOFinalStatus;
+
+/**
+ *
+ * @author Massimo Ferraro <massimo.ferraro@techrain.eu>
+ */
+public class OnlineDbMVStoreBinaryResultsTest {
+
+    private MVStore store;
+
+    private OnlineDbMVStoreBinaryResults results;
+
+    private final LimitViolation lineViolation = new LimitViolation("LINE", LimitViolationType.CURRENT, "10", Integer.MAX_VALUE, 1000.123456789, 1.0f, 1100.987654321, Branch.Side.TWO);
+
+    private final LimitViolation vlViolation = new LimitViolation("VL", LimitViolationType.HIGH_VOLTAGE, 200f, 1, 250f);
+
+    @Before
+    public void setUp() {
+        store = new MVStore.Builder().open();
+        results = new OnlineDbMVStoreBinaryResults(store);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    private void checkViolations(List<LimitViolation> expectedViolations, List<LimitViolation> actualViolations) {
+        assertEquals(expectedViolations.size(), actualViolations.size());
+        for (int i = 0; i < expectedViolations.size(); i++) {
+            LimitViolation expectedViolation = expectedViolations.get(i);
+            LimitViolation actualViolation = actualViolations.get(i);
+            assertEquals(expectedViolation.getSubjectId(), actualViolation.getSubjectId());
+            assertEquals(expectedViolation.getLimitType(), actualViolation.getLimitType());
+            assertEquals(expectedViolation.getLimitName(), actualViolation.getLimitName());
+            assertEquals(expectedViolation.getLimit(), actualViolation.getLimit(), 0);
+            assertEquals(expectedViolation.getLimitReduction(), actualViolation.getLimitReduction(), 0);
+            assertEquals(expectedViolation.getValue(), actualViolation.getValue(), 0);
+            assertEquals(expectedViolation.getSide(), actualViolation.getSide());
+        }
+    }
+
+    @Test
+    public void violations() {
+        List<LimitViolation> violations = Arrays.asList(lineViolation, vlViolation);
+        results.storeViolations(0, OnlineStep.LOAD_FLOW, violations);
+        results.storeViolations(1, OnlineStep.LOAD_FLOW, Collections.singletonList(vlViolation));
+        results.storeViolations(1, OnlineStep.SECURITY_RULES_ASSESSMENT, Collections.emptyList());
+
+        assertTrue(results.hasViolations());
+        checkViolations(violations, results.getViolations(0, OnlineStep.LOAD_FLOW));
+        assertNull(results.getViolations(0, OnlineStep.SECURITY_RULES_ASSESSMENT));
+        assertNull(results.getViolations(2, OnlineStep.LOAD_FLOW));
+
+        Map<OnlineStep, List<LimitViolation>> stateViolations = results.getViolations(1);
+        assertEquals(2, stateViolations.size());
+        checkViolations(Collections.singletonList(vlViolation), stateViolations.get(OnlineStep.LOAD_FLOW));
+        assertTrue(stateViolations.get(OnlineStep.SECURITY_RULES_ASSESSMENT).isEmpty());
+
+        Map<Integer, List<LimitViolation>> stepViolations = results.getViolations(OnlineStep.LOAD_FLOW);
+        assertEquals(2, stepViolations.size());
+        checkViolations(violations, stepViolations.get(0));
+
+        assertEquals(2, results.getViolations().size());
+    }
+
+    @Test
+    public void postContingencyViolations() {
+        results.storePostContingencyViolations(0, "contingency1", true, Collections.singletonList(lineViolation));
+        results.storePostContingencyViolations(0, "contingency2", false, Collections.emptyList());
+        results.storePostContingencyViolations(1, "contingency1", true, Arrays.asList(vlViolation, lineViolation));
+
+        checkViolations(Collections.singletonList(lineViolation), results.getPostContingencyViolations(0, "contingency1"));
+        assertNull(results.getPostContingencyViolations(0, "contingency3"));
+        assertEquals(2, results.getPostContingencyViolations(0).size());
+        Map<Integer, List<LimitViolation>> contingencyViolations = results.getPostContingencyViolations("contingency1");
+        assertEquals(2, contingencyViolations.size());
+        checkViolations(Arrays.asList(vlViolation, lineViolation), contingencyViolations.get(1));
+        assertEquals(2, results.getPostContingencyViolations().size());
+
+        Map<String, Boolean> stateConvergence = results.getPostContingencyLoadflowConvergence(0);
+        assertEquals(2, stateConvergence.size());
+        assertTrue(stateConvergence.get("contingency1"));
+        assertEquals(Boolean.FALSE, stateConvergence.get("contingency2"));
+        assertEquals(2, results.getPostContingencyLoadflowConvergence("contingency1").size());
+        assertEquals(1, results.getPostContingencyLoadflowConvergence().get(1).size());
+    }
+
+    @Test
+    public void postContingencyStates() throws IOException {
+        LinkedHashMap<String, Double> branchesData = new LinkedHashMap<>();
+        branchesData.put("LINE__TO__VL_I", 100.0);
+        branchesData.put("LINE__TO__VL_P", 50.5);
+        results.storePostContingencyState("network1", 1, "contingency1", branchesData);
+        results.storePostContingencyState("network1", 0, "contingency2", branchesData);
+
+        StringWriter writer = new StringWriter();
+        results.exportPostContingencyStates("wf1", writer);
+        String expected = String.join(System.lineSeparator(),
+                "workflowId;networkId;stateId;contingencyId;LINE__TO__VL_I;LINE__TO__VL_P",
+                "wf1;network1;0;contingency2;100.0;50.5",
+                "wf1;network1;1;contingency1;100.0;50.5") + System.lineSeparator();
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void results() {
+        assertFalse(results.hasResults());
+        assertNull(results.getResults("wf1"));
+
+        OnlineWorkflowResultsImpl wfResults = new OnlineWorkflowResultsImpl("wf1", TimeHorizon.DACF);
+        ActionParameters parameters = new ActionParameters();
+        parameters.addParameter(ActionParameters.REDISPATCHING_DELTAP_PARAMETER, new ActionParameterFloatValue(10f));
+        Map<String, Map<String, ActionParameters>> actions = new HashMap<>();
+        actions.put("action1", Collections.singletonMap("gen1", parameters));
+        wfResults.addContingenciesWithActions("contingency1", 0, true, CCOFinalStatus.MANUAL_CORRECTIVE_ACTION_FOUND, null, "plan1", actions);
+        wfResults.addContingenciesWithActions("contingency1", 1, false, CCOFinalStatus.NO_CORRECTIVE_ACTION_FOUND, "no action", null, new HashMap<>());
+        wfResults.addUnsafeContingencies("contingency2", 0, Collections.singletonMap("OVERLOAD", false));
+        results.storeResults(wfResults);
+
+        assertTrue(results.hasResults());
+        OnlineWorkflowResults storedResults = results.getResults("wf1");
+        assertEquals(TimeHorizon.DACF, storedResults.getTimeHorizon());
+        assertEquals(Collections.singletonList("contingency1"), new ArrayList<>(storedResults.getContingenciesWithActions()));
+        assertEquals(2, storedResults.getUnsafeStatesWithActions("contingency1").size());
+        assertEquals(CCOFinalStatus.MANUAL_CORRECTIVE_ACTION_FOUND, storedResults.getStateStatus("contingency1", 0));
+        assertEquals("plan1", storedResults.getActionPlan("contingency1", 0));
+        assertEquals("no action", storedResults.getCause("contingency1", 1));
+        assertEquals(Collections.singletonList("action1"), storedResults.getActionsIds("contingency1", 0));
+        assertEquals(10f, storedResults.getParameters("contingency1", 0, "action1", "gen1").getValue(ActionParameters.REDISPATCHING_DELTAP_PARAMETER));
+        assertEquals(Collections.singletonMap("OVERLOAD", false), storedResults.getIndexesData("contingency2", 0));
+
+        // stored results are replaced
+        results.storeResults(new OnlineWorkflowResultsImpl("wf1", TimeHorizon.DACF));
+        assertTrue(results.getResults("wf1").getContingenciesWithActions().isEmpty());
+    }
+
+    @Test
+    public void rulesResults() {
+        OnlineWorkflowRulesResultsImpl wfRulesResults = new OnlineWorkflowRulesResultsImpl("wf1", TimeHorizon.DACF);
+        wfRulesResults.addContingencyWithSecurityRulesResults("contingency1", 0, StateStatus.SAFE, Collections.singletonMap("OVERLOAD", true),
+                true, Collections.singletonList(SecurityIndexType.SMALLSIGNAL));
+        results.storeRulesResults(wfRulesResults);
+
+        assertTrue(results.hasRulesResults());
+        assertFalse(results.hasWcaRulesResults());
+        OnlineWorkflowRulesResults storedResults = results.getRulesResults("wf1");
+        assertEquals(StateStatus.SAFE, storedResults.getStateStatus("contingency1", 0));
+        assertEquals(Collections.singletonMap("OVERLOAD", true), storedResults.getStateResults("contingency1", 0));
+        assertTrue(storedResults.areValidRulesAvailable("contingency1", 0));
+        assertEquals(Collections.singletonList(SecurityIndexType.SMALLSIGNAL), storedResults.getInvalidRules("contingency1", 0));
+        assertNull(results.getWcaRulesResults("wf1"));
+    }
+
+    @Test
+    public void wcaResults() {
+        OnlineWorkflowWcaResultsImpl wfWcaResults = new OnlineWorkflowWcaResultsImpl("wf1", TimeHorizon.DACF);
+        wfWcaResults.addContingencyWithCluster("contingency1", 2, Arrays.asList("cause1", "cause2"));
+        wfWcaResults.addContingencyWithCluster("contingency2", 4, null);
+        results.storeWcaResults(wfWcaResults);
+
+        OnlineWorkflowWcaResults storedResults = results.getWcaResults("wf1");
+        assertEquals(2, storedResults.getContingencies().size());
+        assertEquals(2, storedResults.getClusterIndex("contingency1"));
+        assertEquals(Collections.singletonList("cause1"), storedResults.getCauses("contingency1"));
+        assertNull(storedResults.getCauses("contingency2"));
+    }
+
+    @Test
+    public void metrics() {
+        results.storeMetrics(OnlineStep.MONTE_CARLO_SAMPLING, Collections.singletonMap("time", "10"));
+        results.storeMetrics(1, OnlineStep.MONTE_CARLO_SAMPLING, Collections.singletonMap("time", "2"));
+        results.storeMetrics(0, OnlineStep.MONTE_CARLO_SAMPLING, Collections.singletonMap("time", "1"));
+        // metrics of a state are merged
+        results.storeMetrics(0, OnlineStep.MONTE_CARLO_SAMPLING, Collections.singletonMap("count", "5"));
+
+        assertEquals(Collections.singletonMap("time", "10"), results.getMetrics(OnlineStep.MONTE_CARLO_SAMPLING));
+        assertEquals(2, results.getMetrics(0, OnlineStep.MONTE_CARLO_SAMPLING).size());
+        assertTrue(results.getMetrics(0, OnlineStep.LOAD_FLOW).isEmpty());
+
+        List<String[]> table = results.getAllMetrics(OnlineStep.MONTE_CARLO_SAMPLING);
+        assertEquals(4, table.size());
+        assertArrayEquals(new String[] {"state", "count", "time"}, table.get(0));
+        assertArrayEquals(new String[] {"_", null, "10"}, table.get(1));
+        assertArrayEquals(new String[] {"0", "5", "1"}, table.get(2));
+        assertArrayEquals(new String[] {"1", null, "2"}, table.get(3));
+        assertTrue(results.getAllMetrics(OnlineStep.LOAD_FLOW).isEmpty());
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.h2.mvstore.MVStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.HvdcLine;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.NetworkFactory;
+import com.powsybl.iidm.network.StateManagerConstants;
+import com.powsybl.iidm.network.StaticVarCompensator;
+import com.powsybl.iidm.network.Substation;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+import com.powsybl.iidm.network.VscConverterStation;
+import com.powsybl.iidm.xml.NetworkXml;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OnlineDbMVStoreStatesTest {
+
+    private MVStore store;
+
+    private OnlineDbMVStoreStates states;
+
+    @Before
+    public void setUp() {
+        store = new MVStore.Builder().open();
+        states = new OnlineDbMVStoreStates(store);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    private static Network createNetwork() {
+        Network network = NetworkFactory.create("test", "test");
+        Substation s = network.newSubstation()
+                .setId("S")
+                .setCountry(Country.FR)
+                .add();
+        VoltageLevel vl1 = s.newVoltageLevel()
+                .setId("VL1")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl1.getBusBreakerView().newBus()
+                .setId("B1")
+                .add()
+                .setV(400f)
+                .setAngle(0f);
+        vl1.getBusBreakerView().newBus()
+                .setId("B1BIS")
+                .add();
+        vl1.getBusBreakerView().newSwitch()
+                .setId("SW")
+                .setBus1("B1")
+                .setBus2("B1BIS")
+                .setOpen(true)
+                .add();
+        VoltageLevel vl2 = s.newVoltageLevel()
+                .setId("VL2")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl2.getBusBreakerView().newBus()
+                .setId("B2")
+                .add()
+                .setV(395f)
+                .setAngle(-2f);
+        vl1.newGenerator()
+                .setId("G")
+                .setBus("B1")
+                .setConnectableBus("B1")
+                .setMinP(0f)
+                .setMaxP(1000f)
+                .setTargetP(500f)
+                .setTargetV(400f)
+                .setVoltageRegulatorOn(true)
+                .add();
+        vl2.newLoad()
+                .setId("L")
+                .setBus("B2")
+                .setConnectableBus("B2")
+                .setP0(450f)
+                .setQ0(50f)
+                .add();
+        network.newLine()
+                .setId("LINE")
+                .setVoltageLevel1("VL1")
+                .setBus1("B1")
+                .setConnectableBus1("B1")
+                .setVoltageLevel2("VL2")
+                .setBus2("B2")
+                .setConnectableBus2("B2")
+                .setR(1f)
+                .setX(10f)
+                .setG1(0f)
+                .setB1(0f)
+                .setG2(0f)
+                .setB2(0f)
+                .add();
+        vl2.newStaticVarCompensator()
+                .setId("SVC")
+                .setBus("B2")
+                .setConnectableBus("B2")
+                .setBmin(0.0002)
+                .setBmax(0.0008)
+                .setRegulationMode(StaticVarCompensator.RegulationMode.VOLTAGE)
+                .setVoltageSetPoint(390)
+                .add();
+        vl1.newVscConverterStation()
+                .setId("VSC1")
+                .setBus("B1")
+                .setConnectableBus("B1")
+                .setLossFactor(0.011f)
+                .setVoltageRegulatorOn(true)
+                .setVoltageSetpoint(405f)
+                .add();
+        vl2.newVscConverterStation()
+                .setId("VSC2")
+                .setBus("B2")
+                .setConnectableBus("B2")
+                .setLossFactor(0.011f)
+                .setVoltageRegulatorOn(false)
+                .setReactivePowerSetpoint(10f)
+                .add();
+        network.newHvdcLine()
+                .setId("HVDC")
+                .setConverterStationId1("VSC1")
+                .setConverterStationId2("VSC2")
+                .setR(1)
+                .setNominalV(400)
+                .setMaxP(300)
+                .setActivePowerSetpoint(200)
+                .setConvertersMode(HvdcLine.ConvertersMode.SIDE_1_RECTIFIER_SIDE_2_INVERTER)
+                .add();
+        return network;
+    }
+
+    private static byte[] toXml(Network network) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        NetworkXml.write(network, bos);
+        return bos.toByteArray();
+    }
+
+    private static void checkVariables(Map<String, double[]> expected, Map<String, double[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, variables) -> assertArrayEquals(key, variables, actual.get(key), 0));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Network network = createNetwork();
+        byte[] baseCase = toXml(network);
+        Map<String, double[]> baseStateVariables = OnlineDbMVStoreStates.extract(network);
+
+        // modify a state of the network
+        network.getStateManager().cloneState(StateManagerConstants.INITIAL_STATE_ID, "1");
+        network.getStateManager().setWorkingState("1");
+        network.getSwitch("SW").setOpen(false);
+        network.getGenerator("G").setTargetP(600f).getTerminal().setP(-600f).setQ(-20f);
+        network.getLoad("L").setP0(550f).getTerminal().setP(550f).setQ(60f);
+        network.getLine("LINE").getTerminal1().disconnect();
+        StaticVarCompensator svc = network.getStaticVarCompensator("SVC");
+        svc.setReactivePowerSetPoint(25);
+        svc.setRegulationMode(StaticVarCompensator.RegulationMode.REACTIVE_POWER);
+        VscConverterStation vsc1 = network.getVscConverterStation("VSC1");
+        vsc1.setReactivePowerSetpoint(-15f);
+        vsc1.setVoltageRegulatorOn(false);
+        VscConverterStation vsc2 = network.getVscConverterStation("VSC2");
+        vsc2.setVoltageSetpoint(398f);
+        vsc2.setVoltageRegulatorOn(true);
+        network.getHvdcLine("HVDC")
+                .setActivePowerSetpoint(150)
+                .setConvertersMode(HvdcLine.ConvertersMode.SIDE_1_INVERTER_SIDE_2_RECTIFIER);
+        network.getBusView().getBusStream().filter(b -> b.getId().equals("VL2_0")).findFirst().get().setV(390f).setAngle(-3f);
+
+        Map<String, double[]> stateVariables = OnlineDbMVStoreStates.extract(network);
+        byte[] snapshot = states.toSnapshot(stateVariables, baseStateVariables);
+
+        // rebuild the state from the base case and the snapshot
+        Network restored = NetworkXml.read(new ByteArrayInputStream(baseCase));
+        states.apply(snapshot, restored);
+
+        checkVariables(stateVariables, OnlineDbMVStoreStates.extract(restored));
+        assertEquals(new String(toXml(network), StandardCharsets.UTF_8), new String(toXml(restored), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSnapshotFormat() throws IOException {
+        Network network = createNetwork();
+        Map<String, double[]> baseStateVariables = OnlineDbMVStoreStates.extract(network);
+
+        // an unchanged state is an empty snapshot
+        byte[] snapshot = states.toSnapshot(OnlineDbMVStoreStates.extract(network), baseStateVariables);
+        assertEquals(4, snapshot.length);
+        assertEquals(0, new DataInputStream(new ByteArrayInputStream(snapshot)).readInt());
+
+        // only the variables of the modified equipment are stored
+        network.getHvdcLine("HVDC").setActivePowerSetpoint(100);
+        snapshot = states.toSnapshot(OnlineDbMVStoreStates.extract(network), baseStateVariables);
+        assertEquals(4 + 4 + 1 + 2 * 8, snapshot.length);
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(snapshot));
+        assertEquals(1, dis.readInt());
+        dis.readInt(); // interned key of the HVDC line
+        assertEquals(2, dis.readUnsignedByte());
+        assertEquals(100, dis.readDouble(), 0);
+        assertEquals(HvdcLine.ConvertersMode.SIDE_1_RECTIFIER_SIDE_2_INVERTER.ordinal(), dis.readDouble(), 0);
+    }
+
+    @Test
+    public void testValues() {
+        Map<String, Object> values0 = new LinkedHashMap<>();
+        values0.put("datetime", 0L);
+        values0.put("G_P", 500.0);
+        values0.put("L_status", true);
+        Map<String, Object> values1 = new LinkedHashMap<>();
+        values1.put("datetime", 1L);
+        values1.put("G_P", 600.0);
+        values1.put("L_status", null);
+        states.storeValues(1, values1);
+        states.storeValues(0, values0);
+
+        Iterator<Map.Entry<Integer, Map<String, Object>>> it = states.getValues().iterator();
+        assertTrue(it.hasNext());
+        Map.Entry<Integer, Map<String, Object>> e = it.next();
+        assertEquals(Integer.valueOf(0), e.getKey());
+        assertEquals(values0, e.getValue());
+        assertTrue(it.hasNext());
+        e = it.next();
+        assertEquals(Integer.valueOf(1), e.getKey());
+        assertEquals(values1, e.getValue());
+        assertFalse(it.hasNext());
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.NetworkFactory;
+import com.powsybl.iidm.network.StateManagerConstants;
+import com.powsybl.iidm.network.Substation;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+
+import eu.itesla_project.modules.online.OnlineStep;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class OnlineDbMVStoreTest {
+
+    private static final String WORKFLOW_ID = "wf";
+
+    private static final Map<String, String> WORKFLOW_METRICS = Collections.singletonMap("duration", "10");
+
+    private static final Map<String, String> STATE_METRICS = Collections.singletonMap("attributes_extraction_time", "5");
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private OnlineDbMVStoreConfig config;
+
+    private OnlineDbMVStore onlineDb;
+
+    private Network network;
+
+    @Before
+    public void setUp() throws IOException {
+        // nothing is written in background during the test, unless flushed
+        config = new OnlineDbMVStoreConfig(tmpDir.newFolder("onlinedb").toPath(), true, 3600000, 1024 * 1024);
+        onlineDb = new OnlineDbMVStore(config);
+        network = createNetwork();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        onlineDb.close();
+    }
+
+    private static Network createNetwork() {
+        Network network = NetworkFactory.create("test", "test");
+        Substation s = network.newSubstation()
+                .setId("S")
+                .setCountry(Country.FR)
+                .add();
+        VoltageLevel vl = s.newVoltageLevel()
+                .setId("VL")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl.getBusBreakerView().newBus()
+                .setId("B")
+                .add();
+        vl.newGenerator()
+                .setId("G")
+                .setBus("B")
+                .setConnectableBus("B")
+                .setMinP(0f)
+                .setMaxP(1000f)
+                .setTargetP(500f)
+                .setTargetV(400f)
+                .setVoltageRegulatorOn(true)
+                .add();
+        vl.newLoad()
+                .setId("L")
+                .setBus("B")
+                .setConnectableBus("B")
+                .setP0(500f)
+                .setQ0(50f)
+                .add();
+        network.getStateManager().cloneState(StateManagerConstants.INITIAL_STATE_ID, "0");
+        network.getStateManager().setWorkingState("0");
+        network.getLoad("L").setP0(600f);
+        return network;
+    }
+
+    private void storeState() {
+        onlineDb.storeMetrics(WORKFLOW_ID, 0, OnlineStep.SECURITY_RULES_ASSESSMENT, STATE_METRICS);
+        onlineDb.storeState(WORKFLOW_ID, 0, network, null);
+    }
+
+    private static void checkState(OnlineDbMVStore onlineDb) {
+        assertEquals(STATE_METRICS, onlineDb.getMetrics(WORKFLOW_ID, 0, OnlineStep.SECURITY_RULES_ASSESSMENT));
+        assertEquals(Collections.singletonList(0), onlineDb.listStoredStates(WORKFLOW_ID));
+        assertEquals(600f, onlineDb.getState(WORKFLOW_ID, 0).getLoad("L").getP0(), 0f);
+    }
+
+    /**
+     * Open a copy of the db files as they are on disk, as it would be after a crash
+     */
+    private OnlineDbMVStore openCopy() throws IOException {
+        Path copyDir = tmpDir.newFolder().toPath();
+        try (Stream<Path> files = Files.walk(config.getOnlineDbDir())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path copy = copyDir.resolve(config.getOnlineDbDir().relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(file, copy);
+                }
+            }
+        }
+        return new OnlineDbMVStore(new OnlineDbMVStoreConfig(copyDir, true, 3600000, 1024 * 1024));
+    }
+
+    @Test
+    public void testFlushState() throws Exception {
+        storeState();
+        try (OnlineDbMVStore copy = openCopy()) {
+            assertTrue(copy.getMetrics(WORKFLOW_ID, 0, OnlineStep.SECURITY_RULES_ASSESSMENT).isEmpty());
+        }
+
+        // flush done by the state analyzer once a state has been stored
+        onlineDb.flush(WORKFLOW_ID);
+        try (OnlineDbMVStore copy = openCopy()) {
+            checkState(copy);
+        }
+    }
+
+    @Test
+    public void testFlushWorkflow() throws Exception {
+        storeState();
+        onlineDb.storeMetrics(WORKFLOW_ID, OnlineStep.SECURITY_RULES_ASSESSMENT, WORKFLOW_METRICS);
+
+        // flush done by the workflow before notifying its end
+        onlineDb.flush(WORKFLOW_ID);
+        try (OnlineDbMVStore copy = openCopy()) {
+            checkState(copy);
+            assertEquals(WORKFLOW_METRICS, copy.getMetrics(WORKFLOW_ID, OnlineStep.SECURITY_RULES_ASSESSMENT));
+        }
+    }
+
+    @Test
+    public void testReopenAfterClose() throws Exception {
+        storeState();
+        onlineDb.storeMetrics(WORKFLOW_ID, OnlineStep.SECURITY_RULES_ASSESSMENT, WORKFLOW_METRICS);
+
+        // closing writes everything, without flush
+        onlineDb.close();
+        onlineDb = new OnlineDbMVStore(config);
+        checkState(onlineDb);
+        assertEquals(WORKFLOW_METRICS, onlineDb.getMetrics(WORKFLOW_ID, OnlineStep.SECURITY_RULES_ASSESSMENT));
+
+        // flushing a closed workflow store has no effect
+        onlineDb.close();
+        onlineDb.flush(WORKFLOW_ID);
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.online.security_rules;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.powsybl.contingency.Contingency;
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.NetworkFactory;
+import com.powsybl.iidm.network.StateManagerConstants;
+import com.powsybl.iidm.network.Substation;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+import com.powsybl.simulation.securityindexes.SecurityIndexId;
+import com.powsybl.simulation.securityindexes.SecurityIndexType;
+
+import eu.itesla_project.modules.histo.HistoDbAttr;
+import eu.itesla_project.modules.histo.HistoDbAttributeId;
+import eu.itesla_project.modules.histo.HistoDbMetaAttributeId;
+import eu.itesla_project.modules.histo.HistoDbNetworkAttributeId;
+import eu.itesla_project.modules.online.RulesFacadeParameters;
+import eu.itesla_project.modules.online.RulesFacadeResults;
+import eu.itesla_project.modules.online.StateRulesEvaluator;
+import eu.itesla_project.modules.online.StateStatus;
+import eu.itesla_project.modules.rules.RuleAttributeSet;
+import eu.itesla_project.modules.rules.RuleId;
+import eu.itesla_project.modules.rules.RulesDbClient;
+import eu.itesla_project.modules.rules.SecurityRule;
+import eu.itesla_project.modules.rules.SecurityRuleExpression;
+import eu.itesla_project.modules.rules.SecurityRuleStatus;
+import eu.itesla_project.modules.rules.expr.Attribute;
+import eu.itesla_project.modules.rules.expr.ComparisonOperator;
+import eu.itesla_project.modules.rules.expr.ExpressionNode;
+import eu.itesla_project.modules.rules.expr.Litteral;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class SecurityRulesFacadeTest {
+
+    private static final String WORKFLOW_ID = "wf";
+
+    private static final Contingency LOAD_CONTINGENCY = new Contingency("C1");
+    private static final Contingency VOLTAGE_CONTINGENCY = new Contingency("C2");
+    private static final Contingency FORECAST_CONTINGENCY = new Contingency("C3");
+
+    private static class SecurityRuleMock implements SecurityRule {
+
+        private final RuleId ruleId;
+
+        private final ExpressionNode condition;
+
+        SecurityRuleMock(String contingencyId, ExpressionNode condition) {
+            this.ruleId = new RuleId(RuleAttributeSet.MONTE_CARLO, new SecurityIndexId(contingencyId, SecurityIndexType.TSO_OVERLOAD));
+            this.condition = condition;
+        }
+
+        @Override
+        public RuleId getId() {
+            return ruleId;
+        }
+
+        @Override
+        public String getWorkflowId() {
+            return WORKFLOW_ID;
+        }
+
+        @Override
+        public SecurityRuleExpression toExpression() {
+            return new SecurityRuleExpression(ruleId, SecurityRuleStatus.SECURE_IF, condition);
+        }
+
+        @Override
+        public SecurityRuleExpression toExpression(double purityThreshold) {
+            return toExpression();
+        }
+    }
+
+    private static ExpressionNode compare(HistoDbAttributeId attributeId, double value, ComparisonOperator.Type type) {
+        return new ComparisonOperator(new Attribute(attributeId), new Litteral(value), type);
+    }
+
+    private Network network;
+
+    private Map<String, List<SecurityRule>> rules;
+
+    private SecurityRulesFacade facade;
+
+    private static Network createNetwork() {
+        Network network = NetworkFactory.create("test", "test");
+        Substation s1 = network.newSubstation()
+                .setId("S1")
+                .setCountry(Country.FR)
+                .add();
+        VoltageLevel vl1 = s1.newVoltageLevel()
+                .setId("VL1")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl1.getBusBreakerView().newBus()
+                .setId("B1")
+                .add()
+                .setV(400f);
+        vl1.newGenerator()
+                .setId("G")
+                .setBus("B1")
+                .setConnectableBus("B1")
+                .setMinP(0f)
+                .setMaxP(1000f)
+                .setTargetP(500f)
+                .setTargetV(400f)
+                .setVoltageRegulatorOn(true)
+                .add();
+        VoltageLevel vl2 = s1.newVoltageLevel()
+                .setId("VL2")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl2.getBusBreakerView().newBus()
+                .setId("B2")
+                .add()
+                .setV(395f);
+        vl2.newLoad()
+                .setId("L")
+                .setBus("B2")
+                .setConnectableBus("B2")
+                .setP0(450f)
+                .setQ0(50f)
+                .add()
+                .getTerminal()
+                .setP(450f)
+                .setQ(50f);
+        Substation s2 = network.newSubstation()
+                .setId("S2")
+                .setCountry(Country.BE)
+                .add();
+        VoltageLevel vl3 = s2.newVoltageLevel()
+                .setId("VL3")
+                .setNominalV(380f)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vl3.getBusBreakerView().newBus()
+                .setId("B3")
+                .add()
+                .setV(405f);
+        network.newLine()
+                .setId("LINE1")
+                .setVoltageLevel1("VL1")
+                .setBus1("B1")
+                .setConnectableBus1("B1")
+                .setVoltageLevel2("VL2")
+                .setBus2("B2")
+                .setConnectableBus2("B2")
+                .setR(1f)
+                .setX(10f)
+                .setG1(0f)
+                .setB1(0f)
+                .setG2(0f)
+                .setB2(0f)
+                .add();
+        network.newLine()
+                .setId("LINE2")
+                .setVoltageLevel1("VL2")
+                .setBus1("B2")
+                .setConnectableBus1("B2")
+                .setVoltageLevel2("VL3")
+                .setBus2("B3")
+                .setConnectableBus2("B3")
+                .setR(1f)
+                .setX(10f)
+                .setG1(0f)
+                .setB1(0f)
+                .setG2(0f)
+                .setB2(0f)
+                .add();
+        return network;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        network = createNetwork();
+
+        rules = new HashMap<>();
+        rules.put(LOAD_CONTINGENCY.getId(), Collections.singletonList(new SecurityRuleMock(LOAD_CONTINGENCY.getId(),
+                compare(new HistoDbNetworkAttributeId("L", HistoDbAttr.P), 500, ComparisonOperator.Type.LESS))));
+        rules.put(VOLTAGE_CONTINGENCY.getId(), Collections.singletonList(new SecurityRuleMock(VOLTAGE_CONTINGENCY.getId(),
+                compare(new HistoDbNetworkAttributeId("VL2", HistoDbAttr.V), 390, ComparisonOperator.Type.GREATER_EQUAL))));
+        // a rule only referencing a meta attribute, a missing value being considered as safe
+        rules.put(FORECAST_CONTINGENCY.getId(), Collections.singletonList(new SecurityRuleMock(FORECAST_CONTINGENCY.getId(),
+                compare(HistoDbMetaAttributeId.FORECAST_TIME, 1, ComparisonOperator.Type.GREATER_EQUAL))));
+
+        facade = createFacade(LOAD_CONTINGENCY, VOLTAGE_CONTINGENCY, FORECAST_CONTINGENCY);
+    }
+
+    private SecurityRulesFacade createFacade(Contingency... contingencies) throws Exception {
+        RulesDbClient rulesDbClient = new RulesDbClient() {
+            @Override
+            public List<String> listWorkflows() {
+                return Collections.singletonList(WORKFLOW_ID);
+            }
+
+            @Override
+            public void updateRule(SecurityRule rule) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<SecurityRule> getRules(String workflowId, RuleAttributeSet attributeSet, String contingencyId, SecurityIndexType securityIndexType) {
+                return rules.get(contingencyId);
+            }
+
+            @Override
+            public Collection<RuleId> listRules(String workflowId, RuleAttributeSet attributeSet) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        SecurityRulesFacade facade = new SecurityRulesFacade(rulesDbClient);
+        facade.init(new RulesFacadeParameters(WORKFLOW_ID, Arrays.asList(contingencies), 0, EnumSet.of(SecurityIndexType.TSO_OVERLOAD), false, false));
+        return facade;
+    }
+
+    private void checkStateEvaluation(StateStatus loadStatus, StateStatus voltageStatus) {
+        StateRulesEvaluator evaluator = facade.stateEvaluator(network);
+        for (Contingency contingency : Arrays.asList(LOAD_CONTINGENCY, VOLTAGE_CONTINGENCY)) {
+            // same result with the shared values of the filtered equipments as with the values of the whole network
+            RulesFacadeResults results = evaluator.evaluate(contingency);
+            RulesFacadeResults expectedResults = facade.evaluate(contingency, network);
+            assertEquals(expectedResults.getStateStatus(), results.getStateStatus());
+            assertEquals(expectedResults.getIndexesResults(), results.getIndexesResults());
+            assertEquals(network.getStateManager().getWorkingStateId(), results.getStateId());
+        }
+        assertEquals(loadStatus, evaluator.evaluate(LOAD_CONTINGENCY).getStateStatus());
+        assertEquals(voltageStatus, evaluator.evaluate(VOLTAGE_CONTINGENCY).getStateStatus());
+        // forecast time of a snapshot is 0
+        assertEquals(StateStatus.SAFE_WITH_CORRECTIVE_ACTIONS, evaluator.evaluate(FORECAST_CONTINGENCY).getStateStatus());
+    }
+
+    @Test
+    public void testStateEvaluator() {
+        checkStateEvaluation(StateStatus.SAFE, StateStatus.SAFE);
+
+        // values of another state are extracted by another evaluator
+        network.getStateManager().cloneState(StateManagerConstants.INITIAL_STATE_ID, "1");
+        network.getStateManager().setWorkingState("1");
+        network.getLoad("L").getTerminal().setP(550f);
+        network.getVoltageLevel("VL2").getBusView().getBuses().iterator().next().setV(385f);
+        checkStateEvaluation(StateStatus.SAFE_WITH_CORRECTIVE_ACTIONS, StateStatus.SAFE_WITH_CORRECTIVE_ACTIONS);
+    }
+
+    @Test
+    public void testMetaAttributesOnly() throws Exception {
+        // meta attributes are extracted even if the rules do not reference any equipment
+        StateRulesEvaluator evaluator = createFacade(FORECAST_CONTINGENCY).stateEvaluator(network);
+        assertEquals(StateStatus.SAFE_WITH_CORRECTIVE_ACTIONS, evaluator.evaluate(FORECAST_CONTINGENCY).getStateStatus());
+    }
+
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.pclfsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * DC approximation of a connected network, used to estimate branch flows after the outage of some branches.
+ * <p>
+ * The susceptance matrix, reduced by the slack bus, is factorized once as L.D.Lt, buses being eliminated in
+ * minimum degree order to limit the fill-in. The PTDF of all the branches for a transfer between the two
+ * ends of an outaged branch is then given by a single forward and backward substitution, and post-contingency
+ * flows by the (generalized) LODF formula:
+ * <pre>
+ *     F' = F + PTDF[:, K].(I - PTDF[K, K])^-1.F[K]
+ * </pre>
+ * where K is the set of outaged branches and F the base case flows.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class DcSensitivityMatrix {
+
+    // below this value, 1 - PTDF of an outaged branch means that the outage splits the network
+    private static final double ISLANDING_EPSILON = 1e-6;
+
+    private final int busCount;
+
+    private final int[] branchBus1;
+
+    private final int[] branchBus2;
+
+    private final double[] branchSusceptance;
+
+    private final int slackBus;
+
+    // buses in elimination order, slack bus excluded
+    private final int[] order;
+
+    private final double[] diagonal;
+
+    // for each eliminated bus, the buses eliminated after it and the associated factors of L
+    private final int[][] lowerBuses;
+
+    private final double[][] lowerValues;
+
+    /**
+     * @param busCount number of buses, all connected to the slack bus
+     * @param branchBus1 bus number of side 1 of each branch
+     * @param branchBus2 bus number of side 2 of each branch
+     * @param branchReactance reactance of each branch, in per unit, must not be zero
+     * @param slackBus number of the slack bus
+     */
+    DcSensitivityMatrix(int busCount, int[] branchBus1, int[] branchBus2, double[] branchReactance, int slackBus) {
+        this.branchBus1 = Objects.requireNonNull(branchBus1);
+        this.branchBus2 = Objects.requireNonNull(branchBus2);
+        Objects.requireNonNull(branchReactance);
+        if (branchBus2.length != branchBus1.length || branchReactance.length != branchBus1.length) {
+            throw new IllegalArgumentException("Inconsistent branch arrays");
+        }
+        if (slackBus < 0 || slackBus >= busCount) {
+            throw new IllegalArgumentException("Invalid slack bus " + slackBus);
+        }
+        this.busCount = busCount;
+        this.slackBus = slackBus;
+        branchSusceptance = new double[branchReactance.length];
+        for (int l = 0; l < branchReactance.length; l++) {
+            if (branchReactance[l] == 0 || Double.isNaN(branchReactance[l])) {
+                throw new IllegalArgumentException("Invalid reactance " + branchReactance[l] + " for branch " + l);
+            }
+            branchSusceptance[l] = 1 / branchReactance[l];
+        }
+        order = new int[busCount - 1];
+        diagonal = new double[busCount - 1];
+        lowerBuses = new int[busCount - 1][];
+        lowerValues = new double[busCount - 1][];
+        factorize();
+    }
+
+    int getBranchCount() {
+        return branchBus1.length;
+    }
+
+    private void factorize() {
+        double[] diag = new double[busCount];
+        List<Map<Integer, Double>> rows = new ArrayList<>(busCount);
+        for (int i = 0; i < busCount; i++) {
+            rows.add(new HashMap<>());
+        }
+        for (int l = 0; l < branchBus1.length; l++) {
+            int i = branchBus1[l];
+            int j = branchBus2[l];
+            if (i == j) {
+                continue;
+            }
+            double b = branchSusceptance[l];
+            diag[i] += b;
+            diag[j] += b;
+            if (i != slackBus && j != slackBus) {
+                rows.get(i).merge(j, -b, Double::sum);
+                rows.get(j).merge(i, -b, Double::sum);
+            }
+        }
+
+        // minimum degree ordering, computed during the elimination, queue entries being invalidated by degree changes
+        PriorityQueue<long[]> queue = new PriorityQueue<>(busCount, (e1, e2) -> e1[0] != e2[0] ? Long.compare(e1[0], e2[0]) : Long.compare(e1[1], e2[1]));
+        boolean[] eliminated = new boolean[busCount];
+        eliminated[slackBus] = true;
+        for (int i = 0; i < busCount; i++) {
+            if (i != slackBus) {
+                queue.add(new long[] {rows.get(i).size(), i});
+            }
+        }
+        int position = 0;
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int p = (int) entry[1];
+            if (eliminated[p] || rows.get(p).size() != entry[0]) {
+                continue;
+            }
+            double d = diag[p];
+            if (Math.abs(d) < ISLANDING_EPSILON) {
+                throw new IllegalArgumentException("Singular susceptance matrix, bus " + p + " is not connected to the slack bus");
+            }
+            Map<Integer, Double> row = rows.get(p);
+            int[] neighbours = new int[row.size()];
+            double[] values = new double[row.size()];
+            int k = 0;
+            for (Map.Entry<Integer, Double> e : row.entrySet()) {
+                neighbours[k] = e.getKey();
+                values[k] = e.getValue();
+                k++;
+            }
+            for (int a = 0; a < neighbours.length; a++) {
+                int i = neighbours[a];
+                Map<Integer, Double> rowI = rows.get(i);
+                rowI.remove(p);
+                diag[i] -= values[a] * values[a] / d;
+                for (int b = 0; b < neighbours.length; b++) {
+                    if (b != a) {
+                        rowI.merge(neighbours[b], -values[a] * values[b] / d, Double::sum);
+                    }
+                }
+            }
+            double[] factors = new double[values.length];
+            for (int a = 0; a < values.length; a++) {
+                factors[a] = values[a] / d;
+            }
+            order[position] = p;
+            diagonal[position] = d;
+            lowerBuses[position] = neighbours;
+            lowerValues[position] = factors;
+            position++;
+            eliminated[p] = true;
+            row.clear();
+            for (int i : neighbours) {
+                queue.add(new long[] {rows.get(i).size(), i});
+            }
+        }
+        if (position != busCount - 1) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Solve B.theta = rhs in place, the phase of the slack bus being 0
+     */
+    private void solve(double[] rhs) {
+        rhs[slackBus] = 0;
+        for (int position = 0; position < order.length; position++) {
+            double y = rhs[order[position]];
+            if (y != 0) {
+                int[] buses = lowerBuses[position];
+                double[] values = lowerValues[position];
+                for (int k = 0; k < buses.length; k++) {
+                    rhs[buses[k]] -= values[k] * y;
+                }
+            }
+        }
+        for (int position = 0; position < order.length; position++) {
+            rhs[order[position]] /= diagonal[position];
+        }
+        for (int position = order.length - 1; position >= 0; position--) {
+            int[] buses = lowerBuses[position];
+            double[] values = lowerValues[position];
+            double x = rhs[order[position]];
+            for (int k = 0; k < buses.length; k++) {
+                x -= values[k] * rhs[buses[k]];
+            }
+            rhs[order[position]] = x;
+        }
+        rhs[slackBus] = 0;
+    }
+
+    /**
+     * PTDF of all the branches for a unit transfer from side 1 to side 2 of a branch
+     */
+    double[] getPtdf(int branch) {
+        double[] theta = new double[busCount];
+        theta[branchBus1[branch]] += 1;
+        theta[branchBus2[branch]] -= 1;
+        solve(theta);
+        double[] ptdf = new double[branchBus1.length];
+        for (int l = 0; l < ptdf.length; l++) {
+            ptdf[l] = (theta[branchBus1[l]] - theta[branchBus2[l]]) * branchSusceptance[l];
+        }
+        return ptdf;
+    }
+
+    /**
+     * Estimate the flows after the outage of some branches
+     *
+     * @param baseFlows flows of the branches in the base case
+     * @param outagedBranches numbers of the outaged branches
+     * @return the post-contingency flows, 0 for the outaged branches, or null if the outage splits the network
+     */
+    double[] getPostContingencyFlows(double[] baseFlows, int[] outagedBranches) {
+        Objects.requireNonNull(baseFlows);
+        Objects.requireNonNull(outagedBranches);
+        if (baseFlows.length != branchBus1.length) {
+            throw new IllegalArgumentException("Inconsistent base flows array");
+        }
+        int m = outagedBranches.length;
+        double[][] ptdf = new double[m][];
+        for (int k = 0; k < m; k++) {
+            ptdf[k] = getPtdf(outagedBranches[k]);
+        }
+
+        // transfers simulating the outages: (I - PTDF[K, K]).z = F[K]
+        double[][] a = new double[m][m + 1];
+        for (int i = 0; i < m; i++) {
+            for (int k = 0; k < m; k++) {
+                a[i][k] = (i == k ? 1 : 0) - ptdf[k][outagedBranches[i]];
+            }
+            a[i][m] = baseFlows[outagedBranches[i]];
+        }
+        double[] z = solveDense(a);
+        if (z == null) {
+            return null;
+        }
+
+        double[] flows = Arrays.copyOf(baseFlows, baseFlows.length);
+        for (int k = 0; k < m; k++) {
+            double[] column = ptdf[k];
+            for (int l = 0; l < flows.length; l++) {
+                flows[l] += column[l] * z[k];
+            }
+        }
+        for (int branch : outagedBranches) {
+            flows[branch] = 0;
+        }
+        return flows;
+    }
+
+    /**
+     * Gaussian elimination with partial pivoting of an augmented matrix
+     *
+     * @return the solution, null if the matrix is singular
+     */
+    private static double[] solveDense(double[][] a) {
+        int m = a.length;
+        for (int col = 0; col < m; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < m; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < ISLANDING_EPSILON) {
+                return null;
+            }
+            double[] tmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmp;
+            for (int row = col + 1; row < m; row++) {
+                double f = a[row][col] / a[col][col];
+                for (int k = col; k <= m; k++) {
+                    a[row][k] -= f * a[col][k];
+                }
+            }
+        }
+        double[] x = new double[m];
+        for (int row = m - 1; row >= 0; row--) {
+            double s = a[row][m];
+            for (int k = row + 1; k < m; k++) {
+                s -= a[row][k] * x[k];
+            }
+            x[row] = s / a[row][row];
+        }
+        return x;
+    }
+}
@@ -26,6 +26,8 @@ public class PostContLoadFlowSimConfig {
 
     private static final float DEFAULT_LIMIT_REDUCTION = 1f;
 
+    private static final float DEFAULT_SCREENING_THRESHOLD = 0.8f;
+
     private Class<? extends LoadFlowFactory> loadFlowFactoryClass;
 
     private boolean baseCaseConstraintsFiltered;
@@ -38,6 +40,10 @@ public class PostContLoadFlowSimConfig {
 
     private float limitReduction;
 
+    private boolean screeningEnabled;
+
+    private float screeningThreshold;
+
     public static synchronized PostContLoadFlowSimConfig load() {
         ModuleConfig config = PlatformConfig.defaultConfig().getModuleConfig("postcont-loadflow-sim");
         Class<? extends LoadFlowFactory> loadFlowFactoryClass = config.getClassProperty("loadFlowFactoryClass", LoadFlowFactory.class);
@@ -46,8 +52,10 @@ public class PostContLoadFlowSimConfig {
         float baseVoltageFilter = config.getFloatProperty("minBaseVoltageFilter", DEFAULT_MIN_BASE_VOLTAGE_FILTER);
         Security.CurrentLimitType currentLimitType = config.getEnumProperty("currentLimitType", Security.CurrentLimitType.class, DEFAULT_CURRENT_LIMITE_TYPE);
         float limitReduction = config.getFloatProperty("limitReduction", DEFAULT_LIMIT_REDUCTION);
+        boolean screeningEnabled = config.getBooleanProperty("screeningEnabled", false);
+        float screeningThreshold = config.getFloatProperty("screeningThreshold", DEFAULT_SCREENING_THRESHOLD);
         return new PostContLoadFlowSimConfig(loadFlowFactoryClass, baseCaseConstraintsFiltered, warnStartActivated,
-                baseVoltageFilter, currentLimitType, limitReduction);
+                baseVoltageFilter, currentLimitType, limitReduction, screeningEnabled, screeningThreshold);
     }
 
     private static float checkBaseVoltageFilter(float baseVoltageFilter) {
@@ -57,9 +65,23 @@ public class PostContLoadFlowSimConfig {
         return baseVoltageFilter;
     }
 
+    private static float checkScreeningThreshold(float screeningThreshold) {
+        if (screeningThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid screening threshold " + screeningThreshold);
+        }
+        return screeningThreshold;
+    }
+
     public PostContLoadFlowSimConfig(Class<? extends LoadFlowFactory> loadFlowFactoryClass, boolean baseCaseConstraintsFiltered,
                                      boolean warnStartActivated, float minBaseVoltageFilter, Security.CurrentLimitType currentLimitType,
                                      float limitReduction) {
+        this(loadFlowFactoryClass, baseCaseConstraintsFiltered, warnStartActivated, minBaseVoltageFilter, currentLimitType,
+                limitReduction, false, DEFAULT_SCREENING_THRESHOLD);
+    }
+
+    public PostContLoadFlowSimConfig(Class<? extends LoadFlowFactory> loadFlowFactoryClass, boolean baseCaseConstraintsFiltered,
+                                     boolean warnStartActivated, float minBaseVoltageFilter, Security.CurrentLimitType currentLimitType,
+                                     float limitReduction, boolean screeningEnabled, float screeningThreshold) {
         if (limitReduction <= 0 || limitReduction > 1) {
             throw new IllegalArgumentException("Bad limit reduction " + limitReduction);
         }
@@ -69,6 +91,8 @@ public class PostContLoadFlowSimConfig {
         this.minBaseVoltageFilter = checkBaseVoltageFilter(minBaseVoltageFilter);
         this.currentLimitType = Objects.requireNonNull(currentLimitType);
         this.limitReduction = limitReduction;
+        this.screeningEnabled = screeningEnabled;
+        this.screeningThreshold = checkScreeningThreshold(screeningThreshold);
     }
 
     public Class<? extends LoadFlowFactory> getLoadFlowFactoryClass() {
@@ -119,6 +143,26 @@ public class PostContLoadFlowSimConfig {
         this.limitReduction = limitReduction;
     }
 
+    /**
+     * If true, contingencies are pre-screened with a DC approximation and only the ones leading to branches loaded
+     * above the screening threshold of their permanent limit are simulated with a full loadflow
+     */
+    public boolean isScreeningEnabled() {
+        return screeningEnabled;
+    }
+
+    public void setScreeningEnabled(boolean screeningEnabled) {
+        this.screeningEnabled = screeningEnabled;
+    }
+
+    public float getScreeningThreshold() {
+        return screeningThreshold;
+    }
+
+    public void setScreeningThreshold(float screeningThreshold) {
+        this.screeningThreshold = checkScreeningThreshold(screeningThreshold);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() +
@@ -128,6 +172,8 @@ public class PostContLoadFlowSimConfig {
                 " , minBaseVoltageFilter=" + minBaseVoltageFilter +
                 " , currentLimitType=" + currentLimitType +
                 " , limitReduction=" + limitReduction +
+                " , screeningEnabled=" + screeningEnabled +
+                " , screeningThreshold=" + screeningThreshold +
                 "]";
     }
 }
@@ -43,6 +43,8 @@ class PostContLoadFlowSimImpactAnalysis implements ImpactAnalysis, PostContLoadF
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PostContLoadFlowSimImpactAnalysis.class);
 
+    private static final String SCREENED_METRIC = "screened";
+
     private final Network network;
 
     private final ComputationManager computationManager;
@@ -147,6 +149,77 @@ class PostContLoadFlowSimImpactAnalysis implements ImpactAnalysis, PostContLoadF
         return violationsByType;
     }
 
+    private Set<String> getEquipmentsViolatedInBaseState(LimitViolationType violationType, Map<LimitViolationType, List<LimitViolation>> baseViolationsByType) {
+        if (config.isBaseCaseConstraintsFiltered()) {
+            return baseViolationsByType.get(violationType)
+                    .stream()
+                    .map(violation -> violation.getSubjectId())
+                    .collect(Collectors.toSet());
+        } else {
+            return Collections.emptySet();
+        }
+    }
+
+    private static int countEquipmentsViolated(LimitViolationType violationType, Map<LimitViolationType, List<LimitViolation>> violationsByType,
+                                               Set<String> excludedEquipments) {
+        return (int) violationsByType.get(violationType)
+                .stream()
+                .map(violation -> violation.getSubjectId())
+                .filter(equipment -> !excludedEquipments.contains(equipment))
+                .distinct()
+                .count();
+    }
+
+    /**
+     * Security indexes of a contingency screened out by the linear pre-screening: no overload, and the same
+     * voltage violations as in the base state
+     */
+    private void addScreenedSecurityIndexes(int index, Contingency contingency, Map<LimitViolationType, List<LimitViolation>> baseViolationsByType,
+                                            Map<String, String> metrics, List<SecurityIndex> securityIndexes, AtomicInteger okCount) {
+        okCount.incrementAndGet();
+        metrics.put(SCREENED_METRIC + "_" + index, "true");
+        securityIndexes.add(new TsoOverloadSecurityIndex(contingency.getId(), 0, Collections.emptyList(), true));
+        securityIndexes.add(new TsoUndervoltageSecurityIndex(contingency.getId(),
+                countEquipmentsViolated(LimitViolationType.LOW_VOLTAGE, baseViolationsByType,
+                        getEquipmentsViolatedInBaseState(LimitViolationType.LOW_VOLTAGE, baseViolationsByType)), true));
+        securityIndexes.add(new TsoOvervoltageSecurityIndex(contingency.getId(),
+                countEquipmentsViolated(LimitViolationType.HIGH_VOLTAGE, baseViolationsByType,
+                        getEquipmentsViolatedInBaseState(LimitViolationType.HIGH_VOLTAGE, baseViolationsByType)), true));
+    }
+
+    /**
+     * Pre-screen the contingencies with a DC approximation of the base state
+     *
+     * @return the indexes of the contingencies which have to be simulated
+     */
+    private List<Integer> screenContingencies(String baseStateId, List<Contingency> contingencies,
+                                              Map<LimitViolationType, List<LimitViolation>> baseViolationsByType,
+                                              Map<String, String> metrics, List<SecurityIndex> securityIndexes, AtomicInteger okCount) {
+        List<Integer> indexes = new ArrayList<>(contingencies.size());
+        PostContLoadFlowSimScreening screening = null;
+        if (config.isScreeningEnabled() && !contingencies.isEmpty()) {
+            network.getStateManager().setWorkingState(baseStateId);
+            screening = PostContLoadFlowSimScreening.create(network, config.getScreeningThreshold(),
+                    getEquipmentsViolatedInBaseState(LimitViolationType.CURRENT, baseViolationsByType));
+            if (screening == null) {
+                LOGGER.warn("No loadflow results for {}, contingencies screening skipped", baseStateId);
+            }
+        }
+        for (int i = 0; i < contingencies.size(); i++) {
+            Contingency contingency = contingencies.get(i);
+            if (screening != null && screening.isScreenedOut(contingency)) {
+                addScreenedSecurityIndexes(i, contingency, baseViolationsByType, metrics, securityIndexes, okCount);
+            } else {
+                indexes.add(i);
+            }
+        }
+        if (screening != null) {
+            LOGGER.info("{} contingencies out of {} screened out for {}", contingencies.size() - indexes.size(), contingencies.size(), baseStateId);
+            metrics.put(SCREENED_METRIC + "Percent", Float.toString(100f * (contingencies.size() - indexes.size()) / contingencies.size()));
+        }
+        return indexes;
+    }
+
     private void analyseLoadFlowResult(String baseStateId, int index, Contingency contingency, String contingencyStateId,
                                        LoadFlowResult loadFlowResult, Map<LimitViolationType, List<LimitViolation>> baseViolationsByType,
                                        Map<String, String> metrics, List<SecurityIndex> securityIndexes, AtomicInteger okCount) {
@@ -172,15 +245,7 @@ class PostContLoadFlowSimImpactAnalysis implements ImpactAnalysis, PostContLoadF
                 List<LimitViolation> violations2 = entry.getValue();
 
                 // filter equipment already violated in base state
-                Set<String> equipmentsViolatedInBaseState;
-                if (config.isBaseCaseConstraintsFiltered()) {
-                    equipmentsViolatedInBaseState = baseViolationsByType.get(violationType)
-                            .stream()
-                            .map(violation -> violation.getSubjectId())
-                            .collect(Collectors.toSet());
-                } else {
-                    equipmentsViolatedInBaseState = Collections.emptySet();
-                }
+                Set<String> equipmentsViolatedInBaseState = getEquipmentsViolatedInBaseState(violationType, baseViolationsByType);
 
                 List<String> equipments = violations2.stream()
                         .map(violation -> violation.getSubjectId())
@@ -243,13 +308,15 @@ class PostContLoadFlowSimImpactAnalysis implements ImpactAnalysis, PostContLoadF
 
         AtomicInteger okCount = new AtomicInteger();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(contingencies.size());
+        List<Integer> indexes = screenContingencies(baseStateId, contingencies, baseViolationsByType, metrics, securityIndexes, okCount);
+
+        // workers run loadflows synchronously, so no need for more threads than cores
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(indexes.size(), Runtime.getRuntime().availableProcessors())));
         try {
-            List<Future<?>> futures = new ArrayList<>(contingencies.size());
+            List<Future<?>> futures = new ArrayList<>(indexes.size());
 
-            for (int i = 0; i < contingencies.size(); i++) {
-                Contingency contingency = contingencies.get(i);
-                final int index = i;
+            for (int index : indexes) {
+                Contingency contingency = contingencies.get(index);
 
                 String contingencyStateId = getContingencyStateId(contingency, baseStateId);
 
@@ -292,35 +359,38 @@ class PostContLoadFlowSimImpactAnalysis implements ImpactAnalysis, PostContLoadF
 
         List<Contingency> contingencies = getContingenciesToSimulate(contingencyIds);
 
-        List<CompletableFuture<Void>> results = new ArrayList<>(contingencies.size());
-
         List<SecurityIndex> securityIndexes = Collections.synchronizedList(new ArrayList<>());
         Map<String, String> metrics = Collections.synchronizedMap(new HashMap<>());
 
         AtomicInteger okCount = new AtomicInteger();
 
-        for (int i = 0; i < contingencies.size(); i++) {
-            Contingency contingency = contingencies.get(i);
-            final int index = i;
-
-            String contingencyStateId = getContingencyStateId(contingency, baseStateId);
-
-            results.add(
-                CompletableFuture.runAsync(() -> createPostContingencyState(contingency, baseStateId, contingencyStateId), computationManager.getExecutor())
-                .thenComposeAsync(aVoid -> loadFlow.run(contingencyStateId, loadFlowParameters),
-                        computationManager.getExecutor())
-                .thenAcceptAsync(loadFlowResult -> analyseLoadFlowResult(baseStateId, index, contingency, contingencyStateId, loadFlowResult, baseViolationsByType,
-                                      metrics, securityIndexes, okCount), computationManager.getExecutor())
-                .whenCompleteAsync((aVoid, throwable) -> {
-                    if (throwable != null) {
-                        LOGGER.error(throwable.toString(), throwable);
+        return CompletableFuture.supplyAsync(() -> screenContingencies(baseStateId, contingencies, baseViolationsByType, metrics, securityIndexes, okCount),
+                                             computationManager.getExecutor())
+                .thenCompose(indexes -> {
+                    List<CompletableFuture<Void>> results = new ArrayList<>(indexes.size());
+
+                    for (int index : indexes) {
+                        Contingency contingency = contingencies.get(index);
+
+                        String contingencyStateId = getContingencyStateId(contingency, baseStateId);
+
+                        results.add(
+                            CompletableFuture.runAsync(() -> createPostContingencyState(contingency, baseStateId, contingencyStateId), computationManager.getExecutor())
+                            .thenComposeAsync(aVoid -> loadFlow.run(contingencyStateId, loadFlowParameters),
+                                    computationManager.getExecutor())
+                            .thenAcceptAsync(loadFlowResult -> analyseLoadFlowResult(baseStateId, index, contingency, contingencyStateId, loadFlowResult, baseViolationsByType,
+                                                  metrics, securityIndexes, okCount), computationManager.getExecutor())
+                            .whenCompleteAsync((aVoid, throwable) -> {
+                                if (throwable != null) {
+                                    LOGGER.error(throwable.toString(), throwable);
+                                }
+                                removePostContingencyState(contingencyStateId, metrics);
+                            }, computationManager.getExecutor())
+                        );
                     }
-                    removePostContingencyState(contingencyStateId, metrics);
-                }, computationManager.getExecutor())
-            );
-        }
 
-        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                    return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]));
+                })
                 .thenApplyAsync(aVoid -> {
                     putSuccessPercentMetric(metrics, okCount, contingencies);
 
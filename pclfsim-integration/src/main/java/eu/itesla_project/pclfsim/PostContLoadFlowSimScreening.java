@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.pclfsim;
+
+import com.powsybl.contingency.Contingency;
+import com.powsybl.contingency.ContingencyElement;
+import com.powsybl.contingency.ContingencyElementType;
+import com.powsybl.iidm.network.*;
+import com.powsybl.iidm.network.util.ConnectedComponents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Linear pre-screening of the contingencies of a base state.
+ * <p>
+ * Post-contingency active flows are estimated from the base case flows with the DC sensitivities of the main
+ * connected component (see {@link DcSensitivityMatrix}), reactive flows being assumed unchanged. A contingency
+ * is screened out, i.e. does not need to be simulated with a full loadflow, if it only trips branches, does not
+ * split the network and no monitored branch is estimated to be loaded above a threshold of its permanent limit.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class PostContLoadFlowSimScreening {
+
+    private static final double BASE_POWER = 100; // MVA
+
+    private static final double MIN_REACTANCE = 1e-5; // pu
+
+    private static final double SQRT3 = Math.sqrt(3);
+
+    private final Map<String, Integer> branchNums;
+
+    private final DcSensitivityMatrix matrix;
+
+    private final double[] baseFlows;
+
+    private final double[] baseReactiveFlows;
+
+    private final double[] limits;
+
+    private final float threshold;
+
+    private PostContLoadFlowSimScreening(Map<String, Integer> branchNums, DcSensitivityMatrix matrix, double[] baseFlows,
+                                         double[] baseReactiveFlows, double[] limits, float threshold) {
+        this.branchNums = branchNums;
+        this.matrix = matrix;
+        this.baseFlows = baseFlows;
+        this.baseReactiveFlows = baseReactiveFlows;
+        this.limits = limits;
+        this.threshold = threshold;
+    }
+
+    private static final class Builder {
+
+        private final Map<String, Integer> busNums = new HashMap<>();
+
+        private final Map<String, Integer> branchNums = new HashMap<>();
+
+        private final List<Integer> bus1 = new ArrayList<>();
+
+        private final List<Integer> bus2 = new ArrayList<>();
+
+        private final List<Double> x = new ArrayList<>();
+
+        private final List<Double> p = new ArrayList<>();
+
+        private final List<Double> q = new ArrayList<>();
+
+        private final List<Double> limits = new ArrayList<>();
+
+        private Integer getBusNum(Terminal terminal) {
+            Bus bus = terminal.getBusView().getBus();
+            return bus != null ? busNums.get(bus.getId()) : null;
+        }
+
+        private static double getApparentPowerLimit(Terminal terminal, CurrentLimits currentLimits) {
+            if (currentLimits == null || Double.isNaN(currentLimits.getPermanentLimit())) {
+                return Double.NaN;
+            }
+            Bus bus = terminal.getBusView().getBus();
+            double v = bus != null && !Double.isNaN(bus.getV()) ? bus.getV() : terminal.getVoltageLevel().getNominalV();
+            return SQRT3 * v * currentLimits.getPermanentLimit() / 1000;
+        }
+
+        private static double abs(double value) {
+            return Double.isNaN(value) ? 0 : Math.abs(value);
+        }
+
+        private boolean addBranch(String id, int num1, int num2, double reactance, double p1, double q1, double q2, double limit) {
+            if (Double.isNaN(p1) || Double.isNaN(reactance)) {
+                // no loadflow results
+                return false;
+            }
+            if (id != null) {
+                branchNums.put(id, bus1.size());
+            }
+            bus1.add(num1);
+            bus2.add(num2);
+            x.add(Math.abs(reactance) < MIN_REACTANCE ? MIN_REACTANCE : reactance);
+            p.add(p1);
+            q.add(Math.max(abs(q1), abs(q2)));
+            limits.add(limit);
+            return true;
+        }
+
+        private boolean addBranch(Branch branch, double reactance, Set<String> ignoredBranchIds) {
+            Integer num1 = getBusNum(branch.getTerminal1());
+            Integer num2 = getBusNum(branch.getTerminal2());
+            if (num1 == null || num2 == null) {
+                return true;
+            }
+            double limit = Double.NaN;
+            if (!ignoredBranchIds.contains(branch.getId())) {
+                double limit1 = getApparentPowerLimit(branch.getTerminal1(), branch.getCurrentLimits1());
+                double limit2 = getApparentPowerLimit(branch.getTerminal2(), branch.getCurrentLimits2());
+                limit = Double.isNaN(limit1) ? limit2 : (Double.isNaN(limit2) ? limit1 : Math.min(limit1, limit2));
+            }
+            return addBranch(branch.getId(), num1, num2, reactance, branch.getTerminal1().getP(),
+                             branch.getTerminal1().getQ(), branch.getTerminal2().getQ(), limit);
+        }
+
+        private boolean addLeg(int starBusNum, Terminal terminal, double x, double ratedU) {
+            Integer num = getBusNum(terminal);
+            return num == null || addBranch(null, num, starBusNum, x * BASE_POWER / (ratedU * ratedU), terminal.getP(),
+                                            terminal.getQ(), Double.NaN, Double.NaN);
+        }
+
+        private boolean build(Network network, Set<String> ignoredBranchIds) {
+            for (Bus bus : network.getBusView().getBuses()) {
+                if (ConnectedComponents.getCcNum(bus) == ComponentConstants.MAIN_NUM) {
+                    busNums.put(bus.getId(), busNums.size());
+                }
+            }
+            if (busNums.isEmpty()) {
+                return false;
+            }
+            for (Line line : network.getLines()) {
+                double nominalV = line.getTerminal1().getVoltageLevel().getNominalV();
+                if (!addBranch(line, line.getX() * BASE_POWER / (nominalV * nominalV), ignoredBranchIds)) {
+                    return false;
+                }
+            }
+            for (TwoWindingsTransformer twt : network.getTwoWindingsTransformers()) {
+                if (!addBranch(twt, twt.getX() * BASE_POWER / (twt.getRatedU2() * twt.getRatedU2()), ignoredBranchIds)) {
+                    return false;
+                }
+            }
+            // three windings transformers are modelled with a star bus, they are not monitored
+            for (ThreeWindingsTransformer twt : network.getThreeWindingsTransformers()) {
+                if (getBusNum(twt.getLeg1().getTerminal()) == null
+                        && getBusNum(twt.getLeg2().getTerminal()) == null
+                        && getBusNum(twt.getLeg3().getTerminal()) == null) {
+                    continue;
+                }
+                int starBusNum = busNums.size();
+                busNums.put(twt.getId(), starBusNum);
+                if (!addLeg(starBusNum, twt.getLeg1().getTerminal(), twt.getLeg1().getX(), twt.getLeg1().getRatedU())
+                        || !addLeg(starBusNum, twt.getLeg2().getTerminal(), twt.getLeg2().getX(), twt.getLeg2().getRatedU())
+                        || !addLeg(starBusNum, twt.getLeg3().getTerminal(), twt.getLeg3().getX(), twt.getLeg3().getRatedU())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static double[] toArray(List<Double> values) {
+            return values.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+
+        private static int[] toIntArray(List<Integer> values) {
+            return values.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Build the linear model of the base state, in the working state of the current thread
+     *
+     * @param ignoredBranchIds branches which are not monitored
+     * @return the screening, or null if the base state has no loadflow results
+     */
+    static PostContLoadFlowSimScreening create(Network network, float threshold, Set<String> ignoredBranchIds) {
+        Objects.requireNonNull(network);
+        Objects.requireNonNull(ignoredBranchIds);
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Invalid screening threshold " + threshold);
+        }
+        Builder builder = new Builder();
+        if (!builder.build(network, ignoredBranchIds)) {
+            return null;
+        }
+        DcSensitivityMatrix matrix = new DcSensitivityMatrix(builder.busNums.size(), Builder.toIntArray(builder.bus1),
+                                                             Builder.toIntArray(builder.bus2), Builder.toArray(builder.x), 0);
+        return new PostContLoadFlowSimScreening(builder.branchNums, matrix, Builder.toArray(builder.p), Builder.toArray(builder.q),
+                                                Builder.toArray(builder.limits), threshold);
+    }
+
+    /**
+     * @return true if the contingency does not need to be simulated
+     */
+    boolean isScreenedOut(Contingency contingency) {
+        Objects.requireNonNull(contingency);
+        int[] outagedBranches = new int[contingency.getElements().size()];
+        int k = 0;
+        for (ContingencyElement element : contingency.getElements()) {
+            Integer num = element.getType() == ContingencyElementType.BRANCH ? branchNums.get(element.getId()) : null;
+            if (num == null) {
+                // not a branch, or a branch already disconnected
+                return false;
+            }
+            outagedBranches[k++] = num;
+        }
+        double[] flows = matrix.getPostContingencyFlows(baseFlows, outagedBranches);
+        if (flows == null) {
+            return false;
+        }
+        for (int l = 0; l < flows.length; l++) {
+            if (!Double.isNaN(limits[l]) && Math.hypot(flows[l], baseReactiveFlows[l]) >= threshold * limits[l]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.pclfsim;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class DcSensitivityMatrixTest {
+
+    // 5 buses meshed network, with 2 parallel branches between buses 3 and 4
+    private static final int[] BUS1 = {0, 0, 1, 1, 2, 3, 3};
+    private static final int[] BUS2 = {1, 2, 2, 3, 3, 4, 4};
+    private static final double[] X = {0.1, 0.2, 0.15, 0.3, 0.1, 0.2, 0.4};
+    private static final double[] INJECTIONS = {2.5, -0.5, -1, 0.5, -1.5};
+
+    /**
+     * Reference DC flows, computed with a dense solver on the network without the outaged branches
+     */
+    private static double[] dcFlows(int[] outagedBranches) {
+        int n = INJECTIONS.length;
+        double[][] a = new double[n - 1][n];
+        for (int l = 0; l < BUS1.length; l++) {
+            final int branch = l;
+            if (Arrays.stream(outagedBranches).anyMatch(o -> o == branch)) {
+                continue;
+            }
+            double b = 1 / X[l];
+            int i = BUS1[l] - 1;
+            int j = BUS2[l] - 1;
+            if (i >= 0) {
+                a[i][i] += b;
+            }
+            if (j >= 0) {
+                a[j][j] += b;
+            }
+            if (i >= 0 && j >= 0) {
+                a[i][j] -= b;
+                a[j][i] -= b;
+            }
+        }
+        for (int i = 0; i < n - 1; i++) {
+            a[i][n - 1] = INJECTIONS[i + 1];
+        }
+        for (int col = 0; col < n - 1; col++) {
+            for (int row = col + 1; row < n - 1; row++) {
+                double f = a[row][col] / a[col][col];
+                for (int k = col; k < n; k++) {
+                    a[row][k] -= f * a[col][k];
+                }
+            }
+        }
+        double[] theta = new double[n];
+        for (int row = n - 2; row >= 0; row--) {
+            double s = a[row][n - 1];
+            for (int k = row + 1; k < n - 1; k++) {
+                s -= a[row][k] * theta[k + 1];
+            }
+            theta[row + 1] = s / a[row][row];
+        }
+        double[] flows = new double[BUS1.length];
+        for (int l = 0; l < BUS1.length; l++) {
+            final int branch = l;
+            if (Arrays.stream(outagedBranches).noneMatch(o -> o == branch)) {
+                flows[l] = (theta[BUS1[l]] - theta[BUS2[l]]) / X[l];
+            }
+        }
+        return flows;
+    }
+
+    @Test
+    public void testPtdf() {
+        DcSensitivityMatrix matrix = new DcSensitivityMatrix(5, BUS1, BUS2, X, 0);
+        assertEquals(7, matrix.getBranchCount());
+        // the PTDF does not depend on the slack bus
+        DcSensitivityMatrix matrix2 = new DcSensitivityMatrix(5, BUS1, BUS2, X, 3);
+        for (int k = 0; k < BUS1.length; k++) {
+            assertArrayEquals(matrix.getPtdf(k), matrix2.getPtdf(k), 1e-9);
+        }
+    }
+
+    @Test
+    public void testPostContingencyFlows() {
+        DcSensitivityMatrix matrix = new DcSensitivityMatrix(5, BUS1, BUS2, X, 0);
+        double[] baseFlows = dcFlows(new int[0]);
+        assertArrayEquals(baseFlows, matrix.getPostContingencyFlows(baseFlows, new int[0]), 1e-9);
+        for (int k = 0; k < BUS1.length; k++) {
+            assertArrayEquals(dcFlows(new int[] {k}), matrix.getPostContingencyFlows(baseFlows, new int[] {k}), 1e-9);
+        }
+        assertArrayEquals(dcFlows(new int[] {1, 3}), matrix.getPostContingencyFlows(baseFlows, new int[] {1, 3}), 1e-9);
+        assertArrayEquals(dcFlows(new int[] {0, 4, 6}), matrix.getPostContingencyFlows(baseFlows, new int[] {0, 4, 6}), 1e-9);
+    }
+
+    @Test
+    public void testIslanding() {
+        DcSensitivityMatrix matrix = new DcSensitivityMatrix(5, BUS1, BUS2, X, 0);
+        double[] baseFlows = dcFlows(new int[0]);
+        // bus 4 is only connected by the 2 parallel branches 5 and 6
+        assertNotNull(matrix.getPostContingencyFlows(baseFlows, new int[] {5}));
+        assertNull(matrix.getPostContingencyFlows(baseFlows, new int[] {5, 6}));
+        assertNull(matrix.getPostContingencyFlows(baseFlows, new int[] {0, 1}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotConnected() {
+        new DcSensitivityMatrix(3, new int[] {0}, new int[] {1}, new double[] {0.1}, 0);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.wca;
+
+import com.google.common.io.BaseEncoding;
+import com.powsybl.ampl.converter.AmplExportConfig;
+import com.powsybl.ampl.converter.AmplNetworkWriter;
+import com.powsybl.ampl.converter.AmplSubset;
+import com.powsybl.ampl.converter.AmplUtil;
+import com.powsybl.commons.datasource.DataSource;
+import com.powsybl.commons.datasource.MemDataSource;
+import com.powsybl.commons.util.StringToIntMapper;
+import com.powsybl.computation.ComputationManager;
+import com.powsybl.iidm.network.Network;
+import eu.itesla_project.modules.wca.Uncertainties;
+import eu.itesla_project.wca.uncertainties.UncertaintiesAmplWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Per WCA run cache of the AMPL files which are the same for all the clusters and domains tasks of a base state.
+ * <p>
+ * Uncertainties and historical limits are written once per base state as common files of the computation
+ * manager, and referenced by each task through its common file prefix. As the computation manager has no way
+ * to delete a common file, common files are named after their content: the runs on the same data reuse the
+ * same files instead of writing new ones. The base state network is exported once
+ * per base state and AMPL export configuration, each task then only copies it in front of its own post
+ * contingency, curative and preventive states, as the WCA programs expect all the states in the same files.
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+class WCACommonFiles implements WCAConstants {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WCACommonFiles.class);
+
+    static final String[] COMMON_INPUT_FILE_NAMES = {
+        MEANS_FILE_SUFFIX + "." + TXT_EXT,
+        TRUST_INTERVAL_FILE_SUFFIX + "." + TXT_EXT,
+        REDUCTION_MATRIX_FILE_SUFFIX + "." + TXT_EXT,
+        HISTO_LOADS_FILE_SUFFIX + "." + TXT_EXT,
+        HISTO_GENERATORS_FILE_SUFFIX + "." + TXT_EXT
+    };
+
+    /**
+     * Prefixes of the common files already written, by computation manager.
+     */
+    private static final Map<ComputationManager, Set<String>> WRITTEN_COMMON_FILE_PREFIXES = new WeakHashMap<>();
+
+    private final Network network;
+
+    private final ComputationManager computationManager;
+
+    private final StringToIntMapper<AmplSubset> mapper;
+
+    private final Map<String, String> commonFilePrefixes = new HashMap<>();
+
+    private final Map<String, Map<AmplExportConfig, MemDataSource>> baseStates = new HashMap<>();
+
+    WCACommonFiles(Network network, ComputationManager computationManager, StringToIntMapper<AmplSubset> mapper) {
+        this.network = Objects.requireNonNull(network);
+        this.computationManager = Objects.requireNonNull(computationManager);
+        this.mapper = Objects.requireNonNull(mapper);
+    }
+
+    private static String getCommonFilePrefix(MemDataSource dataSource) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String fileName : COMMON_INPUT_FILE_NAMES) {
+                byte[] data = dataSource.getData(fileName);
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(data.length).array());
+                digest.update(data);
+            }
+            return COMMONE_FILE_PREFIX + "_common_" + BaseEncoding.base16().lowerCase().encode(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeCommonFiles(String commonFilePrefix, MemDataSource dataSource) throws IOException {
+        synchronized (WRITTEN_COMMON_FILE_PREFIXES) {
+            Set<String> writtenCommonFilePrefixes = WRITTEN_COMMON_FILE_PREFIXES.computeIfAbsent(computationManager, k -> new HashSet<>());
+            if (writtenCommonFilePrefixes.contains(commonFilePrefix)) {
+                return;
+            }
+            for (String fileName : COMMON_INPUT_FILE_NAMES) {
+                try (OutputStream os = computationManager.newCommonFile(commonFilePrefix + fileName)) {
+                    os.write(dataSource.getData(fileName));
+                }
+            }
+            writtenCommonFilePrefixes.add(commonFilePrefix);
+        }
+    }
+
+    private void fillMapper(String stateId) {
+        network.getStateManager().setWorkingState(stateId);
+        AmplUtil.resetNetworkMapping(mapper);
+        AmplUtil.fillMapper(mapper, network);
+    }
+
+    /**
+     * Write, if not already done for this state or for the same content, the uncertainties and historical limits
+     * common files.
+     * The working state of the network is changed to the base state.
+     *
+     * @return the prefix of the common files, to be given to the WCA programs
+     */
+    synchronized String writeUncertainties(String baseStateId, Uncertainties uncertainties, WCAHistoLimits histoLimits) throws IOException {
+        Objects.requireNonNull(baseStateId);
+        String commonFilePrefix = commonFilePrefixes.get(baseStateId);
+        if (commonFilePrefix == null) {
+            fillMapper(baseStateId);
+
+            MemDataSource dataSource = new MemDataSource();
+
+            // write uncertainties
+            new UncertaintiesAmplWriter(uncertainties, dataSource, mapper).write();
+
+            // write historical interval
+            histoLimits.write(dataSource, mapper);
+
+            commonFilePrefix = getCommonFilePrefix(dataSource);
+            writeCommonFiles(commonFilePrefix, dataSource);
+
+            LOGGER.debug("Network {}, state {}: WCA common files written with prefix {}", network.getId(), baseStateId, commonFilePrefix);
+
+            commonFilePrefixes.put(baseStateId, commonFilePrefix);
+        }
+        network.getStateManager().setWorkingState(baseStateId);
+        return commonFilePrefix;
+    }
+
+    /**
+     * Copy the base state network AMPL files to a task data source, the base state being exported only once per
+     * export configuration. The working state of the network is changed to the base state.
+     */
+    synchronized void writeBaseState(String baseStateId, AmplExportConfig exportConfig, DataSource dataSource) throws IOException {
+        Objects.requireNonNull(baseStateId);
+        Objects.requireNonNull(exportConfig);
+        Objects.requireNonNull(dataSource);
+        Map<AmplExportConfig, MemDataSource> baseStatesByConfig = baseStates.computeIfAbsent(baseStateId, k -> new HashMap<>());
+        MemDataSource baseState = baseStatesByConfig.get(exportConfig);
+        if (baseState == null) {
+            fillMapper(baseStateId);
+            baseState = new MemDataSource();
+            new AmplNetworkWriter(network, baseState, 0, 0, false, mapper, exportConfig).write();
+            baseStatesByConfig.put(exportConfig, baseState);
+        }
+        for (String fileName : baseState.listNames(".*")) {
+            try (OutputStream os = dataSource.newOutputStream(dataSource.getBaseName() + fileName, false)) {
+                os.write(baseState.getData(fileName));
+            }
+        }
+        network.getStateManager().setWorkingState(baseStateId);
+    }
+}
@@ -78,7 +78,6 @@ import com.powsybl.security.Security;
 import com.powsybl.simulation.securityindexes.SecurityIndexId;
 import com.powsybl.simulation.securityindexes.SecurityIndexType;
 import eu.itesla_project.wca.report.WCAReportImpl;
-import eu.itesla_project.wca.uncertainties.UncertaintiesAmplWriter;
 
 /**
  *
@@ -96,14 +95,6 @@ public class WCAImpl implements WCA, WCAConstants {
 
     private static final String REQUIRED_FILE_NAME = "required";
 
-    private static final String[] COMMON_INPUT_FILE_NAMES = {
-        MEANS_FILE_SUFFIX + "." + TXT_EXT,
-        TRUST_INTERVAL_FILE_SUFFIX + "." + TXT_EXT,
-        REDUCTION_MATRIX_FILE_SUFFIX + "." + TXT_EXT,
-        HISTO_LOADS_FILE_SUFFIX + "." + TXT_EXT,
-        HISTO_GENERATORS_FILE_SUFFIX + "." + TXT_EXT
-    };
-
     private static final String[] INPUT_FILE_NAMES = {
         FAULTS_FILE_SUFFIX + "." + TXT_EXT,
         ACTIONS_FILE_SUFFIX + "." + TXT_EXT,
@@ -198,11 +189,11 @@ public class WCAImpl implements WCA, WCAConstants {
                 : SecurityIndexType.values();
     }
 
-    private List<InputFile> inputFiles(int dataSetNum) {
-        List<InputFile> inputFiles = new ArrayList<>(INPUT_FILE_NAMES.length + 1);
+    private List<InputFile> inputFiles(String commonFilePrefix, int dataSetNum) {
+        List<InputFile> inputFiles = new ArrayList<>(WCACommonFiles.COMMON_INPUT_FILE_NAMES.length + INPUT_FILE_NAMES.length + 1);
         inputFiles.add(new InputFile(REQUIRED_FILE_NAME));
-        for (String inputFileName : COMMON_INPUT_FILE_NAMES) {
-            inputFiles.add(new InputFile(COMMONE_FILE_PREFIX + inputFileName));
+        for (String inputFileName : WCACommonFiles.COMMON_INPUT_FILE_NAMES) {
+            inputFiles.add(new InputFile(commonFilePrefix + inputFileName));
         }
         for (String inputFileName : INPUT_FILE_NAMES) {
             inputFiles.add(new InputFile(FILE_PREFIX + dataSetNum + inputFileName));
@@ -223,6 +214,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                                     Uncertainties uncertainties,
                                                                     WCAHistoLimits histoLimits,
                                                                     StringToIntMapper<AmplSubset> mapper,
+                                                                    WCACommonFiles commonFiles,
                                                                     boolean activateFiltering) {
         return computationManager.execute(new ExecutionEnvironment(env, CLUSTERS_WORKING_DIR_PREFIX, config.isDebug()),
                 new AbstractExecutionHandler<WCAClustersResult>() {
@@ -234,13 +226,8 @@ public class WCAImpl implements WCA, WCAConstants {
 
                         copyRequired(workingDir);
 
-                        DataSource commonDataSource = new FileDataSource(workingDir, COMMONE_FILE_PREFIX);
-
-                        // write uncertainies
-                        new UncertaintiesAmplWriter(uncertainties, commonDataSource, mapper).write();
-
-                        // write historical interval
-                        histoLimits.write(commonDataSource, mapper);
+                        // uncertainties and historical interval are common to all the tasks
+                        String commonFilePrefix = commonFiles.writeUncertainties(baseStateId, uncertainties, histoLimits);
 
                         int contingencyNum = mapper.newInt(AmplSubset.FAULT, contingency.getId());
                         int dataSetNum = contingencyNum - 1;
@@ -248,9 +235,9 @@ public class WCAImpl implements WCA, WCAConstants {
                         DataSource dataSource = new FileDataSource(workingDir, FILE_PREFIX + dataSetNum);
 
                         // write base state
+                        commonFiles.writeBaseState(baseStateId, CLUSTERS_AMPL_EXPORT_CONFIG, dataSource);
                         AmplUtil.resetNetworkMapping(mapper);
                         AmplUtil.fillMapper(mapper, network);
-                        new AmplNetworkWriter(network, dataSource, 0, 0, false, mapper, CLUSTERS_AMPL_EXPORT_CONFIG).write();
                         if (config.isExportStates()) {
                             WCAUtils.exportState(network, workingDir, 0, 0);
                         }
@@ -291,8 +278,8 @@ public class WCAImpl implements WCA, WCAConstants {
                         Command cmd = new SimpleCommandBuilder()
                                 .id(CLUSTERS_CMD_ID)
                                 .program("clusters")
-                                .inputFiles(inputFiles(dataSetNum))
-                                .args(COMMONE_FILE_PREFIX,
+                                .inputFiles(inputFiles(commonFilePrefix, dataSetNum))
+                                .args(commonFilePrefix,
                                         FILE_PREFIX + dataSetNum,
                                         REQUIRED_FILE_NAME,
                                         "" + dataSetNum,
@@ -326,6 +313,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                                   Uncertainties uncertainties,
                                                                   WCAHistoLimits histoLimits,
                                                                   StringToIntMapper<AmplSubset> mapper,
+                                                                  WCACommonFiles commonFiles,
                                                                   List<String> preventiveStateIds,
                                                                   List<String> preventiveActionIds,
                                                                   boolean activateFiltering) {
@@ -339,13 +327,8 @@ public class WCAImpl implements WCA, WCAConstants {
 
                         copyRequired(workingDir);
 
-                        DataSource commonDataSource = new FileDataSource(workingDir, COMMONE_FILE_PREFIX);
-
-                        // write uncertainies
-                        new UncertaintiesAmplWriter(uncertainties, commonDataSource, mapper).write();
-
-                        // write historical interval
-                        histoLimits.write(commonDataSource, mapper);
+                        // uncertainties and historical interval are common to all the tasks
+                        String commonFilePrefix = commonFiles.writeUncertainties(baseStateId, uncertainties, histoLimits);
 
                         int contingencyNum = contingency == null ? 1 : mapper.newInt(AmplSubset.FAULT, contingency.getId());
                         int dataSetNum = contingencyNum - 1;
@@ -353,9 +336,9 @@ public class WCAImpl implements WCA, WCAConstants {
                         DataSource dataSource = new FileDataSource(workingDir, FILE_PREFIX + dataSetNum);
 
                         // write base state
+                        commonFiles.writeBaseState(baseStateId, DOMAINS_AMPL_EXPORT_CONFIG, dataSource);
                         AmplUtil.resetNetworkMapping(mapper);
                         AmplUtil.fillMapper(mapper, network);
-                        new AmplNetworkWriter(network, dataSource, 0, 0, false, mapper, DOMAINS_AMPL_EXPORT_CONFIG).write();
                         if (config.isExportStates()) {
                             WCAUtils.exportState(network, workingDir, 0, 0);
                         }
@@ -387,8 +370,8 @@ public class WCAImpl implements WCA, WCAConstants {
                         Command cmd = new SimpleCommandBuilder()
                                 .id(DOMAINS_CMD_ID)
                                 .program("domains")
-                                .inputFiles(inputFiles(dataSetNum))
-                                .args(COMMONE_FILE_PREFIX,
+                                .inputFiles(inputFiles(commonFilePrefix, dataSetNum))
+                                .args(commonFilePrefix,
                                         FILE_PREFIX + dataSetNum,
                                         REQUIRED_FILE_NAME,
                                         "" + dataSetNum,
@@ -426,11 +409,12 @@ public class WCAImpl implements WCA, WCAConstants {
                                                                             Supplier<CompletableFuture<Uncertainties>> memoizedUncertaintiesFuture,
                                                                             Supplier<CompletableFuture<WCAHistoLimits>> histoLimitsFuture,
                                                                             StringToIntMapper<AmplSubset> mapper,
+                                                                            WCACommonFiles commonFiles,
                                                                             boolean activateFiltering) {
         return memoizedUncertaintiesFuture.get()
                 .thenCombine(histoLimitsFuture.get(), (uncertainties, histoLimits) -> Pair.of(uncertainties, histoLimits))
                 .thenCompose(p -> createClustersTask(contingency, curativeActionIds, baseStateId, contingencyStateId, curativeStateIds,
-                                                     securityRuleExpressions, p.getFirst(), p.getSecond(), mapper, activateFiltering));
+                                                     securityRuleExpressions, p.getFirst(), p.getSecond(), mapper, commonFiles, activateFiltering));
     }
 
     private CompletableFuture<WCADomainsResult> createDomainsTaskWithDeps(Contingency contingency,
@@ -439,12 +423,13 @@ public class WCAImpl implements WCA, WCAConstants {
                                                                           Supplier<CompletableFuture<Uncertainties>> memoizedUncertaintiesFuture,
                                                                           Supplier<CompletableFuture<WCAHistoLimits>> histoLimitsFuture,
                                                                           StringToIntMapper<AmplSubset> mapper,
+                                                                          WCACommonFiles commonFiles,
                                                                           List<String> preventiveStateIds,
                                                                           List<String> preventiveActionIds,
                                                                           boolean activateFiltering) {
         return memoizedUncertaintiesFuture.get()
                 .thenCombine(histoLimitsFuture.get(), (uncertainties, histoLimits) -> Pair.of(uncertainties, histoLimits))
-                .thenCompose(p -> createDomainsTask(contingency, baseStateId, securityRuleExpressions, p.getFirst(), p.getSecond(), mapper,
+                .thenCompose(p -> createDomainsTask(contingency, baseStateId, securityRuleExpressions, p.getFirst(), p.getSecond(), mapper, commonFiles,
                                                     preventiveStateIds, preventiveActionIds, activateFiltering));
     }
 
@@ -454,6 +439,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                                         Supplier<CompletableFuture<Uncertainties>> memoizedUncertaintiesFuture,
                                                                         Supplier<CompletableFuture<WCAHistoLimits>> histoLimitsFuture,
                                                                         StringToIntMapper<AmplSubset> mapper,
+                                                                        WCACommonFiles commonFiles,
                                                                         LoadFlow loadFlow,
                                                                         boolean activateFiltering,
                                                                         boolean filterCurativeActions,
@@ -515,7 +501,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                 if (WCACurativeActionsOptimizer.CLUSTERS.equals(config.getCurativeActionsOptimizer())) {
                                     return createClustersTaskWithDeps(contingency, Collections.emptyList(), baseStateId, contingencyStateId[0],
                                                                       Collections.emptyList(), securityRuleExpressions, memoizedUncertaintiesFuture,
-                                                                      histoLimitsFuture, mapper, activateFiltering)
+                                                                      histoLimitsFuture, mapper, commonFiles, activateFiltering)
                                                                       .thenCompose(clusterResults -> {
                                                                           return CompletableFuture.completedFuture(clusterResults.getClusterNum());
                                                                       });
@@ -612,7 +598,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                 LOGGER.info("Network {}, contingency {}: running 'clusters' curative action optimizer", network.getId(), contingency.getId());
                                                 return createClustersTaskWithDeps(contingency, curativeActionIdsForClusters, baseStateId, contingencyStateId[0],
                                                                   curativeStateIdsForClusters, securityRuleExpressions, memoizedUncertaintiesFuture,
-                                                                  histoLimitsFuture, mapper, activateFiltering);
+                                                                  histoLimitsFuture, mapper, commonFiles, activateFiltering);
                                             } else {
                                                 return CompletableFuture.completedFuture(clusterResults);
                                             }
@@ -691,6 +677,8 @@ public class WCAImpl implements WCA, WCAConstants {
 
                     StringToIntMapper<AmplSubset> mapper = AmplUtil.createMapper(network);
 
+                    WCACommonFiles commonFiles = new WCACommonFiles(network, computationManager, mapper);
+
                     Collection<Contingency> contingencies = contingencyDbFacade.getContingencies();
                     LOGGER.info("Network {}: working on {} contingencies", network.getId(), contingencies.size());
 
@@ -757,7 +745,7 @@ public class WCAImpl implements WCA, WCAConstants {
                         if (WCAPreventiveActionsFilter.DOMAINS.equals(config.getPreventiveActionsFilter())) {
                             LOGGER.info("Network {}: running 'domains' preventive actions filter", network.getId());
                             violationsToBePrevented = createDomainsTaskWithDeps(null, baseStateId, Collections.emptyList(), uncertainties,
-                                                                                histoLimits, mapper, Collections.emptyList(), Collections.emptyList(),
+                                                                                histoLimits, mapper, commonFiles, Collections.emptyList(), Collections.emptyList(),
                                                                                 config.activateFiltering())
                                     .thenCompose(domainsResult -> {
                                         if (domainsResult.foundBasicViolations()) {
@@ -928,7 +916,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                             if (config.getPreventiveActionsOptimizer().equals(WCAPreventiveActionsOptimizer.DOMAINS)
                                                     && !preventiveActionIdsForDomains.isEmpty()) {
                                                 LOGGER.info("Network {}: running 'domains' preventive actions optimizer", network.getId());
-                                                return createDomainsTaskWithDeps(null, baseStateId, Collections.emptyList(), uncertainties, histoLimits, mapper,
+                                                return createDomainsTaskWithDeps(null, baseStateId, Collections.emptyList(), uncertainties, histoLimits, mapper, commonFiles,
                                                                                  preventiveStateIdsForDomains, preventiveActionIdsForDomains, config.activateFiltering())
                                                                                  .thenCompose(domainsResult -> {
                                                                                      if (domainsResult.getPreventiveActionIndex() > 0) {
@@ -1079,7 +1067,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                     }
                                                     LOGGER.info("Network {}: running 'domains' with security rules for contingency {}", network.getId(), contingency.getId());
                                                     return createDomainsTaskWithDeps(contingency, baseStateId, securityRuleExpressions, uncertainties, histoLimits,
-                                                                                     mapper, preventiveStateIdsForDomains, preventiveActionIdsForDomains,
+                                                                                     mapper, commonFiles, preventiveStateIdsForDomains, preventiveActionIdsForDomains,
                                                                                      config.activateFiltering());
                                                 })
                                                 .thenCompose(domainsResult -> {
@@ -1092,7 +1080,7 @@ public class WCAImpl implements WCA, WCAConstants {
                                                         return CompletableFuture.completedFuture(WCAClusterNum.UNDEFINED);
                                                     }
                                                     return createClustersWorkflowTask(contingency, baseStateId, contingencyDbFacade, securityRuleExpressions,
-                                                                                      uncertainties, histoLimits, mapper, loadFlow, config.activateFiltering(),
+                                                                                      uncertainties, histoLimits, mapper, commonFiles, loadFlow, config.activateFiltering(),
                                                                                       config.filterCurativeActions(), filteredClusters);
                                                 })
                                                 .thenCompose(clusterNum -> {
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2018, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package eu.itesla_project.wca;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.Interval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import com.powsybl.ampl.converter.AmplExportConfig;
+import com.powsybl.ampl.converter.AmplNetworkWriter;
+import com.powsybl.ampl.converter.AmplUtil;
+import com.powsybl.commons.datasource.FileDataSource;
+import com.powsybl.commons.datasource.MemDataSource;
+import com.powsybl.computation.ComputationManager;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.StateManagerConstants;
+import com.powsybl.iidm.network.test.EurostagTutorialExample1Factory;
+
+import eu.itesla_project.modules.wca.Uncertainties;
+
+/**
+ *
+ * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
+ */
+public class WCACommonFilesTest {
+
+    private static final String BASE_STATE_ID = StateManagerConstants.INITIAL_STATE_ID;
+
+    private static final String OTHER_BASE_STATE_ID = "other";
+
+    private static final AmplExportConfig EXPORT_CONFIG = new AmplExportConfig(AmplExportConfig.ExportScope.ONLY_MAIN_CC_AND_CONNECTABLE_GENERATORS_AND_SHUNTS_AND_ALL_LOADS,
+                                                                               false,
+                                                                               AmplExportConfig.ExportActionType.CURATIVE);
+
+    private FileSystem fileSystem;
+
+    private Network network;
+
+    private ComputationManager computationManager;
+
+    private Map<String, ByteArrayOutputStream> commonFiles;
+
+    private Uncertainties uncertainties;
+
+    private Interval histoInterval;
+
+    @Before
+    public void setUp() throws Exception {
+        fileSystem = Jimfs.newFileSystem(Configuration.unix());
+
+        network = EurostagTutorialExample1Factory.create();
+        network.getStateManager().cloneState(BASE_STATE_ID, OTHER_BASE_STATE_ID);
+        network.getStateManager().setWorkingState(OTHER_BASE_STATE_ID);
+        network.getLoad("LOAD").setP0(700);
+        network.getStateManager().setWorkingState(BASE_STATE_ID);
+
+        commonFiles = new HashMap<>();
+        computationManager = Mockito.mock(ComputationManager.class);
+        Mockito.when(computationManager.newCommonFile(Matchers.anyString())).thenAnswer(invocation -> {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            commonFiles.put(invocation.getArgumentAt(0, String.class), os);
+            return os;
+        });
+
+        uncertainties = new Uncertainties(Collections.emptyList(), 0);
+        histoInterval = Interval.parse("2013-01-01T00:00:00+01:00/2013-01-31T23:59:00+01:00");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fileSystem.close();
+    }
+
+    private WCACommonFiles createCommonFiles() {
+        return new WCACommonFiles(network, computationManager, AmplUtil.createMapper(network));
+    }
+
+    @Test
+    public void testWriteUncertainties() throws IOException {
+        WCACommonFiles files = createCommonFiles();
+        String commonFilePrefix = files.writeUncertainties(BASE_STATE_ID, uncertainties, new WCAHistoLimits(histoInterval));
+        assertEquals(commonFilePrefix, files.writeUncertainties(BASE_STATE_ID, uncertainties, new WCAHistoLimits(histoInterval)));
+        // the files of another base state with the same content are shared
+        assertEquals(commonFilePrefix, files.writeUncertainties(OTHER_BASE_STATE_ID, uncertainties, new WCAHistoLimits(histoInterval)));
+        // as are the files of another run
+        assertEquals(commonFilePrefix, createCommonFiles().writeUncertainties(BASE_STATE_ID, uncertainties, new WCAHistoLimits(histoInterval)));
+        Mockito.verify(computationManager, Mockito.times(WCACommonFiles.COMMON_INPUT_FILE_NAMES.length)).newCommonFile(Matchers.anyString());
+        assertEquals(WCACommonFiles.COMMON_INPUT_FILE_NAMES.length, commonFiles.size());
+
+        MemDataSource dataSource = new MemDataSource();
+        new WCAHistoLimits(histoInterval).write(dataSource, AmplUtil.createMapper(network));
+        assertArrayEquals(dataSource.getData(WCAConstants.HISTO_LOADS_FILE_SUFFIX, WCAConstants.TXT_EXT),
+                          commonFiles.get(commonFilePrefix + WCAConstants.HISTO_LOADS_FILE_SUFFIX + "." + WCAConstants.TXT_EXT).toByteArray());
+
+        // other historical limits, other files
+        Interval otherHistoInterval = Interval.parse("2013-02-01T00:00:00+01:00/2013-02-28T23:59:00+01:00");
+        String otherCommonFilePrefix = createCommonFiles().writeUncertainties(BASE_STATE_ID, uncertainties, new WCAHistoLimits(otherHistoInterval));
+        assertNotEquals(commonFilePrefix, otherCommonFilePrefix);
+        Mockito.verify(computationManager, Mockito.times(2 * WCACommonFiles.COMMON_INPUT_FILE_NAMES.length)).newCommonFile(Matchers.anyString());
+        for (String fileName : WCACommonFiles.COMMON_INPUT_FILE_NAMES) {
+            assertNotNull(commonFiles.get(otherCommonFilePrefix + fileName));
+        }
+    }
+
+    private static MemDataSource exportBaseState(Network network, String baseStateId) throws IOException {
+        network.getStateManager().setWorkingState(baseStateId);
+        MemDataSource dataSource = new MemDataSource();
+        new AmplNetworkWriter(network, dataSource, 0, 0, false, AmplUtil.createMapper(network), EXPORT_CONFIG).write();
+        return dataSource;
+    }
+
+    private static void checkBaseState(MemDataSource expected, Path workingDir, String baseName) throws IOException {
+        Set<String> fileNames = expected.listNames(".*");
+        assertFalse(fileNames.isEmpty());
+        for (String fileName : fileNames) {
+            assertArrayEquals(expected.getData(fileName), Files.readAllBytes(workingDir.resolve(baseName + fileName)));
+        }
+    }
+
+    @Test
+    public void testWriteBaseState() throws IOException {
+        MemDataSource baseState = exportBaseState(network, BASE_STATE_ID);
+        MemDataSource otherBaseState = exportBaseState(network, OTHER_BASE_STATE_ID);
+
+        Path workingDir = Files.createDirectory(fileSystem.getPath("/wca"));
+        WCACommonFiles files = createCommonFiles();
+        files.writeBaseState(BASE_STATE_ID, EXPORT_CONFIG, new FileDataSource(workingDir, "task1"));
+        checkBaseState(baseState, workingDir, "task1");
+        assertEquals(BASE_STATE_ID, network.getStateManager().getWorkingStateId());
+
+        // the base state is exported once, the next tasks get the same files
+        network.getLoad("LOAD").setP0(800);
+        files.writeBaseState(BASE_STATE_ID, EXPORT_CONFIG, new FileDataSource(workingDir, "task2"));
+        checkBaseState(baseState, workingDir, "task2");
+
+        files.writeBaseState(OTHER_BASE_STATE_ID, EXPORT_CONFIG, new FileDataSource(workingDir, "task3"));
+        checkBaseState(otherBaseState, workingDir, "task3");
+        assertEquals(OTHER_BASE_STATE_ID, network.getStateManager().getWorkingStateId());
+    }
+
+}